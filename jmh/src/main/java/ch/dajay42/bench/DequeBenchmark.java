@@ -0,0 +1,99 @@
+package ch.dajay42.bench;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import ch.dajay42.collections.ArrayListDeque;
+
+/**Queue, stack and random access use of ArrayListDeque, compared to ArrayDeque and ArrayList.*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DequeBenchmark{
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	private Integer[] elements;
+	private ArrayListDeque<Integer> filledArrayListDeque;
+	private ArrayList<Integer> filledArrayList;
+
+	@Setup
+	public void setup(){
+		elements = new Integer[size];
+		for(int i = 0; i < size; i++)
+			elements[i] = i;
+		filledArrayListDeque = new ArrayListDeque<>();
+		filledArrayList = new ArrayList<>();
+		for(Integer e : elements){
+			filledArrayListDeque.addLast(e);
+			filledArrayList.add(e);
+		}
+	}
+
+	private long queue(Deque<Integer> deque){
+		long s = 0;
+		for(Integer e : elements){
+			deque.addLast(e);
+			if((e & 3) == 3)
+				s += deque.pollFirst();
+		}
+		while(!deque.isEmpty())
+			s += deque.pollFirst();
+		return s;
+	}
+
+	private long stack(Deque<Integer> deque){
+		long s = 0;
+		for(Integer e : elements)
+			deque.push(e);
+		while(!deque.isEmpty())
+			s += deque.pop();
+		return s;
+	}
+
+	private long randomAccess(List<Integer> list){
+		long s = 0;
+		for(int i = 0, j = 0; i < size; i++, j = (j + 7919) % size)
+			s += list.get(j);
+		return s;
+	}
+
+	@Benchmark
+	public long queueArrayListDeque(){
+		return queue(new ArrayListDeque<>());
+	}
+
+	@Benchmark
+	public long queueArrayDeque(){
+		return queue(new ArrayDeque<>());
+	}
+
+	@Benchmark
+	public long stackArrayListDeque(){
+		return stack(new ArrayListDeque<>());
+	}
+
+	@Benchmark
+	public long stackArrayDeque(){
+		return stack(new ArrayDeque<>());
+	}
+
+	@Benchmark
+	public long randomAccessArrayListDeque(){
+		return randomAccess(filledArrayListDeque);
+	}
+
+	@Benchmark
+	public long randomAccessArrayList(){
+		return randomAccess(filledArrayList);
+	}
+}
@@ -0,0 +1,79 @@
+package ch.dajay42.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import ch.dajay42.math.function.DoubleReduction;
+import ch.dajay42.math.linAlg.Matrix;
+import ch.dajay42.math.linAlg.MatrixDenseFloat;
+
+/**Products, sums and reductions of float matrices, against the same operations on dense double matrices.*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class FloatMatrixBenchmark{
+
+	@Param({"64", "256"})
+	public int size;
+
+	@Param({"false", "true"})
+	public boolean accumulateInDouble;
+
+	private Matrix a, b, out;
+	private MatrixDenseFloat af, bf, outf;
+
+	@Setup
+	public void setup(){
+		MatrixDenseFloat.ACCUMULATE_IN_DOUBLE = accumulateInDouble;
+		a = Matrix.random(size, size, -1, 1);
+		b = Matrix.random(size, size, -1, 1);
+		out = Matrix.zeroes(size, size);
+		af = MatrixDenseFloat.of(a);
+		bf = MatrixDenseFloat.of(b);
+		outf = new MatrixDenseFloat(size, size);
+	}
+
+	@Benchmark
+	public Matrix doubleMultiply(){
+		return a.multiplyInto(b, out);
+	}
+
+	@Benchmark
+	public Matrix floatMultiply(){
+		return af.multiplyInto(bf, outf);
+	}
+
+	@Benchmark
+	public Matrix mixedMultiply(){
+		return af.multiplyInto(b, out);
+	}
+
+	@Benchmark
+	public Matrix doubleSum(){
+		return a.sumInto(b, out);
+	}
+
+	@Benchmark
+	public Matrix floatSum(){
+		return af.sumInto(bf, outf);
+	}
+
+	@Benchmark
+	public Matrix mixedSum(){
+		return af.sumInto(b, outf);
+	}
+
+	@Benchmark
+	public double doubleReduce(){
+		return a.reduce(DoubleReduction.SUM);
+	}
+
+	@Benchmark
+	public double floatReduce(){
+		return af.reduce(DoubleReduction.SUM);
+	}
+}
@@ -0,0 +1,93 @@
+package ch.dajay42.bench;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import ch.dajay42.collections.ConcurrentNonNegativeIntMapInt;
+import ch.dajay42.collections.NonNegativeIntMapInt;
+
+/**Filling and querying int-int maps with random non-negative keys.*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntMapBenchmark{
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	private int[] keys;
+
+	private NonNegativeIntMapInt map;
+	private ConcurrentNonNegativeIntMapInt concurrentMap;
+	private HashMap<Integer, Integer> hashMap;
+
+	@Setup
+	public void setup(){
+		SplittableRandom random = new SplittableRandom(42);
+		keys = new int[size];
+		for(int i = 0; i < size; i++)
+			keys[i] = 1 + random.nextInt(Integer.MAX_VALUE - 1);
+		map = new NonNegativeIntMapInt(size, 0.5f);
+		concurrentMap = new ConcurrentNonNegativeIntMapInt(size, 0.5f);
+		hashMap = new HashMap<>();
+		for(int i = 0; i < size; i++){
+			map.put(keys[i], i + 1);
+			concurrentMap.put(keys[i], i + 1);
+			hashMap.put(keys[i], i + 1);
+		}
+	}
+
+	@Benchmark
+	public NonNegativeIntMapInt putNonNegativeIntMapInt(){
+		NonNegativeIntMapInt m = new NonNegativeIntMapInt(16, 0.5f);
+		for(int i = 0; i < size; i++)
+			m.put(keys[i], i + 1);
+		return m;
+	}
+
+	@Benchmark
+	public ConcurrentNonNegativeIntMapInt putConcurrentNonNegativeIntMapInt(){
+		ConcurrentNonNegativeIntMapInt m = new ConcurrentNonNegativeIntMapInt(16, 0.5f);
+		for(int i = 0; i < size; i++)
+			m.put(keys[i], i + 1);
+		return m;
+	}
+
+	@Benchmark
+	public HashMap<Integer, Integer> putHashMap(){
+		HashMap<Integer, Integer> m = new HashMap<>();
+		for(int i = 0; i < size; i++)
+			m.put(keys[i], i + 1);
+		return m;
+	}
+
+	@Benchmark
+	public long getNonNegativeIntMapInt(){
+		long s = 0;
+		for(int key : keys)
+			s += map.get(key);
+		return s;
+	}
+
+	@Benchmark
+	public long getConcurrentNonNegativeIntMapInt(){
+		long s = 0;
+		for(int key : keys)
+			s += concurrentMap.get(key);
+		return s;
+	}
+
+	@Benchmark
+	public long getHashMap(){
+		long s = 0;
+		for(int key : keys)
+			s += hashMap.get(key);
+		return s;
+	}
+}
@@ -0,0 +1,71 @@
+package ch.dajay42.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import ch.dajay42.math.linAlg.Matrix;
+import ch.dajay42.math.linAlg.MatrixBatch;
+
+/**Products and inverses of many small square matrices, as one MatrixBatch and as separate dense matrices.*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class MatrixBatchBenchmark{
+
+	@Param({"2", "3", "4"})
+	public int size;
+
+	@Param({"100000"})
+	public int count;
+
+	private MatrixBatch a, b, out;
+	private Matrix[] as, bs;
+
+	@Setup
+	public void setup(){
+		as = new Matrix[count];
+		bs = new Matrix[count];
+		for(int k = 0; k < count; k++){
+			as[k] = Matrix.random(size, size, -1, 1).sum(Matrix.iden(size));
+			bs[k] = Matrix.random(size, size, -1, 1);
+		}
+		a = MatrixBatch.of(as);
+		b = MatrixBatch.of(bs);
+		out = new MatrixBatch(count, size, size);
+	}
+
+	@Benchmark
+	public MatrixBatch batchMultiply(){
+		return a.multiplyInto(b, out);
+	}
+
+	@Benchmark
+	public Matrix[] separateMultiply(){
+		Matrix[] cs = new Matrix[count];
+		for(int k = 0; k < count; k++)
+			cs[k] = as[k].multiply(bs[k]);
+		return cs;
+	}
+
+	@Benchmark
+	public MatrixBatch batchInverse(){
+		return a.inverseInto(out);
+	}
+
+	@Benchmark
+	public Matrix[] separateInverse(){
+		Matrix[] cs = new Matrix[count];
+		for(int k = 0; k < count; k++)
+			cs[k] = as[k].inverse();
+		return cs;
+	}
+
+	@Benchmark
+	public double[] batchDeterminants(){
+		return a.determinants();
+	}
+}
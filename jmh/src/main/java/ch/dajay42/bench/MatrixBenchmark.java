@@ -0,0 +1,197 @@
+package ch.dajay42.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ch.dajay42.math.Summation;
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleReduction;
+import ch.dajay42.math.function.DoubleTernaryOp;
+import ch.dajay42.math.function.DoubleUnaryOp;
+import ch.dajay42.math.linAlg.Matrix;
+import ch.dajay42.math.linAlg.MatrixLazy;
+
+/**Matrix operations on dense, sparse and lazy square matrices of several sizes.
+ * <br/>The *Tagged benchmarks pass the operator enums of ch.dajay42.math.function instead of lambdas,
+ * which lets dense operands use the vectorized kernels; the fork adds jdk.incubator.vector for those.*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class MatrixBenchmark{
+
+	public enum Kind{DENSE, SPARSE, LAZY}
+
+	@Param({"64", "256", "1024"})
+	public int size;
+
+	@Param({"DENSE", "SPARSE", "LAZY"})
+	public Kind kind;
+
+	/**Fraction of non-zeros of sparse operands.*/
+	@Param({"0.01"})
+	public double density;
+
+	private Matrix a, b, v, out;
+
+	@Setup
+	public void setup(){
+		switch(kind){
+			case DENSE:
+				a = Matrix.random(size, size, -1, 1);
+				b = Matrix.random(size, size, -1, 1);
+				break;
+			case SPARSE:
+				a = Matrix.bernoulli(size, size, density).scalarOp((x, y) -> x * y, 0.5);
+				b = Matrix.bernoulli(size, size, density).scalarOp((x, y) -> x * y, 0.5);
+				break;
+			case LAZY:
+				a = Matrix.random(size, size, -1, 1).lazy();
+				b = Matrix.random(size, size, -1, 1).lazy();
+				break;
+		}
+		v = Matrix.random(size, 1, -1, 1);
+		out = Matrix.zeroes(size, size);
+	}
+
+	private static Matrix force(Matrix m){
+		return m instanceof MatrixLazy ? ((MatrixLazy) m).eval() : m;
+	}
+
+	@Benchmark
+	public Matrix multiply(){
+		return force(a.multiply(b));
+	}
+
+	@Benchmark
+	public Matrix multiplyTransposed(){
+		return force(a.transposedView().multiply(b));
+	}
+
+	@Benchmark
+	public Matrix multiplyVector(){
+		return force(a.multiply(v));
+	}
+
+	@Benchmark
+	public Matrix sum(){
+		return force(a.sum(b));
+	}
+
+	@Benchmark
+	public Matrix multiplyInto(){
+		return a.multiplyInto(b, out);
+	}
+
+	@Benchmark
+	public Matrix sumInto(){
+		return a.sumInto(b, out);
+	}
+
+	@Benchmark
+	public Matrix elementWise(){
+		return force(a.elementWise(Math::abs));
+	}
+
+	@Benchmark
+	public Matrix scalarOp(){
+		return force(a.scalarOp((x, y) -> x * y, 3.0d));
+	}
+
+	@Benchmark
+	public Matrix elementWiseTagged(){
+		return force(a.elementWise(DoubleUnaryOp.ABS));
+	}
+
+	@Benchmark
+	public Matrix scalarOpTagged(){
+		return force(a.scalarOp(DoubleBinaryOp.MUL, 3.0d));
+	}
+
+	@Benchmark
+	public Matrix fmaTagged(){
+		return force(a.elementWise(DoubleTernaryOp.FMA, b, a));
+	}
+
+	@Benchmark
+	public double[][] viewChain(){
+		return a.getBlockView(1, 1, size - 2, size - 2).getRowsView(1, size - 4).getColumnView(size / 2).getValues();
+	}
+
+	@Benchmark
+	public double[][] blockView(){
+		return a.getBlockView(1, 1, size - 2, size - 2).getValues();
+	}
+
+	@Benchmark
+	public Matrix transpose(){
+		return force(a.transpose());
+	}
+
+	@Benchmark
+	public Matrix transposeInto(){
+		return a.transposeInto(out);
+	}
+
+	@Benchmark
+	public double aggregate(){
+		return a.aggregate(Double::sum);
+	}
+
+	@Benchmark
+	public double aggregateTagged(){
+		return a.aggregate(DoubleBinaryOp.ADD);
+	}
+
+	@Benchmark
+	public Matrix aggregateRowWise(){
+		return a.aggregateRowWise(Double::sum);
+	}
+
+	@Benchmark
+	public Matrix reduceRowWise(){
+		return a.reduceRowWise(DoubleReduction.MEAN);
+	}
+
+	@Benchmark
+	public Matrix reduceColumnWise(){
+		return a.reduceColumnWise(DoubleReduction.L2);
+	}
+
+	@Benchmark
+	public double norm(){
+		return a.norm();
+	}
+	
+	@Benchmark
+	public double reduceKahan(){
+		return summed(Summation.KAHAN);
+	}
+	
+	@Benchmark
+	public double reducePairwise(){
+		return summed(Summation.PAIRWISE);
+	}
+	
+	private double summed(Summation mode){
+		Matrix.SUMMATION = mode;
+		try{
+			return a.reduce(DoubleReduction.SUM);
+		}finally{
+			Matrix.SUMMATION = Summation.NAIVE;
+		}
+	}
+
+	@Benchmark
+	public void getSet(Blackhole bh){
+		Matrix m = a;
+		for(int i = 0; i < size; i++){
+			m.setValueAt(i, (i * 7) % size, i);
+			bh.consume(m.getValueAt((i * 13) % size, i));
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package ch.dajay42.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import ch.dajay42.math.Point2D;
+
+/**Point2D vector math over an array of points.*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Point2DBenchmark{
+
+	@Param({"10000"})
+	public int size;
+
+	private Point2D[] points;
+
+	@Setup
+	public void setup(){
+		SplittableRandom random = new SplittableRandom(42);
+		points = new Point2D[size];
+		for(int i = 0; i < size; i++)
+			points[i] = new Point2D(random.nextDouble(-1, 1), random.nextDouble(-1, 1));
+	}
+
+	@Benchmark
+	public Point2D sumAll(){
+		return Point2D.sumAll(points);
+	}
+
+	@Benchmark
+	public double dotAndCross(){
+		double s = 0;
+		for(int i = 1; i < size; i++)
+			s += points[i - 1].dot(points[i]) + points[i - 1].cross(points[i]);
+		return s;
+	}
+
+	@Benchmark
+	public Point2D normalizeAndClamp(){
+		Point2D acc = new Point2D();
+		for(Point2D p : points)
+			acc.add(p.getNormalized().getStretched(2.0d).getClamped(1.5d));
+		return acc;
+	}
+
+	@Benchmark
+	public Point2D rotate(){
+		Point2D acc = new Point2D();
+		for(Point2D p : points)
+			acc.add(p.getRotated(0.1d));
+		return acc;
+	}
+}
@@ -0,0 +1,76 @@
+package ch.dajay42.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import ch.dajay42.math.linAlg.Matrix;
+import ch.dajay42.math.linAlg.MatrixCSR;
+import ch.dajay42.math.linAlg.solve.*;
+
+/**Iterative solvers on the 5-point Laplacian of a side*side grid, which is sparse, symmetric and positive definite.*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class SolveBenchmark{
+
+	public enum Method{CG, CG_JACOBI, CG_ILU0, BICGSTAB_ILU0, GMRES_ILU0}
+
+	@Param({"64", "256"})
+	public int side;
+
+	@Param({"CG", "CG_JACOBI", "CG_ILU0", "BICGSTAB_ILU0", "GMRES_ILU0"})
+	public Method method;
+
+	private IterativeSolver solver;
+	private double[] b, x;
+
+	@Setup
+	public void setup(){
+		final int n = side * side;
+		MatrixCSR.Builder builder = MatrixCSR.builder(n, n);
+		for(int i = 0; i < side; i++){
+			for(int j = 0; j < side; j++){
+				int k = i * side + j;
+				builder.add(k, k, 4.0d);
+				if(i > 0) builder.add(k, k - side, -1.0d);
+				if(i < side - 1) builder.add(k, k + side, -1.0d);
+				if(j > 0) builder.add(k, k - 1, -1.0d);
+				if(j < side - 1) builder.add(k, k + 1, -1.0d);
+			}
+		}
+		Matrix a = builder.build();
+		switch(method){
+			case CG:
+				solver = new ConjugateGradient(a);
+				break;
+			case CG_JACOBI:
+				solver = new ConjugateGradient(a).setPreconditioner(new JacobiPreconditioner(a));
+				break;
+			case CG_ILU0:
+				solver = new ConjugateGradient(a).setPreconditioner(new ILU0Preconditioner(a));
+				break;
+			case BICGSTAB_ILU0:
+				solver = new BiCGSTAB(a).setPreconditioner(new ILU0Preconditioner(a));
+				break;
+			case GMRES_ILU0:
+				solver = new GMRES(a).setPreconditioner(new ILU0Preconditioner(a));
+				break;
+		}
+		solver.setTolerance(1e-8);
+		b = new double[n];
+		for(int i = 0; i < n; i++)
+			b[i] = Math.sin(i);
+		x = new double[n];
+	}
+
+	@Benchmark
+	public SolveResult solve(){
+		Arrays.fill(x, 0.0d);
+		return solver.solve(b, x);
+	}
+}
@@ -0,0 +1,71 @@
+package ch.dajay42.bench;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import ch.dajay42.collections.RandomizedTreeSet;
+
+/**Building and querying RandomizedTreeSet, compared to TreeSet.*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeSetBenchmark{
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	private Integer[] elements;
+	private RandomizedTreeSet<Integer> randomizedTreeSet;
+	private TreeSet<Integer> treeSet;
+
+	@Setup
+	public void setup(){
+		SplittableRandom random = new SplittableRandom(42);
+		elements = new Integer[size];
+		for(int i = 0; i < size; i++)
+			elements[i] = random.nextInt();
+		randomizedTreeSet = fill(new RandomizedTreeSet<>());
+		treeSet = fill(new TreeSet<>());
+	}
+
+	private <S extends Set<Integer>> S fill(S set){
+		for(Integer e : elements)
+			set.add(e);
+		return set;
+	}
+
+	private int contains(Set<Integer> set){
+		int n = 0;
+		for(Integer e : elements)
+			if(set.contains(e ^ 1))
+				n++;
+		return n;
+	}
+
+	@Benchmark
+	public Set<Integer> addRandomizedTreeSet(){
+		return fill(new RandomizedTreeSet<>());
+	}
+
+	@Benchmark
+	public Set<Integer> addTreeSet(){
+		return fill(new TreeSet<>());
+	}
+
+	@Benchmark
+	public int containsRandomizedTreeSet(){
+		return contains(randomizedTreeSet);
+	}
+
+	@Benchmark
+	public int containsTreeSet(){
+		return contains(treeSet);
+	}
+}
@@ -185,8 +185,8 @@ public class ArrayListDeque<E> extends AbstractList<E> implements List<E>, Deque
 	 */
 	private void reduceTail(){
 		end--;
-		clean(end);
 		if(end < 0) end += data.length;
+		clean(end);
 		length--;
 		modCount++;
 		assert invariants();
@@ -226,7 +226,7 @@ public class ArrayListDeque<E> extends AbstractList<E> implements List<E>, Deque
 				int oldCap = data.length;
 				int newCap = bestMatchCapacity(targetCapacity);
 				Object[] newData = new Object[newCap];
-				if(start > end){// handle roll-over
+				if(start + length > oldCap){// handle roll-over, including a full array with start == end
 					int newStart = start+newCap-oldCap;
 					System.arraycopy(data, 0, newData, 0, end);
 					System.arraycopy(data, start, newData, newStart, data.length-start);
@@ -234,6 +234,7 @@ public class ArrayListDeque<E> extends AbstractList<E> implements List<E>, Deque
 				}
 				else {
 					System.arraycopy(data, start, newData, start, length);
+					end = start + length; // end may have wrapped to 0 at the old capacity
 				}
 				data = newData;
 			}
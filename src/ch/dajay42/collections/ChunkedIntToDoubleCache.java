@@ -0,0 +1,167 @@
+package ch.dajay42.collections;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntToDoubleFunction;
+
+/**Thread-safe cache of the values of a function over [0, size), computed one tile at a time.
+ * <p/>A tile is a power-of-two sized range of keys. It is computed on first access, exactly once,
+ * even if several threads touch it at the same time; readers of an already computed tile take no lock.
+ * If maxTiles is positive, at most about that many tiles are kept; further tiles evict old ones,
+ * chosen by the CLOCK approximation of least-recently-used, and evicted tiles are recomputed when touched again.
+ * @author DaJay42
+ */
+public final class ChunkedIntToDoubleCache implements IntToDoubleFunction {
+
+	/**Computes the values of a tile.*/
+	@FunctionalInterface
+	public interface Loader {
+		/**Writes the values of keys [from, from+len) into tile[0..len).*/
+		void load(int from, double[] tile, int len);
+	}
+
+	public static final int DEFAULT_TILE_SIZE = 4096;
+
+	private static final int LOCK_STRIPES = 64;
+
+	private final int size;
+	private final int shift;
+	private final int mask;
+	private final int maxTiles;
+	private final Loader loader;
+
+	private final AtomicReferenceArray<double[]> tiles;
+	private final Object[] locks;
+
+	/**CLOCK state, only used if bounded. Races on the reference bits are benign.*/
+	private final boolean[] referenced;
+	private final AtomicInteger resident = new AtomicInteger();
+	private int hand;
+
+	/**Creates an unbounded cache of f over [0, size), with tiles of DEFAULT_TILE_SIZE keys.*/
+	public ChunkedIntToDoubleCache(int size, IntToDoubleFunction f){
+		this(size, DEFAULT_TILE_SIZE, 0, (from, tile, len) -> {
+			for(int i = 0; i < len; i++)
+				tile[i] = f.applyAsDouble(from + i);
+		});
+	}
+
+	/**Creates a cache over [0, size).
+	 * @param size number of keys
+	 * @param tileSize keys per tile, rounded up to a power of two
+	 * @param maxTiles maximal number of tiles kept, or 0 for unbounded
+	 * @param loader computes the values of a tile
+	 */
+	public ChunkedIntToDoubleCache(int size, int tileSize, int maxTiles, Loader loader){
+		if(size < 0 || tileSize < 1 || maxTiles < 0)
+			throw new IllegalArgumentException();
+		if(loader == null)
+			throw new NullPointerException();
+		this.size = size;
+		this.shift = 32 - Integer.numberOfLeadingZeros(Math.max(tileSize, 2) - 1);
+		this.mask = (1 << shift) - 1;
+		this.maxTiles = maxTiles;
+		this.loader = loader;
+		int count = (int) (((long) size + mask) >>> shift);
+		this.tiles = new AtomicReferenceArray<>(count);
+		this.locks = new Object[Math.min(count, LOCK_STRIPES)];
+		for(int i = 0; i < locks.length; i++)
+			locks[i] = new Object();
+		this.referenced = maxTiles > 0 ? new boolean[count] : null;
+	}
+
+	/**Returns the value at key, computing its tile if necessary.*/
+	public final double get(int key){
+		if(key < 0 || key >= size)
+			throw new IndexOutOfBoundsException(key);
+		return tile(key >>> shift)[key & mask];
+	}
+
+	/**Copies the values at keys [from, from+len) into out[off..off+len), computing tiles as necessary.*/
+	public final void get(int from, double[] out, int off, int len){
+		if(from < 0 || len < 0 || from > size - len)
+			throw new IndexOutOfBoundsException(from);
+		while(len > 0){
+			int inTile = from & mask;
+			int n = Math.min(len, mask + 1 - inTile);
+			System.arraycopy(tile(from >>> shift), inTile, out, off, n);
+			from += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**Returns true iff the tile holding key is currently cached.*/
+	public final boolean containsKey(int key){
+		return tiles.get(key >>> shift) != null;
+	}
+
+	/**Returns the number of tiles currently cached.*/
+	public final int residentTiles(){
+		int n = 0;
+		for(int t = 0; t < tiles.length(); t++)
+			if(tiles.get(t) != null)
+				n++;
+		return n;
+	}
+
+	/**Drops all cached tiles.*/
+	public final void clear(){
+		synchronized(this){
+			for(int t = 0; t < tiles.length(); t++)
+				if(tiles.getAndSet(t, null) != null)
+					resident.decrementAndGet();
+		}
+	}
+
+	@Override
+	public final double applyAsDouble(int key) {
+		return get(key);
+	}
+
+	private double[] tile(int t){
+		double[] tile = tiles.get(t);
+		if(tile == null)
+			tile = load(t);
+		if(referenced != null)
+			referenced[t] = true;
+		return tile;
+	}
+
+	private double[] load(int t){
+		synchronized(locks[t % locks.length]){
+			double[] tile = tiles.get(t);
+			if(tile != null)
+				return tile;
+			int from = t << shift;
+			int len = Math.min(mask + 1, size - from);
+			tile = new double[len];
+			loader.load(from, tile, len);
+			if(referenced != null)
+				referenced[t] = true;
+			if(maxTiles > 0 && resident.get() >= maxTiles)
+				evict();
+			tiles.set(t, tile);
+			resident.incrementAndGet();
+			return tile;
+		}
+	}
+
+	/**Advances the clock hand until it has dropped one tile that was not referenced since the last pass.*/
+	private synchronized void evict(){
+		final int count = tiles.length();
+		for(int steps = 0; steps < 2 * count + 1; steps++){
+			int t = hand;
+			hand = (hand + 1) % count;
+			if(tiles.get(t) == null)
+				continue;
+			if(referenced[t]){
+				referenced[t] = false;
+			}else{
+				if(tiles.getAndSet(t, null) != null)
+					resident.decrementAndGet();
+				return;
+			}
+		}
+	}
+}
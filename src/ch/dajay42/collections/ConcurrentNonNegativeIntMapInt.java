@@ -44,10 +44,18 @@ public class ConcurrentNonNegativeIntMapInt{
         m_mask2 = capacity*2 - 1;
         m_fillFactor = fillFactor;
 
-        m_data = new int[capacity * 2];
+        m_data = newData(capacity * 2);
         m_threshold = (int) (capacity * fillFactor);
     }
 
+    /** Allocates a data array of the given length with all keys free */
+    private static int[] newData(final int length){
+        final int[] data = new int[length];
+        for (int i = 0; i < length; i += 2)
+            data[i] = FREE_KEY;
+        return data;
+    }
+
     private int arraySize(final int size, final float fillFactor){
     	final int n = (int) Math.ceil(size / fillFactor);
     	int s = 1;
@@ -211,7 +219,7 @@ public class ConcurrentNonNegativeIntMapInt{
         final int oldCapacity = m_data.length;
         final int[] oldData = m_data;
 
-        m_data = new int[newCapacity];
+        m_data = newData(newCapacity);
         m_size = 0;
 
         for (int i = 0; i < oldCapacity; i += 2) {
@@ -0,0 +1,279 @@
+package ch.dajay42.collections;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+import ch.dajay42.math.function.IntDoubleConsumer;
+
+/**Sparse double vector / int-double map with non-negative keys
+ * <br/>Absent keys map to NO_VALUE; storing NO_VALUE removes the key, so that only non-zero values are ever stored.
+ * Removal uses backward-shift deletion and therefore leaves no tombstones.
+ * Based on https://github.com/mikvor/hashmapTest
+ * @see NonNegativeIntMapInt
+ */
+public class NonNegativeIntMapDouble{
+
+	private static final int INT_PHI = 0x9E3779B9;
+
+	public static int phiMix(final int x){
+		final int h = x * INT_PHI;
+		return h ^ (h >> 16);
+	}
+
+	private static final int FREE_KEY = -1;
+
+    public static final double NO_VALUE = 0.0d;
+
+    /** Keys, FREE_KEY where empty */
+    private int[] m_keys;
+    /** Values, at the same positions as their keys */
+    private double[] m_values;
+
+    /** Fill factor, must be between (0 and 1) */
+    private final float m_fillFactor;
+    /** We will resize a map once it reaches this size */
+    private int m_threshold;
+    /** Current map size */
+    private int m_size;
+
+    /** Mask to calculate the original position */
+    private int m_mask;
+
+    public NonNegativeIntMapDouble(){
+        this(16, 0.5f);
+    }
+
+    public NonNegativeIntMapDouble(final int size, final float fillFactor){
+        if (fillFactor <= 0 || fillFactor >= 1)
+            throw new IllegalArgumentException("FillFactor must be in (0, 1)");
+        if (size <= 0)
+            throw new IllegalArgumentException("Size must be positive!");
+        m_fillFactor = fillFactor;
+        allocate(arraySize(size, fillFactor));
+    }
+
+    private int arraySize(final int size, final float fillFactor){
+    	final int n = (int) Math.ceil(size / fillFactor);
+    	int s = 1;
+    	while(s < n)
+    		s <<= 1;
+		return s;
+	}
+
+    private void allocate(final int capacity){
+        m_mask = capacity - 1;
+        m_threshold = (int) (capacity * m_fillFactor);
+        m_keys = new int[capacity];
+        Arrays.fill(m_keys, FREE_KEY);
+        m_values = new double[capacity];
+    }
+
+    /**Returns the position of key, or of the free slot that ends its chain.*/
+    private int find(final int key){
+        int ptr = phiMix(key) & m_mask;
+        int k;
+        while ((k = m_keys[ptr]) != FREE_KEY && k != key)
+            ptr = (ptr + 1) & m_mask; //that's next index
+        return ptr;
+    }
+
+	public double get(final int key){
+        if (key < 0){
+            throw new IndexOutOfBoundsException("Key must be non-negative!");
+        }
+        final int ptr = find(key);
+        return m_keys[ptr] == key ? m_values[ptr] : NO_VALUE;
+    }
+
+    /**Maps key to value; removes key if value is NO_VALUE.
+     * @return the previous value
+     */
+    public double put(final int key, final double value){
+        if (key < 0){
+            throw new IndexOutOfBoundsException("Key must be non-negative!");
+        }
+        if (value == NO_VALUE)
+            return remove(key);
+
+        final int ptr = find(key);
+        if (m_keys[ptr] == key){
+            final double ret = m_values[ptr];
+            m_values[ptr] = value;
+            return ret;
+        }
+        insertAt(ptr, key, value);
+        return NO_VALUE;
+    }
+
+    /**Adds delta to the value of key; removes key if the result is NO_VALUE.
+     * @return the new value
+     */
+    public double add(final int key, final double delta){
+        if (key < 0){
+            throw new IndexOutOfBoundsException("Key must be non-negative!");
+        }
+        final int ptr = find(key);
+        if (m_keys[ptr] == key){
+            final double v = m_values[ptr] + delta;
+            if (v == NO_VALUE){
+                shiftKeys(ptr);
+                --m_size;
+            }else{
+                m_values[ptr] = v;
+            }
+            return v;
+        }
+        if (delta != NO_VALUE)
+            insertAt(ptr, key, delta);
+        return delta;
+    }
+
+    private void insertAt(final int ptr, final int key, final double value){
+        m_keys[ptr] = key;
+        m_values[ptr] = value;
+        if (++m_size > m_threshold)
+            rehash(m_keys.length * 2);
+    }
+
+    /**@return the removed value, or NO_VALUE if there was none.*/
+    public double remove(final int key){
+        if (key < 0){
+            throw new IndexOutOfBoundsException("Key must be non-negative!");
+        }
+        final int ptr = find(key);
+        if (m_keys[ptr] != key)
+            return NO_VALUE;  //end of chain already
+        final double res = m_values[ptr];
+        shiftKeys(ptr);
+        --m_size;
+        return res;
+    }
+
+    private void shiftKeys(int pos){
+        // Shift entries with the same hash.
+        int last, slot;
+        int k;
+        final int[] keys = this.m_keys;
+        final double[] values = this.m_values;
+        while (true){
+            pos = ((last = pos) + 1) & m_mask;
+            while (true){
+                if ((k = keys[pos]) == FREE_KEY){
+                    keys[last] = FREE_KEY;
+                    values[last] = NO_VALUE;
+                    return;
+                }
+                slot = phiMix(k) & m_mask; //calculate the starting slot for the current key
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos)
+                	break;
+                pos = (pos + 1) & m_mask; //go to the next entry
+            }
+            keys[last] = k;
+            values[last] = values[pos];
+        }
+    }
+
+    /**Calls f once for every stored key and its value, in no particular order.
+     * <br/>f must not modify this map.
+     * <p/>Runs in O(capacity) without allocating.
+     */
+    public void forEachNonZero(final IntDoubleConsumer f){
+        final int[] keys = this.m_keys;
+        final double[] values = this.m_values;
+        for (int i = 0; i < keys.length; i++){
+            if (keys[i] != FREE_KEY)
+                f.accept(keys[i], values[i]);
+        }
+    }
+
+    /**Returns a Spliterator over all stored keys, in no particular order.
+     * <br/>Splits by halving the underlying slot range; the map must not be modified while it is in use.
+     */
+    public Spliterator.OfInt keySpliterator(){
+        return new KeySpliterator(m_keys, 0, m_keys.length, m_size);
+    }
+
+    private static final class KeySpliterator implements Spliterator.OfInt{
+
+        private final int[] keys;
+        private int index;
+        private final int fence;
+        private int exactSize;
+
+        KeySpliterator(final int[] keys, final int origin, final int fence, final int exactSize){
+            this.keys = keys;
+            this.index = origin;
+            this.fence = fence;
+            this.exactSize = exactSize;
+        }
+
+        @Override
+        public boolean tryAdvance(final IntConsumer action){
+            while (index < fence){
+                final int k = keys[index++];
+                if (k != FREE_KEY){
+                    action.accept(k);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(final IntConsumer action){
+            for (; index < fence; index++){
+                final int k = keys[index];
+                if (k != FREE_KEY)
+                    action.accept(k);
+            }
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit(){
+            final int mid = (index + fence) >>> 1;
+            if (mid - index < 64)
+                return null;
+            final Spliterator.OfInt prefix = new KeySpliterator(keys, index, mid, -1);
+            index = mid;
+            exactSize = -1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize(){
+            return exactSize >= 0 ? exactSize : fence - index;
+        }
+
+        @Override
+        public int characteristics(){
+            return DISTINCT | NONNULL | (exactSize >= 0 ? SIZED : 0);
+        }
+    }
+
+    public int size(){
+        return m_size;
+    }
+
+    public void clear(){
+        Arrays.fill(m_keys, FREE_KEY);
+        Arrays.fill(m_values, NO_VALUE);
+        m_size = 0;
+    }
+
+    private void rehash(final int newCapacity){
+        final int[] oldKeys = m_keys;
+        final double[] oldValues = m_values;
+
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            final int oldKey = oldKeys[i];
+            if (oldKey != FREE_KEY){
+                final int ptr = find(oldKey);
+                m_keys[ptr] = oldKey;
+                m_values[ptr] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package ch.dajay42.math;
+
+import java.util.stream.IntStream;
+
+/**Summation algorithms for primitive arrays, trading speed for accuracy.
+ * <p/>Every method splits its input into fixed blocks of BLOCK values, sums each block,
+ * in parallel if there are at least PARALLEL_BLOCKS of them, and then sums the block results in order
+ * with the same algorithm; for KAHAN, these include the compensation of each block. Since the blocks do not depend on the number of threads, neither does the result.
+ * <ul>
+ * <li>{@link #NAIVE}: one addition per value; the error may grow linearly with n.</li>
+ * <li>{@link #KAHAN}: Kahan-Babuska (Neumaier) compensated summation, carrying the rounding error of every addition
+ * in a second accumulator; the error does not grow with n. Dot products additionally recover the error of every
+ * product through Math.fma. About two to four times the cost of NAIVE.</li>
+ * <li>{@link #PAIRWISE}: recursive halving down to runs of LEAF values; the error grows with log(n).
+ * Close to the cost of NAIVE.</li>
+ * </ul>
+ * @author DaJay42
+ */
+public enum Summation{
+	NAIVE{
+		@Override
+		double sumRange(double[] a, int off, int stride, int len){
+			double s = 0.0d;
+			for(int i = 0, p = off; i < len; i++, p += stride)
+				s += a[p];
+			return s;
+		}
+
+		@Override
+		double dotRange(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, int len){
+			double s = 0.0d;
+			for(int i = 0, p = aOff, q = bOff; i < len; i++, p += aStride, q += bStride)
+				s += a[p] * b[q];
+			return s;
+		}
+	},
+	KAHAN{
+		@Override
+		double sumRange(double[] a, int off, int stride, int len){
+			double[] sc = new double[2];
+			sumInto(a, off, stride, len, sc, 0, 1);
+			return sc[0] + sc[1];
+		}
+
+		@Override
+		double dotRange(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, int len){
+			double[] sc = new double[2];
+			dotInto(a, aOff, aStride, b, bOff, bStride, len, sc, 0, 1);
+			return sc[0] + sc[1];
+		}
+
+		/**Keeps the sum and the compensation apart, so that the latter is not rounded away before the end.*/
+		@Override
+		void sumInto(double[] a, int off, int stride, int len, double[] partial, int k, int blocks){
+			double s = 0.0d, c = 0.0d;
+			for(int i = 0, p = off; i < len; i++, p += stride){
+				final double x = a[p], t = s + x;
+				c += Math.abs(s) >= Math.abs(x) ? (s - t) + x : (x - t) + s;
+				s = t;
+			}
+			partial[k] = s;
+			partial[blocks + k] = c;
+		}
+
+		@Override
+		void dotInto(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, int len, double[] partial, int k, int blocks){
+			double s = 0.0d, c = 0.0d;
+			for(int i = 0, p = aOff, q = bOff; i < len; i++, p += aStride, q += bStride){
+				final double x = a[p] * b[q], t = s + x;
+				c += Math.fma(a[p], b[q], -x);
+				c += Math.abs(s) >= Math.abs(x) ? (s - t) + x : (x - t) + s;
+				s = t;
+			}
+			partial[k] = s;
+			partial[blocks + k] = c;
+		}
+
+		@Override
+		int parts(){
+			return 2;
+		}
+	},
+	PAIRWISE{
+		@Override
+		double sumRange(double[] a, int off, int stride, int len){
+			if(len <= LEAF){
+				double s0 = 0.0d, s1 = 0.0d;
+				int i = 0, p = off;
+				for(; i + 2 <= len; i += 2, p += 2 * stride){
+					s0 += a[p];
+					s1 += a[p + stride];
+				}
+				if(i < len)
+					s0 += a[p];
+				return s0 + s1;
+			}
+			final int half = len >>> 1;
+			return sumRange(a, off, stride, half) + sumRange(a, off + half * stride, stride, len - half);
+		}
+
+		@Override
+		double dotRange(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, int len){
+			if(len <= LEAF){
+				double s0 = 0.0d, s1 = 0.0d;
+				int i = 0, p = aOff, q = bOff;
+				for(; i + 2 <= len; i += 2, p += 2 * aStride, q += 2 * bStride){
+					s0 += a[p] * b[q];
+					s1 += a[p + aStride] * b[q + bStride];
+				}
+				if(i < len)
+					s0 += a[p] * b[q];
+				return s0 + s1;
+			}
+			final int half = len >>> 1;
+			return dotRange(a, aOff, aStride, b, bOff, bStride, half)
+					+ dotRange(a, aOff + half * aStride, aStride, b, bOff + half * bStride, bStride, len - half);
+		}
+	};
+
+	/**Values per block.*/
+	public static final int BLOCK = 4096;
+
+	/**Minimal number of blocks to sum in parallel.*/
+	public static final int PARALLEL_BLOCKS = 4;
+
+	/**Length of the runs summed directly by PAIRWISE.*/
+	static final int LEAF = 128;
+
+	/**Returns the sum of a[off], a[off+stride], ... (len values), sequentially.*/
+	abstract double sumRange(double[] a, int off, int stride, int len);
+
+	/**Returns the sum of a[aOff+i*aStride]*b[bOff+i*bStride] for i in [0, len), sequentially.*/
+	abstract double dotRange(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, int len);
+
+	/**Number of values per block written by sumInto and dotInto.*/
+	int parts(){
+		return 1;
+	}
+
+	/**Writes the sum of block k, as by sumRange, into partial[k], and any further parts into partial[k + i*blocks].*/
+	void sumInto(double[] a, int off, int stride, int len, double[] partial, int k, int blocks){
+		partial[k] = sumRange(a, off, stride, len);
+	}
+
+	/**Writes the dot product of block k, as by dotRange, into partial[k], and any further parts into partial[k + i*blocks].*/
+	void dotInto(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, int len, double[] partial, int k, int blocks){
+		partial[k] = dotRange(a, aOff, aStride, b, bOff, bStride, len);
+	}
+
+	/**Returns the sum of all values of a.
+	 * <p/>Runs in O(a.length).
+	 */
+	public double sum(double[] a){
+		return sum(a, 0, 1, a.length);
+	}
+
+	/**Returns the sum of a[from..to).
+	 * <p/>Runs in O(to-from).
+	 */
+	public double sum(double[] a, int from, int to){
+		return sum(a, from, 1, to - from);
+	}
+
+	/**Returns the sum of the len values a[off], a[off+stride], ...
+	 * <p/>Runs in O(len).
+	 */
+	public double sum(double[] a, int off, int stride, int len){
+		if(len <= BLOCK)
+			return sumRange(a, off, stride, len);
+		final int blocks = (len + BLOCK - 1) / BLOCK;
+		final double[] partial = new double[parts() * blocks];
+		blocks(blocks).forEach((k) ->
+				sumInto(a, off + k * BLOCK * stride, stride, Math.min(BLOCK, len - k * BLOCK), partial, k, blocks));
+		return sumRange(partial, 0, 1, partial.length);
+	}
+
+	/**Returns the sum of a[i]*b[i] over both arrays, which must have the same length.
+	 * <p/>Runs in O(a.length).
+	 */
+	public double dot(double[] a, double[] b){
+		if(a.length != b.length)
+			throw new IllegalArgumentException("Arrays must have the same length.");
+		return dot(a, 0, 1, b, 0, 1, a.length);
+	}
+
+	/**Returns the sum of a[aOff+i*aStride]*b[bOff+i*bStride] for i in [0, len).
+	 * <p/>Runs in O(len).
+	 */
+	public double dot(double[] a, int aOff, int aStride, double[] b, int bOff, int bStride, int len){
+		if(len <= BLOCK)
+			return dotRange(a, aOff, aStride, b, bOff, bStride, len);
+		final int blocks = (len + BLOCK - 1) / BLOCK;
+		final double[] partial = new double[parts() * blocks];
+		blocks(blocks).forEach((k) ->
+				dotInto(a, aOff + k * BLOCK * aStride, aStride, b, bOff + k * BLOCK * bStride, bStride, Math.min(BLOCK, len - k * BLOCK), partial, k, blocks));
+		return sumRange(partial, 0, 1, partial.length);
+	}
+
+	private static IntStream blocks(int blocks){
+		return blocks >= PARALLEL_BLOCKS ? IntStream.range(0, blocks).parallel() : IntStream.range(0, blocks).sequential();
+	}
+}
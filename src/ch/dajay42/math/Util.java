@@ -73,13 +73,22 @@ public final class Util {
 		return r;
 	}
 	
+	//compensated and pairwise sums; see Summation for the algorithms and their cost
+	public static double kahanSum(double[] args){
+		return Summation.KAHAN.sum(args);
+	}
+	
+	public static double pairwiseSum(double[] args){
+		return Summation.PAIRWISE.sum(args);
+	}
+	
+	public static double preciseSum(double[] args){
+		return Summation.KAHAN.sum(args);
+	}
+	
+	//leaves args in order, unlike the sorting this used to do
 	public static double preciseSum(Double[] args){
-		double r = 0.0;
-		Arrays.sort(args, ABS_VALUE_COMPARATOR);
-		for(double d : args){
-			r += d;
-		}
-		return r;
+		return preciseSum(Arrays.stream(args).mapToDouble(Double::doubleValue).toArray());
 	}
 	
 	public static double mean(double[] args){
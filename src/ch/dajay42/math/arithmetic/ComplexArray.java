@@ -0,0 +1,375 @@
+package ch.dajay42.math.arithmetic;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**Array of complex numbers, stored as structure of arrays: one double[] of real parts and one of imaginary parts.
+ * <p/>Where a DoubleComplex[] holds one object per element, and every operation on it allocates another,
+ * a ComplexArray holds two arrays, and its operations run as plain loops over them, which the JIT compiler can vectorize.
+ * Each operation comes in three forms, as those of Matrix do: op returns a new ComplexArray,
+ * opInto writes into a given one, which may be this or the operand, and inplaceOp overwrites this.
+ * <br/>{@link DoubleComplex} remains the value of a single element, as returned by {@link #get(int)}.
+ * @author DaJay42
+ */
+public final class ComplexArray{
+
+	/**Number of elements*/
+	public final int length;
+
+	private final double[] real, imaginary;
+
+	/**Creates a new ComplexArray of length zeros.*/
+	public ComplexArray(int length){
+		this.length = length;
+		this.real = new double[length];
+		this.imaginary = new double[length];
+	}
+
+	/**Creates a new ComplexArray backed by the given arrays, which must have the same length, without copying them.*/
+	public ComplexArray(double[] real, double[] imaginary){
+		if(real.length != imaginary.length)
+			throw new IllegalArgumentException("Arrays must have the same length.");
+		this.length = real.length;
+		this.real = real;
+		this.imaginary = imaginary;
+	}
+
+	/**Creates a new ComplexArray holding the given values.
+	 * <p/>Runs in O(values.length).
+	 */
+	public static ComplexArray of(DoubleComplex... values){
+		ComplexArray a = new ComplexArray(values.length);
+		for(int i = 0; i < values.length; i++)
+			a.set(i, values[i]);
+		return a;
+	}
+
+	/**Returns the array of real parts backing this.*/
+	public double[] real(){
+		return real;
+	}
+
+	/**Returns the array of imaginary parts backing this.*/
+	public double[] imaginary(){
+		return imaginary;
+	}
+
+	/**Returns element i.*/
+	public DoubleComplex get(int i){
+		return new DoubleComplex(real[i], imaginary[i]);
+	}
+
+	/**Sets element i to value.*/
+	public void set(int i, DoubleComplex value){
+		real[i] = value.real;
+		imaginary[i] = value.imaginary;
+	}
+
+	/**Sets element i to re + im*i.*/
+	public void set(int i, double re, double im){
+		real[i] = re;
+		imaginary[i] = im;
+	}
+
+	/**Returns a new ComplexArray equal to this.*/
+	@Override
+	public ComplexArray clone(){
+		return new ComplexArray(real.clone(), imaginary.clone());
+	}
+
+	/**Returns the norm of each element.
+	 * <p/>Runs in O(length).
+	 */
+	public double[] norms(){
+		double[] n = new double[length];
+		for(int i = 0; i < length; i++)
+			n[i] = Math.sqrt(real[i] * real[i] + imaginary[i] * imaginary[i]);
+		return n;
+	}
+
+	private void requireLength(ComplexArray other){
+		if(other.length != length)
+			throw new IllegalArgumentException("Arrays must have the same length.");
+	}
+
+	// UNARY
+
+	/**Returns -this, element-wise.*/
+	public ComplexArray negate(){
+		return negateInto(new ComplexArray(length));
+	}
+
+	/**Writes -this into out, element-wise.
+	 * @return out
+	 */
+	public ComplexArray negateInto(ComplexArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.real[i] = -real[i];
+			out.imaginary[i] = -imaginary[i];
+		}
+		return out;
+	}
+
+	/**Negates this, element-wise.
+	 * @return this
+	 */
+	public ComplexArray inplaceNegate(){
+		return negateInto(this);
+	}
+
+	/**Returns 1/this, element-wise.*/
+	public ComplexArray reciprocal(){
+		return reciprocalInto(new ComplexArray(length));
+	}
+
+	/**Writes 1/this into out, element-wise.
+	 * @return out
+	 */
+	public ComplexArray reciprocalInto(ComplexArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double re = real[i], im = imaginary[i];
+			double denominator = re * re + im * im;
+			out.real[i] = re / denominator;
+			out.imaginary[i] = -im / denominator;
+		}
+		return out;
+	}
+
+	/**Replaces this by its reciprocal, element-wise.
+	 * @return this
+	 */
+	public ComplexArray inplaceReciprocal(){
+		return reciprocalInto(this);
+	}
+
+	/**Returns the complex conjugate of this, element-wise.*/
+	public ComplexArray conjugate(){
+		return conjugateInto(new ComplexArray(length));
+	}
+
+	/**Writes the complex conjugate of this into out, element-wise.
+	 * @return out
+	 */
+	public ComplexArray conjugateInto(ComplexArray out){
+		requireLength(out);
+		if(out != this)
+			System.arraycopy(real, 0, out.real, 0, length);
+		for(int i = 0; i < length; i++)
+			out.imaginary[i] = -imaginary[i];
+		return out;
+	}
+
+	/**Replaces this by its complex conjugate, element-wise.
+	 * @return this
+	 */
+	public ComplexArray inplaceConjugate(){
+		return conjugateInto(this);
+	}
+
+	/**Returns e^this, element-wise.*/
+	public ComplexArray exp(){
+		return expInto(new ComplexArray(length));
+	}
+
+	/**Writes e^this into out, element-wise.
+	 * @return out
+	 */
+	public ComplexArray expInto(ComplexArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double r = Math.exp(real[i]), im = imaginary[i];
+			out.real[i] = r * Math.cos(im);
+			out.imaginary[i] = r * Math.sin(im);
+		}
+		return out;
+	}
+
+	/**Replaces this by e^this, element-wise.
+	 * @return this
+	 */
+	public ComplexArray inplaceExp(){
+		return expInto(this);
+	}
+
+	// BINARY
+
+	/**Returns this+other, element-wise.*/
+	public ComplexArray add(ComplexArray other){
+		return addInto(other, new ComplexArray(length));
+	}
+
+	/**Writes this+other into out, element-wise.
+	 * @return out
+	 */
+	public ComplexArray addInto(ComplexArray other, ComplexArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.real[i] = real[i] + other.real[i];
+			out.imaginary[i] = imaginary[i] + other.imaginary[i];
+		}
+		return out;
+	}
+
+	/**Adds other to this, element-wise.
+	 * @return this
+	 */
+	public ComplexArray inplaceAdd(ComplexArray other){
+		return addInto(other, this);
+	}
+
+	/**Returns this-other, element-wise.*/
+	public ComplexArray subtract(ComplexArray other){
+		return subtractInto(other, new ComplexArray(length));
+	}
+
+	/**Writes this-other into out, element-wise.
+	 * @return out
+	 */
+	public ComplexArray subtractInto(ComplexArray other, ComplexArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.real[i] = real[i] - other.real[i];
+			out.imaginary[i] = imaginary[i] - other.imaginary[i];
+		}
+		return out;
+	}
+
+	/**Subtracts other from this, element-wise.
+	 * @return this
+	 */
+	public ComplexArray inplaceSubtract(ComplexArray other){
+		return subtractInto(other, this);
+	}
+
+	/**Returns this*other, element-wise.*/
+	public ComplexArray multiply(ComplexArray other){
+		return multiplyInto(other, new ComplexArray(length));
+	}
+
+	/**Writes this*other into out, element-wise.
+	 * @return out
+	 */
+	public ComplexArray multiplyInto(ComplexArray other, ComplexArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double ar = real[i], ai = imaginary[i], br = other.real[i], bi = other.imaginary[i];
+			out.real[i] = ar * br - ai * bi;
+			out.imaginary[i] = ar * bi + ai * br;
+		}
+		return out;
+	}
+
+	/**Multiplies this by other, element-wise.
+	 * @return this
+	 */
+	public ComplexArray inplaceMultiply(ComplexArray other){
+		return multiplyInto(other, this);
+	}
+
+	/**Returns this/other, element-wise.*/
+	public ComplexArray divide(ComplexArray other){
+		return divideInto(other, new ComplexArray(length));
+	}
+
+	/**Writes this/other into out, element-wise.
+	 * @return out
+	 */
+	public ComplexArray divideInto(ComplexArray other, ComplexArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double ar = real[i], ai = imaginary[i], br = other.real[i], bi = other.imaginary[i];
+			double denominator = br * br + bi * bi;
+			out.real[i] = (ar * br + ai * bi) / denominator;
+			out.imaginary[i] = (ai * br - ar * bi) / denominator;
+		}
+		return out;
+	}
+
+	/**Divides this by other, element-wise.
+	 * @return this
+	 */
+	public ComplexArray inplaceDivide(ComplexArray other){
+		return divideInto(other, this);
+	}
+
+	// COMPONENT-WISE
+
+	/**Returns o applied to the real and imaginary part of each element separately.*/
+	public ComplexArray cwise(DoubleUnaryOperator o){
+		return cwiseInto(o, new ComplexArray(length));
+	}
+
+	/**Writes o applied to the real and imaginary part of each element separately into out.
+	 * @return out
+	 */
+	public ComplexArray cwiseInto(DoubleUnaryOperator o, ComplexArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.real[i] = o.applyAsDouble(real[i]);
+			out.imaginary[i] = o.applyAsDouble(imaginary[i]);
+		}
+		return out;
+	}
+
+	/**Applies o to the real and imaginary part of each element separately.
+	 * @return this
+	 */
+	public ComplexArray inplaceCwise(DoubleUnaryOperator o){
+		return cwiseInto(o, this);
+	}
+
+	/**Returns o applied to the corresponding real and imaginary parts of this and other separately.*/
+	public ComplexArray cwise(DoubleBinaryOperator o, ComplexArray other){
+		return cwiseInto(o, other, new ComplexArray(length));
+	}
+
+	/**Writes o applied to the corresponding real and imaginary parts of this and other separately into out.
+	 * @return out
+	 */
+	public ComplexArray cwiseInto(DoubleBinaryOperator o, ComplexArray other, ComplexArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.real[i] = o.applyAsDouble(real[i], other.real[i]);
+			out.imaginary[i] = o.applyAsDouble(imaginary[i], other.imaginary[i]);
+		}
+		return out;
+	}
+
+	/**Applies o to the corresponding real and imaginary parts of this and other separately.
+	 * @return this
+	 */
+	public ComplexArray inplaceCwise(DoubleBinaryOperator o, ComplexArray other){
+		return cwiseInto(o, other, this);
+	}
+
+	/**Returns o(p, s) for the real and imaginary part p of each element.*/
+	public ComplexArray cwise(DoubleBinaryOperator o, double s){
+		return cwiseInto(o, s, new ComplexArray(length));
+	}
+
+	/**Writes o(p, s) for the real and imaginary part p of each element into out.
+	 * @return out
+	 */
+	public ComplexArray cwiseInto(DoubleBinaryOperator o, double s, ComplexArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.real[i] = o.applyAsDouble(real[i], s);
+			out.imaginary[i] = o.applyAsDouble(imaginary[i], s);
+		}
+		return out;
+	}
+
+	/**Replaces each real and imaginary part p of this by o(p, s).
+	 * @return this
+	 */
+	public ComplexArray inplaceCwise(DoubleBinaryOperator o, double s){
+		return cwiseInto(o, s, this);
+	}
+}
@@ -21,7 +21,7 @@ public class DoubleComplex implements DoubleArithmetic<DoubleComplex>{
 	@Override
 	public DoubleComplex reciprocal(){
 		double denominator = real * real + imaginary * imaginary;
-		return new DoubleComplex(real/denominator, imaginary/denominator);
+		return new DoubleComplex(real/denominator, -imaginary/denominator);
 	}
 	
 	public DoubleComplex conjugate(){
@@ -21,7 +21,7 @@ public class DoubleDual implements DoubleArithmetic<DoubleDual>{
 	
 	@Override
 	public DoubleDual reciprocal(){
-		return new DoubleDual(1 / primal, dual / (primal * primal));
+		return new DoubleDual(1 / primal, -dual / (primal * primal));
 	}
 	
 	public DoubleDual conjugate(){
@@ -46,7 +46,8 @@ public class DoubleDual implements DoubleArithmetic<DoubleDual>{
 	
 	@Override
 	public DoubleDual exp(){
-		return new DoubleDual(Math.exp(primal) + 1, dual); //uncertain. TODO: look up
+		double e = Math.exp(primal);
+		return new DoubleDual(e, dual * e);
 	}
 	
 	@Override
@@ -19,10 +19,7 @@ public class DoubleInterval implements DoubleArithmetic<DoubleInterval>{
 	
 	@Override
 	public DoubleInterval reciprocal(){
-		if(min >= 0.0 || max < 0.0)
-			return new DoubleInterval(1.0/max, 1.0/min);
-		else
-			return new DoubleInterval(1.0/min, 1.0/max);
+		return new DoubleInterval(IntervalArray.reciprocalMin(min, max), IntervalArray.reciprocalMax(min, max));
 	}
 	
 	@Override
@@ -37,14 +34,9 @@ public class DoubleInterval implements DoubleArithmetic<DoubleInterval>{
 	
 	@Override
 	public DoubleInterval multiply(DoubleInterval other){
-		return new DoubleInterval(Math.min(Math.min(this.min * other.min, this.min * other.max), Math.min(this.max * other.min, this.max * other.max)),
-				Math.max(Math.max(this.min * other.min, this.min * other.max), Math.max(this.max * other.min, this.max * other.max)));
-	}
-	
-	@Override
-	public DoubleInterval divide(DoubleInterval other){
-		return new DoubleInterval(Math.min(Math.min(this.min / other.min, this.min / other.max), Math.min(this.max / other.min, this.max / other.max)),
-				Math.max(Math.max(this.min / other.min, this.min / other.max), Math.max(this.max * other.min, this.max * other.max)));
+		double ll = IntervalArray.times(this.min, other.min), lh = IntervalArray.times(this.min, other.max),
+				hl = IntervalArray.times(this.max, other.min), hh = IntervalArray.times(this.max, other.max);
+		return new DoubleInterval(Math.min(Math.min(ll, lh), Math.min(hl, hh)), Math.max(Math.max(ll, lh), Math.max(hl, hh)));
 	}
 	
 	@Override
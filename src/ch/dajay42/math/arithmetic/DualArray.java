@@ -0,0 +1,371 @@
+package ch.dajay42.math.arithmetic;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**Array of dual numbers primal + dual*e, with e*e = 0, stored as structure of arrays:
+ * one double[] of primal parts and one of dual parts.
+ * <p/>Where a DoubleDual[] holds one object per element, and every operation on it allocates another,
+ * a DualArray holds two arrays, and its operations run as plain loops over them, which the JIT compiler can vectorize.
+ * Each operation comes in three forms, as those of Matrix do: op returns a new DualArray,
+ * opInto writes into a given one, which may be this or the operand, and inplaceOp overwrites this.
+ * <br/>{@link DoubleDual} remains the value of a single element, as returned by {@link #get(int)}.
+ * @author DaJay42
+ */
+public final class DualArray{
+
+	/**Number of elements*/
+	public final int length;
+
+	private final double[] primal, dual;
+
+	/**Creates a new DualArray of length zeros.*/
+	public DualArray(int length){
+		this.length = length;
+		this.primal = new double[length];
+		this.dual = new double[length];
+	}
+
+	/**Creates a new DualArray backed by the given arrays, which must have the same length, without copying them.*/
+	public DualArray(double[] primal, double[] dual){
+		if(primal.length != dual.length)
+			throw new IllegalArgumentException("Arrays must have the same length.");
+		this.length = primal.length;
+		this.primal = primal;
+		this.dual = dual;
+	}
+
+	/**Creates a new DualArray holding the given values.
+	 * <p/>Runs in O(values.length).
+	 */
+	public static DualArray of(DoubleDual... values){
+		DualArray a = new DualArray(values.length);
+		for(int i = 0; i < values.length; i++)
+			a.set(i, values[i]);
+		return a;
+	}
+
+	/**Returns the array of primal parts backing this.*/
+	public double[] primal(){
+		return primal;
+	}
+
+	/**Returns the array of dual parts backing this.*/
+	public double[] dual(){
+		return dual;
+	}
+
+	/**Returns element i.*/
+	public DoubleDual get(int i){
+		return new DoubleDual(primal[i], dual[i]);
+	}
+
+	/**Sets element i to value.*/
+	public void set(int i, DoubleDual value){
+		primal[i] = value.primal;
+		dual[i] = value.dual;
+	}
+
+	/**Sets element i to p + d*e.*/
+	public void set(int i, double p, double d){
+		primal[i] = p;
+		dual[i] = d;
+	}
+
+	/**Returns a new DualArray equal to this.*/
+	@Override
+	public DualArray clone(){
+		return new DualArray(primal.clone(), dual.clone());
+	}
+
+	/**Returns the norm of each element, which is its primal part, as by {@link DoubleDual#norm()}.
+	 * <p/>Runs in O(length).
+	 */
+	public double[] norms(){
+		return primal.clone();
+	}
+
+	private void requireLength(DualArray other){
+		if(other.length != length)
+			throw new IllegalArgumentException("Arrays must have the same length.");
+	}
+
+	// UNARY
+
+	/**Returns -this, element-wise.*/
+	public DualArray negate(){
+		return negateInto(new DualArray(length));
+	}
+
+	/**Writes -this into out, element-wise.
+	 * @return out
+	 */
+	public DualArray negateInto(DualArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.primal[i] = -primal[i];
+			out.dual[i] = -dual[i];
+		}
+		return out;
+	}
+
+	/**Negates this, element-wise.
+	 * @return this
+	 */
+	public DualArray inplaceNegate(){
+		return negateInto(this);
+	}
+
+	/**Returns 1/this, element-wise.*/
+	public DualArray reciprocal(){
+		return reciprocalInto(new DualArray(length));
+	}
+
+	/**Writes 1/this into out, element-wise.
+	 * @return out
+	 */
+	public DualArray reciprocalInto(DualArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double p = primal[i];
+			out.primal[i] = 1.0d / p;
+			out.dual[i] = -dual[i] / (p * p);
+		}
+		return out;
+	}
+
+	/**Replaces this by its reciprocal, element-wise.
+	 * @return this
+	 */
+	public DualArray inplaceReciprocal(){
+		return reciprocalInto(this);
+	}
+
+	/**Returns the conjugate of this, element-wise.*/
+	public DualArray conjugate(){
+		return conjugateInto(new DualArray(length));
+	}
+
+	/**Writes the conjugate of this into out, element-wise.
+	 * @return out
+	 */
+	public DualArray conjugateInto(DualArray out){
+		requireLength(out);
+		if(out != this)
+			System.arraycopy(primal, 0, out.primal, 0, length);
+		for(int i = 0; i < length; i++)
+			out.dual[i] = -dual[i];
+		return out;
+	}
+
+	/**Replaces this by its conjugate, element-wise.
+	 * @return this
+	 */
+	public DualArray inplaceConjugate(){
+		return conjugateInto(this);
+	}
+
+	/**Returns e^this, element-wise.*/
+	public DualArray exp(){
+		return expInto(new DualArray(length));
+	}
+
+	/**Writes e^this into out, element-wise.
+	 * @return out
+	 */
+	public DualArray expInto(DualArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double e = Math.exp(primal[i]);
+			out.primal[i] = e;
+			out.dual[i] = dual[i] * e;
+		}
+		return out;
+	}
+
+	/**Replaces this by e^this, element-wise.
+	 * @return this
+	 */
+	public DualArray inplaceExp(){
+		return expInto(this);
+	}
+
+	// BINARY
+
+	/**Returns this+other, element-wise.*/
+	public DualArray add(DualArray other){
+		return addInto(other, new DualArray(length));
+	}
+
+	/**Writes this+other into out, element-wise.
+	 * @return out
+	 */
+	public DualArray addInto(DualArray other, DualArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.primal[i] = primal[i] + other.primal[i];
+			out.dual[i] = dual[i] + other.dual[i];
+		}
+		return out;
+	}
+
+	/**Adds other to this, element-wise.
+	 * @return this
+	 */
+	public DualArray inplaceAdd(DualArray other){
+		return addInto(other, this);
+	}
+
+	/**Returns this-other, element-wise.*/
+	public DualArray subtract(DualArray other){
+		return subtractInto(other, new DualArray(length));
+	}
+
+	/**Writes this-other into out, element-wise.
+	 * @return out
+	 */
+	public DualArray subtractInto(DualArray other, DualArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.primal[i] = primal[i] - other.primal[i];
+			out.dual[i] = dual[i] - other.dual[i];
+		}
+		return out;
+	}
+
+	/**Subtracts other from this, element-wise.
+	 * @return this
+	 */
+	public DualArray inplaceSubtract(DualArray other){
+		return subtractInto(other, this);
+	}
+
+	/**Returns this*other, element-wise.*/
+	public DualArray multiply(DualArray other){
+		return multiplyInto(other, new DualArray(length));
+	}
+
+	/**Writes this*other into out, element-wise.
+	 * @return out
+	 */
+	public DualArray multiplyInto(DualArray other, DualArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double ap = primal[i], ad = dual[i], bp = other.primal[i], bd = other.dual[i];
+			out.primal[i] = ap * bp;
+			out.dual[i] = ap * bd + ad * bp;
+		}
+		return out;
+	}
+
+	/**Multiplies this by other, element-wise.
+	 * @return this
+	 */
+	public DualArray inplaceMultiply(DualArray other){
+		return multiplyInto(other, this);
+	}
+
+	/**Returns this/other, element-wise.*/
+	public DualArray divide(DualArray other){
+		return divideInto(other, new DualArray(length));
+	}
+
+	/**Writes this/other into out, element-wise.
+	 * @return out
+	 */
+	public DualArray divideInto(DualArray other, DualArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double ap = primal[i], ad = dual[i], bp = other.primal[i], bd = other.dual[i];
+			out.primal[i] = ap / bp;
+			out.dual[i] = (ad * bp - ap * bd) / (bp * bp);
+		}
+		return out;
+	}
+
+	/**Divides this by other, element-wise.
+	 * @return this
+	 */
+	public DualArray inplaceDivide(DualArray other){
+		return divideInto(other, this);
+	}
+
+	// COMPONENT-WISE
+
+	/**Returns o applied to the primal and dual part of each element separately.*/
+	public DualArray cwise(DoubleUnaryOperator o){
+		return cwiseInto(o, new DualArray(length));
+	}
+
+	/**Writes o applied to the primal and dual part of each element separately into out.
+	 * @return out
+	 */
+	public DualArray cwiseInto(DoubleUnaryOperator o, DualArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.primal[i] = o.applyAsDouble(primal[i]);
+			out.dual[i] = o.applyAsDouble(dual[i]);
+		}
+		return out;
+	}
+
+	/**Applies o to the primal and dual part of each element separately.
+	 * @return this
+	 */
+	public DualArray inplaceCwise(DoubleUnaryOperator o){
+		return cwiseInto(o, this);
+	}
+
+	/**Returns o applied to the corresponding primal and dual parts of this and other separately.*/
+	public DualArray cwise(DoubleBinaryOperator o, DualArray other){
+		return cwiseInto(o, other, new DualArray(length));
+	}
+
+	/**Writes o applied to the corresponding primal and dual parts of this and other separately into out.
+	 * @return out
+	 */
+	public DualArray cwiseInto(DoubleBinaryOperator o, DualArray other, DualArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.primal[i] = o.applyAsDouble(primal[i], other.primal[i]);
+			out.dual[i] = o.applyAsDouble(dual[i], other.dual[i]);
+		}
+		return out;
+	}
+
+	/**Applies o to the corresponding primal and dual parts of this and other separately.
+	 * @return this
+	 */
+	public DualArray inplaceCwise(DoubleBinaryOperator o, DualArray other){
+		return cwiseInto(o, other, this);
+	}
+
+	/**Returns o(p, s) for the primal and dual part p of each element.*/
+	public DualArray cwise(DoubleBinaryOperator o, double s){
+		return cwiseInto(o, s, new DualArray(length));
+	}
+
+	/**Writes o(p, s) for the primal and dual part p of each element into out.
+	 * @return out
+	 */
+	public DualArray cwiseInto(DoubleBinaryOperator o, double s, DualArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.primal[i] = o.applyAsDouble(primal[i], s);
+			out.dual[i] = o.applyAsDouble(dual[i], s);
+		}
+		return out;
+	}
+
+	/**Replaces each primal and dual part p of this by o(p, s).
+	 * @return this
+	 */
+	public DualArray inplaceCwise(DoubleBinaryOperator o, double s){
+		return cwiseInto(o, s, this);
+	}
+}
@@ -0,0 +1,377 @@
+package ch.dajay42.math.arithmetic;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**Array of intervals [min, max], stored as structure of arrays: one double[] of lower bounds and one of upper bounds.
+ * <p/>Where a DoubleInterval[] holds one object per element, and every operation on it allocates another,
+ * a IntervalArray holds two arrays, and its operations run as plain loops over them, which the JIT compiler can vectorize.
+ * Each operation comes in three forms, as those of Matrix do: op returns a new IntervalArray,
+ * opInto writes into a given one, which may be this or the operand, and inplaceOp overwrites this.
+ * <br/>{@link DoubleInterval} remains the value of a single element, as returned by {@link #get(int)}.
+ * @author DaJay42
+ */
+public final class IntervalArray{
+
+	/**Number of elements*/
+	public final int length;
+
+	private final double[] min, max;
+
+	/**Creates a new IntervalArray of length zeros.*/
+	public IntervalArray(int length){
+		this.length = length;
+		this.min = new double[length];
+		this.max = new double[length];
+	}
+
+	/**Creates a new IntervalArray backed by the given arrays, which must have the same length, without copying them.*/
+	public IntervalArray(double[] min, double[] max){
+		if(min.length != max.length)
+			throw new IllegalArgumentException("Arrays must have the same length.");
+		this.length = min.length;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**Creates a new IntervalArray holding the given values.
+	 * <p/>Runs in O(values.length).
+	 */
+	public static IntervalArray of(DoubleInterval... values){
+		IntervalArray a = new IntervalArray(values.length);
+		for(int i = 0; i < values.length; i++)
+			a.set(i, values[i]);
+		return a;
+	}
+
+	/**Returns the array of lower bounds backing this.*/
+	public double[] min(){
+		return min;
+	}
+
+	/**Returns the array of upper bounds backing this.*/
+	public double[] max(){
+		return max;
+	}
+
+	/**Returns element i.*/
+	public DoubleInterval get(int i){
+		return new DoubleInterval(min[i], max[i]);
+	}
+
+	/**Sets element i to value.*/
+	public void set(int i, DoubleInterval value){
+		min[i] = value.min;
+		max[i] = value.max;
+	}
+
+	/**Sets element i to [lo, hi].*/
+	public void set(int i, double lo, double hi){
+		min[i] = lo;
+		max[i] = hi;
+	}
+
+	/**Returns a new IntervalArray equal to this.*/
+	@Override
+	public IntervalArray clone(){
+		return new IntervalArray(min.clone(), max.clone());
+	}
+
+	/**Returns the norm of each element, which is its width, as by {@link DoubleInterval#norm()}.
+	 * <p/>Runs in O(length).
+	 */
+	public double[] norms(){
+		double[] n = new double[length];
+		for(int i = 0; i < length; i++)
+			n[i] = max[i] - min[i];
+		return n;
+	}
+
+	private void requireLength(IntervalArray other){
+		if(other.length != length)
+			throw new IllegalArgumentException("Arrays must have the same length.");
+	}
+
+	// UNARY
+
+	/**Returns -this, element-wise.*/
+	public IntervalArray negate(){
+		return negateInto(new IntervalArray(length));
+	}
+
+	/**Writes -this into out, element-wise.
+	 * @return out
+	 */
+	public IntervalArray negateInto(IntervalArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double lo = min[i];
+			out.min[i] = -max[i];
+			out.max[i] = -lo;
+		}
+		return out;
+	}
+
+	/**Negates this, element-wise.
+	 * @return this
+	 */
+	public IntervalArray inplaceNegate(){
+		return negateInto(this);
+	}
+
+	/**Returns 1/this, element-wise.*/
+	public IntervalArray reciprocal(){
+		return reciprocalInto(new IntervalArray(length));
+	}
+
+	/**Writes 1/this into out, element-wise.
+	 * <br/>The reciprocal of an interval containing 0 is unbounded on the side(s) of 0 it extends to.
+	 * @return out
+	 */
+	public IntervalArray reciprocalInto(IntervalArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double lo = min[i], hi = max[i];
+			out.min[i] = reciprocalMin(lo, hi);
+			out.max[i] = reciprocalMax(lo, hi);
+		}
+		return out;
+	}
+
+	/**Returns the lower bound of 1/[lo, hi].*/
+	static double reciprocalMin(double lo, double hi){
+		return lo > 0.0d || hi < 0.0d || lo == 0.0d && hi > 0.0d ? 1.0d / hi : Double.NEGATIVE_INFINITY;
+	}
+
+	/**Returns the upper bound of 1/[lo, hi].*/
+	static double reciprocalMax(double lo, double hi){
+		return lo > 0.0d || hi < 0.0d || hi == 0.0d && lo < 0.0d ? 1.0d / lo : Double.POSITIVE_INFINITY;
+	}
+
+	/**Returns the product of the bounds a and b, taking 0*inf to be 0:
+	 * the bound 0 stands for the number 0 itself, and an infinite bound for arbitrarily large ones,
+	 * so that, e.g., [0, 1] divided by an interval straddling 0 is [-inf, inf] rather than NaN.*/
+	static double times(double a, double b){
+		double p = a * b;
+		return p != p && a == a && b == b ? 0.0d : p;
+	}
+
+	/**Replaces this by its reciprocal, element-wise.
+	 * @return this
+	 */
+	public IntervalArray inplaceReciprocal(){
+		return reciprocalInto(this);
+	}
+
+	/**Returns e^this, element-wise.*/
+	public IntervalArray exp(){
+		return expInto(new IntervalArray(length));
+	}
+
+	/**Writes e^this into out, element-wise.
+	 * @return out
+	 */
+	public IntervalArray expInto(IntervalArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.min[i] = Math.exp(min[i]);
+			out.max[i] = Math.exp(max[i]);
+		}
+		return out;
+	}
+
+	/**Replaces this by e^this, element-wise.
+	 * @return this
+	 */
+	public IntervalArray inplaceExp(){
+		return expInto(this);
+	}
+
+	// BINARY
+
+	/**Returns this+other, element-wise.*/
+	public IntervalArray add(IntervalArray other){
+		return addInto(other, new IntervalArray(length));
+	}
+
+	/**Writes this+other into out, element-wise.
+	 * @return out
+	 */
+	public IntervalArray addInto(IntervalArray other, IntervalArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			out.min[i] = min[i] + other.min[i];
+			out.max[i] = max[i] + other.max[i];
+		}
+		return out;
+	}
+
+	/**Adds other to this, element-wise.
+	 * @return this
+	 */
+	public IntervalArray inplaceAdd(IntervalArray other){
+		return addInto(other, this);
+	}
+
+	/**Returns this-other, element-wise.*/
+	public IntervalArray subtract(IntervalArray other){
+		return subtractInto(other, new IntervalArray(length));
+	}
+
+	/**Writes this-other into out, element-wise.
+	 * @return out
+	 */
+	public IntervalArray subtractInto(IntervalArray other, IntervalArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double lo = min[i] - other.max[i];
+			out.max[i] = max[i] - other.min[i];
+			out.min[i] = lo;
+		}
+		return out;
+	}
+
+	/**Subtracts other from this, element-wise.
+	 * @return this
+	 */
+	public IntervalArray inplaceSubtract(IntervalArray other){
+		return subtractInto(other, this);
+	}
+
+	/**Returns this*other, element-wise.*/
+	public IntervalArray multiply(IntervalArray other){
+		return multiplyInto(other, new IntervalArray(length));
+	}
+
+	/**Writes this*other into out, element-wise.
+	 * <br/>A bound of 0 times an infinite bound is 0, see {@link #divideInto(IntervalArray, IntervalArray)}.
+	 * @return out
+	 */
+	public IntervalArray multiplyInto(IntervalArray other, IntervalArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double al = min[i], ah = max[i], bl = other.min[i], bh = other.max[i];
+			double ll = times(al, bl), lh = times(al, bh), hl = times(ah, bl), hh = times(ah, bh);
+			out.min[i] = Math.min(Math.min(ll, lh), Math.min(hl, hh));
+			out.max[i] = Math.max(Math.max(ll, lh), Math.max(hl, hh));
+		}
+		return out;
+	}
+
+	/**Multiplies this by other, element-wise.
+	 * @return this
+	 */
+	public IntervalArray inplaceMultiply(IntervalArray other){
+		return multiplyInto(other, this);
+	}
+
+	/**Returns this/other, element-wise.*/
+	public IntervalArray divide(IntervalArray other){
+		return divideInto(other, new IntervalArray(length));
+	}
+
+	/**Writes this/other into out, element-wise, as this times the reciprocal of other.
+	 * <br/>A divisor containing 0 has an unbounded reciprocal; its products with bounds of 0 are taken to be 0,
+	 * so that the quotient is unbounded where it must be, but never NaN for finite operands.
+	 * @return out
+	 */
+	public IntervalArray divideInto(IntervalArray other, IntervalArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double al = min[i], ah = max[i], bl = reciprocalMin(other.min[i], other.max[i]), bh = reciprocalMax(other.min[i], other.max[i]);
+			double ll = times(al, bl), lh = times(al, bh), hl = times(ah, bl), hh = times(ah, bh);
+			out.min[i] = Math.min(Math.min(ll, lh), Math.min(hl, hh));
+			out.max[i] = Math.max(Math.max(ll, lh), Math.max(hl, hh));
+		}
+		return out;
+	}
+
+	/**Divides this by other, element-wise.
+	 * @return this
+	 */
+	public IntervalArray inplaceDivide(IntervalArray other){
+		return divideInto(other, this);
+	}
+
+	// COMPONENT-WISE
+
+	/**Returns o applied to both bounds of each element separately, reordered if o reverses them.*/
+	public IntervalArray cwise(DoubleUnaryOperator o){
+		return cwiseInto(o, new IntervalArray(length));
+	}
+
+	/**Writes o applied to both bounds of each element separately, reordered if o reverses them, into out.
+	 * @return out
+	 */
+	public IntervalArray cwiseInto(DoubleUnaryOperator o, IntervalArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double a = o.applyAsDouble(min[i]), b = o.applyAsDouble(max[i]);
+			out.min[i] = Math.min(a, b);
+			out.max[i] = Math.max(a, b);
+		}
+		return out;
+	}
+
+	/**Applies o to both bounds of each element separately, reordered if o reverses them.
+	 * @return this
+	 */
+	public IntervalArray inplaceCwise(DoubleUnaryOperator o){
+		return cwiseInto(o, this);
+	}
+
+	/**Returns o applied to the corresponding lower and upper bounds of this and other separately, reordered if o reverses them.*/
+	public IntervalArray cwise(DoubleBinaryOperator o, IntervalArray other){
+		return cwiseInto(o, other, new IntervalArray(length));
+	}
+
+	/**Writes o applied to the corresponding lower and upper bounds of this and other separately, reordered if o reverses them, into out.
+	 * @return out
+	 */
+	public IntervalArray cwiseInto(DoubleBinaryOperator o, IntervalArray other, IntervalArray out){
+		requireLength(other);
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double a = o.applyAsDouble(min[i], other.min[i]), b = o.applyAsDouble(max[i], other.max[i]);
+			out.min[i] = Math.min(a, b);
+			out.max[i] = Math.max(a, b);
+		}
+		return out;
+	}
+
+	/**Applies o to the corresponding lower and upper bounds of this and other separately, reordered if o reverses them.
+	 * @return this
+	 */
+	public IntervalArray inplaceCwise(DoubleBinaryOperator o, IntervalArray other){
+		return cwiseInto(o, other, this);
+	}
+
+	/**Returns o(p, s) for both bounds p of each element, reordered if o reverses them.*/
+	public IntervalArray cwise(DoubleBinaryOperator o, double s){
+		return cwiseInto(o, s, new IntervalArray(length));
+	}
+
+	/**Writes o(p, s) for both bounds p of each element, reordered if o reverses them, into out.
+	 * @return out
+	 */
+	public IntervalArray cwiseInto(DoubleBinaryOperator o, double s, IntervalArray out){
+		requireLength(out);
+		for(int i = 0; i < length; i++){
+			double a = o.applyAsDouble(min[i], s), b = o.applyAsDouble(max[i], s);
+			out.min[i] = Math.min(a, b);
+			out.max[i] = Math.max(a, b);
+		}
+		return out;
+	}
+
+	/**Replaces each bound p of this by o(p, s), reordered if o reverses them.
+	 * @return this
+	 */
+	public IntervalArray inplaceCwise(DoubleBinaryOperator o, double s){
+		return cwiseInto(o, s, this);
+	}
+}
@@ -0,0 +1,51 @@
+package ch.dajay42.math.function;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**Common binary operators on doubles, tagged so that bulk operations may recognize them
+ * and substitute a vectorized loop for one call per element.
+ * <br/>Usable wherever a DoubleBinaryOperator is expected.
+ */
+public enum DoubleBinaryOp implements DoubleBinaryOperator{
+	ADD{
+		@Override
+		public double applyAsDouble(double a, double b){
+			return a + b;
+		}
+	},
+	SUB{
+		@Override
+		public double applyAsDouble(double a, double b){
+			return a - b;
+		}
+	},
+	MUL{
+		@Override
+		public double applyAsDouble(double a, double b){
+			return a * b;
+		}
+	},
+	DIV{
+		@Override
+		public double applyAsDouble(double a, double b){
+			return a / b;
+		}
+	},
+	MIN{
+		@Override
+		public double applyAsDouble(double a, double b){
+			return Math.min(a, b);
+		}
+	},
+	MAX{
+		@Override
+		public double applyAsDouble(double a, double b){
+			return Math.max(a, b);
+		}
+	};
+
+	/**Returns true iff this is associative and commutative, and may thus be used to reduce in any order.*/
+	public boolean isReduction(){
+		return this == ADD || this == MUL || this == MIN || this == MAX;
+	}
+}
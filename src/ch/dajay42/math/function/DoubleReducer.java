@@ -0,0 +1,25 @@
+package ch.dajay42.math.function;
+
+/**Reduction of many doubles into one, through a primitive accumulator, so that reducing allocates nothing.
+ * <p/>An accumulation starts at {@link #identity()}, takes values through {@link #accumulate(double, double)},
+ * may be merged with others through {@link #combine(double, double)}, and ends in {@link #finish(double, long)}.
+ * Values may be accumulated in any order and split in any way,
+ * so accumulate and combine must be associative and commutative in effect.
+ * <br/>The constants of {@link DoubleReduction} are recognized by bulk operations and run on vectorized kernels.
+ */
+public interface DoubleReducer{
+
+	/**Returns the accumulator before any value.*/
+	double identity();
+
+	/**Returns the accumulator acc after also taking value.*/
+	double accumulate(double acc, double value);
+
+	/**Returns the accumulator of the values of both a and b.*/
+	double combine(double a, double b);
+
+	/**Returns the result of an accumulator acc of count values.*/
+	default double finish(double acc, long count){
+		return acc;
+	}
+}
@@ -0,0 +1,89 @@
+package ch.dajay42.math.function;
+
+/**Common reductions of doubles, tagged so that bulk operations may recognize them
+ * and substitute a vectorized loop for one call per element.
+ * <br/>Usable wherever a DoubleReducer is expected.
+ */
+public enum DoubleReduction implements DoubleReducer{
+	/**Sum of all values.*/
+	SUM{
+		@Override
+		public double identity(){
+			return 0.0d;
+		}
+
+		@Override
+		public double accumulate(double acc, double value){
+			return acc + value;
+		}
+	},
+	/**Arithmetic mean of all values; NaN if there are none.*/
+	MEAN{
+		@Override
+		public double identity(){
+			return 0.0d;
+		}
+
+		@Override
+		public double accumulate(double acc, double value){
+			return acc + value;
+		}
+
+		@Override
+		public double finish(double acc, long count){
+			return acc / count;
+		}
+	},
+	/**Smallest value; positive infinity if there are none.*/
+	MIN{
+		@Override
+		public double identity(){
+			return Double.POSITIVE_INFINITY;
+		}
+
+		@Override
+		public double accumulate(double acc, double value){
+			return Math.min(acc, value);
+		}
+	},
+	/**Largest value; negative infinity if there are none.*/
+	MAX{
+		@Override
+		public double identity(){
+			return Double.NEGATIVE_INFINITY;
+		}
+
+		@Override
+		public double accumulate(double acc, double value){
+			return Math.max(acc, value);
+		}
+	},
+	/**Euclidean norm, the square root of the sum of the squares of all values.*/
+	L2{
+		@Override
+		public double identity(){
+			return 0.0d;
+		}
+
+		@Override
+		public double accumulate(double acc, double value){
+			return acc + value * value;
+		}
+
+		@Override
+		public double combine(double a, double b){
+			return a + b;
+		}
+
+		@Override
+		public double finish(double acc, long count){
+			return Math.sqrt(acc);
+		}
+	};
+
+	/**Combining two accumulators of SUM, MEAN, MIN or MAX is the same as accumulating one into the other.*/
+	@Override
+	public double combine(double a, double b){
+		return accumulate(a, b);
+	}
+}
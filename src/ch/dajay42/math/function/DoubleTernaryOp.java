@@ -0,0 +1,15 @@
+package ch.dajay42.math.function;
+
+/**Common ternary operators on doubles, tagged so that bulk operations may recognize them
+ * and substitute a vectorized loop for one call per element.
+ * <br/>Usable wherever a DoubleTernaryOperator is expected.
+ */
+public enum DoubleTernaryOp implements DoubleTernaryOperator{
+	/**Fused multiply-add, a*b+c, rounded once.*/
+	FMA{
+		@Override
+		public double applyAsDouble(double a, double b, double c){
+			return Math.fma(a, b, c);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package ch.dajay42.math.function;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**Common unary operators on doubles, tagged so that bulk operations may recognize them
+ * and substitute a vectorized loop for one call per element.
+ * <br/>Usable wherever a DoubleUnaryOperator is expected.
+ */
+public enum DoubleUnaryOp implements DoubleUnaryOperator{
+	ABS{
+		@Override
+		public double applyAsDouble(double a){
+			return Math.abs(a);
+		}
+	},
+	NEG{
+		@Override
+		public double applyAsDouble(double a){
+			return -a;
+		}
+	},
+	SQUARE{
+		@Override
+		public double applyAsDouble(double a){
+			return a * a;
+		}
+	},
+	SQRT{
+		@Override
+		public double applyAsDouble(double a){
+			return Math.sqrt(a);
+		}
+	}
+}
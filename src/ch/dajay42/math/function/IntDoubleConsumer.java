@@ -0,0 +1,6 @@
+package ch.dajay42.math.function;
+
+@FunctionalInterface
+public interface IntDoubleConsumer{
+	void accept(int a, double b);
+}
@@ -0,0 +1,6 @@
+package ch.dajay42.math.function;
+
+@FunctionalInterface
+public interface IntIntDoubleConsumer{
+	void accept(int a, int b, double c);
+}
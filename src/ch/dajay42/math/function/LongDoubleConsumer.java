@@ -0,0 +1,6 @@
+package ch.dajay42.math.function;
+
+@FunctionalInterface
+public interface LongDoubleConsumer{
+	void accept(long a, double b);
+}
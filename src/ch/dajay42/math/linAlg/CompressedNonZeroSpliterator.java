@@ -0,0 +1,75 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**Spliterator over the element indices of the non-zero values of a {@link MatrixCSR} or {@link MatrixCSC}.
+ * <br/>Walks the stored positions; the element index of position p in major line i
+ * is i*majorStride + idx[p]*minorStride.
+ */
+final class CompressedNonZeroSpliterator implements Spliterator.OfInt{
+
+	private final int[] ptr, idx;
+	private final int majorStride, minorStride;
+	private int p, major;
+	private final int fence;
+
+	CompressedNonZeroSpliterator(int[] ptr, int[] idx, int majorStride, int minorStride, int origin, int fence){
+		this.ptr = ptr;
+		this.idx = idx;
+		this.majorStride = majorStride;
+		this.minorStride = minorStride;
+		this.p = origin;
+		this.fence = fence;
+		this.major = majorOf(origin);
+	}
+
+	/**Returns a major index i with ptr[i] <= position, at most the one whose line contains it.*/
+	private int majorOf(int position){
+		int i = Arrays.binarySearch(ptr, position);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	private int elem(){
+		while(ptr[major + 1] <= p)
+			major++;
+		return major * majorStride + idx[p] * minorStride;
+	}
+
+	@Override
+	public boolean tryAdvance(IntConsumer action){
+		if(p >= fence)
+			return false;
+		action.accept(elem());
+		p++;
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(IntConsumer action){
+		for(; p < fence; p++)
+			action.accept(elem());
+	}
+
+	@Override
+	public Spliterator.OfInt trySplit(){
+		int mid = (p + fence) >>> 1;
+		if(mid - p < 64)
+			return null;
+		Spliterator.OfInt prefix = new CompressedNonZeroSpliterator(ptr, idx, majorStride, minorStride, p, mid);
+		p = mid;
+		major = majorOf(mid);
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize(){
+		return fence - p;
+	}
+
+	@Override
+	public int characteristics(){
+		return SIZED | SUBSIZED | DISTINCT | NONNULL | IMMUTABLE;
+	}
+}
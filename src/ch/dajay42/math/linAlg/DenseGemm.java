@@ -0,0 +1,185 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**Cache-blocked, multi-threaded kernels for C += A*B, where C is row-major
+ * and A and B are {@link Strided}, e.g. row-major, transposed or a block of a larger Matrix.
+ * <p/>The k-dimension is split into panels of KC, for each of which the corresponding panel of B
+ * is packed into contiguous NC-wide blocks, whatever the layout of B. The output is then split into MC*NC tiles,
+ * which are processed in parallel. Within a tile, four rows of C are updated at once,
+ * so that every loaded element of B is used four times while the inner loop stays auto-vectorizable.
+ * Elements of A are read at their strides, one per row and step of k.
+ * @author DaJay42
+ */
+final class DenseGemm{
+
+	private DenseGemm(){throw new UnsupportedOperationException();} //no instances for you.
+
+	/**Rows of A per tile.*/
+	static final int MC = 64;
+	/**Depth of a packed panel.*/
+	static final int KC = 256;
+	/**Columns of B per tile.*/
+	static final int NC = 256;
+
+	/**Packed panels of the calling thread, reused for up to KC*NC values, so that repeated products of moderate size allocate nothing.*/
+	private static final ThreadLocal<double[]> PACKED = ThreadLocal.withInitial(() -> new double[KC * NC]);
+
+	/**Computes c += a*b, where a is m*k, b is k*n and c is m*n and row-major.
+	 * <p/>Runs in O(m*k*n).
+	 */
+	static void multiply(Strided a, Strided b, double[] c){
+		final int m = a.rows, k = a.cols, n = b.cols;
+		boolean parallel = (long) m * k * n > Matrix.PARALLEL_LIMIT;
+		if(n == 1){
+			gemv(a, b, c, parallel);
+			return;
+		}
+
+		final int size = Math.min(KC, k) * n;
+		double[] packed = size <= KC * NC ? PACKED.get() : new double[size];
+		for(int pc = 0; pc < k; pc += KC){
+			final int kc = Math.min(KC, k - pc);
+			packB(b, packed, pc, kc);
+
+			if(parallel){
+				List<ForkJoinTask<?>> tasks = new ArrayList<>();
+				for(int ic = 0; ic < m; ic += MC)
+					for(int jc = 0; jc < n; jc += NC)
+						tasks.add(new Tile(a, packed, c, n, pc, kc, ic, Math.min(ic + MC, m), jc, Math.min(jc + NC, n)));
+				ForkJoinTask.invokeAll(tasks);
+			}else{
+				for(int ic = 0; ic < m; ic += MC)
+					for(int jc = 0; jc < n; jc += NC)
+						tile(a, packed, c, n, pc, kc, ic, Math.min(ic + MC, m), jc, Math.min(jc + NC, n));
+			}
+		}
+	}
+
+	/**Copies rows pc through pc+kc of b into packed,
+	 * such that each NC-wide column block is contiguous.
+	 * <br/>If the rows of b are not contiguous, but its columns are, the block is filled column by column instead.
+	 */
+	private static void packB(Strided b, double[] packed, int pc, int kc){
+		final int n = b.cols;
+		final double[] bv = b.data;
+		for(int jc = 0; jc < n; jc += NC){
+			final int nc = Math.min(NC, n - jc);
+			final int off = jc * kc;
+			if(b.colStride == 1 || b.rowStride != 1){
+				for(int p = 0; p < kc; p++)
+					MatrixView.copy(bv, b.offset + (pc + p) * b.rowStride + jc * b.colStride, b.colStride, packed, off + p * nc, 1, nc);
+			}else{
+				for(int j = 0; j < nc; j++)
+					MatrixView.copy(bv, b.offset + pc + (jc + j) * b.colStride, 1, packed, off + j, nc, kc);
+			}
+		}
+	}
+
+	/**Updates the tile [ic,ic1)*[jc,jc1) of c with the contribution of panel pc.*/
+	private static void tile(Strided as, double[] packed, double[] c, int n,
+							 int pc, int kc, int ic, int ic1, int jc, int jc1){
+		final double[] a = as.data;
+		final int rs = as.rowStride, ks = as.colStride;
+		final int nc = jc1 - jc;
+		final int bOff = jc * kc;
+		int i = ic;
+		for(; i + 4 <= ic1; i += 4){
+			final int a0 = as.offset + i * rs + pc * ks, a1 = a0 + rs, a2 = a1 + rs, a3 = a2 + rs;
+			final int c0 = i * n + jc, c1 = c0 + n, c2 = c1 + n, c3 = c2 + n;
+			for(int p = 0; p < kc; p++){
+				final int ap = p * ks;
+				final double v0 = a[a0 + ap], v1 = a[a1 + ap], v2 = a[a2 + ap], v3 = a[a3 + ap];
+				final int bp = bOff + p * nc;
+				for(int j = 0; j < nc; j++){
+					final double bj = packed[bp + j];
+					c[c0 + j] += v0 * bj;
+					c[c1 + j] += v1 * bj;
+					c[c2 + j] += v2 * bj;
+					c[c3 + j] += v3 * bj;
+				}
+			}
+		}
+		for(; i < ic1; i++){
+			final int a0 = as.offset + i * rs + pc * ks;
+			final int c0 = i * n + jc;
+			for(int p = 0; p < kc; p++){
+				final double v0 = a[a0 + p * ks];
+				final int bp = bOff + p * nc;
+				for(int j = 0; j < nc; j++)
+					c[c0 + j] += v0 * packed[bp + j];
+			}
+		}
+	}
+
+	/**Computes c += a*b for a column vector b.
+	 * <br/>If the rows of a are contiguous, each element of c is a dot product of a row of a with b;
+	 * otherwise, c is accumulated from the columns of a, scaled by the elements of b, in blocks of MC*4 rows.
+	 */
+	private static void gemv(Strided as, Strided bs, double[] c, boolean parallel){
+		final int m = as.rows, k = as.cols;
+		final double[] a = as.data;
+		final double[] b = bs.rowStride == 1 ? bs.data : bs.rowMajor();
+		final int bo = bs.rowStride == 1 ? bs.offset : 0;
+		if(as.colStride == 1){
+			IntStream range = parallel ? IntStream.range(0, m).parallel() : IntStream.range(0, m).sequential();
+			range.forEach((i) -> {
+				final int off = as.offset + i * as.rowStride;
+				double s0 = 0.0d, s1 = 0.0d, s2 = 0.0d, s3 = 0.0d;
+				int p = 0;
+				for(; p + 4 <= k; p += 4){
+					s0 += a[off + p] * b[bo + p];
+					s1 += a[off + p + 1] * b[bo + p + 1];
+					s2 += a[off + p + 2] * b[bo + p + 2];
+					s3 += a[off + p + 3] * b[bo + p + 3];
+				}
+				for(; p < k; p++)
+					s0 += a[off + p] * b[bo + p];
+				c[i] += (s0 + s1) + (s2 + s3);
+			});
+			return;
+		}
+		final int block = 4 * MC, blocks = (m + block - 1) / block;
+		IntStream range = parallel ? IntStream.range(0, blocks).parallel() : IntStream.range(0, blocks).sequential();
+		range.forEach((ib) -> {
+			final int i0 = ib * block, i1 = Math.min(i0 + block, m);
+			for(int p = 0; p < k; p++){
+				final double bp = b[bo + p];
+				final int off = as.offset + p * as.colStride;
+				for(int i = i0; i < i1; i++)
+					c[i] += a[off + i * as.rowStride] * bp;
+			}
+		});
+	}
+
+	private static final class Tile extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		private final Strided a;
+		private final double[] packed, c;
+		private final int n, pc, kc, ic, ic1, jc, jc1;
+
+		Tile(Strided a, double[] packed, double[] c, int n, int pc, int kc, int ic, int ic1, int jc, int jc1){
+			this.a = a;
+			this.packed = packed;
+			this.c = c;
+			this.n = n;
+			this.pc = pc;
+			this.kc = kc;
+			this.ic = ic;
+			this.ic1 = ic1;
+			this.jc = jc;
+			this.jc1 = jc1;
+		}
+
+		@Override
+		protected void compute(){
+			tile(a, packed, c, n, pc, kc, ic, ic1, jc, jc1);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleUnaryOp;
+
+/**Loops over dense double[] storage for the tagged operators of ch.dajay42.math.function.
+ * <p/>The instance in use is {@link VectorKernels}, which uses the incubating Vector API,
+ * if the module jdk.incubator.vector is present at runtime (--add-modules jdk.incubator.vector),
+ * or {@link ScalarKernels} otherwise; setting the system property ch.dajay42.scalarKernels forces the latter.
+ * <p/>Instances work on index ranges [from, to); the static methods split whole arrays into blocks
+ * and process them in parallel if the arrays are longer than PARALLEL_LIMIT;
+ * arrays of at most one block are processed directly by the calling thread, without allocating.
+ * Results and output arrays may alias inputs.
+ * @author DaJay42
+ */
+abstract class DenseKernels{
+
+	/**Elements per parallel block.*/
+	static final int BLOCK = 1 << 14;
+
+	static final DenseKernels INSTANCE = load();
+
+	private static DenseKernels load(){
+		if(!Boolean.getBoolean("ch.dajay42.scalarKernels") && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()){
+			try{
+				return (DenseKernels) Class.forName("ch.dajay42.math.linAlg.VectorKernels").getDeclaredConstructor().newInstance();
+			}catch(ReflectiveOperationException | LinkageError ignored){
+				//fall through to the scalar loops
+			}
+		}
+		return new ScalarKernels();
+	}
+
+	/**c[i] = op(a[i], b[i])*/
+	abstract void binary(DoubleBinaryOp op, double[] a, double[] b, double[] c, int from, int to);
+
+	/**c[i] = op(a[i], s)*/
+	abstract void scalar(DoubleBinaryOp op, double[] a, double s, double[] c, int from, int to);
+
+	/**c[i] = op(a[i])*/
+	abstract void unary(DoubleUnaryOp op, double[] a, double[] c, int from, int to);
+
+	/**d[i] = a[i]*b[i]+c[i], rounded once*/
+	abstract void fma(double[] a, double[] b, double[] c, double[] d, int from, int to);
+
+	/**Returns op applied to all a[i], for an op with op.isReduction(); from < to.*/
+	abstract double reduce(DoubleBinaryOp op, double[] a, int from, int to);
+
+	/**Returns the sum of all a[i]*b[i].*/
+	abstract double dot(double[] a, double[] b, int from, int to);
+
+
+	private static IntStream blocks(int length){
+		int count = (length + BLOCK - 1) / BLOCK;
+		return length > Matrix.PARALLEL_LIMIT ? IntStream.range(0, count).parallel() : IntStream.range(0, count).sequential();
+	}
+
+	/**c = op(a, b), element-wise*/
+	static void binary(DoubleBinaryOp op, double[] a, double[] b, double[] c){
+		if(c.length <= BLOCK)
+			INSTANCE.binary(op, a, b, c, 0, c.length);
+		else
+			blocks(c.length).forEach((k) -> INSTANCE.binary(op, a, b, c, k * BLOCK, Math.min(k * BLOCK + BLOCK, c.length)));
+	}
+
+	/**c = op(a, s), element-wise*/
+	static void scalar(DoubleBinaryOp op, double[] a, double s, double[] c){
+		if(c.length <= BLOCK)
+			INSTANCE.scalar(op, a, s, c, 0, c.length);
+		else
+			blocks(c.length).forEach((k) -> INSTANCE.scalar(op, a, s, c, k * BLOCK, Math.min(k * BLOCK + BLOCK, c.length)));
+	}
+
+	/**c = op(a), element-wise*/
+	static void unary(DoubleUnaryOp op, double[] a, double[] c){
+		if(c.length <= BLOCK)
+			INSTANCE.unary(op, a, c, 0, c.length);
+		else
+			blocks(c.length).forEach((k) -> INSTANCE.unary(op, a, c, k * BLOCK, Math.min(k * BLOCK + BLOCK, c.length)));
+	}
+
+	/**d = a*b+c, element-wise*/
+	static void fma(double[] a, double[] b, double[] c, double[] d){
+		if(d.length <= BLOCK)
+			INSTANCE.fma(a, b, c, d, 0, d.length);
+		else
+			blocks(d.length).forEach((k) -> INSTANCE.fma(a, b, c, d, k * BLOCK, Math.min(k * BLOCK + BLOCK, d.length)));
+	}
+
+	/**Returns op applied to all elements of a, which must not be empty.
+	 * <br/>Blocks are reduced independently and then combined in order, so the result does not depend on parallelism.*/
+	static double reduce(DoubleBinaryOp op, double[] a){
+		double[] partial = blocks(a.length).mapToDouble((k) -> INSTANCE.reduce(op, a, k * BLOCK, Math.min(k * BLOCK + BLOCK, a.length))).toArray();
+		double r = partial[0];
+		for(int k = 1; k < partial.length; k++)
+			r = op.applyAsDouble(r, partial[k]);
+		return r;
+	}
+
+	/**Returns the sum of all a[i]*b[i].*/
+	static double dot(double[] a, double[] b){
+		double[] partial = blocks(a.length).mapToDouble((k) -> INSTANCE.dot(a, b, k * BLOCK, Math.min(k * BLOCK + BLOCK, a.length))).toArray();
+		double r = 0.0d;
+		for(double p : partial)
+			r += p;
+		return r;
+	}
+}
@@ -0,0 +1,262 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleUnaryOp;
+
+/**Chain-rule loops over dense double[] storage, shared by the reverse-mode {@link GradientTape}
+ * and the forward-mode {@link MatrixDual}.
+ * <p/>Each loop multiplies a sensitivity g, the adjoint of the result in reverse mode or the tangent of an operand in forward mode,
+ * by the partial derivative of an operator at the primal values, and adds the product to out,
+ * so that derivative and accumulation take a single pass without temporary matrices.
+ * The tagged operators of ch.dajay42.math.function are dispatched once per block, outside the loop;
+ * other operators come with their partial derivatives.
+ * <br/>Arrays longer than PARALLEL_LIMIT are split into blocks processed in parallel, as by {@link DenseKernels}.
+ * @author DaJay42
+ */
+final class DerivativeKernels{
+
+	private DerivativeKernels(){throw new UnsupportedOperationException();} //no instances for you.
+
+	@FunctionalInterface
+	private interface Range{
+		void run(int from, int to);
+	}
+
+	private static void blocks(int length, Range r){
+		final int block = DenseKernels.BLOCK;
+		if(length <= block){
+			r.run(0, length);
+			return;
+		}
+		IntStream s = IntStream.range(0, (length + block - 1) / block);
+		(length > Matrix.PARALLEL_LIMIT ? s.parallel() : s).forEach((k) -> r.run(k * block, Math.min(k * block + block, length)));
+	}
+
+	/**out[i] += g[i]*op'(a[i])
+	 * <br/>The derivative of ABS at 0 is taken to be 0.*/
+	static void unary(DoubleUnaryOp op, double[] a, double[] g, double[] out){
+		blocks(out.length, (from, to) -> {
+			switch(op){
+				case ABS:
+					for(int i = from; i < to; i++)
+						out[i] += g[i] * Math.signum(a[i]);
+					break;
+				case NEG:
+					for(int i = from; i < to; i++)
+						out[i] -= g[i];
+					break;
+				case SQUARE:
+					for(int i = from; i < to; i++)
+						out[i] += 2.0d * a[i] * g[i];
+					break;
+				case SQRT:
+					for(int i = from; i < to; i++)
+						out[i] += 0.5d * g[i] / Math.sqrt(a[i]);
+					break;
+			}
+		});
+	}
+
+	/**out[i] += g[i]*df(a[i])*/
+	static void unary(DoubleUnaryOperator df, double[] a, double[] g, double[] out){
+		blocks(out.length, (from, to) -> {
+			for(int i = from; i < to; i++)
+				out[i] += g[i] * df.applyAsDouble(a[i]);
+		});
+	}
+
+	/**out[i] += g[i]*d/da op(a[i], b[i])
+	 * <br/>MIN and MAX pass the derivative to a where a and b are equal.*/
+	static void binaryFirst(DoubleBinaryOp op, double[] a, double[] b, double[] g, double[] out){
+		blocks(out.length, (from, to) -> {
+			switch(op){
+				case ADD:
+				case SUB:
+					for(int i = from; i < to; i++)
+						out[i] += g[i];
+					break;
+				case MUL:
+					for(int i = from; i < to; i++)
+						out[i] += g[i] * b[i];
+					break;
+				case DIV:
+					for(int i = from; i < to; i++)
+						out[i] += g[i] / b[i];
+					break;
+				case MIN:
+					for(int i = from; i < to; i++)
+						out[i] += a[i] <= b[i] ? g[i] : 0.0d;
+					break;
+				case MAX:
+					for(int i = from; i < to; i++)
+						out[i] += a[i] >= b[i] ? g[i] : 0.0d;
+					break;
+			}
+		});
+	}
+
+	/**out[i] += g[i]*d/db op(a[i], b[i])
+	 * <br/>MIN and MAX pass the derivative to a where a and b are equal.*/
+	static void binarySecond(DoubleBinaryOp op, double[] a, double[] b, double[] g, double[] out){
+		blocks(out.length, (from, to) -> {
+			switch(op){
+				case ADD:
+					for(int i = from; i < to; i++)
+						out[i] += g[i];
+					break;
+				case SUB:
+					for(int i = from; i < to; i++)
+						out[i] -= g[i];
+					break;
+				case MUL:
+					for(int i = from; i < to; i++)
+						out[i] += g[i] * a[i];
+					break;
+				case DIV:
+					for(int i = from; i < to; i++)
+						out[i] -= g[i] * a[i] / (b[i] * b[i]);
+					break;
+				case MIN:
+					for(int i = from; i < to; i++)
+						out[i] += a[i] <= b[i] ? 0.0d : g[i];
+					break;
+				case MAX:
+					for(int i = from; i < to; i++)
+						out[i] += a[i] >= b[i] ? 0.0d : g[i];
+					break;
+			}
+		});
+	}
+
+	/**out[i] += g[i]*df(a[i], b[i]), for the partial derivative df of an operator in either of its arguments*/
+	static void binary(DoubleBinaryOperator df, double[] a, double[] b, double[] g, double[] out){
+		blocks(out.length, (from, to) -> {
+			for(int i = from; i < to; i++)
+				out[i] += g[i] * df.applyAsDouble(a[i], b[i]);
+		});
+	}
+
+	/**out[i] += g[i]*d/da op(a[i], s)*/
+	static void scalar(DoubleBinaryOp op, double[] a, double s, double[] g, double[] out){
+		blocks(out.length, (from, to) -> {
+			switch(op){
+				case ADD:
+				case SUB:
+					for(int i = from; i < to; i++)
+						out[i] += g[i];
+					break;
+				case MUL:
+					for(int i = from; i < to; i++)
+						out[i] += g[i] * s;
+					break;
+				case DIV:
+					for(int i = from; i < to; i++)
+						out[i] += g[i] / s;
+					break;
+				case MIN:
+					for(int i = from; i < to; i++)
+						out[i] += a[i] <= s ? g[i] : 0.0d;
+					break;
+				case MAX:
+					for(int i = from; i < to; i++)
+						out[i] += a[i] >= s ? g[i] : 0.0d;
+					break;
+			}
+		});
+	}
+
+	/**out[i] += g[i]*df(a[i], s)*/
+	static void scalar(DoubleBinaryOperator df, double[] a, double s, double[] g, double[] out){
+		blocks(out.length, (from, to) -> {
+			for(int i = from; i < to; i++)
+				out[i] += g[i] * df.applyAsDouble(a[i], s);
+		});
+	}
+
+	/**out[i] += g*d/da[i] r, where r is op applied to all elements of a.
+	 * <br/>MIN and MAX pass the derivative to the first element equal to r;
+	 * MUL divides r by a[i] unless a holds zeros, in which case the product of the other elements is taken explicitly.
+	 * @throws IllegalArgumentException if op is not a reduction
+	 */
+	static void aggregate(DoubleBinaryOp op, double[] a, double r, double g, double[] out){
+		switch(op){
+			case ADD:
+				blocks(out.length, (from, to) -> {
+					for(int i = from; i < to; i++)
+						out[i] += g;
+				});
+				break;
+			case MIN:
+			case MAX:
+				out[indexOf(a, r)] += g;
+				break;
+			case MUL:
+				int zero = -1;
+				double others = 1.0d;
+				for(int i = 0; i < a.length; i++){
+					if(a[i] != 0.0d)
+						others *= a[i];
+					else if(zero < 0)
+						zero = i;
+					else
+						return;
+				}
+				if(zero >= 0){
+					out[zero] += g * others;
+					return;
+				}
+				blocks(out.length, (from, to) -> {
+					for(int i = from; i < to; i++)
+						out[i] += g * r / a[i];
+				});
+				break;
+			default:
+				throw new IllegalArgumentException(op + " is not a reduction");
+		}
+	}
+
+	/**Returns the sum of all t[i]*d/da[i] r, where r is op applied to all elements of a,
+	 * with the same conventions as {@link #aggregate(DoubleBinaryOp, double[], double, double, double[])}.
+	 * @throws IllegalArgumentException if op is not a reduction
+	 */
+	static double aggregateTangent(DoubleBinaryOp op, double[] a, double r, double[] t){
+		switch(op){
+			case ADD:
+				return DenseKernels.reduce(DoubleBinaryOp.ADD, t);
+			case MIN:
+			case MAX:
+				return t[indexOf(a, r)];
+			case MUL:
+				int zero = -1;
+				double others = 1.0d;
+				for(int i = 0; i < a.length; i++){
+					if(a[i] != 0.0d)
+						others *= a[i];
+					else if(zero < 0)
+						zero = i;
+					else
+						return 0.0d;
+				}
+				if(zero >= 0)
+					return t[zero] * others;
+				double sum = 0.0d;
+				for(int i = 0; i < a.length; i++)
+					sum += t[i] * r / a[i];
+				return sum;
+			default:
+				throw new IllegalArgumentException(op + " is not a reduction");
+		}
+	}
+
+	/**Returns the index of the first element of a equal to r, or of the first NaN if r is NaN.*/
+	private static int indexOf(double[] a, double r){
+		for(int i = 0; i < a.length; i++)
+			if(Double.compare(a[i], r) == 0 || a[i] == r)
+				return i;
+		return 0;
+	}
+}
@@ -0,0 +1,347 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.arithmetic.ComplexArray;
+import ch.dajay42.math.function.DoubleBinaryOp;
+
+/**Fast Fourier transforms of complex sequences stored as separate arrays of real and imaginary parts, in place.
+ * <p/>Lengths that are powers of two are transformed by an iterative radix-2 Cooley-Tukey FFT;
+ * all other lengths by Bluestein's algorithm, which expresses the transform as a convolution of power-of-two length,
+ * so that every length runs in O(n*log(n)), though at roughly four times the cost of a power of two of similar size.
+ * Twiddle factors and Bluestein chirps are computed once per length, and cached.
+ * <br/>The forward transform is X(k) = sum of x(j)*e^(-2*pi*i*j*k/n) over j; the inverse transform has the opposite sign and is scaled by 1/n.
+ * <p/>Two-dimensional transforms, as used by {@link MatrixComplex#fft()} and {@link Matrix#convolve(Matrix)},
+ * transform all rows and then all columns, each in parallel if rows*cols exceeds PARALLEL_LIMIT;
+ * columns are copied out in blocks of COLUMN_BLOCK, so that they are read and written along rows.
+ * @author DaJay42
+ */
+public final class FFT{
+
+	private FFT(){throw new UnsupportedOperationException();} //no instances for you.
+
+	/**Columns per block of a column transform.*/
+	static final int COLUMN_BLOCK = 8;
+
+	private static final ConcurrentHashMap<Integer, Plan> PLANS = new ConcurrentHashMap<>();
+
+	/**Bluestein work arrays of the calling thread, reused across transforms of up to the same length.*/
+	private static final ThreadLocal<double[][]> SCRATCH = ThreadLocal.withInitial(() -> new double[2][0]);
+
+	private static Plan plan(int n){
+		Plan p = PLANS.get(n);
+		if(p == null){
+			//not computeIfAbsent: a Bluestein plan creates the plan of its padded length in its constructor
+			p = new Plan(n);
+			Plan other = PLANS.putIfAbsent(n, p);
+			if(other != null)
+				p = other;
+		}
+		return p;
+	}
+
+	/**Precomputed tables for transforms of one length.*/
+	private static final class Plan{
+		final int n;
+		/**Radix-2: bit-reversal permutation, and cos and sin of 2*pi*k/n for k < n/2.*/
+		final int[] reverse;
+		final double[] cos, sin;
+		/**Bluestein: transform of the padded length, chirp e^(-pi*i*k^2/n), and transform of the conjugate chirp, wrapped around.*/
+		final Plan inner;
+		final double[] chirpRe, chirpIm, kernelRe, kernelIm;
+
+		Plan(int n){
+			this.n = n;
+			if(Integer.bitCount(n) <= 1){
+				reverse = new int[n];
+				int bits = Integer.numberOfTrailingZeros(n);
+				for(int i = 0; i < n; i++)
+					reverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+				cos = new double[n / 2];
+				sin = new double[n / 2];
+				for(int k = 0; k < n / 2; k++){
+					cos[k] = Math.cos(2.0d * Math.PI * k / n);
+					sin[k] = Math.sin(2.0d * Math.PI * k / n);
+				}
+				inner = null;
+				chirpRe = chirpIm = kernelRe = kernelIm = null;
+			}else{
+				int m = Integer.highestOneBit(2 * n - 1);
+				if(m < 2 * n - 1)
+					m <<= 1;
+				inner = plan(m);
+				chirpRe = new double[n];
+				chirpIm = new double[n];
+				kernelRe = new double[m];
+				kernelIm = new double[m];
+				for(int k = 0; k < n; k++){
+					//k^2 mod 2n keeps the angle small, and thus exact to the last bits
+					double angle = Math.PI * ((long) k * k % (2L * n)) / n;
+					chirpRe[k] = Math.cos(angle);
+					chirpIm[k] = -Math.sin(angle);
+					kernelRe[k] = chirpRe[k];
+					kernelIm[k] = -chirpIm[k];
+					if(k > 0){
+						kernelRe[m - k] = chirpRe[k];
+						kernelIm[m - k] = -chirpIm[k];
+					}
+				}
+				inner.apply(kernelRe, kernelIm, 0, false);
+				reverse = null;
+				cos = sin = null;
+			}
+		}
+
+		/**Transforms re and im at [off, off+n) in place; unscaled if inverse.*/
+		void apply(double[] re, double[] im, int off, boolean inverse){
+			if(n <= 1)
+				return;
+			if(inner == null)
+				radix2(re, im, off, inverse);
+			else
+				bluestein(re, im, off, inverse);
+		}
+
+		private void radix2(double[] re, double[] im, int off, boolean inverse){
+			for(int i = 0; i < n; i++){
+				int j = reverse[i];
+				if(i < j){
+					double t = re[off + i];
+					re[off + i] = re[off + j];
+					re[off + j] = t;
+					t = im[off + i];
+					im[off + i] = im[off + j];
+					im[off + j] = t;
+				}
+			}
+			for(int i = off; i < off + n; i += 2){
+				double r = re[i + 1], s = im[i + 1];
+				re[i + 1] = re[i] - r;
+				im[i + 1] = im[i] - s;
+				re[i] += r;
+				im[i] += s;
+			}
+			final double sign = inverse ? 1.0d : -1.0d;
+			for(int size = 4; size <= n; size <<= 1){
+				final int half = size >> 1, step = n / size;
+				for(int start = off; start < off + n; start += size){
+					for(int k = 0; k < half; k++){
+						double wr = cos[k * step], wi = sign * sin[k * step];
+						int a = start + k, b = a + half;
+						double tr = re[b] * wr - im[b] * wi, ti = re[b] * wi + im[b] * wr;
+						re[b] = re[a] - tr;
+						im[b] = im[a] - ti;
+						re[a] += tr;
+						im[a] += ti;
+					}
+				}
+			}
+		}
+
+		private void bluestein(double[] re, double[] im, int off, boolean inverse){
+			final int m = inner.n;
+			double[][] scratch = SCRATCH.get();
+			if(scratch[0].length < m){
+				scratch[0] = new double[m];
+				scratch[1] = new double[m];
+			}
+			final double[] ar = scratch[0], ai = scratch[1];
+			//the inverse transform is the conjugate of the forward transform of the conjugate
+			final double sign = inverse ? -1.0d : 1.0d;
+			for(int k = 0; k < n; k++){
+				double xr = re[off + k], xi = sign * im[off + k];
+				ar[k] = xr * chirpRe[k] - xi * chirpIm[k];
+				ai[k] = xr * chirpIm[k] + xi * chirpRe[k];
+			}
+			for(int k = n; k < m; k++){
+				ar[k] = 0.0d;
+				ai[k] = 0.0d;
+			}
+			inner.apply(ar, ai, 0, false);
+			for(int k = 0; k < m; k++){
+				double xr = ar[k], xi = ai[k];
+				ar[k] = xr * kernelRe[k] - xi * kernelIm[k];
+				ai[k] = xr * kernelIm[k] + xi * kernelRe[k];
+			}
+			inner.apply(ar, ai, 0, true);
+			final double scale = 1.0d / m;
+			for(int k = 0; k < n; k++){
+				double xr = ar[k] * scale, xi = ai[k] * scale;
+				re[off + k] = xr * chirpRe[k] - xi * chirpIm[k];
+				im[off + k] = sign * (xr * chirpIm[k] + xi * chirpRe[k]);
+			}
+		}
+	}
+
+	// 1-D
+
+	/**Replaces re + i*im by its discrete Fourier transform.
+	 * <p/>Runs in O(n*log(n)).
+	 * @throws IllegalArgumentException if re and im differ in length
+	 */
+	public static void fft(double[] re, double[] im){
+		if(re.length != im.length)
+			throw new IllegalArgumentException("Arrays must have the same length.");
+		plan(re.length).apply(re, im, 0, false);
+	}
+
+	/**Replaces re + i*im by its inverse discrete Fourier transform, scaled by 1/n.
+	 * <p/>Runs in O(n*log(n)).
+	 * @throws IllegalArgumentException if re and im differ in length
+	 */
+	public static void ifft(double[] re, double[] im){
+		if(re.length != im.length)
+			throw new IllegalArgumentException("Arrays must have the same length.");
+		plan(re.length).apply(re, im, 0, true);
+		scale(re, im, 1.0d / re.length);
+	}
+
+	/**Replaces the values of a by their discrete Fourier transform.
+	 * <p/>Runs in O(n*log(n)).
+	 */
+	public static void fft(ComplexArray a){
+		fft(a.real(), a.imaginary());
+	}
+
+	/**Replaces the values of a by their inverse discrete Fourier transform, scaled by 1/n.
+	 * <p/>Runs in O(n*log(n)).
+	 */
+	public static void ifft(ComplexArray a){
+		ifft(a.real(), a.imaginary());
+	}
+
+	private static void scale(double[] re, double[] im, double s){
+		DenseKernels.scalar(DoubleBinaryOp.MUL, re, s, re);
+		DenseKernels.scalar(DoubleBinaryOp.MUL, im, s, im);
+	}
+
+	// 2-D
+
+	/**Transforms each row of the row-major rows*cols arrays re and im in place; unscaled if inverse.*/
+	static void transformRows(double[] re, double[] im, int rows, int cols, boolean inverse){
+		final Plan p = plan(cols);
+		IntStream r = IntStream.range(0, rows);
+		((long) rows * cols > Matrix.PARALLEL_LIMIT ? r.parallel() : r).forEach((row) -> p.apply(re, im, row * cols, inverse));
+	}
+
+	/**Transforms each column of the row-major rows*cols arrays re and im in place; unscaled if inverse.*/
+	static void transformColumns(double[] re, double[] im, int rows, int cols, boolean inverse){
+		if(rows <= 1)
+			return;
+		final Plan p = plan(rows);
+		IntStream b = IntStream.range(0, (cols + COLUMN_BLOCK - 1) / COLUMN_BLOCK);
+		((long) rows * cols > Matrix.PARALLEL_LIMIT ? b.parallel() : b).forEach((block) -> {
+			final int from = block * COLUMN_BLOCK, width = Math.min(COLUMN_BLOCK, cols - from);
+			double[] br = new double[width * rows], bi = new double[width * rows];
+			for(int row = 0; row < rows; row++)
+				for(int c = 0; c < width; c++){
+					br[c * rows + row] = re[row * cols + from + c];
+					bi[c * rows + row] = im[row * cols + from + c];
+				}
+			for(int c = 0; c < width; c++)
+				p.apply(br, bi, c * rows, inverse);
+			for(int row = 0; row < rows; row++)
+				for(int c = 0; c < width; c++){
+					re[row * cols + from + c] = br[c * rows + row];
+					im[row * cols + from + c] = bi[c * rows + row];
+				}
+		});
+	}
+
+	/**Transforms the row-major rows*cols arrays re and im in place, in two dimensions; scaled by 1/(rows*cols) if inverse.*/
+	static void transform2D(double[] re, double[] im, int rows, int cols, boolean inverse){
+		transformRows(re, im, rows, cols, inverse);
+		transformColumns(re, im, rows, cols, inverse);
+		if(inverse)
+			scale(re, im, 1.0d / ((double) rows * cols));
+	}
+
+	// CONVOLUTION
+
+	/**Returns the full linear convolution of a and k, as documented by {@link Matrix#convolve(Matrix)}.*/
+	static Matrix convolve(Matrix a, Matrix k){
+		final int outRows = a.rows + k.rows - 1, outCols = a.cols + k.cols - 1;
+		final int pr = ceilPowerOfTwo(outRows), pc = ceilPowerOfTwo(outCols);
+		final double direct = (double) a.elems * k.elems;
+		final double transform = 6.0d * pr * pc * (Math.log((double) pr * pc) / Math.log(2.0d) + 1.0d);
+		if(direct <= transform)
+			return convolveDirect(values(a), a.rows, a.cols, values(k), k.rows, k.cols);
+		return convolveTransform(values(a), a.rows, a.cols, values(k), k.rows, k.cols, pr, pc);
+	}
+
+	private static double[] values(Matrix m){
+		double[] v = m.denseValues();
+		return v != null ? v : m.getValuesRowMajor();
+	}
+
+	private static int ceilPowerOfTwo(int n){
+		int p = Integer.highestOneBit(n);
+		return p < n ? p << 1 : p;
+	}
+
+	/**Convolves by summing shifted copies of a, one per element of k, parallel over rows of the result.
+	 * <p/>Runs in O(a.elems*k.elems).
+	 */
+	static Matrix convolveDirect(double[] a, int ar, int ac, double[] k, int kr, int kc){
+		final int outRows = ar + kr - 1, outCols = ac + kc - 1;
+		MatrixDense out = new MatrixDense(outRows, outCols);
+		final double[] o = out.denseValues();
+		IntStream rows = IntStream.range(0, outRows);
+		((double) ar * ac * kr * kc > Matrix.PARALLEL_LIMIT ? rows.parallel() : rows).forEach((row) -> {
+			for(int p = Math.max(0, row - ar + 1); p <= Math.min(row, kr - 1); p++){
+				final int aRow = (row - p) * ac;
+				for(int q = 0; q < kc; q++){
+					final double w = k[p * kc + q];
+					if(w == 0.0d)
+						continue;
+					final int oRow = row * outCols + q;
+					for(int j = 0; j < ac; j++)
+						o[oRow + j] += w * a[aRow + j];
+				}
+			}
+		});
+		return out;
+	}
+
+	/**Convolves by transforming a and k, zero-padded to pr*pc, at once as the real and imaginary part of one complex Matrix,
+	 * separating their spectra by symmetry, multiplying them, and transforming back.
+	 * <p/>Runs in O(pr*pc*log(pr*pc)).
+	 */
+	static Matrix convolveTransform(double[] a, int ar, int ac, double[] k, int kr, int kc, int pr, int pc){
+		final double[] re = new double[pr * pc], im = new double[pr * pc];
+		for(int row = 0; row < ar; row++)
+			System.arraycopy(a, row * ac, re, row * pc, ac);
+		for(int row = 0; row < kr; row++)
+			System.arraycopy(k, row * kc, im, row * pc, kc);
+		transform2D(re, im, pr, pc, false);
+
+		//with Z = A + i*K, and W = Z at the mirrored frequency: A*K = (Z^2 - conj(W)^2) / 4i
+		IntStream rows = IntStream.range(0, pr / 2 + 1);
+		((long) pr * pc > Matrix.PARALLEL_LIMIT ? rows.parallel() : rows).forEach((u) -> {
+			final int mu = (pr - u) % pr;
+			for(int v = 0; v < pc; v++){
+				final int mv = (pc - v) % pc;
+				final int x = u * pc + v, y = mu * pc + mv;
+				if(y < x)
+					continue;
+				double zr = re[x], zi = im[x], wr = re[y], wi = im[y];
+				double dr = zr * zr - zi * zi - wr * wr + wi * wi, di = 2.0d * (zr * zi + wr * wi);
+				re[x] = 0.25d * di;
+				im[x] = -0.25d * dr;
+				if(y != x){
+					//the mirrored product swaps the roles of Z and W
+					re[y] = 0.25d * di;
+					im[y] = 0.25d * dr;
+				}
+			}
+		});
+
+		transform2D(re, im, pr, pc, true);
+		final int outRows = ar + kr - 1, outCols = ac + kc - 1;
+		MatrixDense out = new MatrixDense(outRows, outCols);
+		for(int row = 0; row < outRows; row++)
+			System.arraycopy(re, row * pc, out.denseValues(), row * outCols, outCols);
+		return out;
+	}
+}
@@ -0,0 +1,361 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleUnaryOp;
+
+/**Loops over float[] storage, and between float[] and double[] storage, for {@link MatrixDenseFloat} and {@link MatrixCSRFloat}.
+ * <p/>Operations on float matrices only run as plain float loops, which the JIT may auto-vectorize at twice the width of double loops.
+ * Operations that mix float and double matrices convert their operands chunk by chunk into small double buffers,
+ * run the {@link DenseKernels} on those, and convert the result back, so that no value is read through internalGetValueAt.
+ * <br/>Like {@link DenseKernels}, whole arrays are split into blocks of BLOCK, processed in parallel if the arrays are longer than PARALLEL_LIMIT.
+ * Results and output arrays may alias inputs.
+ * @author DaJay42
+ */
+final class FloatKernels{
+
+	private FloatKernels(){throw new UnsupportedOperationException();} //no instances for you.
+
+	/**Elements per parallel block.*/
+	static final int BLOCK = DenseKernels.BLOCK;
+
+	/**Elements per converted chunk of the mixed kernels, so that the buffers of an operation stay in L1.*/
+	static final int CHUNK = 512;
+
+	private static IntStream blocks(int length){
+		int count = (length + BLOCK - 1) / BLOCK;
+		return length > Matrix.PARALLEL_LIMIT ? IntStream.range(0, count).parallel() : IntStream.range(0, count).sequential();
+	}
+
+	// CONVERSION
+
+	/**dst = (float) src, element-wise*/
+	static void narrow(double[] src, float[] dst){
+		if(src.length != dst.length)
+			throw new MatrixDimensionMismatchException();
+		blocks(src.length).forEach((k) -> narrow(src, k * BLOCK, dst, k * BLOCK, Math.min(BLOCK, src.length - k * BLOCK)));
+	}
+
+	/**dst = (double) src, element-wise*/
+	static void widen(float[] src, double[] dst){
+		if(src.length != dst.length)
+			throw new MatrixDimensionMismatchException();
+		blocks(src.length).forEach((k) -> widen(src, k * BLOCK, dst, k * BLOCK, Math.min(BLOCK, src.length - k * BLOCK)));
+	}
+
+	/**Returns a new double[] equal to src.*/
+	static double[] widen(float[] src){
+		double[] dst = new double[src.length];
+		widen(src, dst);
+		return dst;
+	}
+
+	static void narrow(double[] src, int srcOff, float[] dst, int dstOff, int len){
+		for(int i = 0; i < len; i++)
+			dst[dstOff + i] = (float) src[srcOff + i];
+	}
+
+	static void widen(float[] src, int srcOff, double[] dst, int dstOff, int len){
+		for(int i = 0; i < len; i++)
+			dst[dstOff + i] = src[srcOff + i];
+	}
+
+	// ELEMENT-WISE, BY MATRIX
+
+	/**Returns the float[] or double[] holding the values of m, or null if there is neither.*/
+	private static Object array(Matrix m){
+		float[] f = m.floatValues();
+		return f != null ? f : m.denseValues();
+	}
+
+	/**Computes out = op(a, b), if all three are stored in arrays and at least one in a float[].
+	 * @return whether out has been computed
+	 */
+	static boolean binary(DoubleBinaryOp op, Matrix a, Matrix b, Matrix out){
+		final Object av = array(a), bv = array(b), ov = array(out);
+		if(av == null || bv == null || ov == null || !(av instanceof float[] || bv instanceof float[] || ov instanceof float[]))
+			return false;
+		if(av instanceof float[] && bv instanceof float[] && ov instanceof float[]){
+			final float[] x = (float[]) av, y = (float[]) bv, z = (float[]) ov;
+			blocks(z.length).forEach((k) -> binary(op, x, y, z, k * BLOCK, Math.min(k * BLOCK + BLOCK, z.length)));
+			return true;
+		}
+		mixed(a.elems, 2, (buf, from, len) -> {
+			load(av, from, buf[0], len);
+			load(bv, from, buf[1], len);
+			DenseKernels.INSTANCE.binary(op, buf[0], buf[1], buf[0], 0, len);
+			store(buf[0], ov, from, len);
+		});
+		return true;
+	}
+
+	/**Computes out = op(a, s), if both are stored in arrays and at least one in a float[].
+	 * @return whether out has been computed
+	 */
+	static boolean scalar(DoubleBinaryOp op, Matrix a, double s, Matrix out){
+		final Object av = array(a), ov = array(out);
+		if(av == null || ov == null || !(av instanceof float[] || ov instanceof float[]))
+			return false;
+		if(av instanceof float[] && ov instanceof float[]){
+			final float[] x = (float[]) av, z = (float[]) ov;
+			blocks(z.length).forEach((k) -> scalar(op, x, s, z, k * BLOCK, Math.min(k * BLOCK + BLOCK, z.length)));
+			return true;
+		}
+		mixed(a.elems, 1, (buf, from, len) -> {
+			load(av, from, buf[0], len);
+			DenseKernels.INSTANCE.scalar(op, buf[0], s, buf[0], 0, len);
+			store(buf[0], ov, from, len);
+		});
+		return true;
+	}
+
+	/**Computes out = op(a), if both are stored in arrays and at least one in a float[].
+	 * @return whether out has been computed
+	 */
+	static boolean unary(DoubleUnaryOp op, Matrix a, Matrix out){
+		final Object av = array(a), ov = array(out);
+		if(av == null || ov == null || !(av instanceof float[] || ov instanceof float[]))
+			return false;
+		if(av instanceof float[] && ov instanceof float[]){
+			final float[] x = (float[]) av, z = (float[]) ov;
+			blocks(z.length).forEach((k) -> unary(op, x, z, k * BLOCK, Math.min(k * BLOCK + BLOCK, z.length)));
+			return true;
+		}
+		mixed(a.elems, 1, (buf, from, len) -> {
+			load(av, from, buf[0], len);
+			DenseKernels.INSTANCE.unary(op, buf[0], buf[0], 0, len);
+			store(buf[0], ov, from, len);
+		});
+		return true;
+	}
+
+	/**Computes out = a*b+c, if all four are stored in arrays and at least one in a float[].
+	 * @return whether out has been computed
+	 */
+	static boolean fma(Matrix a, Matrix b, Matrix c, Matrix out){
+		final Object av = array(a), bv = array(b), cv = array(c), ov = array(out);
+		if(av == null || bv == null || cv == null || ov == null
+				|| !(av instanceof float[] || bv instanceof float[] || cv instanceof float[] || ov instanceof float[]))
+			return false;
+		if(av instanceof float[] && bv instanceof float[] && cv instanceof float[] && ov instanceof float[]){
+			final float[] x = (float[]) av, y = (float[]) bv, w = (float[]) cv, z = (float[]) ov;
+			blocks(z.length).forEach((k) -> {
+				for(int i = k * BLOCK, end = Math.min(k * BLOCK + BLOCK, z.length); i < end; i++)
+					z[i] = Math.fma(x[i], y[i], w[i]);
+			});
+			return true;
+		}
+		mixed(a.elems, 3, (buf, from, len) -> {
+			load(av, from, buf[0], len);
+			load(bv, from, buf[1], len);
+			load(cv, from, buf[2], len);
+			DenseKernels.INSTANCE.fma(buf[0], buf[1], buf[2], buf[0], 0, len);
+			store(buf[0], ov, from, len);
+		});
+		return true;
+	}
+
+	/**Chunk of a mixed kernel: from the buffers, convert len values starting at element from, and compute them.*/
+	@FunctionalInterface
+	private interface Chunk{
+		void run(double[][] buffers, int from, int len);
+	}
+
+	/**Runs chunk over [0, length) in chunks of CHUNK, with the given number of double buffers per block.*/
+	private static void mixed(int length, int buffers, Chunk chunk){
+		blocks(length).forEach((k) -> {
+			double[][] buf = new double[buffers][CHUNK];
+			for(int from = k * BLOCK, end = Math.min(k * BLOCK + BLOCK, length); from < end; from += CHUNK)
+				chunk.run(buf, from, Math.min(CHUNK, end - from));
+		});
+	}
+
+	private static void load(Object src, int from, double[] dst, int len){
+		if(src instanceof float[])
+			widen((float[]) src, from, dst, 0, len);
+		else
+			System.arraycopy(src, from, dst, 0, len);
+	}
+
+	private static void store(double[] src, Object dst, int from, int len){
+		if(dst instanceof float[])
+			narrow(src, 0, (float[]) dst, from, len);
+		else
+			System.arraycopy(src, 0, dst, from, len);
+	}
+
+	// ELEMENT-WISE, FLOAT ONLY
+
+	/**c[i] = op(a[i], b[i])*/
+	static void binary(DoubleBinaryOp op, float[] a, float[] b, float[] c, int from, int to){
+		switch(op){
+			case ADD: for(int i = from; i < to; i++) c[i] = a[i] + b[i]; break;
+			case SUB: for(int i = from; i < to; i++) c[i] = a[i] - b[i]; break;
+			case MUL: for(int i = from; i < to; i++) c[i] = a[i] * b[i]; break;
+			case DIV: for(int i = from; i < to; i++) c[i] = a[i] / b[i]; break;
+			case MIN: for(int i = from; i < to; i++) c[i] = Math.min(a[i], b[i]); break;
+			case MAX: for(int i = from; i < to; i++) c[i] = Math.max(a[i], b[i]); break;
+			default: for(int i = from; i < to; i++) c[i] = (float) op.applyAsDouble(a[i], b[i]);
+		}
+	}
+
+	/**c[i] = op(a[i], s), computed in double and rounded once, since s is a double*/
+	static void scalar(DoubleBinaryOp op, float[] a, double s, float[] c, int from, int to){
+		switch(op){
+			case ADD: for(int i = from; i < to; i++) c[i] = (float) (a[i] + s); break;
+			case SUB: for(int i = from; i < to; i++) c[i] = (float) (a[i] - s); break;
+			case MUL: for(int i = from; i < to; i++) c[i] = (float) (a[i] * s); break;
+			case DIV: for(int i = from; i < to; i++) c[i] = (float) (a[i] / s); break;
+			case MIN: for(int i = from; i < to; i++) c[i] = (float) Math.min(a[i], s); break;
+			case MAX: for(int i = from; i < to; i++) c[i] = (float) Math.max(a[i], s); break;
+			default: for(int i = from; i < to; i++) c[i] = (float) op.applyAsDouble(a[i], s);
+		}
+	}
+
+	/**c[i] = op(a[i])*/
+	static void unary(DoubleUnaryOp op, float[] a, float[] c, int from, int to){
+		switch(op){
+			case ABS: for(int i = from; i < to; i++) c[i] = Math.abs(a[i]); break;
+			case NEG: for(int i = from; i < to; i++) c[i] = -a[i]; break;
+			case SQUARE: for(int i = from; i < to; i++) c[i] = a[i] * a[i]; break;
+			case SQRT: for(int i = from; i < to; i++) c[i] = (float) Math.sqrt(a[i]); break;
+			default: for(int i = from; i < to; i++) c[i] = (float) op.applyAsDouble(a[i]);
+		}
+	}
+
+	// REDUCTIONS
+
+	/**Returns the sum of all a[i], or of all a[i]*a[i] if squares, accumulated in double if doubleAcc, in float otherwise.
+	 * <br/>Blocks are summed independently and then in order, so the result does not depend on parallelism.*/
+	static double sum(float[] a, boolean squares, boolean doubleAcc){
+		return blocks(a.length).mapToDouble((k) -> {
+			final int from = k * BLOCK, to = Math.min(from + BLOCK, a.length);
+			return squares ? dot(a, a, from, to, doubleAcc) : sum(a, from, to, doubleAcc);
+		}).reduce(0.0d, Double::sum);
+	}
+
+	/**Returns the sum of all a[i]*b[i], accumulated in double if doubleAcc, in float otherwise.
+	 * <br/>Blocks are summed independently and then in order, so the result does not depend on parallelism.*/
+	static double dot(float[] a, float[] b, boolean doubleAcc){
+		if(a.length != b.length)
+			throw new MatrixDimensionMismatchException();
+		return blocks(a.length).mapToDouble((k) -> dot(a, b, k * BLOCK, Math.min(k * BLOCK + BLOCK, a.length), doubleAcc))
+				.reduce(0.0d, Double::sum);
+	}
+
+	private static double sum(float[] a, int from, int to, boolean doubleAcc){
+		if(doubleAcc){
+			double s0 = 0.0d, s1 = 0.0d, s2 = 0.0d, s3 = 0.0d;
+			int i = from;
+			for(; i + 4 <= to; i += 4){
+				s0 += a[i];
+				s1 += a[i + 1];
+				s2 += a[i + 2];
+				s3 += a[i + 3];
+			}
+			for(; i < to; i++)
+				s0 += a[i];
+			return (s0 + s1) + (s2 + s3);
+		}
+		float s0 = 0.0f, s1 = 0.0f, s2 = 0.0f, s3 = 0.0f;
+		int i = from;
+		for(; i + 4 <= to; i += 4){
+			s0 += a[i];
+			s1 += a[i + 1];
+			s2 += a[i + 2];
+			s3 += a[i + 3];
+		}
+		for(; i < to; i++)
+			s0 += a[i];
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	private static double dot(float[] a, float[] b, int from, int to, boolean doubleAcc){
+		if(doubleAcc){
+			double s0 = 0.0d, s1 = 0.0d, s2 = 0.0d, s3 = 0.0d;
+			int i = from;
+			for(; i + 4 <= to; i += 4){
+				s0 += (double) a[i] * b[i];
+				s1 += (double) a[i + 1] * b[i + 1];
+				s2 += (double) a[i + 2] * b[i + 2];
+				s3 += (double) a[i + 3] * b[i + 3];
+			}
+			for(; i < to; i++)
+				s0 += (double) a[i] * b[i];
+			return (s0 + s1) + (s2 + s3);
+		}
+		float s0 = 0.0f, s1 = 0.0f, s2 = 0.0f, s3 = 0.0f;
+		int i = from;
+		for(; i + 4 <= to; i += 4){
+			s0 += a[i] * b[i];
+			s1 += a[i + 1] * b[i + 1];
+			s2 += a[i + 2] * b[i + 2];
+			s3 += a[i + 3] * b[i + 3];
+		}
+		for(; i < to; i++)
+			s0 += a[i] * b[i];
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	// PRODUCTS
+
+	/**Computes out = a*b, if all three are stored in arrays or are strided, and at least one is stored in a float[].
+	 * <br/>If all three are float, runs {@link #multiply(float[], float[], float[], int, int, int, boolean)};
+	 * otherwise, the float operands are widened into temporary arrays, and the product is computed by {@link DenseGemm}, in double.
+	 * @return whether out has been computed
+	 */
+	static boolean multiply(Matrix a, Matrix b, Matrix out, boolean doubleAcc){
+		final float[] fa = a.floatValues(), fb = b.floatValues(), fo = out.floatValues();
+		if(fa == null && fb == null && fo == null)
+			return false;
+		final int m = a.rows, k = a.cols, n = b.cols;
+		if(fa != null && fb != null && fo != null){
+			multiply(fa, fb, fo, m, k, n, doubleAcc);
+			return true;
+		}
+		final Strided sa = fa != null ? new Strided(widen(fa), 0, k, 1, m, k) : Strided.of(a);
+		final Strided sb = fb != null ? new Strided(widen(fb), 0, n, 1, k, n) : Strided.of(b);
+		final double[] dv = out.denseValues();
+		if(sa == null || sb == null || (fo == null && dv == null))
+			return false;
+		final double[] c = dv != null ? dv : new double[m * n];
+		Arrays.fill(c, 0.0d);
+		DenseGemm.multiply(sa, sb, c);
+		if(fo != null)
+			narrow(c, fo);
+		return true;
+	}
+
+	/**Computes c = a*b for row-major float matrices, where a is m*k, b is k*n and c is m*n.
+	 * <br/>Each row of c is accumulated from the rows of b, scaled by the elements of the corresponding row of a,
+	 * in a new double buffer per row and rounded once at the end if doubleAcc, directly in c otherwise.
+	 * Rows are computed in parallel if m*k*n > PARALLEL_LIMIT.
+	 * <p/>Runs in O(m*k*n).
+	 */
+	static void multiply(float[] a, float[] b, float[] c, int m, int k, int n, boolean doubleAcc){
+		IntStream range = (long) m * k * n > Matrix.PARALLEL_LIMIT ? IntStream.range(0, m).parallel() : IntStream.range(0, m).sequential();
+		if(doubleAcc){
+			range.forEach((i) -> {
+				final double[] acc = new double[n];
+				for(int p = 0, aOff = i * k; p < k; p++){
+					final double v = a[aOff + p];
+					for(int j = 0, bOff = p * n; j < n; j++)
+						acc[j] += v * b[bOff + j];
+				}
+				narrow(acc, 0, c, i * n, n);
+			});
+		}else{
+			range.forEach((i) -> {
+				final int cOff = i * n;
+				Arrays.fill(c, cOff, cOff + n, 0.0f);
+				for(int p = 0, aOff = i * k; p < k; p++){
+					final float v = a[aOff + p];
+					for(int j = 0, bOff = p * n; j < n; j++)
+						c[cOff + j] += v * b[bOff + j];
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,354 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleUnaryOp;
+
+/**Records Matrix operations as they are computed, and computes the gradient of a result with respect to all of their inputs
+ * by reverse-mode automatic differentiation.
+ * <p/>Nodes are numbered in order of recording; each operation takes the numbers of its operands,
+ * computes its value right away through the corresponding *Into method of Matrix, and returns its own number.
+ * The log itself is held in parallel arrays of op codes, operand numbers and operators, so that recording allocates no objects per node.
+ * <br/>{@link #backward(int)} walks the log once, from the result to the leaves, skipping nodes that depend on no variable,
+ * and accumulates adjoints in dense gradient buffers: element-wise operations by the loops of {@link DerivativeKernels},
+ * products by accumulating GEMM, neither of which allocates temporary matrices for dense operands.
+ * <p/>{@link #reset()} forgets all nodes but keeps the buffers of values and gradients;
+ * recording the same sequence of operations again, as in every step of a training loop, then reuses them instead of allocating.
+ * Matrices returned by {@link #value(int)} and {@link #gradient(int)} are therefore only valid until the tape is reset;
+ * clone them to keep them longer.
+ * <br/>Element-wise operators other than the tagged ones of ch.dajay42.math.function are recorded together with their derivatives.
+ * A GradientTape is not thread-safe.
+ * @author DaJay42
+ */
+public final class GradientTape{
+
+	private static final byte VARIABLE = 0, CONSTANT = 1, SUM = 2, UNARY_OP = 3, UNARY = 4, BINARY_OP = 5, BINARY = 6,
+			SCALAR_OP = 7, SCALAR = 8, MULTIPLY = 9, AGGREGATE = 10;
+
+	private int size = 0;
+
+	private byte[] ops = new byte[16];
+	private int[] first = new int[16], second = new int[16];
+	private double[] scalars = new double[16];
+	/**Operator of each node, or its derivative in the first operand; and its derivative in the second operand.*/
+	private Object[] derivatives = new Object[16], secondDerivatives = new Object[16];
+	/**Whether the node depends on a variable.*/
+	private boolean[] active = new boolean[16];
+	/**Whether the gradient buffer of the node holds an adjoint of the current backward pass.*/
+	private boolean[] touched = new boolean[16];
+
+	private Matrix[] values = new Matrix[16];
+	/**Value buffers owned by the tape, by node, kept across resets.*/
+	private MatrixDense[] pool = new MatrixDense[16];
+	private MatrixDense[] gradients = new MatrixDense[16];
+
+	/**Creates a new, empty tape.*/
+	public GradientTape(){
+	}
+
+	/**Returns the number of nodes recorded since the last reset.*/
+	public int size(){
+		return size;
+	}
+
+	/**Forgets all nodes, keeping the buffers of their values and gradients for reuse by the nodes recorded next.*/
+	public void reset(){
+		Arrays.fill(values, 0, size, null);
+		Arrays.fill(derivatives, 0, size, null);
+		Arrays.fill(secondDerivatives, 0, size, null);
+		size = 0;
+	}
+
+	// RECORDING
+
+	/**Records value as an input to differentiate with respect to.
+	 * <br/>value is referenced, not copied, and must not change until the tape is reset.
+	 * @return node of value
+	 */
+	public int variable(Matrix value){
+		return record(VARIABLE, -1, -1, 0.0d, null, null, value, true);
+	}
+
+	/**Records value as an input not to differentiate with respect to.
+	 * <br/>value is referenced, not copied, and must not change until the tape is reset.
+	 * @return node of value
+	 */
+	public int constant(Matrix value){
+		return record(CONSTANT, -1, -1, 0.0d, null, null, value, false);
+	}
+
+	/**Records a+b.
+	 * @see Matrix#sum(Matrix)
+	 */
+	public int sum(int a, int b){
+		Matrix x = value(a);
+		return record(SUM, a, b, 0.0d, null, null, x.sumInto(value(b), buffer(x.rows, x.cols)), active[a] || active[b]);
+	}
+
+	/**Records f applied to each element of a.
+	 * @see Matrix#elementWise(DoubleUnaryOperator)
+	 */
+	public int elementWise(DoubleUnaryOp f, int a){
+		Matrix x = value(a);
+		return record(UNARY_OP, a, -1, 0.0d, f, null, x.elementWiseInto(f, buffer(x.rows, x.cols)), active[a]);
+	}
+
+	/**Records f applied to each element of a.
+	 * @param f operator
+	 * @param df derivative of f
+	 * @see Matrix#elementWise(DoubleUnaryOperator)
+	 */
+	public int elementWise(DoubleUnaryOperator f, DoubleUnaryOperator df, int a){
+		Matrix x = value(a);
+		return record(UNARY, a, -1, 0.0d, df, null, x.elementWiseInto(f, buffer(x.rows, x.cols)), active[a]);
+	}
+
+	/**Records f applied to each pair of corresponding elements of a and b.
+	 * @see Matrix#elementWise(DoubleBinaryOperator, Matrix)
+	 */
+	public int elementWise(DoubleBinaryOp f, int a, int b){
+		Matrix x = value(a);
+		return record(BINARY_OP, a, b, 0.0d, f, null, x.elementWiseInto(f, value(b), buffer(x.rows, x.cols)), active[a] || active[b]);
+	}
+
+	/**Records f applied to each pair of corresponding elements of a and b.
+	 * @param f operator
+	 * @param dfa partial derivative of f in its first argument
+	 * @param dfb partial derivative of f in its second argument
+	 * @see Matrix#elementWise(DoubleBinaryOperator, Matrix)
+	 */
+	public int elementWise(DoubleBinaryOperator f, DoubleBinaryOperator dfa, DoubleBinaryOperator dfb, int a, int b){
+		Matrix x = value(a);
+		return record(BINARY, a, b, 0.0d, dfa, dfb, x.elementWiseInto(f, value(b), buffer(x.rows, x.cols)), active[a] || active[b]);
+	}
+
+	/**Records f(e, s) for each element e of a.
+	 * @see Matrix#scalarOp(DoubleBinaryOperator, double)
+	 */
+	public int scalarOp(DoubleBinaryOp f, int a, double s){
+		Matrix x = value(a);
+		return record(SCALAR_OP, a, -1, s, f, null, x.scalarOpInto(f, s, buffer(x.rows, x.cols)), active[a]);
+	}
+
+	/**Records f(e, s) for each element e of a.
+	 * @param f operator
+	 * @param df partial derivative of f in its first argument
+	 * @see Matrix#scalarOp(DoubleBinaryOperator, double)
+	 */
+	public int scalarOp(DoubleBinaryOperator f, DoubleBinaryOperator df, int a, double s){
+		Matrix x = value(a);
+		return record(SCALAR, a, -1, s, df, null, x.scalarOpInto(f, s, buffer(x.rows, x.cols)), active[a]);
+	}
+
+	/**Records the product a*b.
+	 * @see Matrix#multiply(Matrix)
+	 */
+	public int multiply(int a, int b){
+		Matrix x = value(a), y = value(b);
+		if(x.cols != y.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		return record(MULTIPLY, a, b, 0.0d, null, null, x.multiplyInto(y, buffer(x.rows, y.cols)), active[a] || active[b]);
+	}
+
+	/**Records f applied to all elements of a, as a 1*1 Matrix.
+	 * @param f one of ADD, MUL, MIN and MAX
+	 * @throws IllegalArgumentException if f is not a reduction
+	 * @see Matrix#aggregate(DoubleBinaryOperator)
+	 */
+	public int aggregate(DoubleBinaryOp f, int a){
+		if(!f.isReduction())
+			throw new IllegalArgumentException(f + " is not a reduction");
+		Matrix out = buffer(1, 1);
+		out.setValueAt(0, 0, value(a).aggregate(f));
+		return record(AGGREGATE, a, -1, 0.0d, f, null, out, active[a]);
+	}
+
+	private int record(byte op, int a, int b, double s, Object da, Object db, Matrix value, boolean isActive){
+		if(size == ops.length)
+			grow();
+		ops[size] = op;
+		first[size] = a;
+		second[size] = b;
+		scalars[size] = s;
+		derivatives[size] = da;
+		secondDerivatives[size] = db;
+		values[size] = value;
+		active[size] = isActive;
+		return size++;
+	}
+
+	/**Returns the pooled value buffer of the next node if it is of size rows*cols, or else a new one, which replaces it.*/
+	private MatrixDense buffer(int rows, int cols){
+		if(size == ops.length)
+			grow();
+		MatrixDense m = pool[size];
+		if(m == null || m.rows != rows || m.cols != cols)
+			pool[size] = m = new MatrixDense(rows, cols);
+		return m;
+	}
+
+	private void grow(){
+		int n = ops.length * 2;
+		ops = Arrays.copyOf(ops, n);
+		first = Arrays.copyOf(first, n);
+		second = Arrays.copyOf(second, n);
+		scalars = Arrays.copyOf(scalars, n);
+		derivatives = Arrays.copyOf(derivatives, n);
+		secondDerivatives = Arrays.copyOf(secondDerivatives, n);
+		active = Arrays.copyOf(active, n);
+		touched = Arrays.copyOf(touched, n);
+		values = Arrays.copyOf(values, n);
+		pool = Arrays.copyOf(pool, n);
+		gradients = Arrays.copyOf(gradients, n);
+	}
+
+	// ACCESS
+
+	private void check(int node){
+		if(node < 0 || node >= size)
+			throw new IndexOutOfBoundsException("No node "+node+" on this tape of "+size+" nodes.");
+	}
+
+	/**Returns the value of node.*/
+	public Matrix value(int node){
+		check(node);
+		return values[node];
+	}
+
+	/**Returns the gradient of the result of the last backward pass with respect to node,
+	 * which is zero if the result does not depend on node.
+	 */
+	public Matrix gradient(int node){
+		check(node);
+		return touched[node] ? gradients[node] : zeroesLikeValue(node);
+	}
+
+	private Matrix zeroesLikeValue(int node){
+		return Matrix.zeroes(values[node].rows, values[node].cols);
+	}
+
+	// BACKWARD
+
+	/**Computes the gradients of the 1*1 Matrix output with respect to all nodes it depends on.
+	 * <p/>Runs in about twice the time it took to record output.
+	 * @throws MatrixDimensionMismatchException if output is not 1*1
+	 */
+	public void backward(int output){
+		check(output);
+		if(values[output].rows != 1 || values[output].cols != 1){
+			throw new MatrixDimensionMismatchException();
+		}
+		backward(output, Matrix.ones(1, 1));
+	}
+
+	/**Computes the gradients of output with respect to all nodes it depends on, seeded with the adjoint seed,
+	 * i.e. the gradients of the scalar sum of all elements of seed*output, multiplied element-wise.
+	 * @throws MatrixDimensionMismatchException if seed is not of the same size as output
+	 */
+	public void backward(int output, Matrix seed){
+		check(output);
+		Matrix out = values[output];
+		if(seed.rows != out.rows || seed.cols != out.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+		Arrays.fill(touched, 0, size, false);
+		if(!active[output])
+			return;
+		adjoint(output).fill(seed);
+
+		for(int node = output; node >= 0; node--){
+			if(!touched[node] || !active[node])
+				continue;
+			final double[] g = gradients[node].denseValues();
+			final int a = first[node], b = second[node];
+			switch(ops[node]){
+				case VARIABLE:
+				case CONSTANT:
+					break;
+				case SUM:
+					if(active[a])
+						DenseKernels.binary(DoubleBinaryOp.ADD, adjointValues(a), g, adjointValues(a));
+					if(active[b])
+						DenseKernels.binary(DoubleBinaryOp.ADD, adjointValues(b), g, adjointValues(b));
+					break;
+				case UNARY_OP:
+					DerivativeKernels.unary((DoubleUnaryOp) derivatives[node], primal(a), g, adjointValues(a));
+					break;
+				case UNARY:
+					DerivativeKernels.unary((DoubleUnaryOperator) derivatives[node], primal(a), g, adjointValues(a));
+					break;
+				case BINARY_OP:{
+					DoubleBinaryOp op = (DoubleBinaryOp) derivatives[node];
+					double[] x = primal(a), y = primal(b);
+					if(active[a])
+						DerivativeKernels.binaryFirst(op, x, y, g, adjointValues(a));
+					if(active[b])
+						DerivativeKernels.binarySecond(op, x, y, g, adjointValues(b));
+					break;
+				}
+				case BINARY:{
+					double[] x = primal(a), y = primal(b);
+					if(active[a])
+						DerivativeKernels.binary((DoubleBinaryOperator) derivatives[node], x, y, g, adjointValues(a));
+					if(active[b])
+						DerivativeKernels.binary((DoubleBinaryOperator) secondDerivatives[node], x, y, g, adjointValues(b));
+					break;
+				}
+				case SCALAR_OP:
+					DerivativeKernels.scalar((DoubleBinaryOp) derivatives[node], primal(a), scalars[node], g, adjointValues(a));
+					break;
+				case SCALAR:
+					DerivativeKernels.scalar((DoubleBinaryOperator) derivatives[node], primal(a), scalars[node], g, adjointValues(a));
+					break;
+				case MULTIPLY:
+					if(active[a])
+						multiplyAdjoint(gradients[node], values[b].transposedView(), adjoint(a));
+					if(active[b])
+						multiplyAdjoint(values[a].transposedView(), gradients[node], adjoint(b));
+					break;
+				case AGGREGATE:
+					DerivativeKernels.aggregate((DoubleBinaryOp) derivatives[node], primal(a), values[node].getValueAt(0, 0), g[0], adjointValues(a));
+					break;
+			}
+		}
+	}
+
+	/**Returns the gradient buffer of node, zero-filled if this is its first adjoint in the current pass.*/
+	private MatrixDense adjoint(int node){
+		MatrixDense m = gradients[node];
+		Matrix v = values[node];
+		if(m == null || m.rows != v.rows || m.cols != v.cols){
+			gradients[node] = m = new MatrixDense(v.rows, v.cols);
+		}else if(!touched[node]){
+			Arrays.fill(m.denseValues(), 0.0d);
+		}
+		touched[node] = true;
+		return m;
+	}
+
+	private double[] adjointValues(int node){
+		return adjoint(node).denseValues();
+	}
+
+	/**Returns the values of node as a row-major array, which is its own storage if it is dense.*/
+	private double[] primal(int node){
+		double[] v = values[node].denseValues();
+		return v != null ? v : values[node].getValuesRowMajor();
+	}
+
+	/**out += a*b, in place by GEMM if a and b are strided, through a temporary product otherwise.*/
+	private static void multiplyAdjoint(Matrix a, Matrix b, MatrixDense out){
+		Strided sa = Strided.of(a), sb = Strided.of(b);
+		if(sa != null && sb != null){
+			DenseGemm.multiply(sa, sb, out.denseValues());
+		}else{
+			Matrix p = a.multiply(b);
+			double[] v = p.denseValues();
+			DenseKernels.binary(DoubleBinaryOp.ADD, out.denseValues(), v != null ? v : p.getValuesRowMajor(), out.denseValues());
+		}
+	}
+}
@@ -0,0 +1,585 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntToDoubleFunction;
+
+import ch.dajay42.collections.ChunkedIntToDoubleCache;
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleTernaryOp;
+import ch.dajay42.math.function.DoubleTernaryOperator;
+import ch.dajay42.math.function.DoubleUnaryOp;
+
+/**Node of the expression DAG recorded by {@link MatrixLazy}.
+ * <p/>Every node can compute a single element on demand, via {@link #valueAt(int)},
+ * and a contiguous chunk of elements from the already computed chunks of its children,
+ * via {@link #evaluate(double[][], double[], int, int)}; the latter is what {@link LazyProgram} uses.
+ * <p/>Apart from {@link Overlay}, nodes are immutable.
+ * Their equals and hashCode compare the kind of node, its operator and its children by identity,
+ * so that structurally equal subexpressions over the same children can be merged.
+ * <p/>Nodes whose operator is one of the tagged enums of ch.dajay42.math.function
+ * evaluate their chunks with {@link DenseKernels}.
+ * @author DaJay42
+ */
+abstract class LazyNode{
+
+	final int rows, cols;
+
+	LazyNode(int rows, int cols){
+		this.rows = rows;
+		this.cols = cols;
+	}
+
+	/**Computes the value at element index elem.*/
+	abstract double valueAt(int elem);
+
+	/**Returns the children of this node, in evaluation order.*/
+	LazyNode[] children(){
+		return new LazyNode[0];
+	}
+
+	/**Returns a node equal to this, but with the given children.*/
+	LazyNode withChildren(LazyNode[] children){
+		return this;
+	}
+
+	/**Computes elements [from, from+len) into out[0..len),
+	 * given the same elements of each child in inputs, in the order of children().*/
+	abstract void evaluate(double[][] inputs, double[] out, int from, int len);
+
+
+	/**Leaf reading another Matrix, possibly transposed.*/
+	static final class MatrixLeaf extends LazyNode{
+
+		final Matrix source;
+		final boolean transposed;
+
+		MatrixLeaf(Matrix source, boolean transposed){
+			super(transposed ? source.cols : source.rows, transposed ? source.rows : source.cols);
+			this.source = source;
+			this.transposed = transposed;
+		}
+
+		@Override
+		double valueAt(int elem){
+			return transposed ? source.internalGetValueAt(elem % cols, elem / cols) : source.internalGetValueAt(elem);
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			double[] values = source.denseValues();
+			if(values != null && !transposed){
+				System.arraycopy(values, from, out, 0, len);
+			}else if(values != null){
+				int row = from / cols, col = from % cols;
+				for(int i = 0; i < len; i++){
+					out[i] = values[col * rows + row];
+					if(++col == cols){
+						col = 0;
+						row++;
+					}
+				}
+			}else{
+				for(int i = 0; i < len; i++)
+					out[i] = valueAt(from + i);
+			}
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof MatrixLeaf && ((MatrixLeaf) o).source == source && ((MatrixLeaf) o).transposed == transposed;
+		}
+
+		@Override
+		public int hashCode(){
+			return System.identityHashCode(source) * 31 + (transposed ? 1 : 0);
+		}
+	}
+
+	/**Leaf computing each element from its index.*/
+	static final class FunctionLeaf extends LazyNode{
+
+		final IntToDoubleFunction f;
+
+		FunctionLeaf(int rows, int cols, IntToDoubleFunction f){
+			super(rows, cols);
+			this.f = Objects.requireNonNull(f);
+		}
+
+		@Override
+		double valueAt(int elem){
+			return f.applyAsDouble(elem);
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			for(int i = 0; i < len; i++)
+				out[i] = f.applyAsDouble(from + i);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof FunctionLeaf && ((FunctionLeaf) o).f == f && ((FunctionLeaf) o).rows == rows;
+		}
+
+		@Override
+		public int hashCode(){
+			return System.identityHashCode(f);
+		}
+	}
+
+	/**Leaf with the same value everywhere.*/
+	static final class ConstantLeaf extends LazyNode{
+
+		final double value;
+
+		ConstantLeaf(int rows, int cols, double value){
+			super(rows, cols);
+			this.value = value;
+		}
+
+		@Override
+		double valueAt(int elem){
+			return value;
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			Arrays.fill(out, 0, len, value);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof ConstantLeaf && Double.compare(((ConstantLeaf) o).value, value) == 0
+					&& ((ConstantLeaf) o).rows == rows && ((ConstantLeaf) o).cols == cols;
+		}
+
+		@Override
+		public int hashCode(){
+			return Double.hashCode(value);
+		}
+	}
+
+	/**Leaf reading a cache of values computed elsewhere.*/
+	static final class CacheLeaf extends LazyNode{
+
+		final ChunkedIntToDoubleCache cache;
+
+		CacheLeaf(int rows, int cols, ChunkedIntToDoubleCache cache){
+			super(rows, cols);
+			this.cache = Objects.requireNonNull(cache);
+		}
+
+		@Override
+		double valueAt(int elem){
+			return cache.get(elem);
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			cache.get(from, out, 0, len);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof CacheLeaf && ((CacheLeaf) o).cache == cache;
+		}
+
+		@Override
+		public int hashCode(){
+			return System.identityHashCode(cache);
+		}
+	}
+
+	/**f(a)*/
+	static final class Unary extends LazyNode{
+
+		final DoubleUnaryOperator f;
+		final LazyNode a;
+
+		Unary(DoubleUnaryOperator f, LazyNode a){
+			super(a.rows, a.cols);
+			this.f = Objects.requireNonNull(f);
+			this.a = a;
+		}
+
+		@Override
+		double valueAt(int elem){
+			return f.applyAsDouble(a.valueAt(elem));
+		}
+
+		@Override
+		LazyNode[] children(){
+			return new LazyNode[]{a};
+		}
+
+		@Override
+		LazyNode withChildren(LazyNode[] children){
+			return new Unary(f, children[0]);
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			final double[] x = inputs[0];
+			if(f instanceof DoubleUnaryOp){
+				DenseKernels.INSTANCE.unary((DoubleUnaryOp) f, x, out, 0, len);
+				return;
+			}
+			for(int i = 0; i < len; i++)
+				out[i] = f.applyAsDouble(x[i]);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof Unary && ((Unary) o).f == f && ((Unary) o).a == a;
+		}
+
+		@Override
+		public int hashCode(){
+			return System.identityHashCode(f) * 31 + System.identityHashCode(a);
+		}
+	}
+
+	/**f(a, b)*/
+	static final class Binary extends LazyNode{
+
+		final DoubleBinaryOperator f;
+		final LazyNode a, b;
+
+		Binary(DoubleBinaryOperator f, LazyNode a, LazyNode b){
+			super(a.rows, a.cols);
+			this.f = Objects.requireNonNull(f);
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		double valueAt(int elem){
+			return f.applyAsDouble(a.valueAt(elem), b.valueAt(elem));
+		}
+
+		@Override
+		LazyNode[] children(){
+			return new LazyNode[]{a, b};
+		}
+
+		@Override
+		LazyNode withChildren(LazyNode[] children){
+			return new Binary(f, children[0], children[1]);
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			final double[] x = inputs[0], y = inputs[1];
+			if(f instanceof DoubleBinaryOp){
+				DenseKernels.INSTANCE.binary((DoubleBinaryOp) f, x, y, out, 0, len);
+				return;
+			}
+			for(int i = 0; i < len; i++)
+				out[i] = f.applyAsDouble(x[i], y[i]);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof Binary && ((Binary) o).f == f && ((Binary) o).a == a && ((Binary) o).b == b;
+		}
+
+		@Override
+		public int hashCode(){
+			return (System.identityHashCode(f) * 31 + System.identityHashCode(a)) * 31 + System.identityHashCode(b);
+		}
+	}
+
+	/**f(a, b, c)*/
+	static final class Ternary extends LazyNode{
+
+		final DoubleTernaryOperator f;
+		final LazyNode a, b, c;
+
+		Ternary(DoubleTernaryOperator f, LazyNode a, LazyNode b, LazyNode c){
+			super(a.rows, a.cols);
+			this.f = Objects.requireNonNull(f);
+			this.a = a;
+			this.b = b;
+			this.c = c;
+		}
+
+		@Override
+		double valueAt(int elem){
+			return f.applyAsDouble(a.valueAt(elem), b.valueAt(elem), c.valueAt(elem));
+		}
+
+		@Override
+		LazyNode[] children(){
+			return new LazyNode[]{a, b, c};
+		}
+
+		@Override
+		LazyNode withChildren(LazyNode[] children){
+			return new Ternary(f, children[0], children[1], children[2]);
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			final double[] x = inputs[0], y = inputs[1], z = inputs[2];
+			if(f == DoubleTernaryOp.FMA){
+				DenseKernels.INSTANCE.fma(x, y, z, out, 0, len);
+				return;
+			}
+			for(int i = 0; i < len; i++)
+				out[i] = f.applyAsDouble(x[i], y[i], z[i]);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof Ternary && ((Ternary) o).f == f
+					&& ((Ternary) o).a == a && ((Ternary) o).b == b && ((Ternary) o).c == c;
+		}
+
+		@Override
+		public int hashCode(){
+			return ((System.identityHashCode(f) * 31 + System.identityHashCode(a)) * 31
+					+ System.identityHashCode(b)) * 31 + System.identityHashCode(c);
+		}
+	}
+
+	/**f(a, s) for a scalar s*/
+	static final class Scalar extends LazyNode{
+
+		final DoubleBinaryOperator f;
+		final LazyNode a;
+		final double s;
+
+		Scalar(DoubleBinaryOperator f, LazyNode a, double s){
+			super(a.rows, a.cols);
+			this.f = Objects.requireNonNull(f);
+			this.a = a;
+			this.s = s;
+		}
+
+		@Override
+		double valueAt(int elem){
+			return f.applyAsDouble(a.valueAt(elem), s);
+		}
+
+		@Override
+		LazyNode[] children(){
+			return new LazyNode[]{a};
+		}
+
+		@Override
+		LazyNode withChildren(LazyNode[] children){
+			return new Scalar(f, children[0], s);
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			final double[] x = inputs[0];
+			if(f instanceof DoubleBinaryOp){
+				DenseKernels.INSTANCE.scalar((DoubleBinaryOp) f, x, s, out, 0, len);
+				return;
+			}
+			for(int i = 0; i < len; i++)
+				out[i] = f.applyAsDouble(x[i], s);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof Scalar && ((Scalar) o).f == f && ((Scalar) o).a == a
+					&& Double.compare(((Scalar) o).s, s) == 0;
+		}
+
+		@Override
+		public int hashCode(){
+			return (System.identityHashCode(f) * 31 + System.identityHashCode(a)) * 31 + Double.hashCode(s);
+		}
+	}
+
+	/**a^T
+	 * <br/>Not evaluated chunk-wise; {@link LazyProgram} replaces it by a transposed {@link MatrixLeaf}.*/
+	static final class Transpose extends LazyNode{
+
+		final LazyNode a;
+
+		Transpose(LazyNode a){
+			super(a.cols, a.rows);
+			this.a = a;
+		}
+
+		@Override
+		double valueAt(int elem){
+			return a.valueAt((elem % cols) * rows + elem / cols);
+		}
+
+		@Override
+		LazyNode[] children(){
+			return new LazyNode[]{a};
+		}
+
+		@Override
+		LazyNode withChildren(LazyNode[] children){
+			return new Transpose(children[0]);
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			for(int i = 0; i < len; i++)
+				out[i] = valueAt(from + i);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof Transpose && ((Transpose) o).a == a;
+		}
+
+		@Override
+		public int hashCode(){
+			return System.identityHashCode(a) * 17;
+		}
+	}
+
+	/**a*b, as Matrix product.
+	 * <br/>Not evaluated chunk-wise; the product is computed once, on first use, by {@link Matrix#multiply(Matrix)}.*/
+	static final class MatMul extends LazyNode{
+
+		final LazyNode a, b;
+		private volatile Matrix product;
+
+		MatMul(LazyNode a, LazyNode b){
+			super(a.rows, b.cols);
+			if(a.cols != b.rows)
+				throw new MatrixDimensionMismatchException();
+			this.a = a;
+			this.b = b;
+		}
+
+		/**Returns the product, computing it if necessary.*/
+		Matrix product(){
+			Matrix p = product;
+			if(p == null){
+				synchronized(this){
+					p = product;
+					if(p == null)
+						product = p = LazyProgram.materialize(a).multiply(LazyProgram.materialize(b));
+				}
+			}
+			return p;
+		}
+
+		@Override
+		double valueAt(int elem){
+			return product().internalGetValueAt(elem);
+		}
+
+		@Override
+		LazyNode[] children(){
+			return new LazyNode[]{a, b};
+		}
+
+		@Override
+		LazyNode withChildren(LazyNode[] children){
+			return new MatMul(children[0], children[1]);
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			Matrix p = product();
+			for(int i = 0; i < len; i++)
+				out[i] = p.internalGetValueAt(from + i);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof MatMul && ((MatMul) o).a == a && ((MatMul) o).b == b;
+		}
+
+		@Override
+		public int hashCode(){
+			return System.identityHashCode(a) * 31 + System.identityHashCode(b) + 7;
+		}
+	}
+
+	/**a, with a sparse set of elements replaced by explicit values.
+	 * <br/>Mutable until sealed: a MatrixLazy writes its point updates into the Overlay at its root,
+	 * unless that Overlay may be referenced from elsewhere.
+	 */
+	static final class Overlay extends LazyNode{
+
+		final LazyNode a;
+		private int[] keys;
+		private double[] values;
+		private int size;
+		private boolean sealed;
+
+		Overlay(LazyNode a){
+			super(a.rows, a.cols);
+			this.a = a;
+			this.keys = new int[4];
+			this.values = new double[4];
+		}
+
+		private Overlay(Overlay other, LazyNode a){
+			super(a.rows, a.cols);
+			this.a = a;
+			this.keys = Arrays.copyOf(other.keys, Math.max(4, other.size));
+			this.values = Arrays.copyOf(other.values, Math.max(4, other.size));
+			this.size = other.size;
+		}
+
+		/**Returns this if it may still be modified, or an unsealed copy otherwise.*/
+		Overlay writable(){
+			return sealed ? new Overlay(this, a) : this;
+		}
+
+		/**Marks this as shared; further point updates go to a copy.*/
+		void seal(){
+			sealed = true;
+		}
+
+		void set(int elem, double val){
+			int p = Arrays.binarySearch(keys, 0, size, elem);
+			if(p >= 0){
+				values[p] = val;
+				return;
+			}
+			p = -p - 1;
+			if(size == keys.length){
+				keys = Arrays.copyOf(keys, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			System.arraycopy(keys, p, keys, p + 1, size - p);
+			System.arraycopy(values, p, values, p + 1, size - p);
+			keys[p] = elem;
+			values[p] = val;
+			size++;
+		}
+
+		@Override
+		double valueAt(int elem){
+			int p = Arrays.binarySearch(keys, 0, size, elem);
+			return p >= 0 ? values[p] : a.valueAt(elem);
+		}
+
+		@Override
+		LazyNode[] children(){
+			return new LazyNode[]{a};
+		}
+
+		@Override
+		LazyNode withChildren(LazyNode[] children){
+			return children[0] == a ? this : new Overlay(this, children[0]);
+		}
+
+		@Override
+		void evaluate(double[][] inputs, double[] out, int from, int len){
+			System.arraycopy(inputs[0], 0, out, 0, len);
+			int p = Arrays.binarySearch(keys, 0, size, from);
+			if(p < 0)
+				p = -p - 1;
+			for(; p < size && keys[p] < from + len; p++)
+				out[keys[p] - from] = values[p];
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**Expression DAG of a {@link MatrixLazy}, compiled into a flat list of steps.
+ * <p/>Compilation merges structurally equal subexpressions,
+ * materializes matrix products and replaces transposes by transposed leaves,
+ * so that every remaining step is element-wise.
+ * Evaluation then runs the steps one chunk of elements at a time, each step reading the chunks of its inputs,
+ * so that each node costs one dispatch per chunk rather than per element and intermediates stay in cache.
+ * Chunks are evaluated in parallel if the work exceeds PARALLEL_LIMIT.
+ * <p/>Runs in O(rows*cols*steps).
+ * @author DaJay42
+ */
+final class LazyProgram{
+
+	/**Elements evaluated per step and pass.*/
+	static final int CHUNK = 1024;
+
+	private final int elems;
+
+	/**Nodes in topological order; the last one is the root.*/
+	private final LazyNode[] steps;
+
+	/**Step indices of the inputs of each step.*/
+	private final int[][] inputs;
+
+	private LazyProgram(LazyNode root){
+		this.elems = root.rows * root.cols;
+		Compiler compiler = new Compiler();
+		compiler.canonical(root);
+		this.steps = compiler.order.toArray(new LazyNode[0]);
+		this.inputs = new int[steps.length][];
+		IdentityHashMap<LazyNode, Integer> index = new IdentityHashMap<>();
+		for(int s = 0; s < steps.length; s++){
+			LazyNode[] children = steps[s].children();
+			inputs[s] = new int[children.length];
+			for(int c = 0; c < children.length; c++)
+				inputs[s][c] = index.get(children[c]);
+			index.put(steps[s], s);
+		}
+	}
+
+	/**Compiles the expression rooted at root.*/
+	static LazyProgram compile(LazyNode root){
+		return new LazyProgram(root);
+	}
+
+	/**Returns the number of steps left after compilation.*/
+	int size(){
+		return steps.length;
+	}
+
+	/**Evaluates all elements into out, which must have at least rows*cols entries.*/
+	void run(double[] out){
+		final int chunks = (elems + CHUNK - 1) / CHUNK;
+		if((long) elems * steps.length > Matrix.PARALLEL_LIMIT && chunks > 1){
+			final int tasks = Math.min(chunks, ForkJoinPool.getCommonPoolParallelism() * 4);
+			IntStream.range(0, tasks).parallel().forEach((t) -> {
+				int from = (int) ((long) chunks * t / tasks) * CHUNK;
+				int to = (int) Math.min((long) chunks * (t + 1) / tasks * CHUNK, elems);
+				run(from, out, from, to - from);
+			});
+		}else{
+			run(0, out, 0, elems);
+		}
+	}
+
+	/**Evaluates elements [from, from+len) into out[off..off+len), sequentially.*/
+	void run(int from, double[] out, int off, int len){
+		final double[][] buffers = new double[steps.length][Math.min(CHUNK, len)];
+		final double[][][] ins = new double[steps.length][][];
+		for(int s = 0; s < steps.length; s++){
+			ins[s] = new double[inputs[s].length][];
+			for(int c = 0; c < inputs[s].length; c++)
+				ins[s][c] = buffers[inputs[s][c]];
+		}
+		final double[] result = buffers[steps.length - 1];
+		for(int done = 0; done < len; done += CHUNK){
+			final int n = Math.min(CHUNK, len - done);
+			for(int s = 0; s < steps.length; s++)
+				steps[s].evaluate(ins[s], buffers[s], from + done, n);
+			System.arraycopy(result, 0, out, off + done, n);
+		}
+	}
+
+	/**Returns a Matrix holding the values of node, which is either the Matrix it reads or a new dense Matrix.*/
+	static Matrix materialize(LazyNode node){
+		if(node instanceof LazyNode.MatrixLeaf && !((LazyNode.MatrixLeaf) node).transposed)
+			return ((LazyNode.MatrixLeaf) node).source;
+		if(node instanceof LazyNode.MatMul)
+			return ((LazyNode.MatMul) node).product();
+		Matrix m = Matrix.zeroes(node.rows, node.cols, false);
+		compile(node).run(m.denseValues());
+		return m;
+	}
+
+	private static final class Compiler{
+
+		/**Canonical replacement of every node visited so far.*/
+		final IdentityHashMap<LazyNode, LazyNode> canonical = new IdentityHashMap<>();
+
+		/**Canonical nodes, keyed by structure.*/
+		final HashMap<LazyNode, LazyNode> unique = new HashMap<>();
+
+		final ArrayList<LazyNode> order = new ArrayList<>();
+
+		LazyNode canonical(LazyNode node){
+			LazyNode c = canonical.get(node);
+			if(c == null){
+				c = unique.computeIfAbsent(lower(node), (n) -> {
+					order.add(n);
+					return n;
+				});
+				canonical.put(node, c);
+			}
+			return c;
+		}
+
+		/**Returns an element-wise node equivalent to node, whose children are canonical.*/
+		private LazyNode lower(LazyNode node){
+			if(node instanceof LazyNode.MatMul)
+				return new LazyNode.MatrixLeaf(((LazyNode.MatMul) node).product(), false);
+			if(node instanceof LazyNode.Transpose){
+				LazyNode a = ((LazyNode.Transpose) node).a;
+				if(a instanceof LazyNode.MatrixLeaf)
+					return new LazyNode.MatrixLeaf(((LazyNode.MatrixLeaf) a).source, !((LazyNode.MatrixLeaf) a).transposed);
+				return new LazyNode.MatrixLeaf(materialize(a), true);
+			}
+			LazyNode[] children = node.children();
+			boolean changed = false;
+			for(int c = 0; c < children.length; c++){
+				LazyNode child = canonical(children[c]);
+				changed |= child != children[c];
+				children[c] = child;
+			}
+			return changed ? node.withChildren(children) : node;
+		}
+	}
+}
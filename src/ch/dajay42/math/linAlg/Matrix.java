@@ -1,17 +1,23 @@
 package ch.dajay42.math.linAlg;
 
+import java.io.NotSerializableException;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.OptionalDouble;
+import java.util.Spliterator;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.*;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import ch.dajay42.math.Summation;
 import ch.dajay42.math.function.*;
+import ch.dajay42.math.linAlg.decomp.*;
 
 //TODO: parallelize wherever useful
 
@@ -41,6 +47,12 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	/**Minimal number of operations required for parallelization to be efficient*/
 	public static int PARALLEL_LIMIT = 4096;//65536;
 	
+	/**Summation used by dot, norm, aggregate by {@link DoubleBinaryOp#ADD},
+	 * and reduce by {@link DoubleReduction#SUM}, {@link DoubleReduction#MEAN} or {@link DoubleReduction#L2}.
+	 * <br/>NAIVE keeps the fastest kernels; KAHAN and PAIRWISE trade a small constant factor for accuracy,
+	 * and give the same result regardless of parallelism.*/
+	public static Summation SUMMATION = Summation.NAIVE;
+	
 	// FIELDS
 
 	
@@ -48,7 +60,9 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	public final int rows;
 	/**Number of Columns*/
 	public final int cols;
-	/**Number of Elements*/
+	/**Number of Elements, saturated at Integer.MAX_VALUE.
+	 * <br/>Element indices are only meaningful for matrices with at most that many elements, see {@link #isElemIndexable()};
+	 * larger ones are accessed by row and column, and reject operations that can only address elements by index.*/
 	public final int elems;
 	
 	
@@ -69,7 +83,7 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 		if(rows > 0 && cols > 0){
 			this.rows = rows;
 			this.cols = cols;
-			this.elems = rows * cols;
+			this.elems = (int) Math.min((long) rows * cols, Integer.MAX_VALUE);
 		}else{
 			throw new MatrixCreationException();
 		}
@@ -202,7 +216,7 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 
 	
 	public static Matrix reshaped(Matrix other, int rows, int cols){
-		if (rows*cols != other.elems)
+		if ((long) rows * cols != (long) other.rows * other.cols)
 			throw new MatrixDimensionMismatchException();
 		Matrix matrix = zeroes(rows, cols, other.isSparse());
 		matrix.fill(other::internalGetValueAt);
@@ -324,13 +338,31 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * <p/>Runs in O(rows*cols).
 	 */
 	public static Matrix smartSparsify(Matrix in, double limit){
+		return smartSparsify(in, limit, false);
+	}
+	
+	/**Method that intelligently copies a Matrix into its sparse or nonsparse equivalent.
+	 * <p> if in.isSparse() && in.getFilledness() > limit, returns a non-sparse copy of in.
+	 * <p> if !in.isSparse() && in.getFilledness() < limit, returns a sparse copy of in,
+	 * which is an immutable {@link MatrixCSR} if compressed is set.
+	 * <p> if in is a mutable sparse Matrix, compressed is set and in.getFilledness() <= limit,
+	 * returns a {@link MatrixCSR} copy of in.
+	 * <p> otherwise, returns in
+	 * <p>
+	 * <p>Be aware that this means that previous references may or may not point to the result and should therefore be discarded.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public static Matrix smartSparsify(Matrix in, double limit, boolean compressed){
 		Matrix out = null;
 		if(limit < 0 || limit > 1)
 			throw new IllegalArgumentException("limit must be between 0.0 and 1.0, inclusively.");
 		
-		if(in.isSparse() && in.getFilledness() > limit)
+		double filledness = in.getFilledness();
+		if(in.isSparse() && filledness > limit)
 			out = zeroes(in.rows, in.cols, false);
-		else if(!in.isSparse() && in.getFilledness() < limit)
+		else if(compressed && (in.isSparse() || filledness < limit))
+			return (in instanceof MatrixCSC) ? in : MatrixCSR.of(in);
+		else if(!in.isSparse() && filledness < limit)
 			out = zeroes(in.rows, in.cols, true);
 		
 		if(out != null)
@@ -410,6 +442,51 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	
 	// DEFAULT IMPLEMENTATIONS -- OVERRIDE AS NECESSARY
 	
+	/**Returns the row-major array backing this Matrix, if there is one.
+	 * <br/>Used by kernels that operate on the storage directly; must not be exposed publicly.
+	 * @return backing array of length elems, or null
+	 */
+	double[] denseValues(){
+		return null;
+	}
+	
+	/**Returns the row-major float[] backing this Matrix, if there is one, as for {@link MatrixDenseFloat}.
+	 * <br/>Used by {@link FloatKernels}; must not be exposed publicly.
+	 * @return backing array of length elems, or null
+	 */
+	float[] floatValues(){
+		return null;
+	}
+	
+	/**Returns the object holding the values of this Matrix: its backing array if it is dense, this Matrix otherwise.
+	 * <br/>Views return the storage of their base, so that two matrices can only share values if their storage is the same.
+	 * @return identity of the storage of this
+	 */
+	Object storage(){
+		double[] values = denseValues();
+		if(values != null)
+			return values;
+		float[] floats = floatValues();
+		return floats != null ? (Object) floats : this;
+	}
+	
+	/**Returns true iff every element of this has an element index, i.e. iff rows*cols does not exceed Integer.MAX_VALUE.
+	 * <br/>Only sparse, off-heap, partitioned Matrices and Views of them may have more elements than that.
+	 * @return iff elements of this can be addressed by element index
+	 */
+	public final boolean isElemIndexable(){
+		return (long) rows * cols <= Integer.MAX_VALUE;
+	}
+	
+	/**Throws an {@link IllegalMatrixException} unless every element of this has an element index.
+	 * <br/>Called by operations that can only address elements by index, so that they never run on a part of a larger Matrix.
+	 */
+	protected final void assertElemIndexable(){
+		if(!isElemIndexable())
+			throw new IllegalMatrixException("Matrix error: Matrix of size " + rows + "*" + cols
+					+ " has more than Integer.MAX_VALUE elements, which cannot be addressed by element index.");
+	}
+	
 	public int asElemIndex(int row, int col){
 		return row * cols + col;
 	}
@@ -552,12 +629,108 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	
 	/**Returns the fraction of entries of this Matrix that contain non-zero values.
 	 * Not to be confused with isSparse()
-	 * <br/>Subclasses are encouraged to override this for performance improvements.
-	 * <p/>Runs in O(rows*cols).
-	 * @see #isSparse() */
-	@SuppressWarnings("OptionalGetWithoutIsPresent")
+	 * <p/>Runs in O(nonZeroCount()) for sparse implementations, O(rows*cols) otherwise.
+	 * @see #isSparse()
+	 * @see #nonZeroCount() */
 	public double getFilledness(){
-		return stream().mapToInt(d -> d != 0.0d ? 1 : 0).average().getAsDouble();
+		return nonZeroCount() / ((double) rows * cols);
+	}
+	
+	/**Returns the number of entries of this Matrix that contain non-zero values.
+	 * <br/>Subclasses that store their non-zeros explicitly are encouraged to override this.
+	 * <p/>Runs in O(rows*cols).
+	 * @return number of non-zero values
+	 */
+	public int nonZeroCount(){
+		double[] values = denseValues();
+		if(values != null){
+			int count = 0;
+			for(double v : values)
+				if(v != 0.0d)
+					count++;
+			return count;
+		}
+		int[] count = {0};
+		forEachNonZeroAt((row, col, val) -> count[0]++);
+		return count[0];
+	}
+	
+	/**Calls f once for every non-zero value of this Matrix, with its element index and value.
+	 * The order of invocations is not guaranteed. f must not modify this Matrix.
+	 * <br/>Subclasses that store their non-zeros explicitly are encouraged to override this.
+	 * <p/>Runs in O(rows*cols).
+	 * @param f consumer of element index and value
+	 * @throws IllegalMatrixException if this is not {@link #isElemIndexable()}
+	 * @see #forEachNonZeroAt(IntIntDoubleConsumer)
+	 */
+	public void forEachNonZero(IntDoubleConsumer f){
+		assertElemIndexable();
+		double[] values = denseValues();
+		if(values != null){
+			for(int elem = 0; elem < values.length; elem++)
+				if(values[elem] != 0.0d)
+					f.accept(elem, values[elem]);
+			return;
+		}
+		for(int elem = 0; elem < elems; elem++){
+			double v = internalGetValueAt(elem);
+			if(v != 0.0d)
+				f.accept(elem, v);
+		}
+	}
+	
+	/**Calls f once for every non-zero value of this Matrix, with its row, column and value.
+	 * The order of invocations is not guaranteed. f must not modify this Matrix.
+	 * <br/>Unlike {@link #forEachNonZero(IntDoubleConsumer)}, this works for matrices of any size.
+	 * Subclasses that store their non-zeros explicitly are encouraged to override this.
+	 * <p/>Runs in O(rows*cols).
+	 * @param f consumer of row, column and value
+	 */
+	public void forEachNonZeroAt(IntIntDoubleConsumer f){
+		if(isElemIndexable()){
+			forEachNonZero((elem, val) -> f.accept(asRowIndex(elem), asColIndex(elem), val));
+			return;
+		}
+		for(int row = 0; row < rows; row++){
+			for(int col = 0; col < cols; col++){
+				double v = internalGetValueAt(row, col);
+				if(v != 0.0d)
+					f.accept(row, col, v);
+			}
+		}
+	}
+	
+	/**Returns a Spliterator over the element indices of all non-zero values of this Matrix.
+	 * The Matrix must not be modified while it is in use.
+	 * <br/>Subclasses that store their non-zeros explicitly are encouraged to override this.
+	 * @return Spliterator over element indices
+	 * @throws IllegalMatrixException if this is not {@link #isElemIndexable()}
+	 */
+	public Spliterator.OfInt nonZeroSpliterator(){
+		assertElemIndexable();
+		return new NonZeroSpliterator(this, 0, elems);
+	}
+	
+	/** Get an IntStream of the element indices of all non-zero values.
+	 * Parallel if the estimated number of candidates exceeds PARALLEL_LIMIT, sequential otherwise.
+	 * @return IntStream of element indices
+	 */
+	IntStream nonZeroStream(){
+		Spliterator.OfInt spliterator = nonZeroSpliterator();
+		return StreamSupport.intStream(spliterator, spliterator.estimateSize() > PARALLEL_LIMIT);
+	}
+	
+	/** Get a DoubleStream of all non-zero values, in no particular order.
+	 * Parallel if the estimated number of candidates exceeds PARALLEL_LIMIT, sequential otherwise.
+	 * <br/>Works for matrices of any size; subclasses that store their non-zeros explicitly override this to stream them directly.
+	 * @return DoubleStream of non-zero values
+	 */
+	DoubleStream nonZeroValues(){
+		if(isElemIndexable())
+			return nonZeroStream().mapToDouble(this::internalGetValueAt);
+		DoubleStream.Builder builder = DoubleStream.builder();
+		forEachNonZeroAt((row, col, val) -> builder.add(val));
+		return builder.build();
 	}
 	
 	/** Get a DoubleStream of all elements, in element index order.
@@ -565,6 +738,7 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return DoubleStream containing all elements
 	 */
 	DoubleStream stream(){
+		assertElemIndexable();
 		return (elems > PARALLEL_LIMIT ? IntStream.range(0, elems).parallel() : IntStream.range(0, elems).sequential())
 				.mapToDouble(this::internalGetValueAt);
 	}
@@ -587,10 +761,26 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return copy of row
 	 */
 	public Matrix getRow(int row){
+		return getRowInto(row, zeroes(1, cols, isSparse()));
+	}
+	
+	/**Copies the ith row into the row vector out.
+	 * <p/>Runs in O(cols).
+	 * @param row row
+	 * @param out 1*cols Matrix to write to, which must not overlap this
+	 * @return out
+	 */
+	public Matrix getRowInto(int row, Matrix out){
 		assertBounds(row, 0);
-		Matrix r = zeroes(1, cols, isSparse());
-		r.fill((col) -> internalGetValueAt(row, col));
-		return r;
+		assertSize(out, 1, cols);
+		assertDisjoint(this, out);
+		Strided s = Strided.of(this);
+		double[] ov = out.denseValues();
+		if(s != null && ov != null){
+			MatrixView.copy(s.data, s.offset + row * s.rowStride, s.colStride, ov, 0, 1, cols);
+			return out;
+		}
+		return assign(out, (col) -> internalGetValueAt(row, col));
 	}
 	
 	/**Gets a View of the ith row as Vector
@@ -610,8 +800,8 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return View of rows
 	 */
 	public MatrixRowsView getRowsView(int startRow, int rows){
-		assertBounds(startRow, 0);
-		assertBounds(startRow+rows, 0);
+		if(startRow < 0 || rows < 0 || startRow + rows > this.rows)
+			throw new MatrixIndexOutOfBoundsException(startRow + rows, 0, this.rows, cols);
 		return new MatrixRowsView(startRow, rows, this);
 	}
 	
@@ -636,10 +826,26 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return copy of column
 	 */
 	public Matrix getColumn(int col){
+		return getColumnInto(col, zeroes(rows, 1, isSparse()));
+	}
+	
+	/**Copies the jth column into the column vector out.
+	 * <p/>Runs in O(rows).
+	 * @param col column
+	 * @param out rows*1 Matrix to write to, which must not overlap this
+	 * @return out
+	 */
+	public Matrix getColumnInto(int col, Matrix out){
 		assertBounds(0, col);
-		Matrix r = zeroes(rows, 1, isSparse());
-		r.fill((row) -> internalGetValueAt(row, col));
-		return r;
+		assertSize(out, rows, 1);
+		assertDisjoint(this, out);
+		Strided s = Strided.of(this);
+		double[] ov = out.denseValues();
+		if(s != null && ov != null){
+			MatrixView.copy(s.data, s.offset + col * s.colStride, s.rowStride, ov, 0, 1, rows);
+			return out;
+		}
+		return assign(out, (row) -> internalGetValueAt(row, col));
 	}
 	
 	/**Gets a View of the jth column as Vector
@@ -655,13 +861,13 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	/**Gets a View of the startCol-th through (startCol+cols)-th cols as Matrix
 	 * <p/>Runs in O(1).
 	 * @param startCol first col
-	 * @param cols number of lols
+	 * @param cols number of cols
 	 * @return View of cols
 	 */
-	public MatrixRowsView getColsView(int startCol, int cols){
-		assertBounds(startCol, 0);
-		assertBounds(startCol+cols, 0);
-		return new MatrixRowsView(startCol, cols, this);
+	public MatrixColsView getColsView(int startCol, int cols){
+		if(startCol < 0 || cols < 0 || startCol + cols > this.cols)
+			throw new MatrixIndexOutOfBoundsException(0, startCol + cols, rows, this.cols);
+		return new MatrixColsView(startCol, cols, this);
 	}
 	
 	/**Replace the jth column with the given Vector
@@ -693,6 +899,17 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 		return new MatrixBlockView(this, startRow, startCol, rows, cols);
 	}
 	
+	/**Gets a View of the transposed of this, without copying.
+	 * <br/>Kernels that work on dense storage, such as {@link #multiply(Matrix)}, read such a View in place,
+	 * so that e.g. a.transposedView().multiply(b) never materializes the transposed of a.
+	 * <p/>Runs in O(1).
+	 * @return View of the transposed
+	 * @see #transpose()
+	 */
+	public Matrix transposedView(){
+		return new MatrixTransposedView(this);
+	}
+	
 	public MatrixMaskedRowView exceptRowView(int row){
 		return new MatrixMaskedRowView(this, row);
 	}
@@ -739,6 +956,27 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 		return getBlockView(startRow,startCol,rows,cols).getValues();
 	}
 	
+	/**Returns a double[] that is equal to the internal values of this Matrix,
+	 * in row-major order. This creates a copy; future modifications to either
+	 * will not be reflected in the other.
+	 * <p/>Runs in O(rows*cols).
+	 * @return copy of all values, of length elems
+	 */
+	public double[] getValuesRowMajor(){
+		double[] values = denseValues();
+		if(values != null)
+			return values.clone();
+		assertElemIndexable();
+		double[] ds = new double[elems];
+		if(isSparse())
+			forEachNonZero((elem, val) -> ds[elem] = val);
+		else if(elems > PARALLEL_LIMIT)
+			Arrays.parallelSetAll(ds, this::internalGetValueAt);
+		else
+			Arrays.setAll(ds, this::internalGetValueAt);
+		return ds;
+	}
+	
 	/**Returns a double[][] that is equal in values and dimensions
 	 * to the internal values of this Matrix.
 	 * This creates a copy; future modifications to either
@@ -771,8 +1009,9 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return this
 	 */
 	public Matrix fill(double d){
-		for(int elem = 0; elem < elems; elem++)
-			internalSetValueAt(elem, d);
+		for(int row = 0; row < rows; row++)
+			for(int col = 0; col < cols; col++)
+				internalSetValueAt(row, col, d);
 		return this;
 	}
 
@@ -785,8 +1024,9 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return this
 	 */
 	public Matrix fill(DoubleSupplier f){
-		for(int elem = 0; elem < elems; elem++)
-			internalSetValueAt(elem, f.getAsDouble());
+		for(int row = 0; row < rows; row++)
+			for(int col = 0; col < cols; col++)
+				internalSetValueAt(row, col, f.getAsDouble());
 		return this;
 	}
 
@@ -796,8 +1036,10 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * <p/>Runs in O(rows*cols).
 	 * @param f function to fill with
 	 * @return this
+	 * @throws IllegalMatrixException if this is not {@link #isElemIndexable()}
 	 */
 	public Matrix fill(IntToDoubleFunction f){
+		assertElemIndexable();
 		for(int elem = 0; elem < elems; elem++)
 			internalSetValueAt(elem, f.applyAsDouble(elem));
 		return this;
@@ -813,6 +1055,7 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return this
 	 */
 	public Matrix fill(double[] values){
+		assertElemIndexable();
 		if(elems != values.length){
 			throw new MatrixDimensionMismatchException();
 		}
@@ -848,7 +1091,7 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * and vice-versa.
 	 * The dimension of this and other must agree.
 	 * <br/>Implementations are encouraged override this in a more efficient way.
-	 * <p/>Runs in O(rows*cols).
+	 * <p/>Runs in O(rows*cols), or in O(fill(0) + other.nonZeroCount()) if other is sparse.
 	 * @param other values to fill the matrix with
 	 */
 	public Matrix fill(Matrix other) {
@@ -856,12 +1099,120 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 			throw new MatrixDimensionMismatchException();
 		}
 		
+		if(other.isSparse()){
+			fill(0.0d);
+			other.forEachNonZeroAt(this::internalSetValueAt);
+			return this;
+		}
+		if(!isElemIndexable()){
+			for(int row = 0; row < rows; row++)
+				for(int col = 0; col < cols; col++)
+					internalSetValueAt(row, col, other.internalGetValueAt(row, col));
+			return this;
+		}
 		for(int elem = 0; elem < elems; elem++)
 			internalSetValueAt(elem, other.internalGetValueAt(elem));
 		return this;
 	}
 	
-	//TODO: Smarter Multiplication
+	/**Matrix Multiplication.
+	 * <br/>If both this and b are dense or strided Views of dense matrices, such as {@link #transposedView()},
+	 * uses a cache-blocked kernel that reads both in place, whatever their layout,
+	 * and is parallel if rows*cols*b.cols > PARALLEL_LIMIT.
+	 * If this is sparse, or this is dense and b is sparse, multiplies through {@link MatrixCSR};
+	 * if both are sparse, the product is computed sparse as well, by {@link MatrixCSR#multiply(MatrixCSR)},
+	 * and returned in a mutable sparse Matrix, or dense if it is filled beyond DEFAULT_SPARSE_LIMIT.
+	 * Otherwise, falls back to {@link #multiplySimple(Matrix)}.
+	 * <p/>Runs in O(rows*cols*b.cols), or less if either is sparse.
+	 * @param b Matrix to be multiplied with
+	 * @return product
+	 * @see #multiplyInto(Matrix, Matrix)
+	 */
+	public Matrix multiply(Matrix b){
+		if(cols != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		Strided sa = Strided.of(this);
+		if(sa != null && (b.isSparse() || Strided.of(b) != null))
+			return multiplyInto(b, zeroes(rows, b.cols));
+		if(isSparse() && b.isSparse()){
+			MatrixCSR c = MatrixCSR.of(this).multiply(MatrixCSR.of(b));
+			return zeroes(rows, b.cols, c.getFilledness() < DEFAULT_SPARSE_LIMIT).fill(c);
+		}
+		if(isSparse())
+			return multiplyInto(b, zeroes(rows, b.cols));
+		return multiplySimple(b);
+	}
+	
+	/**Matrix Multiplication into a preallocated Matrix.
+	 * <br/>If out is dense, the product is computed by the same kernels as {@link #multiply(Matrix)}, directly into out,
+	 * allocating nothing unless a sparse operand has to be converted to {@link MatrixCSR} first.
+	 * Otherwise, falls back to {@link #multiplySimpleInto(Matrix, Matrix)}.
+	 * <p/>Runs in O(rows*cols*b.cols), or less if either is sparse.
+	 * @param b Matrix to be multiplied with
+	 * @param out rows*b.cols Matrix to write the product to, which must not overlap this or b
+	 * @return out
+	 */
+	public Matrix multiplyInto(Matrix b, Matrix out){
+		if(cols != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		assertSize(out, rows, b.cols);
+		assertDisjoint(this, out);
+		assertDisjoint(b, out);
+		if(FloatKernels.multiply(this, b, out, MatrixDenseFloat.ACCUMULATE_IN_DOUBLE))
+			return out;
+		double[] ov = out.denseValues();
+		if(ov != null){
+			Strided sa = Strided.of(this), sb = Strided.of(b);
+			if(sa != null && sb != null){
+				Arrays.fill(ov, 0.0d);
+				DenseGemm.multiply(sa, sb, ov);
+				return out;
+			}
+			if(this instanceof MatrixCSC){
+				((MatrixCSC) this).multiplyRight(b, ov);
+				return out;
+			}
+			if(isSparse()){
+				MatrixCSR.of(this).multiplyRight(b, ov);
+				return out;
+			}
+			if(sa != null && b.isSparse()){
+				Arrays.fill(ov, 0.0d);
+				MatrixCSR.of(b).multiplyLeft(sa, ov);
+				return out;
+			}
+		}
+		return multiplySimpleInto(b, out);
+	}
+	
+	/**Matrix-vector product y = this*x, into a preallocated array.
+	 * <br/>Dense matrices and strided Views run on the same kernel as {@link #multiply(Matrix)},
+	 * sparse matrices accumulate their non-zeros, and other matrices are read element by element.
+	 * <p/>Runs in O(rows*cols), or in O(nonZeroCount()) if this is sparse.
+	 * @param x input vector of length cols
+	 * @param y output vector of length rows, overwritten
+	 */
+	public void multiply(double[] x, double[] y){
+		if(x.length != cols || y.length != rows)
+			throw new MatrixDimensionMismatchException();
+		Arrays.fill(y, 0.0d);
+		Strided s = Strided.of(this);
+		if(s != null){
+			DenseGemm.multiply(s, new Strided(x, 0, 1, 1, cols, 1), y);
+		}else if(isSparse()){
+			forEachNonZeroAt((row, col, val) -> y[row] += val * x[col]);
+		}else{
+			for(int row = 0; row < rows; row++){
+				double acc = 0.0d;
+				for(int col = 0; col < cols; col++)
+					acc += internalGetValueAt(row, col) * x[col];
+				y[row] = acc;
+			}
+		}
+	}
+	
 	/**Naive Matrix Multiplication.
 	 * <p/>Runs in O(rows*cols*b.cols).
 	 * @param b Matrix to be multiplied with
@@ -871,24 +1222,50 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 		if(cols != b.rows){
 			throw new MatrixDimensionMismatchException();
 		}
-		int bcols = b.cols;
-		
-		Matrix c = zeroes(rows, bcols);
-		for(int row = 0; row < rows; row++){
-			for(int bcol = 0; bcol < bcols; bcol++){
-				for(int col = 0; col < cols; col++){
-					c.internalModValueAt(row,bcol, internalGetValueAt(row,col)*b.internalGetValueAt(col,bcol));
-				}
-			}
+		return smartSparsify(multiplySimpleInto(b, zeroes(rows, b.cols)));
+	}
+	
+	/**Naive Matrix Multiplication into a preallocated Matrix.
+	 * <p/>Runs in O(rows*cols*b.cols).
+	 * @param b Matrix to be multiplied with
+	 * @param out rows*b.cols Matrix to write the product to, which must not overlap this or b
+	 * @return out
+	 */
+	public Matrix multiplySimpleInto(Matrix b, Matrix out){
+		if(cols != b.rows){
+			throw new MatrixDimensionMismatchException();
 		}
-		
-		return smartSparsify(c);
+		assertSize(out, rows, b.cols);
+		assertDisjoint(this, out);
+		assertDisjoint(b, out);
+		return assign(out, (elem) -> {
+			final int row = out.asRowIndex(elem), bcol = out.asColIndex(elem);
+			double acc = 0.0d;
+			for(int col = 0; col < cols; col++)
+				acc += internalGetValueAt(row, col) * b.internalGetValueAt(col, bcol);
+			return acc;
+		});
+	}
+	
+	/**Returns the full two-dimensional linear convolution of this and kernel, of size (rows+kernel.rows-1)*(cols+kernel.cols-1),
+	 * whose element (r, c) is the sum of this(i, j)*kernel(r-i, c-j) over all valid i and j.
+	 * Vectors convolve as sequences.
+	 * <br/>Computed by summing shifted copies of this, or, where that would take longer,
+	 * by {@link FFT}s of both zero-padded to powers of two, with errors then in the order of 1e-16 times the norms of the operands.
+	 * The result is dense. Both are parallel if their work exceeds PARALLEL_LIMIT.
+	 * <p/>Runs in O(min(rows*cols*kernel.rows*kernel.cols, n*log(n))), n being the size of the result.
+	 * @param kernel Matrix to convolve with
+	 * @return convolution
+	 */
+	public Matrix convolve(Matrix kernel){
+		return FFT.convolve(this, kernel);
 	}
 	
 
 
 	/**Quick inner vector product.
 	 * This must be a row vector, b must be a column vector, and both must have the same length.
+	 * <br/>The products are summed as set by {@link #SUMMATION}.
 	 * @param b Vector to be multiplied with
 	 * @return product
 	 */
@@ -897,55 +1274,206 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 			throw new MatrixDimensionMismatchException();
 		if(rows != 1 || b.cols != 1)
 			throw new MatrixNotAVectorException();
+		double[] a = denseValues(), bv = b.denseValues();
+		if(a != null && bv != null && SUMMATION == Summation.NAIVE)
+			return DenseKernels.dot(a, bv);
+		Strided sa = Strided.of(this), sb = Strided.of(b);
+		if(sa != null && sb != null)
+			return sa.dot(sb);
+		if(SUMMATION != Summation.NAIVE)
+			return SUMMATION.sum(IntStream.range(0, cols).mapToDouble((elem) -> this.internalGetValueAt(elem) * b.internalGetValueAt(elem)).toArray());
 		return IntStream.range(0, cols).mapToDouble((elem) -> this.internalGetValueAt(elem) * b.internalGetValueAt(elem)).sum();
 	}
+	
+	/**Returns the Frobenius norm of this, the square root of the sum of the squares of all elements.
+	 * <br/>The squares are summed as set by {@link #SUMMATION}.
+	 * <p/>Runs in O(rows*cols), or in O(nonZeroCount()) if this is sparse.
+	 * @return Frobenius norm
+	 */
+	public double norm(){
+		if(SUMMATION != Summation.NAIVE)
+			return reduce(DoubleReduction.L2);
+		double[] a = denseValues();
+		if(a != null)
+			return Math.sqrt(DenseKernels.dot(a, a));
+		Strided s = Strided.of(this);
+		if(s != null)
+			return Math.sqrt(s.sumOfSquares());
+		if(isSparse())
+			return Math.sqrt(nonZeroValues().map((v) -> v * v).sum());
+		assertElemIndexable();
+		return Math.sqrt(IntStream.range(0, elems).mapToDouble(this::internalGetValueAt).map((v) -> v * v).sum());
+	}
 
 	
 	/**Gets a new matrix equal to the transposed of this
-	 * <p/>Runs in O(rows*cols).
+	 * <br/>If this is dense or a strided View, the copy is made by a cache-oblivious blocked transpose.
+	 * <p/>Runs in O(rows*cols), or in O(nonZeroCount()) if this is sparse.
 	 * @return transposed copy of this
+	 * @see #transposedView()
 	 */
 	public Matrix transpose(){
-		Matrix t = zeroes(cols, rows, isSparse());
-
-		for(int row = 0; row < rows; row++){
-			for(int col = 0; col < cols; col++){
-				t.internalSetValueAt(col,row, internalGetValueAt(row,col));
-			}
+		return transposeInto(zeroes(cols, rows, isSparse()));
+	}
+	
+	/**Writes the transposed of this into out.
+	 * <br/>If this is dense or a strided View and out is dense, the copy is made by the same blocked transpose as {@link #transpose()}.
+	 * <p/>Runs in O(rows*cols), or in O(nonZeroCount()) if this and out are sparse.
+	 * @param out cols*rows Matrix to write to, which must not overlap this
+	 * @return out
+	 */
+	public Matrix transposeInto(Matrix out){
+		assertSize(out, cols, rows);
+		assertDisjoint(this, out);
+		if(isSparse() && !out.isLazy()){
+			out.fill(0.0d);
+			forEachNonZeroAt((row, col, val) -> out.internalSetValueAt(col, row, val));
+			return out;
 		}
-		return t;
+		Strided s = Strided.of(this);
+		double[] ov = out.denseValues();
+		if(s != null && ov != null){
+			s.transposeInto(ov);
+			return out;
+		}
+		return assign(out, (elem) -> internalGetValueAt(out.asColIndex(elem), out.asRowIndex(elem)));
 	}
 	
 
 	
 	/**Returns a new matrix C, such that for each index (i,j), C(i,j) = A(i,j) + B(i,j)
 	 * <br/>As the most used elementWise function, this gets its own dedicated implementation.
-	 * <p/>Runs in O(rows*cols).
+	 * <p/>Runs in O(rows*cols), or in O(nonZeroCount() + b.nonZeroCount()) if both are sparse.
 	 * @param b second argument Matrix B
 	 * @return Result matrix C
 	 */
 	public Matrix sum(Matrix b){
-		return zeroesLike(this).fill((elem) -> this.internalGetValueAt(elem) + b.internalGetValueAt(elem));
+		if(cols != b.cols || rows != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		return sumInto(b, zeroesLike(this));
+	}
+	
+	/**Writes C(i,j) = A(i,j) + B(i,j) into out for each index (i,j), and returns out.
+	 * <br/>out may be this or b, or lie exactly on either, but must not overlap them otherwise.
+	 * <p/>Runs in O(rows*cols), or in O(nonZeroCount() + b.nonZeroCount()) if all three are sparse.
+	 * @param b second argument Matrix B
+	 * @param out Matrix C to write to
+	 * @return out
+	 */
+	public Matrix sumInto(Matrix b, Matrix out){
+		if(cols != b.cols || rows != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		assertSize(out, rows, cols);
+		assertElementWise(this, out);
+		assertElementWise(b, out);
+		if(isSparse() && b.isSparse() && out.isSparse() && (this != b || out != this)){
+			if(out == this){
+				b.forEachNonZeroAt(out::internalModValueAt);
+				return out;
+			}
+			if(out == b){
+				this.forEachNonZeroAt(out::internalModValueAt);
+				return out;
+			}
+			out.fill(0.0d);
+			this.forEachNonZeroAt(out::internalSetValueAt);
+			b.forEachNonZeroAt(out::internalModValueAt);
+			return out;
+		}
+		double[] a = denseValues(), bv = b.denseValues(), ov = out.denseValues();
+		if(a != null && bv != null && ov != null){
+			DenseKernels.binary(DoubleBinaryOp.ADD, a, bv, ov);
+			return out;
+		}
+		if(FloatKernels.binary(DoubleBinaryOp.ADD, this, b, out))
+			return out;
+		return assign(out, (elem) -> this.internalGetValueAt(elem) + b.internalGetValueAt(elem));
 	}
 	
 
 	/**Returns a new matrix B, such that for each index (i,j), B(i,j) = f(A(i,j))
-	 * <p/>Runs in O(rows*cols*f).
+	 * <p/>Runs in O(rows*cols*f), or in O(nonZeroCount()*f) if this is sparse and f(0) == 0.
 	 * @param f unary operator to apply
 	 * @return result matrix B
 	 */
 	public Matrix elementWise(DoubleUnaryOperator f){
-		return zeroesLike(this).fill((elem) -> f.applyAsDouble(this.internalGetValueAt(elem)));
+		return elementWiseInto(f, zeroesLike(this));
+	}
+	
+	/**Writes B(i,j) = f(A(i,j)) into out for each index (i,j), and returns out.
+	 * <br/>out may be this, or lie exactly on it, but must not overlap it otherwise.
+	 * <p/>Runs in O(rows*cols*f), or in O(nonZeroCount()*f) if this and out are sparse, out is not this, and f(0) == 0.
+	 * @param f unary operator to apply
+	 * @param out Matrix B to write to
+	 * @return out
+	 */
+	public Matrix elementWiseInto(DoubleUnaryOperator f, Matrix out){
+		assertSize(out, rows, cols);
+		assertElementWise(this, out);
+		if(isSparse() && out.isSparse() && out != this && f.applyAsDouble(0.0d) == 0.0d){
+			out.fill(0.0d);
+			forEachNonZeroAt((row, col, val) -> out.internalSetValueAt(row, col, f.applyAsDouble(val)));
+			return out;
+		}
+		double[] a = denseValues(), ov = out.denseValues();
+		if(a != null && ov != null && f instanceof DoubleUnaryOp){
+			DenseKernels.unary((DoubleUnaryOp) f, a, ov);
+			return out;
+		}
+		if(f instanceof DoubleUnaryOp && FloatKernels.unary((DoubleUnaryOp) f, this, out))
+			return out;
+		return assign(out, (elem) -> f.applyAsDouble(this.internalGetValueAt(elem)));
 	}
 	
 	/**Returns a new matrix C, such that for each index (i,j), C(i,j) = f(A(i,j), B(i,j))
-	 * <p/>Runs in O(rows*cols*f).
+	 * <p/>Runs in O(rows*cols*f),
+	 * or in O((nonZeroCount() + b.nonZeroCount())*f) if both are sparse and f(0,0) == 0.
 	 * @param f binary operator to apply
 	 * @param b second argument Matrix B
 	 * @return Result matrix C
 	 */
 	public Matrix elementWise(DoubleBinaryOperator f, Matrix b){
-		return zeroesLike(this).fill((elem) -> f.applyAsDouble(this.internalGetValueAt(elem), b.internalGetValueAt(elem)));
+		if(cols != b.cols || rows != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		return elementWiseInto(f, b, zeroesLike(this));
+	}
+	
+	/**Writes C(i,j) = f(A(i,j), B(i,j)) into out for each index (i,j), and returns out.
+	 * <br/>out may be this or b, or lie exactly on either, but must not overlap them otherwise.
+	 * <p/>Runs in O(rows*cols*f),
+	 * or in O((nonZeroCount() + b.nonZeroCount())*f) if all three are sparse, out is neither this nor b, and f(0,0) == 0.
+	 * @param f binary operator to apply
+	 * @param b second argument Matrix B
+	 * @param out Matrix C to write to
+	 * @return out
+	 */
+	public Matrix elementWiseInto(DoubleBinaryOperator f, Matrix b, Matrix out){
+		if(cols != b.cols || rows != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		assertSize(out, rows, cols);
+		assertElementWise(this, out);
+		assertElementWise(b, out);
+		if(isSparse() && b.isSparse() && out.isSparse() && out != this && out != b && f.applyAsDouble(0.0d, 0.0d) == 0.0d){
+			out.fill(0.0d);
+			this.forEachNonZeroAt((row, col, val) -> out.internalSetValueAt(row, col, f.applyAsDouble(val, b.internalGetValueAt(row, col))));
+			b.forEachNonZeroAt((row, col, val) -> {
+				if(this.internalGetValueAt(row, col) == 0.0d)
+					out.internalSetValueAt(row, col, f.applyAsDouble(0.0d, val));
+			});
+			return out;
+		}
+		double[] a = denseValues(), bv = b.denseValues(), ov = out.denseValues();
+		if(a != null && bv != null && ov != null && f instanceof DoubleBinaryOp){
+			DenseKernels.binary((DoubleBinaryOp) f, a, bv, ov);
+			return out;
+		}
+		if(f instanceof DoubleBinaryOp && FloatKernels.binary((DoubleBinaryOp) f, this, b, out))
+			return out;
+		return assign(out, (elem) -> f.applyAsDouble(this.internalGetValueAt(elem), b.internalGetValueAt(elem)));
 	}
 	
 	/**Returns a new matrix D, such that for each index (i,j), D(i,j) = f(A(i,j), B(i,j), C(i,j))
@@ -956,89 +1484,531 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return result matrix D
 	 */
 	public Matrix elementWise(DoubleTernaryOperator f, Matrix b, Matrix c){
-		return zeroesLike(this).fill((elem) ->
+		if(cols != b.cols || rows != b.rows || cols != c.cols || rows != c.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		return elementWiseInto(f, b, c, zeroesLike(this));
+	}
+	
+	/**Writes D(i,j) = f(A(i,j), B(i,j), C(i,j)) into out for each index (i,j), and returns out.
+	 * <br/>out may be any of this, b or c, or lie exactly on it, but must not overlap them otherwise.
+	 * <p/>Runs in O(rows*cols*f).
+	 * @param f ternary operator to apply
+	 * @param b second argument matrix B
+	 * @param c third argument matrix C
+	 * @param out Matrix D to write to
+	 * @return out
+	 */
+	public Matrix elementWiseInto(DoubleTernaryOperator f, Matrix b, Matrix c, Matrix out){
+		if(cols != b.cols || rows != b.rows || cols != c.cols || rows != c.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		assertSize(out, rows, cols);
+		assertElementWise(this, out);
+		assertElementWise(b, out);
+		assertElementWise(c, out);
+		double[] a = denseValues(), bv = b.denseValues(), cv = c.denseValues(), ov = out.denseValues();
+		if(a != null && bv != null && cv != null && ov != null && f == DoubleTernaryOp.FMA){
+			DenseKernels.fma(a, bv, cv, ov);
+			return out;
+		}
+		if(f == DoubleTernaryOp.FMA && FloatKernels.fma(this, b, c, out))
+			return out;
+		return assign(out, (elem) ->
 				f.applyAsDouble(this.internalGetValueAt(elem), b.internalGetValueAt(elem), c.internalGetValueAt(elem)));
 	}
 	
 	/**Returns a new matrix C, such that for each index (i,j), C(i,j) = f(A(i,j), b)
-	 * <p/>Runs in O(rows*cols*f).
+	 * <p/>Runs in O(rows*cols*f), or in O(nonZeroCount()*f) if this is sparse and f(0,b) == 0.
 	 * @param f binary operator to apply
 	 * @param b second argument scalar
 	 * @return result matrix C
 	 */
 	public Matrix scalarOp(DoubleBinaryOperator f, double b){
-		return zeroesLike(this).fill((elem) -> f.applyAsDouble(this.internalGetValueAt(elem), b));
+		return scalarOpInto(f, b, zeroesLike(this));
+	}
+	
+	/**Writes C(i,j) = f(A(i,j), b) into out for each index (i,j), and returns out.
+	 * <br/>out may be this, or lie exactly on it, but must not overlap it otherwise.
+	 * <p/>Runs in O(rows*cols*f), or in O(nonZeroCount()*f) if this and out are sparse, out is not this, and f(0,b) == 0.
+	 * @param f binary operator to apply
+	 * @param b second argument scalar
+	 * @param out Matrix C to write to
+	 * @return out
+	 */
+	public Matrix scalarOpInto(DoubleBinaryOperator f, double b, Matrix out){
+		assertSize(out, rows, cols);
+		assertElementWise(this, out);
+		if(isSparse() && out.isSparse() && out != this && f.applyAsDouble(0.0d, b) == 0.0d){
+			out.fill(0.0d);
+			forEachNonZeroAt((row, col, val) -> out.internalSetValueAt(row, col, f.applyAsDouble(val, b)));
+			return out;
+		}
+		double[] a = denseValues(), ov = out.denseValues();
+		if(a != null && ov != null && f instanceof DoubleBinaryOp){
+			DenseKernels.scalar((DoubleBinaryOp) f, a, b, ov);
+			return out;
+		}
+		if(f instanceof DoubleBinaryOp && FloatKernels.scalar((DoubleBinaryOp) f, this, b, out))
+			return out;
+		return assign(out, (elem) -> f.applyAsDouble(this.internalGetValueAt(elem), b));
+	}
+	
+	/**Throws a {@link MatrixDimensionMismatchException} unless m is of size rows*cols.*/
+	private static void assertSize(Matrix m, int rows, int cols){
+		if(m.rows != rows || m.cols != cols)
+			throw new MatrixDimensionMismatchException();
+	}
+	
+	/**Throws a {@link MatrixAliasingException} if out shares values with the input in of an element-wise operation,
+	 * unless out is in, or lies exactly on it, so that each value is read before it is overwritten.
+	 * <br/>Views that are not strided can only be told apart by their base, and are assumed to overlap.
+	 * Lazy inputs are evaluated as out is written, and must not depend on it.
+	 */
+	private static void assertElementWise(Matrix in, Matrix out){
+		if(in == out || in.storage() != out.storage())
+			return;
+		Strided si = Strided.of(in), so = Strided.of(out);
+		if(si == null || so == null || (!si.sameLayout(so) && si.overlaps(so)))
+			throw new MatrixAliasingException();
+	}
+	
+	/**Throws a {@link MatrixAliasingException} if out shares values with the input in of an operation
+	 * that reads values of in after writing to out, such as a product or a transpose.
+	 * <br/>Views that are not strided can only be told apart by their base, and are assumed to overlap.
+	 */
+	private static void assertDisjoint(Matrix in, Matrix out){
+		if(in.storage() != out.storage())
+			return;
+		Strided si = Strided.of(in), so = Strided.of(out);
+		if(si == null || so == null || si.overlaps(so))
+			throw new MatrixAliasingException();
+	}
+	
+	/**Replaces every value of out by f, as {@link #fill(IntToDoubleFunction)} does.
+	 * <br/>A lazy out is filled from a dense copy, since f may read the values it replaces.
+	 */
+	private static Matrix assign(Matrix out, IntToDoubleFunction f){
+		if(out.isLazy())
+			return out.fill(zeroes(out.rows, out.cols).fill(f));
+		return out.fill(f);
+	}
+	
+	/**Rows per block of the row-parallel reductions.*/
+	static final int REDUCE_BLOCK = 64;
+	
+	/**Returns the block indices of [0, n) in blocks of REDUCE_BLOCK,
+	 * parallel if work exceeds PARALLEL_LIMIT.*/
+	private static IntStream reduceBlocks(int n, long work){
+		int count = (n + REDUCE_BLOCK - 1) / REDUCE_BLOCK;
+		return work > PARALLEL_LIMIT ? IntStream.range(0, count).parallel() : IntStream.range(0, count).sequential();
+	}
+	
+	/**Returns the value at (row, col), read from s directly if that is not null.*/
+	private double valueAt(Strided s, int row, int col){
+		return s != null ? s.data[s.offset + row * s.rowStride + col * s.colStride] : internalGetValueAt(row, col);
+	}
+	
+	/**Copies row row into dst, read from s directly if that is not null.*/
+	private void copyRow(Strided s, int row, double[] dst){
+		if(s != null)
+			MatrixView.copy(s.data, s.offset + row * s.rowStride, s.colStride, dst, 0, 1, cols);
+		else
+			for(int col = 0; col < cols; col++)
+				dst[col] = internalGetValueAt(row, col);
+	}
+	
+	/**Copies column col into dst, read from s directly if that is not null.*/
+	private void copyColumn(Strided s, int col, double[] dst){
+		if(s != null)
+			MatrixView.copy(s.data, s.offset + col * s.colStride, s.rowStride, dst, 0, 1, rows);
+		else
+			for(int row = 0; row < rows; row++)
+				dst[row] = internalGetValueAt(row, col);
 	}
 	
 	/**Returns value equal to f applied to the results of f applied to each row of this
+	 * <br/>The array passed to f is reused between calls, and must not be retained.
 	 * <p/>Runs in O(rows*f).
 	 * @param f aggregate operator to apply
 	 * @return result
 	 */
 	public double aggregateOp(ToDoubleFunction<double[]> f){
-		double[] r = new double[rows];
-		Arrays.setAll(r, (row) -> f.applyAsDouble(getValuesInRow(row)));
-		return f.applyAsDouble(r);
+		return f.applyAsDouble(applyToRows(f));
 	}
 	
 	/**Returns value equal to the associative binary operator f applied to all elements of this
-	 * <p/>Runs in O(rows*cols*f).
+	 * <br/>If this is sparse and f(0,0) == 0, all zeros are folded into a single application of f,
+	 * which assumes f to be commutative as well.
+	 * <br/>{@link DoubleBinaryOp#ADD} sums as set by {@link #SUMMATION}.
+	 * <p/>Runs in O(rows*cols*f), or in O(nonZeroCount()*f) if this is sparse and f(0,0) == 0.
 	 * @param f associative binary operator to apply
 	 * @return result
 	 */
 	@SuppressWarnings("OptionalGetWithoutIsPresent")
 	public double aggregate(DoubleBinaryOperator f){
+		if(f == DoubleBinaryOp.ADD && SUMMATION != Summation.NAIVE)
+			return reduce(DoubleReduction.SUM);
+		if(isSparse() && f.applyAsDouble(0.0d, 0.0d) == 0.0d){
+			OptionalDouble r = nonZeroValues().reduce(f);
+			if(r.isEmpty())
+				return 0.0d;
+			return nonZeroCount() < (long) rows * cols ? f.applyAsDouble(r.getAsDouble(), 0.0d) : r.getAsDouble();
+		}
+		if(f instanceof DoubleBinaryOp && ((DoubleBinaryOp) f).isReduction()){
+			double[] a = denseValues();
+			if(a != null)
+				return DenseKernels.reduce((DoubleBinaryOp) f, a);
+			Strided s = Strided.of(this);
+			if(s != null)
+				return s.reduce((DoubleBinaryOp) f);
+		}
+		assertElemIndexable();
 		return IntStream.range(0, elems).mapToDouble(this::internalGetValueAt).reduce(f).getAsDouble();
 	}
 	
 	/**Returns column Vector equal to f applied to each row of this
+	 * <br/>The array passed to f is reused between calls, and must not be retained.
+	 * Rows are processed in parallel if rows*cols exceeds PARALLEL_LIMIT.
 	 * <p/>Runs in O(rows*f).
 	 * @param f aggregate operator to apply
 	 * @return result
 	 */
 	public Matrix aggregateOpRowWise(ToDoubleFunction<double[]> f){
 		ColumnVectorDense r = new ColumnVectorDense(rows);
-		r.fill((row) -> f.applyAsDouble(getValuesInRow(row)));
+		r.fill(applyToRows(f));
 		return r;
 	}
 	
+	/**Returns f applied to each row, passing one reused buffer per block of rows.*/
+	private double[] applyToRows(ToDoubleFunction<double[]> f){
+		final double[] out = new double[rows];
+		final Strided s = Strided.of(this);
+		reduceBlocks(rows, elems).forEach((b) -> {
+			double[] buffer = new double[cols];
+			for(int row = b * REDUCE_BLOCK, end = Math.min(row + REDUCE_BLOCK, rows); row < end; row++){
+				copyRow(s, row, buffer);
+				out[row] = f.applyAsDouble(buffer);
+			}
+		});
+		return out;
+	}
+	
 	/**Returns column Vector equal to the associative binary operator f applied to all elements of each row of this
+	 * <br/>Rows are processed in parallel if rows*cols exceeds PARALLEL_LIMIT.
 	 * <p/>Runs in O(rows*cols*f).
 	 * @param f associative binary operator to apply
 	 * @return result
 	 */
-	@SuppressWarnings("OptionalGetWithoutIsPresent")
 	public Matrix aggregateRowWise(DoubleBinaryOperator f){
+		if(cols == 0)
+			throw new MatrixDimensionMismatchException();
 		ColumnVectorDense r = new ColumnVectorDense(rows);
-		IntStream.range(0, rows).mapToDouble(this::internalGetValueAt).reduce(f).getAsDouble();
-		r.fill((row) -> IntStream.range(0, cols).mapToDouble((col) -> internalGetValueAt(row,col)).reduce(f).getAsDouble());
+		final double[] out = r.denseValues();
+		final Strided s = Strided.of(this);
+		reduceBlocks(rows, elems).forEach((b) -> {
+			for(int row = b * REDUCE_BLOCK, end = Math.min(row + REDUCE_BLOCK, rows); row < end; row++){
+				double acc = valueAt(s, row, 0);
+				for(int col = 1; col < cols; col++)
+					acc = f.applyAsDouble(acc, valueAt(s, row, col));
+				out[row] = acc;
+			}
+		});
 		return r;
 	}
 	
 	/**Returns row Vector equal to f applied to each column of this.
+	 * <br/>The array passed to f is reused between calls, and must not be retained.
+	 * Columns are processed in parallel if rows*cols exceeds PARALLEL_LIMIT.
 	 * <p/>Runs in O(cols*f).
 	 * @param f aggregate operator to apply
 	 * @return result vector
 	 */
 	public Matrix aggregateOpColumnWise(ToDoubleFunction<double[]> f){
 		RowVectorDense c = new RowVectorDense(cols);
-		c.fill((col) -> f.applyAsDouble(getValuesInColumn(col)));
+		c.fill(applyToColumns(f));
 		return c;
 	}
 	
-	/**Returns column Vector equal to the associative binary operator f applied to all elements of each column of this
-	 * <p/>Runs row O(rows*cols*f).
+	/**Returns f applied to each column, passing one reused buffer per block of columns.*/
+	private double[] applyToColumns(ToDoubleFunction<double[]> f){
+		final double[] out = new double[cols];
+		final Strided s = Strided.of(this);
+		reduceBlocks(cols, elems).forEach((b) -> {
+			double[] buffer = new double[rows];
+			for(int col = b * REDUCE_BLOCK, end = Math.min(col + REDUCE_BLOCK, cols); col < end; col++){
+				copyColumn(s, col, buffer);
+				out[col] = f.applyAsDouble(buffer);
+			}
+		});
+		return out;
+	}
+	
+	/**Returns row Vector equal to the associative binary operator f applied to all elements of each column of this
+	 * <br/>This is traversed row by row; blocks of rows are processed in parallel if rows*cols exceeds PARALLEL_LIMIT,
+	 * and their results combined in order.
+	 * <p/>Runs in O(rows*cols*f).
 	 * @param f associative binary operator to apply
 	 * @return result vector
 	 */
-	@SuppressWarnings("OptionalGetWithoutIsPresent")
 	public Matrix aggregateColumnWise(DoubleBinaryOperator f){
+		if(rows == 0)
+			throw new MatrixDimensionMismatchException();
 		RowVectorDense c = new RowVectorDense(cols);
-		IntStream.range(0, cols).mapToDouble(this::internalGetValueAt).reduce(f).getAsDouble();
-		c.fill((col) -> IntStream.range(0, rows).mapToDouble((row) -> internalGetValueAt(row,col)).reduce(f).getAsDouble());
+		final double[] out = c.denseValues();
+		final Strided s = Strided.of(this);
+		final int blocks = (rows + REDUCE_BLOCK - 1) / REDUCE_BLOCK;
+		final double[][] partial = new double[blocks][];
+		reduceBlocks(rows, elems).forEach((b) -> {
+			int row = b * REDUCE_BLOCK, end = Math.min(row + REDUCE_BLOCK, rows);
+			double[] acc = b == 0 ? out : new double[cols];
+			for(int col = 0; col < cols; col++)
+				acc[col] = valueAt(s, row, col);
+			for(row++; row < end; row++)
+				for(int col = 0; col < cols; col++)
+					acc[col] = f.applyAsDouble(acc[col], valueAt(s, row, col));
+			partial[b] = acc;
+		});
+		for(int b = 1; b < blocks; b++)
+			for(int col = 0; col < cols; col++)
+				out[col] = f.applyAsDouble(out[col], partial[b][col]);
 		return c;
 	}
 	
+	/**Returns r applied to all elements of this.
+	 * <br/>Blocks of rows are reduced in parallel if rows*cols exceeds PARALLEL_LIMIT;
+	 * rows of dense matrices and strided Views are read directly from their storage,
+	 * and contiguous rows of the standard {@link DoubleReduction}s run on vectorized kernels.
+	 * Nothing is allocated per row.
+	 * <br/>SUM, MEAN and L2 sum as set by {@link #SUMMATION}.
+	 * <p/>Runs in O(rows*cols), or in O(nonZeroCount() + rows*cols*r) if this is sparse.
+	 * @param r reduction to apply
+	 * @return result
+	 */
+	public double reduce(DoubleReducer r){
+		final Strided s = Strided.of(this);
+		double acc;
+		if(compensated(r)){
+			if(s != null)
+				acc = s.sum(SUMMATION, r == DoubleReduction.L2);
+			else if(isSparse())
+				acc = sumLine(r, nonZeroValues().toArray());
+			else
+				acc = SUMMATION.sum(applyToRows((row) -> sumLine(r, row)));
+		}else if(s != null){
+			//walk along the smaller stride
+			final Strided t = s.colStride > s.rowStride ? s.transposed() : s;
+			acc = reduceBlocks(t.rows, elems).mapToDouble((b) -> {
+				double a = r.identity();
+				for(int row = b * REDUCE_BLOCK, end = Math.min(row + REDUCE_BLOCK, t.rows); row < end; row++)
+					a = Strided.accumulate(r, a, t.data, t.offset + row * t.rowStride, t.colStride, t.cols);
+				return a;
+			}).reduce(r.identity(), r::combine);
+		}else if(isSparse()){
+			final double[] a = {accumulateZeroes(r, r.identity(), (long) rows * cols - nonZeroCount())};
+			forEachNonZeroAt((row, col, val) -> a[0] = r.accumulate(a[0], val));
+			acc = a[0];
+		}else{
+			acc = reduceBlocks(rows, elems).mapToDouble((b) -> {
+				double a = r.identity();
+				for(int row = b * REDUCE_BLOCK, end = Math.min(row + REDUCE_BLOCK, rows); row < end; row++)
+					a = accumulateRow(r, a, null, row);
+				return a;
+			}).reduce(r.identity(), r::combine);
+		}
+		return r.finish(acc, (long) rows * cols);
+	}
+	
+	/**Returns column Vector equal to r applied to each row of this.
+	 * <br/>Rows are reduced in parallel if rows*cols exceeds PARALLEL_LIMIT, as in {@link #reduce(DoubleReducer)}.
+	 * SUM, MEAN and L2 sum as set by {@link #SUMMATION}; sparse rows are then summed by KAHAN, in order of their non-zeros.
+	 * <p/>Runs in O(rows*cols), or in O(nonZeroCount() + rows*cols*r) if this is sparse.
+	 * @param r reduction to apply
+	 * @return result vector
+	 */
+	public Matrix reduceRowWise(DoubleReducer r){
+		ColumnVectorDense v = new ColumnVectorDense(rows);
+		final double[] out = v.denseValues();
+		final Strided s = Strided.of(this);
+		if(s != null && s.colStride > s.rowStride){
+			//rows are strided in storage, columns are not: stream over columns instead
+			accumulateAcross(r, s.transposed(), out);
+		}else if(isSparse()){
+			accumulateSparse(r, out, true);
+		}else if(s == null && compensated(r)){
+			System.arraycopy(applyToRows((row) -> sumLine(r, row)), 0, out, 0, rows);
+		}else{
+			reduceBlocks(rows, elems).forEach((b) -> {
+				for(int row = b * REDUCE_BLOCK, end = Math.min(row + REDUCE_BLOCK, rows); row < end; row++)
+					out[row] = accumulateRow(r, r.identity(), s, row);
+			});
+		}
+		for(int row = 0; row < rows; row++)
+			out[row] = r.finish(out[row], cols);
+		return v;
+	}
+	
+	/**Returns row Vector equal to r applied to each column of this.
+	 * <br/>This is traversed row by row; blocks of rows are reduced in parallel if rows*cols exceeds PARALLEL_LIMIT.
+	 * SUM, MEAN and L2 sum as set by {@link #SUMMATION}: the per-block sums of each column are then
+	 * combined by it, and, for KAHAN, compensated within blocks as well.
+	 * <p/>Runs in O(rows*cols), or in O(nonZeroCount() + rows*cols*r) if this is sparse.
+	 * @param r reduction to apply
+	 * @return result vector
+	 */
+	public Matrix reduceColumnWise(DoubleReducer r){
+		RowVectorDense v = new RowVectorDense(cols);
+		final double[] out = v.denseValues();
+		final Strided s = Strided.of(this);
+		if(s != null && s.rowStride < s.colStride){
+			//columns are contiguous in storage: reduce each of them as a line
+			Strided t = s.transposed();
+			reduceBlocks(cols, elems).forEach((b) -> {
+				for(int col = b * REDUCE_BLOCK, end = Math.min(col + REDUCE_BLOCK, cols); col < end; col++)
+					out[col] = Strided.accumulate(r, r.identity(), t.data, t.offset + col * t.rowStride, t.colStride, rows);
+			});
+		}else if(isSparse()){
+			accumulateSparse(r, out, false);
+		}else if(s != null){
+			accumulateAcross(r, s, out);
+		}else if(compensated(r)){
+			System.arraycopy(applyToColumns((col) -> sumLine(r, col)), 0, out, 0, cols);
+		}else{
+			Arrays.fill(out, r.identity());
+			for(int row = 0; row < rows; row++)
+				for(int col = 0; col < cols; col++)
+					out[col] = r.accumulate(out[col], internalGetValueAt(row, col));
+		}
+		for(int col = 0; col < cols; col++)
+			out[col] = r.finish(out[col], rows);
+		return v;
+	}
+	
+	/**Returns the accumulator acc after also taking all values of row row.*/
+	private double accumulateRow(DoubleReducer r, double acc, Strided s, int row){
+		if(s != null)
+			return Strided.accumulate(r, acc, s.data, s.offset + row * s.rowStride, s.colStride, cols);
+		for(int col = 0; col < cols; col++)
+			acc = r.accumulate(acc, internalGetValueAt(row, col));
+		return acc;
+	}
+	
+	/**Writes into out[col] the accumulator of all values of column col of s, streaming over rows of s.
+	 * Blocks of rows are accumulated in parallel into one array per block and then combined,
+	 * by SUMMATION if r is compensated.*/
+	private static void accumulateAcross(DoubleReducer r, Strided s, double[] out){
+		final int blocks = (s.rows + REDUCE_BLOCK - 1) / REDUCE_BLOCK;
+		final double[][] partial = new double[blocks][];
+		final boolean compensated = compensated(r), kahan = compensated && SUMMATION == Summation.KAHAN;
+		final double[][] error = kahan ? new double[blocks][] : null;
+		reduceBlocks(s.rows, (long) s.rows * s.cols).forEach((b) -> {
+			double[] acc = b == 0 ? out : new double[s.cols];
+			Arrays.fill(acc, r.identity());
+			if(kahan){
+				double[] comp = new double[s.cols];
+				for(int row = b * REDUCE_BLOCK, end = Math.min(row + REDUCE_BLOCK, s.rows); row < end; row++)
+					for(int col = 0, p = s.offset + row * s.rowStride; col < s.cols; col++, p += s.colStride)
+						addCompensated(acc, comp, col, r == DoubleReduction.L2 ? s.data[p] * s.data[p] : s.data[p]);
+				error[b] = comp;
+			}else{
+				for(int row = b * REDUCE_BLOCK, end = Math.min(row + REDUCE_BLOCK, s.rows); row < end; row++)
+					accumulateInto(r, acc, s.data, s.offset + row * s.rowStride, s.colStride);
+			}
+			partial[b] = acc;
+		});
+		if(compensated){
+			//the errors of KAHAN are kept apart from the sums up to here, so that none of them is rounded away
+			double[] column = new double[kahan ? 2 * blocks : blocks];
+			for(int col = 0; col < s.cols; col++){
+				for(int b = 0; b < blocks; b++){
+					column[b] = partial[b][col];
+					if(kahan)
+						column[blocks + b] = error[b][col];
+				}
+				out[col] = SUMMATION.sum(column);
+			}
+			return;
+		}
+		for(int b = 1; b < blocks; b++)
+			for(int col = 0; col < s.cols; col++)
+				out[col] = r.combine(out[col], partial[b][col]);
+	}
+	
+	/**Returns true iff r is a sum, and SUMMATION is not NAIVE.*/
+	private static boolean compensated(DoubleReducer r){
+		return SUMMATION != Summation.NAIVE
+				&& (r == DoubleReduction.SUM || r == DoubleReduction.MEAN || r == DoubleReduction.L2);
+	}
+	
+	/**Returns the accumulator of r, which is compensated, over the values of line, summed by SUMMATION.*/
+	private static double sumLine(DoubleReducer r, double[] line){
+		return r == DoubleReduction.L2 ? SUMMATION.dot(line, line) : SUMMATION.sum(line);
+	}
+	
+	/**Adds x to acc[i], adding the rounding error to comp[i], as in Kahan-Babuska summation.*/
+	private static void addCompensated(double[] acc, double[] comp, int i, double x){
+		final double s = acc[i], t = s + x;
+		comp[i] += Math.abs(s) >= Math.abs(x) ? (s - t) + x : (x - t) + s;
+		acc[i] = t;
+	}
+	
+	/**Accumulates data[start + i*step] into acc[i], for every i, with separate loops for the standard reductions.*/
+	private static void accumulateInto(DoubleReducer r, double[] acc, double[] data, int start, int step){
+		final int len = acc.length;
+		if(r == DoubleReduction.SUM || r == DoubleReduction.MEAN){
+			for(int i = 0, p = start; i < len; i++, p += step)
+				acc[i] += data[p];
+		}else if(r == DoubleReduction.L2){
+			for(int i = 0, p = start; i < len; i++, p += step)
+				acc[i] += data[p] * data[p];
+		}else if(r == DoubleReduction.MIN){
+			for(int i = 0, p = start; i < len; i++, p += step)
+				acc[i] = Math.min(acc[i], data[p]);
+		}else if(r == DoubleReduction.MAX){
+			for(int i = 0, p = start; i < len; i++, p += step)
+				acc[i] = Math.max(acc[i], data[p]);
+		}else{
+			for(int i = 0, p = start; i < len; i++, p += step)
+				acc[i] = r.accumulate(acc[i], data[p]);
+		}
+	}
+	
+	/**Writes into out the accumulators of the rows, or columns, of this sparse Matrix,
+	 * from its non-zeros and the number of zeroes in each.*/
+	private void accumulateSparse(DoubleReducer r, double[] out, boolean byRow){
+		final int[] count = new int[out.length];
+		Arrays.fill(out, r.identity());
+		if(compensated(r)){
+			final double[] comp = new double[out.length];
+			forEachNonZeroAt((row, col, val) -> addCompensated(out, comp, byRow ? row : col,
+					r == DoubleReduction.L2 ? val * val : val));
+			for(int i = 0; i < out.length; i++)
+				out[i] += comp[i];
+			return;
+		}
+		forEachNonZeroAt((row, col, val) -> {
+			int i = byRow ? row : col;
+			out[i] = r.accumulate(out[i], val);
+			count[i]++;
+		});
+		final int length = byRow ? cols : rows;
+		for(int i = 0; i < out.length; i++)
+			out[i] = accumulateZeroes(r, out[i], length - count[i]);
+	}
+	
+	/**Returns the accumulator acc after also taking n zeroes.*/
+	private static double accumulateZeroes(DoubleReducer r, double acc, long n){
+		if(n <= 0)
+			return acc;
+		if(r == DoubleReduction.SUM || r == DoubleReduction.MEAN || r == DoubleReduction.L2)
+			return acc;
+		if(r == DoubleReduction.MIN || r == DoubleReduction.MAX)
+			return r.accumulate(acc, 0.0d);
+		for(long i = 0; i < n; i++)
+			acc = r.accumulate(acc, 0.0d);
+		return acc;
+	}
+	
 
 	
 	/**Modifies and returns this Matrix A, such that for each index (i,j), A(i,j) <- A(i,j) + B(i,j)
@@ -1046,15 +2016,10 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * <p/>Runs in O(rows*cols).
 	 * @param b second argument Matrix B
 	 * @return modified Matrix this
+	 * @see #sumInto(Matrix, Matrix)
 	 */
 	public Matrix inplaceSum(Matrix b){
-		if(cols != b.cols || rows != b.rows){
-			throw new MatrixDimensionMismatchException();
-		}
-		for(int elem = 0; elem < elems; elem++){
-			internalModValueAt(elem, b.internalGetValueAt(elem));
-		}
-		return this;
+		return sumInto(b, this);
 	}
 	
 
@@ -1064,7 +2029,7 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return modified Matrix this
 	 */
 	public Matrix inplaceElementWise(DoubleUnaryOperator f){
-		return fill((elem) -> f.applyAsDouble(internalGetValueAt(elem)));
+		return elementWiseInto(f, this);
 	}
 	
 	/**Modifies and returns this Matrix A, such that for each index (i,j), A(i,j) <- f(A(i,j), B(i,j))
@@ -1074,10 +2039,7 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return modified Matrix this
 	 */
 	public Matrix inplaceElementWise(DoubleBinaryOperator f, Matrix b){
-		if(cols != b.cols || rows != b.rows){
-			throw new MatrixDimensionMismatchException();
-		}
-		return fill((elem) -> f.applyAsDouble(internalGetValueAt(elem), b.internalGetValueAt(elem)));
+		return elementWiseInto(f, b, this);
 	}
 	
 	/**Modifies and returns this Matrix A, such that for each index (i,j), A(i,j) <- f(A(i,j), B(i,j), C(i,j))
@@ -1088,10 +2050,7 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return modified Matrix this
 	 */
 	public Matrix inplaceElementWise(DoubleTernaryOperator f, Matrix b, Matrix c){
-		if(cols != b.cols || rows != b.rows || cols != c.cols || rows != c.rows){
-			throw new MatrixDimensionMismatchException();
-		}
-		return fill((elem) -> f.applyAsDouble(internalGetValueAt(elem), b.internalGetValueAt(elem), c.internalGetValueAt(elem)));
+		return elementWiseInto(f, b, c, this);
 	}
 	
 	/**Modifies and returns this Matrix A, such that for each index (i,j), A(i,j) <- f(A(i,j), b)
@@ -1101,7 +2060,7 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	 * @return modified Matrix this
 	 */
 	public Matrix inplaceScalarOp(DoubleBinaryOperator f, double b){
-		return fill((elem) -> f.applyAsDouble(internalGetValueAt(elem), b));
+		return scalarOpInto(f, b, this);
 	}
 	
 	public long countWhere(DoublePredicate doublePredicate){
@@ -1116,26 +2075,64 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 		return this;
 	}
 	
+	/**Computes the LU Decomposition of this square Matrix.
+	 * <br/>The result does not reflect later changes to this; keep and reuse it to solve for several right-hand sides.
+	 * <p/>Runs in O(rows^3).
+	 * @return LU Decomposition
+	 */
+	public LUDecomposition lu(){
+		return new LUDecomposition(this);
+	}
+	
+	/**Computes the Cholesky Decomposition of this symmetric positive definite Matrix.
+	 * <br/>The result does not reflect later changes to this; keep and reuse it to solve for several right-hand sides.
+	 * <p/>Runs in O(rows^3).
+	 * @return Cholesky Decomposition
+	 */
+	public CholeskyDecomposition cholesky(){
+		return new CholeskyDecomposition(this);
+	}
+	
+	/**Computes the QR Decomposition of this Matrix, which must have at least as many rows as columns.
+	 * <br/>The result does not reflect later changes to this; keep and reuse it to solve for several right-hand sides.
+	 * <p/>Runs in O(rows*cols^2).
+	 * @return QR Decomposition
+	 */
+	public QRDecomposition qr(){
+		return new QRDecomposition(this);
+	}
+	
+	/**Returns the determinant of this square Matrix, computed by LU Decomposition.
+	 * <p/>Runs in O(rows^3).
+	 * @return determinant
+	 */
 	public double det(){
 		if(cols != rows)
 			throw new MatrixNotSquareException(rows, cols);
-		//TODO: factorization-based efficient impl.
-		return recursiveDet(true);
-	}
-	
-	protected double recursiveDet(boolean parallel){
-		if(cols == 1){
-			return getValueAt(0);
-		}else if(cols == 2){
-			return internalGetValueAt(0,0) * internalGetValueAt(1,1)
-					- internalGetValueAt(0,1) * internalGetValueAt(1,0);
-		}else {
-			final MatrixMaskedRowView bottom = exceptRowView(0);
-			IntStream intStream = parallel ? IntStream.range(0, cols).parallel() : IntStream.range(0, cols).sequential();
-			return intStream.mapToDouble((col) ->
-					Math.pow(-1, col) * internalGetValueAt(0, col) * bottom.exceptColView(col).recursiveDet(false))
-					.sum();
-		}
+		return lu().det();
+	}
+	
+	/**Returns the inverse of this square Matrix, computed by LU Decomposition.
+	 * <p/>Runs in O(rows^3).
+	 * @return inverse
+	 * @throws MatrixSingularException if this is singular
+	 */
+	public Matrix inverse(){
+		return lu().inverse();
+	}
+	
+	/**Returns X such that this*X = b.
+	 * <br/>If this is square, X is computed by LU Decomposition;
+	 * if it has more rows than columns, X is the least squares solution, computed by QR Decomposition.
+	 * <p/>Runs in O(rows^3 + rows^2*b.cols) or O(rows*cols^2 + rows*cols*b.cols), respectively.
+	 * @param b right-hand side(s)
+	 * @return solution X
+	 * @throws MatrixSingularException if this is singular or rank deficient
+	 */
+	public Matrix solve(Matrix b){
+		if(b.rows != rows)
+			throw new MatrixDimensionMismatchException();
+		return rows == cols ? lu().solve(b) : qr().solve(b);
 	}
 	
 	
@@ -1144,15 +2141,15 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	}
 	
 	public Stream<MatrixColView> colViewStream(){
-		return IntStream.range(0, rows).mapToObj(this::getColumnView);
+		return IntStream.range(0, cols).mapToObj(this::getColumnView);
 	}
 	
 	
 	public boolean equals(Matrix other) {
 		if(rows != other.rows || cols != other.cols)
 			return false;
-		return IntStream.range(0, elems).parallel().allMatch((elem) ->
-				Double.compare(internalGetValueAt(elem), other.internalGetValueAt(elem)) == 0);
+		return IntStream.range(0, rows).parallel().allMatch((row) -> IntStream.range(0, cols).allMatch((col) ->
+				Double.compare(internalGetValueAt(row, col), other.internalGetValueAt(row, col)) == 0));
 	}
 	
 	@Override
@@ -1211,7 +2208,7 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 					}
 					break;
 				default:
-					if(Character.isDigit(c)){
+					if(!Character.isWhitespace(c)){
 						currentValue.append(c);
 					}
 			}
@@ -1230,6 +2227,8 @@ public abstract class Matrix implements Serializable, IntToDoubleFunction, IntIn
 	}
 	
 	Object writeReplace() throws ObjectStreamException{
-		return new SerializedMatrix(this.toString());
+		if(MatrixBinaryFormat.sizeOf(this) > Integer.MAX_VALUE - 8)
+			throw new NotSerializableException("Matrix error: Matrix is too large for Java serialization, use MatrixBinaryFormat.write.");
+		return new SerializedMatrix(MatrixBinaryFormat.toBytes(this));
 	}
 }
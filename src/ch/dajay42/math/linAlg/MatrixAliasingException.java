@@ -0,0 +1,12 @@
+package ch.dajay42.math.linAlg;
+
+/**Thrown to indicate that the output Matrix of an operation overlaps one of its inputs in a way the operation cannot handle.
+ */
+public final class MatrixAliasingException extends IllegalMatrixException{
+	
+	private static final long serialVersionUID = 1L;
+	
+	public MatrixAliasingException(){
+		super("Matrix error: Output Matrix must not overlap an input.");
+	}
+}
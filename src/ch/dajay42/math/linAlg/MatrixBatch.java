@@ -0,0 +1,578 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**Batch of count matrices of the same size rows*cols, stored as structure of arrays:
+ * element (row, col) of the kth Matrix is values[(row*cols + col)*count + k],
+ * so that each element of all matrices lies in one contiguous run.
+ * <p/>Compared to count instances of {@link MatrixDense}, a batch needs a single array instead of count headers and arrays,
+ * and its kernels sweep all matrices at once, one element at a time, in loops the JIT compiler can vectorize.
+ * Products, determinants, inverses and transforms are fully unrolled for 2*2, 3*3 and 4*4 matrices,
+ * and run as general loops for other sizes.
+ * <br/>Kernels are parallel over chunks of CHUNK matrices if count times the work per Matrix exceeds {@link Matrix#PARALLEL_LIMIT}.
+ * @author DaJay42
+ */
+public final class MatrixBatch{
+
+	/**Matrices per parallel chunk.*/
+	static final int CHUNK = 1024;
+
+	/**Number of Matrices*/
+	public final int count;
+	/**Number of Rows of each Matrix*/
+	public final int rows;
+	/**Number of Columns of each Matrix*/
+	public final int cols;
+
+	final double[] values;
+
+	/**Creates a new batch of count zero matrices of size rows*cols.
+	 * @param count number of matrices
+	 * @param rows rows of each Matrix
+	 * @param cols columns of each Matrix
+	 */
+	public MatrixBatch(int count, int rows, int cols){
+		if(count < 0 || rows <= 0 || cols <= 0)
+			throw new MatrixCreationException();
+		if((long) count * rows * cols > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Matrix error: MatrixBatch must hold at most 2^31-1 values.");
+		this.count = count;
+		this.rows = rows;
+		this.cols = cols;
+		this.values = new double[count * rows * cols];
+	}
+
+	/**Creates a new batch of count n*n identity matrices.
+	 * <p/>Runs in O(count*n).
+	 */
+	public static MatrixBatch iden(int count, int n){
+		MatrixBatch batch = new MatrixBatch(count, n, n);
+		for(int i = 0; i < n; i++){
+			final int from = (i * n + i) * count;
+			Arrays.fill(batch.values, from, from + count, 1.0d);
+		}
+		return batch;
+	}
+
+	/**Creates a new batch holding copies of the given matrices, which must all be of the same size.
+	 * <p/>Runs in O(matrices*rows*cols).
+	 */
+	public static MatrixBatch of(Matrix... matrices){
+		if(matrices.length == 0)
+			throw new MatrixCreationException();
+		MatrixBatch batch = new MatrixBatch(matrices.length, matrices[0].rows, matrices[0].cols);
+		for(int k = 0; k < matrices.length; k++)
+			batch.set(k, matrices[k]);
+		return batch;
+	}
+
+	/**Creates a new batch holding copies of the given matrices, in iteration order, which must all be of the same size.
+	 * <p/>Runs in O(matrices*rows*cols).
+	 */
+	public static MatrixBatch of(Collection<Matrix> matrices){
+		return of(matrices.toArray(new Matrix[0]));
+	}
+
+	private int index(int k, int row, int col){
+		if(k < 0 || k >= count)
+			throw new MatrixIndexOutOfBoundsException(k, count);
+		if(row < 0 || row >= rows || col < 0 || col >= cols)
+			throw new MatrixIndexOutOfBoundsException(row, col, rows, cols);
+		return (row * cols + col) * count + k;
+	}
+
+	public double getValueAt(int k, int row, int col){
+		return values[index(k, row, col)];
+	}
+
+	public void setValueAt(int k, int row, int col, double val){
+		values[index(k, row, col)] = val;
+	}
+
+	/**Returns a copy of the kth Matrix.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public Matrix get(int k){
+		index(k, 0, 0);
+		return Matrix.zeroes(rows, cols).fill((elem) -> values[elem * count + k]);
+	}
+
+	/**Replaces the kth Matrix by the values of m, which must be of size rows*cols.
+	 * <p/>Runs in O(rows*cols).
+	 * @return this
+	 */
+	public MatrixBatch set(int k, Matrix m){
+		if(m.rows != rows || m.cols != cols)
+			throw new MatrixDimensionMismatchException();
+		index(k, 0, 0);
+		for(int row = 0; row < rows; row++)
+			for(int col = 0; col < cols; col++)
+				values[(row * cols + col) * count + k] = m.getValueAt(row, col);
+		return this;
+	}
+
+	/**Returns the products of the matrices of this with those of b, which must hold as many matrices, of size cols*b.cols.
+	 * <p/>Runs in O(count*rows*cols*b.cols).
+	 * @see #multiplyInto(MatrixBatch, MatrixBatch)
+	 */
+	public MatrixBatch multiply(MatrixBatch b){
+		return multiplyInto(b, new MatrixBatch(count, rows, b.cols));
+	}
+
+	/**Writes the products of the matrices of this with those of b into out, which may be this or b.
+	 * <br/>Unrolled for square 2*2, 3*3 and 4*4 matrices, and for those matrices times column vectors.
+	 * <p/>Runs in O(count*rows*cols*b.cols).
+	 * @param b batch of as many matrices of size cols*b.cols
+	 * @param out batch of as many matrices of size rows*b.cols
+	 * @return out
+	 */
+	public MatrixBatch multiplyInto(MatrixBatch b, MatrixBatch out){
+		if(b.count != count || b.rows != cols)
+			throw new MatrixDimensionMismatchException();
+		assertSize(out, count, rows, b.cols);
+		final double[] a = values, bv = b.values, c = out.values;
+		final int n = count;
+		if(rows == cols && (b.cols == cols || b.cols == 1)){
+			final boolean vector = b.cols == 1 && cols != 1;
+			switch(rows){
+				case 2:
+					forChunks(8, vector ? (from, to) -> multiplyVector2(a, bv, c, n, from, to) : (from, to) -> multiply2(a, bv, c, n, from, to));
+					return out;
+				case 3:
+					forChunks(27, vector ? (from, to) -> multiplyVector3(a, bv, c, n, from, to) : (from, to) -> multiply3(a, bv, c, n, from, to));
+					return out;
+				case 4:
+					forChunks(64, vector ? (from, to) -> multiplyVector4(a, bv, c, n, from, to) : (from, to) -> multiply4(a, bv, c, n, from, to));
+					return out;
+			}
+		}
+		//the general kernel accumulates into its output, so it must not read from it
+		final double[] dst = out == this || out == b ? new double[c.length] : c;
+		final int inner = cols, p = b.cols;
+		forChunks(rows * inner * p, (from, to) -> {
+			for(int i = 0; i < rows; i++){
+				for(int j = 0; j < p; j++){
+					final int ci = (i * p + j) * n;
+					Arrays.fill(dst, ci + from, ci + to, 0.0d);
+					for(int l = 0; l < inner; l++){
+						final int ai = (i * inner + l) * n, bi = (l * p + j) * n;
+						for(int k = from; k < to; k++)
+							dst[ci + k] += a[ai + k] * bv[bi + k];
+					}
+				}
+			}
+		});
+		if(dst != c)
+			System.arraycopy(dst, 0, c, 0, c.length);
+		return out;
+	}
+
+	/**Returns the determinants of all matrices, which must be square.
+	 * <p/>Runs in O(count*rows^3), or O(count) for matrices of up to 4*4.
+	 */
+	public double[] determinants(){
+		return determinantsInto(new double[count]);
+	}
+
+	/**Writes the determinants of all matrices, which must be square, into out.
+	 * <br/>Unrolled for 1*1 through 4*4 matrices; larger ones are copied and decomposed one by one.
+	 * <p/>Runs in O(count*rows^3), or O(count) for matrices of up to 4*4.
+	 * @param out array of length count
+	 * @return out
+	 */
+	public double[] determinantsInto(double[] out){
+		assertSquare();
+		if(out.length != count)
+			throw new MatrixDimensionMismatchException();
+		final double[] a = values;
+		final int n = count;
+		switch(rows){
+			case 1:
+				System.arraycopy(a, 0, out, 0, n);
+				break;
+			case 2:
+				forChunks(3, (from, to) -> determinant2(a, out, n, from, to));
+				break;
+			case 3:
+				forChunks(14, (from, to) -> determinant3(a, out, n, from, to));
+				break;
+			case 4:
+				forChunks(40, (from, to) -> determinant4(a, out, n, from, to));
+				break;
+			default:
+				forChunks(rows * rows * rows, (from, to) -> {
+					for(int k = from; k < to; k++)
+						out[k] = get(k).det();
+				});
+		}
+		return out;
+	}
+
+	/**Returns the inverses of all matrices, which must be square and non-singular.
+	 * <p/>Runs in O(count*rows^3), or O(count) for matrices of up to 4*4.
+	 * @throws MatrixSingularException if any Matrix is singular
+	 */
+	public MatrixBatch inverse(){
+		return inverseInto(new MatrixBatch(count, rows, cols));
+	}
+
+	/**Writes the inverses of all matrices, which must be square and non-singular, into out, which may be this.
+	 * <br/>Unrolled for 1*1 through 4*4 matrices, by the adjugate; larger ones are copied and inverted one by one.
+	 * If a Matrix is singular, the inverses of some other matrices may already have been written.
+	 * <p/>Runs in O(count*rows^3), or O(count) for matrices of up to 4*4.
+	 * @param out batch of as many matrices of the same size
+	 * @return out
+	 * @throws MatrixSingularException if any Matrix is singular
+	 */
+	public MatrixBatch inverseInto(MatrixBatch out){
+		assertSquare();
+		assertSize(out, count, rows, cols);
+		final double[] a = values, c = out.values;
+		final int n = count;
+		switch(rows){
+			case 1:
+				forChunks(1, (from, to) -> {
+					for(int k = from; k < to; k++){
+						if(a[k] == 0.0d)
+							throw new MatrixSingularException();
+						c[k] = 1.0d / a[k];
+					}
+				});
+				break;
+			case 2:
+				forChunks(8, (from, to) -> inverse2(a, c, n, from, to));
+				break;
+			case 3:
+				forChunks(40, (from, to) -> inverse3(a, c, n, from, to));
+				break;
+			case 4:
+				forChunks(160, (from, to) -> inverse4(a, c, n, from, to));
+				break;
+			default:
+				forChunks(rows * rows * rows, (from, to) -> {
+					for(int k = from; k < to; k++)
+						out.set(k, get(k).inverse());
+				});
+		}
+		return out;
+	}
+
+	/**Returns the points of the batch points, transformed by the matrices of this.
+	 * <p/>Runs in O(count*rows^2).
+	 * @see #transformInto(MatrixBatch, MatrixBatch)
+	 */
+	public MatrixBatch transform(MatrixBatch points){
+		return transformInto(points, new MatrixBatch(count, rows - 1, 1));
+	}
+
+	/**Transforms the kth point of points by the kth Matrix of this, in homogeneous coordinates, and writes it into out, which may be points.
+	 * <br/>Each Matrix must be square of size (d+1)*(d+1), such as an affine or projective transform of 3*3 for 2D or 4*4 for 3D points,
+	 * and each point a column vector x of length d. The result is the first d components of A*(x, 1), divided by the last;
+	 * for affine transforms, whose last row is (0, ..., 0, 1), that is 1, and the result is exact.
+	 * <br/>Unrolled for 3*3 and 4*4 matrices.
+	 * <p/>Runs in O(count*rows^2).
+	 * @param points batch of as many d*1 column vectors
+	 * @param out batch of as many d*1 column vectors
+	 * @return out
+	 */
+	public MatrixBatch transformInto(MatrixBatch points, MatrixBatch out){
+		assertSquare();
+		final int d = rows - 1;
+		if(d < 1 || points.count != count || points.rows != d || points.cols != 1)
+			throw new MatrixDimensionMismatchException();
+		assertSize(out, count, d, 1);
+		final double[] a = values, x = points.values, y = out.values;
+		final int n = count;
+		switch(rows){
+			case 3:
+				forChunks(9, (from, to) -> transform3(a, x, y, n, from, to));
+				return out;
+			case 4:
+				forChunks(16, (from, to) -> transform4(a, x, y, n, from, to));
+				return out;
+		}
+		final double[] src = points == out ? x.clone() : x;
+		forChunks(rows * rows, (from, to) -> {
+			for(int k = from; k < to; k++){
+				double w = a[(d * rows + d) * n + k];
+				for(int j = 0; j < d; j++)
+					w += a[(d * rows + j) * n + k] * src[j * n + k];
+				for(int i = 0; i < d; i++){
+					double s = a[(i * rows + d) * n + k];
+					for(int j = 0; j < d; j++)
+						s += a[(i * rows + j) * n + k] * src[j * n + k];
+					y[i * n + k] = s / w;
+				}
+			}
+		});
+		return out;
+	}
+
+	private void assertSquare(){
+		if(rows != cols)
+			throw new MatrixNotSquareException(rows, cols);
+	}
+
+	private static void assertSize(MatrixBatch m, int count, int rows, int cols){
+		if(m.count != count || m.rows != rows || m.cols != cols)
+			throw new MatrixDimensionMismatchException();
+	}
+
+	/**Kernel over the matrices [from, to) of a batch.*/
+	@FunctionalInterface
+	private interface Kernel{
+		void run(int from, int to);
+	}
+
+	/**Runs kernel over all matrices, directly if count*work does not exceed PARALLEL_LIMIT,
+	 * or otherwise in parallel over chunks of CHUNK matrices.*/
+	private void forChunks(int work, Kernel kernel){
+		if((long) count * work <= Matrix.PARALLEL_LIMIT || count <= CHUNK){
+			kernel.run(0, count);
+			return;
+		}
+		IntStream.range(0, (count + CHUNK - 1) / CHUNK).parallel()
+				.forEach((i) -> kernel.run(i * CHUNK, Math.min(count, i * CHUNK + CHUNK)));
+	}
+
+	// UNROLLED KERNELS
+	// element (i, j) of the kth Matrix of a batch of n is at [(i*cols + j)*n + k]
+
+	/**c = a*b for 2*2 matrices.*/
+	private static void multiply2(double[] a, double[] b, double[] c, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k],
+					a10 = a[2 * n + k], a11 = a[3 * n + k];
+			final double b00 = b[k], b01 = b[n + k],
+					b10 = b[2 * n + k], b11 = b[3 * n + k];
+			c[k] = a00 * b00 + a01 * b10;
+			c[n + k] = a00 * b01 + a01 * b11;
+			c[2 * n + k] = a10 * b00 + a11 * b10;
+			c[3 * n + k] = a10 * b01 + a11 * b11;
+		}
+	}
+
+	/**y = a*x for a 2*2 Matrix a and a vector x.*/
+	private static void multiplyVector2(double[] a, double[] x, double[] y, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k],
+					a10 = a[2 * n + k], a11 = a[3 * n + k];
+			final double x0 = x[k], x1 = x[n + k];
+			y[k] = a00 * x0 + a01 * x1;
+			y[n + k] = a10 * x0 + a11 * x1;
+		}
+	}
+
+	/**c = a*b for 3*3 matrices.*/
+	private static void multiply3(double[] a, double[] b, double[] c, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k], a02 = a[2 * n + k],
+					a10 = a[3 * n + k], a11 = a[4 * n + k], a12 = a[5 * n + k],
+					a20 = a[6 * n + k], a21 = a[7 * n + k], a22 = a[8 * n + k];
+			final double b00 = b[k], b01 = b[n + k], b02 = b[2 * n + k],
+					b10 = b[3 * n + k], b11 = b[4 * n + k], b12 = b[5 * n + k],
+					b20 = b[6 * n + k], b21 = b[7 * n + k], b22 = b[8 * n + k];
+			c[k] = a00 * b00 + a01 * b10 + a02 * b20;
+			c[n + k] = a00 * b01 + a01 * b11 + a02 * b21;
+			c[2 * n + k] = a00 * b02 + a01 * b12 + a02 * b22;
+			c[3 * n + k] = a10 * b00 + a11 * b10 + a12 * b20;
+			c[4 * n + k] = a10 * b01 + a11 * b11 + a12 * b21;
+			c[5 * n + k] = a10 * b02 + a11 * b12 + a12 * b22;
+			c[6 * n + k] = a20 * b00 + a21 * b10 + a22 * b20;
+			c[7 * n + k] = a20 * b01 + a21 * b11 + a22 * b21;
+			c[8 * n + k] = a20 * b02 + a21 * b12 + a22 * b22;
+		}
+	}
+
+	/**y = a*x for a 3*3 Matrix a and a vector x.*/
+	private static void multiplyVector3(double[] a, double[] x, double[] y, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k], a02 = a[2 * n + k],
+					a10 = a[3 * n + k], a11 = a[4 * n + k], a12 = a[5 * n + k],
+					a20 = a[6 * n + k], a21 = a[7 * n + k], a22 = a[8 * n + k];
+			final double x0 = x[k], x1 = x[n + k], x2 = x[2 * n + k];
+			y[k] = a00 * x0 + a01 * x1 + a02 * x2;
+			y[n + k] = a10 * x0 + a11 * x1 + a12 * x2;
+			y[2 * n + k] = a20 * x0 + a21 * x1 + a22 * x2;
+		}
+	}
+
+	/**c = a*b for 4*4 matrices.*/
+	private static void multiply4(double[] a, double[] b, double[] c, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k], a02 = a[2 * n + k], a03 = a[3 * n + k],
+					a10 = a[4 * n + k], a11 = a[5 * n + k], a12 = a[6 * n + k], a13 = a[7 * n + k],
+					a20 = a[8 * n + k], a21 = a[9 * n + k], a22 = a[10 * n + k], a23 = a[11 * n + k],
+					a30 = a[12 * n + k], a31 = a[13 * n + k], a32 = a[14 * n + k], a33 = a[15 * n + k];
+			final double b00 = b[k], b01 = b[n + k], b02 = b[2 * n + k], b03 = b[3 * n + k],
+					b10 = b[4 * n + k], b11 = b[5 * n + k], b12 = b[6 * n + k], b13 = b[7 * n + k],
+					b20 = b[8 * n + k], b21 = b[9 * n + k], b22 = b[10 * n + k], b23 = b[11 * n + k],
+					b30 = b[12 * n + k], b31 = b[13 * n + k], b32 = b[14 * n + k], b33 = b[15 * n + k];
+			c[k] = a00 * b00 + a01 * b10 + a02 * b20 + a03 * b30;
+			c[n + k] = a00 * b01 + a01 * b11 + a02 * b21 + a03 * b31;
+			c[2 * n + k] = a00 * b02 + a01 * b12 + a02 * b22 + a03 * b32;
+			c[3 * n + k] = a00 * b03 + a01 * b13 + a02 * b23 + a03 * b33;
+			c[4 * n + k] = a10 * b00 + a11 * b10 + a12 * b20 + a13 * b30;
+			c[5 * n + k] = a10 * b01 + a11 * b11 + a12 * b21 + a13 * b31;
+			c[6 * n + k] = a10 * b02 + a11 * b12 + a12 * b22 + a13 * b32;
+			c[7 * n + k] = a10 * b03 + a11 * b13 + a12 * b23 + a13 * b33;
+			c[8 * n + k] = a20 * b00 + a21 * b10 + a22 * b20 + a23 * b30;
+			c[9 * n + k] = a20 * b01 + a21 * b11 + a22 * b21 + a23 * b31;
+			c[10 * n + k] = a20 * b02 + a21 * b12 + a22 * b22 + a23 * b32;
+			c[11 * n + k] = a20 * b03 + a21 * b13 + a22 * b23 + a23 * b33;
+			c[12 * n + k] = a30 * b00 + a31 * b10 + a32 * b20 + a33 * b30;
+			c[13 * n + k] = a30 * b01 + a31 * b11 + a32 * b21 + a33 * b31;
+			c[14 * n + k] = a30 * b02 + a31 * b12 + a32 * b22 + a33 * b32;
+			c[15 * n + k] = a30 * b03 + a31 * b13 + a32 * b23 + a33 * b33;
+		}
+	}
+
+	/**y = a*x for a 4*4 Matrix a and a vector x.*/
+	private static void multiplyVector4(double[] a, double[] x, double[] y, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k], a02 = a[2 * n + k], a03 = a[3 * n + k],
+					a10 = a[4 * n + k], a11 = a[5 * n + k], a12 = a[6 * n + k], a13 = a[7 * n + k],
+					a20 = a[8 * n + k], a21 = a[9 * n + k], a22 = a[10 * n + k], a23 = a[11 * n + k],
+					a30 = a[12 * n + k], a31 = a[13 * n + k], a32 = a[14 * n + k], a33 = a[15 * n + k];
+			final double x0 = x[k], x1 = x[n + k], x2 = x[2 * n + k], x3 = x[3 * n + k];
+			y[k] = a00 * x0 + a01 * x1 + a02 * x2 + a03 * x3;
+			y[n + k] = a10 * x0 + a11 * x1 + a12 * x2 + a13 * x3;
+			y[2 * n + k] = a20 * x0 + a21 * x1 + a22 * x2 + a23 * x3;
+			y[3 * n + k] = a30 * x0 + a31 * x1 + a32 * x2 + a33 * x3;
+		}
+	}
+
+	/**y = (a*(x, 1)) / w for 3*3 matrices a and 2-vectors x, where w is the last component of a*(x, 1).*/
+	private static void transform3(double[] a, double[] x, double[] y, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k], a02 = a[2 * n + k],
+					a10 = a[3 * n + k], a11 = a[4 * n + k], a12 = a[5 * n + k],
+					a20 = a[6 * n + k], a21 = a[7 * n + k], a22 = a[8 * n + k];
+			final double x0 = x[k], x1 = x[n + k];
+			final double w = 1.0d / (a20 * x0 + a21 * x1 + a22);
+			y[k] = (a00 * x0 + a01 * x1 + a02) * w;
+			y[n + k] = (a10 * x0 + a11 * x1 + a12) * w;
+		}
+	}
+
+	/**y = (a*(x, 1)) / w for 4*4 matrices a and 3-vectors x, where w is the last component of a*(x, 1).*/
+	private static void transform4(double[] a, double[] x, double[] y, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k], a02 = a[2 * n + k], a03 = a[3 * n + k],
+					a10 = a[4 * n + k], a11 = a[5 * n + k], a12 = a[6 * n + k], a13 = a[7 * n + k],
+					a20 = a[8 * n + k], a21 = a[9 * n + k], a22 = a[10 * n + k], a23 = a[11 * n + k],
+					a30 = a[12 * n + k], a31 = a[13 * n + k], a32 = a[14 * n + k], a33 = a[15 * n + k];
+			final double x0 = x[k], x1 = x[n + k], x2 = x[2 * n + k];
+			final double w = 1.0d / (a30 * x0 + a31 * x1 + a32 * x2 + a33);
+			y[k] = (a00 * x0 + a01 * x1 + a02 * x2 + a03) * w;
+			y[n + k] = (a10 * x0 + a11 * x1 + a12 * x2 + a13) * w;
+			y[2 * n + k] = (a20 * x0 + a21 * x1 + a22 * x2 + a23) * w;
+		}
+	}
+
+	/**out = det(a) for 2*2 matrices.*/
+	private static void determinant2(double[] a, double[] out, int n, int from, int to){
+		for(int k = from; k < to; k++)
+			out[k] = a[k] * a[3 * n + k] - a[n + k] * a[2 * n + k];
+	}
+
+	/**out = det(a) for 3*3 matrices.*/
+	private static void determinant3(double[] a, double[] out, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k], a02 = a[2 * n + k],
+					a10 = a[3 * n + k], a11 = a[4 * n + k], a12 = a[5 * n + k],
+					a20 = a[6 * n + k], a21 = a[7 * n + k], a22 = a[8 * n + k];
+			out[k] = a00 * (a11 * a22 - a12 * a21) - a01 * (a10 * a22 - a12 * a20) + a02 * (a10 * a21 - a11 * a20);
+		}
+	}
+
+	/**out = det(a) for 4*4 matrices, by the 2*2 minors of the upper and lower two rows.*/
+	private static void determinant4(double[] a, double[] out, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k], a02 = a[2 * n + k], a03 = a[3 * n + k],
+					a10 = a[4 * n + k], a11 = a[5 * n + k], a12 = a[6 * n + k], a13 = a[7 * n + k],
+					a20 = a[8 * n + k], a21 = a[9 * n + k], a22 = a[10 * n + k], a23 = a[11 * n + k],
+					a30 = a[12 * n + k], a31 = a[13 * n + k], a32 = a[14 * n + k], a33 = a[15 * n + k];
+			final double s0 = a00 * a11 - a10 * a01, s1 = a00 * a12 - a10 * a02, s2 = a00 * a13 - a10 * a03,
+					s3 = a01 * a12 - a11 * a02, s4 = a01 * a13 - a11 * a03, s5 = a02 * a13 - a12 * a03;
+			final double c0 = a20 * a31 - a30 * a21, c1 = a20 * a32 - a30 * a22, c2 = a20 * a33 - a30 * a23,
+					c3 = a21 * a32 - a31 * a22, c4 = a21 * a33 - a31 * a23, c5 = a22 * a33 - a32 * a23;
+			out[k] = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+		}
+	}
+
+	/**c = inverse(a) for 2*2 matrices.*/
+	private static void inverse2(double[] a, double[] c, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k],
+					a10 = a[2 * n + k], a11 = a[3 * n + k];
+			final double det = a00 * a11 - a01 * a10;
+			if(det == 0.0d)
+				throw new MatrixSingularException();
+			final double r = 1.0d / det;
+			c[k] = a11 * r;
+			c[n + k] = -a01 * r;
+			c[2 * n + k] = -a10 * r;
+			c[3 * n + k] = a00 * r;
+		}
+	}
+
+	/**c = inverse(a) for 3*3 matrices.*/
+	private static void inverse3(double[] a, double[] c, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k], a02 = a[2 * n + k],
+					a10 = a[3 * n + k], a11 = a[4 * n + k], a12 = a[5 * n + k],
+					a20 = a[6 * n + k], a21 = a[7 * n + k], a22 = a[8 * n + k];
+			final double m00 = a11 * a22 - a12 * a21, m10 = a12 * a20 - a10 * a22, m20 = a10 * a21 - a11 * a20;
+			final double det = a00 * m00 + a01 * m10 + a02 * m20;
+			if(det == 0.0d)
+				throw new MatrixSingularException();
+			final double r = 1.0d / det;
+			c[k] = m00 * r;
+			c[n + k] = (a02 * a21 - a01 * a22) * r;
+			c[2 * n + k] = (a01 * a12 - a02 * a11) * r;
+			c[3 * n + k] = m10 * r;
+			c[4 * n + k] = (a00 * a22 - a02 * a20) * r;
+			c[5 * n + k] = (a02 * a10 - a00 * a12) * r;
+			c[6 * n + k] = m20 * r;
+			c[7 * n + k] = (a01 * a20 - a00 * a21) * r;
+			c[8 * n + k] = (a00 * a11 - a01 * a10) * r;
+		}
+	}
+
+	/**c = inverse(a) for 4*4 matrices, by the 2*2 minors of the upper and lower two rows.*/
+	private static void inverse4(double[] a, double[] c, int n, int from, int to){
+		for(int k = from; k < to; k++){
+			final double a00 = a[k], a01 = a[n + k], a02 = a[2 * n + k], a03 = a[3 * n + k],
+					a10 = a[4 * n + k], a11 = a[5 * n + k], a12 = a[6 * n + k], a13 = a[7 * n + k],
+					a20 = a[8 * n + k], a21 = a[9 * n + k], a22 = a[10 * n + k], a23 = a[11 * n + k],
+					a30 = a[12 * n + k], a31 = a[13 * n + k], a32 = a[14 * n + k], a33 = a[15 * n + k];
+			final double s0 = a00 * a11 - a10 * a01, s1 = a00 * a12 - a10 * a02, s2 = a00 * a13 - a10 * a03,
+					s3 = a01 * a12 - a11 * a02, s4 = a01 * a13 - a11 * a03, s5 = a02 * a13 - a12 * a03;
+			final double c0 = a20 * a31 - a30 * a21, c1 = a20 * a32 - a30 * a22, c2 = a20 * a33 - a30 * a23,
+					c3 = a21 * a32 - a31 * a22, c4 = a21 * a33 - a31 * a23, c5 = a22 * a33 - a32 * a23;
+			final double det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+			if(det == 0.0d)
+				throw new MatrixSingularException();
+			final double r = 1.0d / det;
+			c[k] = (a11 * c5 - a12 * c4 + a13 * c3) * r;
+			c[n + k] = (-a01 * c5 + a02 * c4 - a03 * c3) * r;
+			c[2 * n + k] = (a31 * s5 - a32 * s4 + a33 * s3) * r;
+			c[3 * n + k] = (-a21 * s5 + a22 * s4 - a23 * s3) * r;
+			c[4 * n + k] = (-a10 * c5 + a12 * c2 - a13 * c1) * r;
+			c[5 * n + k] = (a00 * c5 - a02 * c2 + a03 * c1) * r;
+			c[6 * n + k] = (-a30 * s5 + a32 * s2 - a33 * s1) * r;
+			c[7 * n + k] = (a20 * s5 - a22 * s2 + a23 * s1) * r;
+			c[8 * n + k] = (a10 * c4 - a11 * c2 + a13 * c0) * r;
+			c[9 * n + k] = (-a00 * c4 + a01 * c2 - a03 * c0) * r;
+			c[10 * n + k] = (a30 * s4 - a31 * s2 + a33 * s0) * r;
+			c[11 * n + k] = (-a20 * s4 + a21 * s2 - a23 * s0) * r;
+			c[12 * n + k] = (-a10 * c3 + a11 * c1 - a12 * c0) * r;
+			c[13 * n + k] = (a00 * c3 - a01 * c1 + a02 * c0) * r;
+			c[14 * n + k] = (-a30 * s3 + a31 * s1 - a32 * s0) * r;
+			c[15 * n + k] = (a20 * s3 - a21 * s1 + a22 * s0) * r;
+		}
+	}
+}
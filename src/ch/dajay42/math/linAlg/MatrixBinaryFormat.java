@@ -0,0 +1,480 @@
+package ch.dajay42.math.linAlg;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**Compact binary format for matrices.
+ * <p/>All numbers are little-endian. A file consists of a header of HEADER_SIZE bytes:
+ * <br/>int magic "JLMX", short version, byte storage kind, byte value type, int rows, int cols, long nnz, 8 reserved bytes;
+ * <br/>followed by the payload, depending on the storage kind:
+ * <br/>DENSE: rows*cols doubles, row-major;
+ * <br/>SPARSE: nnz int row indices, then nnz int column indices, then nnz doubles;
+ * <br/>CSR / CSC: rows+1 / cols+1 int pointers and nnz int indices, together padded to a multiple of 8 bytes,
+ * then nnz doubles; see {@link MatrixCSR} and {@link MatrixCSC}.
+ * <p/>Dense payloads start at HEADER_SIZE, so that a dense file can be memory-mapped as a {@link MatrixOffHeap}
+ * without reading it, see {@link #map(Path, boolean)}.
+ * @author DaJay42
+ */
+public final class MatrixBinaryFormat{
+
+	public static final int MAGIC = 'J' | 'L' << 8 | 'M' << 16 | 'X' << 24;
+	public static final short VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+
+	public static final byte KIND_DENSE = 0, KIND_SPARSE = 1, KIND_CSR = 2, KIND_CSC = 3;
+	public static final byte TYPE_FLOAT64 = 0;
+
+	/**Bytes staged per channel read or write.*/
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private MatrixBinaryFormat(){
+	}
+
+	/**Returns the storage kind m is written as.*/
+	static byte kindOf(Matrix m){
+		if(m instanceof MatrixCSR)
+			return KIND_CSR;
+		if(m instanceof MatrixCSC)
+			return KIND_CSC;
+		return m.isSparse() ? KIND_SPARSE : KIND_DENSE;
+	}
+
+	/**Returns the number of bytes m occupies in this format.
+	 * <p/>Runs in O(1) for dense and compressed matrices, O(nonZeroCount()) otherwise.
+	 */
+	public static long sizeOf(Matrix m){
+		return sizeOf(kindOf(m), m.rows, m.cols, nnzOf(m, kindOf(m)));
+	}
+
+	private static long sizeOf(byte kind, int rows, int cols, long nnz){
+		switch(kind){
+			case KIND_DENSE:
+				return HEADER_SIZE + nnz * Double.BYTES;
+			case KIND_SPARSE:
+				return HEADER_SIZE + 2 * nnz * Integer.BYTES + nnz * Double.BYTES;
+			default:
+				long ptr = (kind == KIND_CSR ? rows : cols) + 1L;
+				return HEADER_SIZE + pad((ptr + nnz) * Integer.BYTES) + nnz * Double.BYTES;
+		}
+	}
+
+	private static long pad(long bytes){
+		return (bytes + 7) & ~7L;
+	}
+
+	private static long nnzOf(Matrix m, byte kind){
+		switch(kind){
+			case KIND_DENSE:
+				return (long) m.rows * m.cols;
+			case KIND_CSR:
+				return ((MatrixCSR) m).values.length;
+			case KIND_CSC:
+				return ((MatrixCSC) m).values.length;
+			default:
+				return m.nonZeroCount();
+		}
+	}
+
+	// WRITING
+
+	/**Writes m to channel.
+	 * <p/>Runs in O(rows*cols) for dense matrices, O(nonZeroCount()) for sparse ones.
+	 * @throws IOException if writing fails
+	 */
+	public static void write(Matrix m, WritableByteChannel channel) throws IOException{
+		Sink sink = new Sink(ByteBuffer.allocate(BUFFER_SIZE), channel);
+		write(m, sink);
+		sink.flush();
+	}
+
+	/**Writes m to file, replacing its contents.
+	 * @throws IOException if writing fails
+	 */
+	public static void write(Matrix m, Path file) throws IOException{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+			write(m, channel);
+		}
+	}
+
+	/**Returns m in this format.
+	 * @throws IllegalMatrixException if m does not fit into a byte[]
+	 */
+	public static byte[] toBytes(Matrix m){
+		long size = sizeOf(m);
+		if(size > Integer.MAX_VALUE - 8)
+			throw new IllegalMatrixException("Matrix error: Matrix is too large for a byte[], was "+m.rows+"*"+m.cols+".");
+		byte[] bytes = new byte[(int) size];
+		try{
+			write(m, new Sink(ByteBuffer.wrap(bytes), null));
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+		return bytes;
+	}
+
+	private static void write(Matrix m, Sink sink) throws IOException{
+		final byte kind = kindOf(m);
+		final long nnz = nnzOf(m, kind);
+		sink.ensure(HEADER_SIZE);
+		sink.buffer.putInt(MAGIC).putShort(VERSION).put(kind).put(TYPE_FLOAT64)
+				.putInt(m.rows).putInt(m.cols).putLong(nnz).putLong(0L);
+
+		switch(kind){
+			case KIND_DENSE:{
+				double[] values = m.denseValues();
+				if(values != null){
+					sink.putDoubles(values, 0, values.length);
+				}else{
+					double[] row = new double[m.cols];
+					for(int r = 0; r < m.rows; r++){
+						if(m instanceof MatrixOffHeap){
+							((MatrixOffHeap) m).getRow(r, row, 0);
+						}else{
+							for(int c = 0; c < m.cols; c++)
+								row[c] = m.internalGetValueAt(r, c);
+						}
+						sink.putDoubles(row, 0, row.length);
+					}
+				}
+				break;
+			}
+			case KIND_SPARSE:{
+				int[] rowIdx = new int[(int) nnz], colIdx = new int[(int) nnz];
+				double[] values = new double[(int) nnz];
+				int[] count = {0};
+				m.forEachNonZeroAt((row, col, val) -> {
+					rowIdx[count[0]] = row;
+					colIdx[count[0]] = col;
+					values[count[0]++] = val;
+				});
+				sink.putInts(rowIdx);
+				sink.putInts(colIdx);
+				sink.putDoubles(values, 0, values.length);
+				break;
+			}
+			case KIND_CSR:{
+				MatrixCSR csr = (MatrixCSR) m;
+				sink.putInts(csr.rowPtr);
+				sink.putInts(csr.colIdx);
+				sink.pad((long) (csr.rowPtr.length + csr.colIdx.length) * Integer.BYTES);
+				sink.putDoubles(csr.values, 0, csr.values.length);
+				break;
+			}
+			default:{
+				MatrixCSC csc = (MatrixCSC) m;
+				sink.putInts(csc.colPtr);
+				sink.putInts(csc.rowIdx);
+				sink.pad((long) (csc.colPtr.length + csc.rowIdx.length) * Integer.BYTES);
+				sink.putDoubles(csc.values, 0, csc.values.length);
+			}
+		}
+	}
+
+	// READING
+
+	/**Reads a Matrix from channel, into a Matrix of the storage kind it was written from.
+	 * <br/>Dense matrices with more than 2^31-1 elements are read into a {@link MatrixOffHeap}.
+	 * <br/>If channel is a SeekableByteChannel, the size the header declares is checked against the size of channel
+	 * before anything is allocated; otherwise, arrays grow in steps as data arrives,
+	 * so that a malformed header cannot make a read allocate much more than the data it is followed by.
+	 * @throws IOException if reading fails or the data is malformed
+	 */
+	public static Matrix read(ReadableByteChannel channel) throws IOException{
+		return read(new Source(ByteBuffer.allocate(BUFFER_SIZE).flip(), channel));
+	}
+
+	/**Reads a Matrix from file.
+	 * @throws IOException if reading fails or the data is malformed
+	 * @see #map(Path, boolean)
+	 */
+	public static Matrix read(Path file) throws IOException{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			return read(channel);
+		}
+	}
+
+	/**Reads a Matrix from bytes, as returned by {@link #toBytes(Matrix)}.
+	 * @throws IllegalMatrixException if the data is malformed
+	 */
+	public static Matrix fromBytes(byte[] bytes){
+		try{
+			return read(new Source(ByteBuffer.wrap(bytes), null));
+		}catch(IOException e){
+			throw new IllegalMatrixException("Matrix error: Malformed binary Matrix. "+e.getMessage());
+		}
+	}
+
+	/**Loads a Matrix from file, memory-mapping it if it is dense.
+	 * <br/>Mapping costs O(1) regardless of size; values are paged in on first access.
+	 * If writable, changes to the Matrix are written back to the file. Sparse matrices are read as by {@link #read(Path)}.
+	 * @throws IOException if reading fails or the data is malformed
+	 */
+	public static Matrix map(Path file, boolean writable) throws IOException{
+		Header header;
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			header = readHeader(new Source(ByteBuffer.allocate(HEADER_SIZE).flip(), channel));
+			if(channel.size() < sizeOf(header.kind, header.rows, header.cols, header.nnz))
+				throw new EOFException("Binary Matrix is truncated: "+file);
+		}
+		if(header.kind != KIND_DENSE)
+			return read(file);
+		return MatrixOffHeap.map(file, HEADER_SIZE, header.rows, header.cols, writable);
+	}
+
+	private static final class Header{
+		byte kind;
+		int rows, cols;
+		long nnz;
+	}
+
+	private static Header readHeader(Source source) throws IOException{
+		source.ensure(HEADER_SIZE);
+		ByteBuffer b = source.buffer;
+		if(b.getInt() != MAGIC)
+			throw new IOException("Not a binary Matrix: bad magic number.");
+		short version = b.getShort();
+		if(version != VERSION)
+			throw new IOException("Unsupported binary Matrix version "+version+".");
+		Header h = new Header();
+		h.kind = b.get();
+		byte type = b.get();
+		h.rows = b.getInt();
+		h.cols = b.getInt();
+		h.nnz = b.getLong();
+		b.getLong();
+		if(h.kind < KIND_DENSE || h.kind > KIND_CSC)
+			throw new IOException("Unknown storage kind "+h.kind+".");
+		if(type != TYPE_FLOAT64)
+			throw new IOException("Unsupported value type "+type+".");
+		if(h.rows <= 0 || h.cols <= 0 || h.nnz < 0 || h.nnz > (long) h.rows * h.cols
+				|| (h.kind == KIND_DENSE && h.nnz != (long) h.rows * h.cols)
+				|| (h.kind != KIND_DENSE && h.nnz > Integer.MAX_VALUE))
+			throw new IOException("Malformed header: "+h.rows+"*"+h.cols+", "+h.nnz+" values.");
+		return h;
+	}
+
+	/**Throws if source is known to hold fewer bytes than the payload h declares.*/
+	private static void checkPayload(Header h, Source source) throws IOException{
+		long available = source.available();
+		long payload = sizeOf(h.kind, h.rows, h.cols, h.nnz) - HEADER_SIZE;
+		if(available >= 0 && available < payload)
+			throw new EOFException("Binary Matrix is truncated: header declares "+payload+" bytes of values, only "+available+" remain.");
+	}
+
+	private static Matrix read(Source source) throws IOException{
+		Header h = readHeader(source);
+		checkPayload(h, source);
+		final int nnz = (int) Math.min(h.nnz, Integer.MAX_VALUE);
+		switch(h.kind){
+			case KIND_DENSE:{
+				if(h.nnz > Integer.MAX_VALUE){
+					if(source.available() < 0)
+						throw new IOException("A dense binary Matrix of more than 2^31-1 elements must be read from a file or seekable channel, was "+h.rows+"*"+h.cols+".");
+					MatrixOffHeap m = MatrixOffHeap.allocate(h.rows, h.cols);
+					double[] row = new double[h.cols];
+					for(int r = 0; r < h.rows; r++){
+						source.getDoubles(row, 0, row.length);
+						m.setRow(r, row, 0);
+					}
+					return m;
+				}
+				if(source.available() < 0){
+					double[] values = source.getDoubles(nnz);
+					return Matrix.zeroes(h.rows, h.cols, false).fill(values);
+				}
+				Matrix m = Matrix.zeroes(h.rows, h.cols, false);
+				double[] values = m.denseValues();
+				source.getDoubles(values, 0, values.length);
+				return m;
+			}
+			case KIND_SPARSE:{
+				int[] rowIdx = source.getInts(nnz);
+				int[] colIdx = source.getInts(nnz);
+				double[] values = source.getDoubles(nnz);
+				Matrix m = Matrix.zeroes(h.rows, h.cols, true);
+				for(int i = 0; i < nnz; i++){
+					if(rowIdx[i] < 0 || rowIdx[i] >= h.rows || colIdx[i] < 0 || colIdx[i] >= h.cols)
+						throw new IOException("Index out of bounds: ("+rowIdx[i]+", "+colIdx[i]+").");
+					m.internalSetValueAt(rowIdx[i], colIdx[i], values[i]);
+				}
+				return m;
+			}
+			default:{
+				boolean csr = h.kind == KIND_CSR;
+				int major = csr ? h.rows : h.cols, minor = csr ? h.cols : h.rows;
+				int[] ptr = source.getInts(major + 1);
+				int[] idx = source.getInts(nnz);
+				source.skipPadding((long) (ptr.length + idx.length) * Integer.BYTES);
+				double[] values = source.getDoubles(nnz);
+				if(ptr[0] != 0 || ptr[major] != nnz)
+					throw new IOException("Malformed compressed pointers.");
+				for(int i = 0; i < major; i++)
+					if(ptr[i] > ptr[i + 1])
+						throw new IOException("Malformed compressed pointers.");
+				for(int i : idx)
+					if(i < 0 || i >= minor)
+						throw new IOException("Compressed index out of bounds: "+i+".");
+				return csr ? new MatrixCSR(h.rows, h.cols, ptr, idx, values) : new MatrixCSC(h.rows, h.cols, ptr, idx, values);
+			}
+		}
+	}
+
+	// BUFFERING
+
+	/**Little-endian staging buffer in front of an optional channel.
+	 * <br/>Without a channel, the buffer must be large enough for everything written.*/
+	private static final class Sink{
+		final ByteBuffer buffer;
+		final WritableByteChannel channel;
+
+		Sink(ByteBuffer buffer, WritableByteChannel channel){
+			this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+			this.channel = channel;
+		}
+
+		void ensure(int bytes) throws IOException{
+			if(buffer.remaining() < bytes)
+				flush();
+		}
+
+		void flush() throws IOException{
+			if(channel == null)
+				return;
+			buffer.flip();
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+
+		void putDoubles(double[] values, int off, int len) throws IOException{
+			while(len > 0){
+				ensure(Double.BYTES);
+				int n = Math.min(len, buffer.remaining() / Double.BYTES);
+				buffer.asDoubleBuffer().put(values, off, n);
+				buffer.position(buffer.position() + n * Double.BYTES);
+				off += n;
+				len -= n;
+			}
+		}
+
+		void putInts(int[] values) throws IOException{
+			for(int off = 0, len = values.length; len > 0; ){
+				ensure(Integer.BYTES);
+				int n = Math.min(len, buffer.remaining() / Integer.BYTES);
+				buffer.asIntBuffer().put(values, off, n);
+				buffer.position(buffer.position() + n * Integer.BYTES);
+				off += n;
+				len -= n;
+			}
+		}
+
+		void pad(long written) throws IOException{
+			int padding = (int) (MatrixBinaryFormat.pad(written) - written);
+			ensure(padding);
+			for(int i = 0; i < padding; i++)
+				buffer.put((byte) 0);
+		}
+	}
+
+	/**Little-endian staging buffer behind an optional channel.
+	 * <br/>Without a channel, the buffer must hold everything to be read.
+	 * <br/>Arrays are allocated whole if the number of bytes remaining is known, which {@link #read(Source)} checks first,
+	 * and in steps of doubling size, starting at BUFFER_SIZE bytes, otherwise.*/
+	private static final class Source{
+		final ByteBuffer buffer;
+		final ReadableByteChannel channel;
+
+		Source(ByteBuffer buffer, ReadableByteChannel channel){
+			this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+			this.channel = channel;
+		}
+
+		void ensure(int bytes) throws IOException{
+			if(buffer.remaining() >= bytes)
+				return;
+			if(channel == null)
+				throw new EOFException("Binary Matrix is truncated.");
+			buffer.compact();
+			while(buffer.position() < bytes)
+				if(channel.read(buffer) < 0)
+					throw new EOFException("Binary Matrix is truncated.");
+			buffer.flip();
+		}
+
+		/**Returns the number of bytes left to read, or -1 if that is not known.*/
+		long available() throws IOException{
+			if(channel == null)
+				return buffer.remaining();
+			if(channel instanceof SeekableByteChannel){
+				SeekableByteChannel c = (SeekableByteChannel) channel;
+				return c.size() - c.position() + buffer.remaining();
+			}
+			return -1;
+		}
+
+		/**Returns the length of an array of count elements of the given size, to be allocated before any of them is read.*/
+		private int initialLength(int count, int bytes) throws IOException{
+			return available() >= 0 ? count : Math.min(count, BUFFER_SIZE / bytes);
+		}
+
+		double[] getDoubles(int count) throws IOException{
+			double[] values = new double[initialLength(count, Double.BYTES)];
+			for(int off = 0; ; ){
+				getDoubles(values, off, values.length - off);
+				if(values.length == count)
+					return values;
+				off = values.length;
+				values = Arrays.copyOf(values, (int) Math.min(count, 2L * off));
+			}
+		}
+
+		void getDoubles(double[] values, int off, int len) throws IOException{
+			while(len > 0){
+				ensure(Double.BYTES);
+				int n = Math.min(len, buffer.remaining() / Double.BYTES);
+				buffer.asDoubleBuffer().get(values, off, n);
+				buffer.position(buffer.position() + n * Double.BYTES);
+				off += n;
+				len -= n;
+			}
+		}
+
+		int[] getInts(int count) throws IOException{
+			int[] values = new int[initialLength(count, Integer.BYTES)];
+			for(int off = 0; ; ){
+				getInts(values, off, values.length - off);
+				if(values.length == count)
+					return values;
+				off = values.length;
+				values = Arrays.copyOf(values, (int) Math.min(count, 2L * off));
+			}
+		}
+
+		void getInts(int[] values, int off, int len) throws IOException{
+			while(len > 0){
+				ensure(Integer.BYTES);
+				int n = Math.min(len, buffer.remaining() / Integer.BYTES);
+				buffer.asIntBuffer().get(values, off, n);
+				buffer.position(buffer.position() + n * Integer.BYTES);
+				off += n;
+				len -= n;
+			}
+		}
+
+		void skipPadding(long read) throws IOException{
+			int padding = (int) (pad(read) - read);
+			ensure(padding);
+			buffer.position(buffer.position() + padding);
+		}
+	}
+}
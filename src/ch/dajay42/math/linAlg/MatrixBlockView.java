@@ -5,7 +5,7 @@ public class MatrixBlockView extends MatrixView{
 	private final int rowOff, colOff;
 	
 	public MatrixBlockView(Matrix base, int rowOff, int colOff, int rows, int cols){
-		super(rows, cols, base);
+		super(rows, cols, base, rowOff, colOff, false);
 		this.rowOff = rowOff;
 		this.colOff = colOff;
 	}
@@ -36,6 +36,18 @@ public class MatrixBlockView extends MatrixView{
 		internalSetValueAt(asRowIndex(elem), asColIndex(elem), val);
 	}
 	
+	/**Returns true iff the block does not wrap around onto itself.*/
+	@Override
+	protected boolean isInvertible(){
+		return rows <= base.rows && cols <= base.cols;
+	}
+	
+	@Override
+	protected int inverseElemIndex(int baseRow, int baseCol){
+		int row = Math.floorMod(baseRow - rowOff, base.rows), col = Math.floorMod(baseCol - colOff, base.cols);
+		return row < rows && col < cols ? asElemIndex(row, col) : -1;
+	}
+	
 	@Override
 	public boolean isLazy(){
 		return false;
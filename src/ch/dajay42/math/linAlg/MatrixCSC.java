@@ -0,0 +1,218 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.function.IntDoubleConsumer;
+import ch.dajay42.math.function.IntIntDoubleConsumer;
+
+/**Immutable sparse Matrix in Compressed Sparse Column format.
+ * <p/>The non-zero values of column j are values[colPtr[j]] through values[colPtr[j+1]-1],
+ * with their row indices stored at the same positions of rowIdx, in ascending order.
+ * <p/>Any attempt to modify a MatrixCSC throws an {@link UnsupportedOperationException}.
+ * Use {@link #of(Matrix)} or {@link MatrixCSR.Builder#buildCSC()} to create one.
+ * @see MatrixCSR
+ * @author DaJay42
+ */
+public class MatrixCSC extends Matrix{
+
+	private static final long serialVersionUID = 1L;
+
+	final int[] colPtr;
+	final int[] rowIdx;
+	final double[] values;
+
+	/**Wraps the given arrays, which must already be in valid CSC form. They are not copied.*/
+	MatrixCSC(int rows, int cols, int[] colPtr, int[] rowIdx, double[] values){
+		super(rows, cols);
+		if(colPtr.length != cols + 1 || rowIdx.length != values.length || colPtr[cols] != values.length)
+			throw new MatrixCreationException();
+		this.colPtr = colPtr;
+		this.rowIdx = rowIdx;
+		this.values = values;
+	}
+
+	/**Creates a new MatrixCSC equal to other.
+	 * <p/>Runs in O(rows*cols).
+	 * @param other Matrix to copy
+	 * @return compressed copy of other
+	 */
+	public static MatrixCSC of(Matrix other){
+		if(other instanceof MatrixCSC)
+			return (MatrixCSC) other;
+		if(other instanceof MatrixCSR)
+			return ((MatrixCSR) other).toCSC();
+		return MatrixCSR.of(new MatrixTransposedView(other)).transpose();
+	}
+
+	/**Runs in O(1).*/
+	@Override
+	public int nonZeroCount(){
+		return values.length;
+	}
+	
+	/**Runs in O(nonZeroCount()).*/
+	@Override
+	public void forEachNonZero(IntDoubleConsumer f){
+		assertElemIndexable();
+		for(int col = 0; col < cols; col++)
+			for(int p = colPtr[col], end = colPtr[col + 1]; p < end; p++)
+				f.accept(asElemIndex(rowIdx[p], col), values[p]);
+	}
+	
+	/**Runs in O(nonZeroCount() + cols).*/
+	@Override
+	public void forEachNonZeroAt(IntIntDoubleConsumer f){
+		for(int col = 0; col < cols; col++)
+			for(int p = colPtr[col], end = colPtr[col + 1]; p < end; p++)
+				f.accept(rowIdx[p], col, values[p]);
+	}
+	
+	@Override
+	public Spliterator.OfInt nonZeroSpliterator(){
+		assertElemIndexable();
+		return new CompressedNonZeroSpliterator(colPtr, rowIdx, 1, cols, 0, values.length);
+	}
+	
+	@Override
+	DoubleStream nonZeroValues(){
+		DoubleStream stream = Arrays.stream(values);
+		return values.length > PARALLEL_LIMIT ? stream.parallel() : stream;
+	}
+
+	private int find(int row, int col){
+		return Arrays.binarySearch(rowIdx, colPtr[col], colPtr[col + 1], row);
+	}
+
+	/**Runs in O(log(nnz in column)).*/
+	@Override
+	protected double internalGetValueAt(int row, int col){
+		int p = find(row, col);
+		return p >= 0 ? values[p] : 0.0d;
+	}
+
+	/**Runs in O(log(nnz in column)).*/
+	@Override
+	protected double internalGetValueAt(int elem){
+		return internalGetValueAt(asRowIndex(elem), asColIndex(elem));
+	}
+
+	@Override
+	protected void internalSetValueAt(int row, int col, double val){
+		throw new UnsupportedOperationException("MatrixCSC is immutable.");
+	}
+
+	@Override
+	protected void internalSetValueAt(int elem, double val){
+		throw new UnsupportedOperationException("MatrixCSC is immutable.");
+	}
+
+	@Override
+	protected double internalModValueAt(int row, int col, double off){
+		throw new UnsupportedOperationException("MatrixCSC is immutable.");
+	}
+
+	@Override
+	protected double internalModValueAt(int elem, double off){
+		throw new UnsupportedOperationException("MatrixCSC is immutable.");
+	}
+
+	@Override
+	public boolean isLazy(){
+		return false;
+	}
+
+	@Override
+	public boolean isSparse(){
+		return true;
+	}
+
+	@Override
+	public boolean isView(){
+		return false;
+	}
+
+	/**Runs in O(1).*/
+	@Override
+	public double getFilledness(){
+		return values.length / ((double) rows * cols);
+	}
+
+	/**Sparse matrix-vector product y = this*x, computed by scattering each column.
+	 * <p/>Runs in O(nnz + rows).
+	 * @param x input vector of length cols
+	 * @param y output vector of length rows, overwritten
+	 */
+	@Override
+	public void multiply(double[] x, double[] y){
+		if(x.length != cols || y.length != rows)
+			throw new MatrixDimensionMismatchException();
+		Arrays.fill(y, 0.0d);
+		for(int col = 0; col < cols; col++){
+			final double xj = x[col];
+			if(xj == 0.0d)
+				continue;
+			for(int p = colPtr[col], end = colPtr[col + 1]; p < end; p++)
+				y[rowIdx[p]] += values[p] * xj;
+		}
+	}
+
+	/**Sparse-dense product. Each column of b is computed independently by scattering,
+	 * in parallel if nonZeroCount()*b.cols > PARALLEL_LIMIT.
+	 * <br/>If b is sparse, this is converted to CSR format, and the product is computed sparse, by {@link MatrixCSR#multiply(MatrixCSR)}.
+	 * <p/>Runs in O(nnz*b.cols), or as {@link MatrixCSR#multiply(MatrixCSR)} if b is sparse.
+	 */
+	@Override
+	public Matrix multiply(Matrix b){
+		if(cols != b.rows)
+			throw new MatrixDimensionMismatchException();
+		if(b.isSparse())
+			return toCSR().multiply(MatrixCSR.of(b));
+		Matrix c = zeroes(rows, b.cols);
+		multiplyRight(b, c.denseValues());
+		return c;
+	}
+
+	/**Computes c = this*b, for a row-major rows*b.cols array c, as by {@link #multiply(Matrix)}.
+	 * <p/>Runs in O(nnz*b.cols + rows*b.cols).
+	 */
+	void multiplyRight(Matrix b, double[] cv){
+		final int n = b.cols;
+		if(cols != b.rows || cv.length != rows * n)
+			throw new MatrixDimensionMismatchException();
+		Arrays.fill(cv, 0.0d);
+
+		IntStream range = (long) values.length * n > PARALLEL_LIMIT ? IntStream.range(0, n).parallel() : IntStream.range(0, n).sequential();
+		range.forEach((j) -> {
+			for(int col = 0; col < cols; col++){
+				final double bj = b.internalGetValueAt(col, j);
+				if(bj == 0.0d)
+					continue;
+				for(int p = colPtr[col], end = colPtr[col + 1]; p < end; p++)
+					cv[rowIdx[p] * n + j] += values[p] * bj;
+			}
+		});
+	}
+
+	@Override
+	public MatrixCSR transposedView(){
+		return transpose();
+	}
+
+	/**Returns the transposed of this in CSR format, sharing the same arrays.
+	 * <p/>Runs in O(1).
+	 */
+	@Override
+	public MatrixCSR transpose(){
+		return new MatrixCSR(cols, rows, colPtr, rowIdx, values);
+	}
+
+	/**Converts this to an equal Matrix in CSR format.
+	 * <p/>Runs in O(nnz + rows + cols).
+	 */
+	public MatrixCSR toCSR(){
+		return MatrixCSR.transposed(cols, rows, colPtr, rowIdx, values);
+	}
+}
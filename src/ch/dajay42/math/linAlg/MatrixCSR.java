@@ -0,0 +1,542 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.function.IntDoubleConsumer;
+import ch.dajay42.math.function.IntIntDoubleConsumer;
+
+/**Immutable sparse Matrix in Compressed Sparse Row format.
+ * <p/>The non-zero values of row i are values[rowPtr[i]] through values[rowPtr[i+1]-1],
+ * with their column indices stored at the same positions of colIdx, in ascending order.
+ * <p/>Any attempt to modify a MatrixCSR throws an {@link UnsupportedOperationException}.
+ * Use {@link #of(Matrix)} or {@link #builder(int, int)} to create one.
+ * @see MatrixCSC
+ * @author DaJay42
+ */
+public class MatrixCSR extends Matrix{
+
+	private static final long serialVersionUID = 1L;
+
+	final int[] rowPtr;
+	final int[] colIdx;
+	final double[] values;
+
+	/**Wraps the given arrays, which must already be in valid CSR form. They are not copied.*/
+	MatrixCSR(int rows, int cols, int[] rowPtr, int[] colIdx, double[] values){
+		super(rows, cols);
+		if(rowPtr.length != rows + 1 || colIdx.length != values.length || rowPtr[rows] != values.length)
+			throw new MatrixCreationException();
+		this.rowPtr = rowPtr;
+		this.colIdx = colIdx;
+		this.values = values;
+	}
+
+	/**Creates a new MatrixCSR equal to other.
+	 * <p/>Runs in O(nnz*log(nnz)) if other is sparse, O(rows*cols) otherwise.
+	 * @param other Matrix to copy
+	 * @return compressed copy of other
+	 */
+	public static MatrixCSR of(Matrix other){
+		if(other instanceof MatrixCSR)
+			return (MatrixCSR) other;
+		if(other instanceof MatrixCSC)
+			return ((MatrixCSC) other).toCSR();
+
+		final int rows = other.rows, cols = other.cols;
+		if(other.isSparse()){
+			Builder builder = builder(rows, cols);
+			other.forEachNonZeroAt(builder::add);
+			return builder.build();
+		}
+		int[] rowPtr = new int[rows + 1];
+		for(int row = 0; row < rows; row++){
+			int nnz = 0;
+			for(int col = 0; col < cols; col++)
+				if(other.internalGetValueAt(row, col) != 0.0d)
+					nnz++;
+			rowPtr[row + 1] = rowPtr[row] + nnz;
+		}
+		int[] colIdx = new int[rowPtr[rows]];
+		double[] values = new double[rowPtr[rows]];
+		for(int row = 0, p = 0; row < rows; row++){
+			for(int col = 0; col < cols; col++){
+				double v = other.internalGetValueAt(row, col);
+				if(v != 0.0d){
+					colIdx[p] = col;
+					values[p++] = v;
+				}
+			}
+		}
+		return new MatrixCSR(rows, cols, rowPtr, colIdx, values);
+	}
+
+	/**Creates a new Builder for a rows*cols Matrix.
+	 * @param rows rows
+	 * @param cols columns
+	 * @return empty Builder
+	 */
+	public static Builder builder(int rows, int cols){
+		return new Builder(rows, cols);
+	}
+
+	/**Returns a copy of the row pointers: the non-zeros of row i are at [ptr[i], ptr[i+1]) of the other arrays.
+	 * <p/>Runs in O(rows).
+	 */
+	public int[] getRowPointers(){
+		return rowPtr.clone();
+	}
+
+	/**Returns a copy of the column indices of the non-zeros, ascending within each row.
+	 * <p/>Runs in O(nonZeroCount()).
+	 */
+	public int[] getColumnIndices(){
+		return colIdx.clone();
+	}
+
+	/**Returns a copy of the non-zero values, in the order of {@link #getColumnIndices()}.
+	 * <p/>Runs in O(nonZeroCount()).
+	 */
+	public double[] getNonZeroValues(){
+		return values.clone();
+	}
+
+	/**Runs in O(1).*/
+	@Override
+	public int nonZeroCount(){
+		return values.length;
+	}
+	
+	/**Runs in O(nonZeroCount()).*/
+	@Override
+	public void forEachNonZero(IntDoubleConsumer f){
+		assertElemIndexable();
+		for(int row = 0; row < rows; row++)
+			for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++)
+				f.accept(asElemIndex(row, colIdx[p]), values[p]);
+	}
+	
+	/**Runs in O(nonZeroCount() + rows).*/
+	@Override
+	public void forEachNonZeroAt(IntIntDoubleConsumer f){
+		for(int row = 0; row < rows; row++)
+			for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++)
+				f.accept(row, colIdx[p], values[p]);
+	}
+	
+	@Override
+	public Spliterator.OfInt nonZeroSpliterator(){
+		assertElemIndexable();
+		return new CompressedNonZeroSpliterator(rowPtr, colIdx, cols, 1, 0, values.length);
+	}
+	
+	@Override
+	DoubleStream nonZeroValues(){
+		DoubleStream stream = Arrays.stream(values);
+		return values.length > PARALLEL_LIMIT ? stream.parallel() : stream;
+	}
+
+	private int find(int row, int col){
+		return Arrays.binarySearch(colIdx, rowPtr[row], rowPtr[row + 1], col);
+	}
+
+	/**Runs in O(log(nnz in row)).*/
+	@Override
+	protected double internalGetValueAt(int row, int col){
+		int p = find(row, col);
+		return p >= 0 ? values[p] : 0.0d;
+	}
+
+	/**Runs in O(log(nnz in row)).*/
+	@Override
+	protected double internalGetValueAt(int elem){
+		return internalGetValueAt(asRowIndex(elem), asColIndex(elem));
+	}
+
+	@Override
+	protected void internalSetValueAt(int row, int col, double val){
+		throw new UnsupportedOperationException("MatrixCSR is immutable.");
+	}
+
+	@Override
+	protected void internalSetValueAt(int elem, double val){
+		throw new UnsupportedOperationException("MatrixCSR is immutable.");
+	}
+
+	@Override
+	protected double internalModValueAt(int row, int col, double off){
+		throw new UnsupportedOperationException("MatrixCSR is immutable.");
+	}
+
+	@Override
+	protected double internalModValueAt(int elem, double off){
+		throw new UnsupportedOperationException("MatrixCSR is immutable.");
+	}
+
+	@Override
+	public boolean isLazy(){
+		return false;
+	}
+
+	@Override
+	public boolean isSparse(){
+		return true;
+	}
+
+	@Override
+	public boolean isView(){
+		return false;
+	}
+
+	/**Runs in O(1).*/
+	@Override
+	public double getFilledness(){
+		return values.length / ((double) rows * cols);
+	}
+
+	/**Sparse matrix-vector product y = this*x.
+	 * <br/>Parallel over rows if nonZeroCount() > PARALLEL_LIMIT.
+	 * <p/>Runs in O(nnz).
+	 * @param x input vector of length cols
+	 * @param y output vector of length rows, overwritten
+	 */
+	@Override
+	public void multiply(double[] x, double[] y){
+		if(x.length != cols || y.length != rows)
+			throw new MatrixDimensionMismatchException();
+		IntStream range = values.length > PARALLEL_LIMIT ? IntStream.range(0, rows).parallel() : IntStream.range(0, rows).sequential();
+		range.forEach((row) -> {
+			double s = 0.0d;
+			for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++)
+				s += values[p] * x[colIdx[p]];
+			y[row] = s;
+		});
+	}
+
+	/**Sparse-dense product. Each row of the result is accumulated
+	 * from the rows of b selected by the non-zeros of the corresponding row of this.
+	 * <br/>If b is sparse, it is converted to MatrixCSR, and the product is computed sparse, by {@link #multiply(MatrixCSR)}.
+	 * <br/>Parallel over rows if nonZeroCount()*b.cols > PARALLEL_LIMIT.
+	 * <p/>Runs in O(nnz*b.cols), or as {@link #multiply(MatrixCSR)} if b is sparse.
+	 */
+	@Override
+	public Matrix multiply(Matrix b){
+		if(cols != b.rows)
+			throw new MatrixDimensionMismatchException();
+		if(b.isSparse())
+			return multiply(of(b));
+		Matrix c = zeroes(rows, b.cols);
+		multiplyRight(b, c.denseValues());
+		return c;
+	}
+
+	/**Rows per block of {@link #multiply(MatrixCSR)}.*/
+	static final int SPGEMM_BLOCK = 256;
+
+	/**Dense accumulator of the calling thread for {@link #multiply(MatrixCSR)}, reused across rows and products.
+	 * Between rows, all of its values are zero and none of its columns is marked.*/
+	private static final ThreadLocal<Accumulator> ACCUMULATOR = ThreadLocal.withInitial(Accumulator::new);
+
+	private static final class Accumulator{
+		double[] values = new double[0];
+		boolean[] marked = new boolean[0];
+		int[] touched = new int[0];
+
+		void ensure(int n){
+			if(values.length < n){
+				values = new double[n];
+				marked = new boolean[n];
+				touched = new int[n];
+			}
+		}
+	}
+
+	/**Sparse-sparse product, computed row by row (Gustavson): each row of the result is accumulated
+	 * from the rows of b selected by the non-zeros of the corresponding row of this,
+	 * into a dense accumulator of length b.cols, whose touched columns are then sorted and gathered,
+	 * so that no row costs more than its number of products. Products that cancel to zero are dropped.
+	 * <br/>Blocks of SPGEMM_BLOCK rows are computed in parallel if the number of products exceeds PARALLEL_LIMIT,
+	 * each into arrays of its own, which are then concatenated.
+	 * <p/>Runs in O(rows + nonZeroCount() + the number of products + nnz(c)*log(nnz in row of c)),
+	 * and needs memory in O(nnz(c) + b.cols) per thread, independent of rows*b.cols.
+	 * @param b Matrix to be multiplied with
+	 * @return product, in CSR format
+	 */
+	public MatrixCSR multiply(MatrixCSR b){
+		if(cols != b.rows)
+			throw new MatrixDimensionMismatchException();
+		final int n = b.cols;
+		long products = 0;
+		for(int col : colIdx)
+			products += b.rowPtr[col + 1] - b.rowPtr[col];
+
+		final int blocks = (rows + SPGEMM_BLOCK - 1) / SPGEMM_BLOCK;
+		final int[][] blockIdx = new int[blocks][];
+		final double[][] blockVals = new double[blocks][];
+		final int[] cPtr = new int[rows + 1];
+		IntStream range = products > PARALLEL_LIMIT ? IntStream.range(0, blocks).parallel() : IntStream.range(0, blocks).sequential();
+		range.forEach((block) -> {
+			final Accumulator acc = ACCUMULATOR.get();
+			acc.ensure(n);
+			final double[] spa = acc.values;
+			final boolean[] marked = acc.marked;
+			final int[] touched = acc.touched;
+			final int first = block * SPGEMM_BLOCK, last = Math.min(first + SPGEMM_BLOCK, rows);
+			int[] idx = new int[Math.max(16, rowPtr[last] - rowPtr[first])];
+			double[] vals = new double[idx.length];
+			int size = 0;
+			for(int row = first; row < last; row++){
+				int count = 0;
+				for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++){
+					final double v = values[p];
+					final int k = colIdx[p];
+					for(int q = b.rowPtr[k], bEnd = b.rowPtr[k + 1]; q < bEnd; q++){
+						final int j = b.colIdx[q];
+						if(!marked[j]){
+							marked[j] = true;
+							touched[count++] = j;
+						}
+						spa[j] += v * b.values[q];
+					}
+				}
+				Arrays.sort(touched, 0, count);
+				if(size + count > idx.length){
+					int capacity = Math.max(size + count, idx.length + (idx.length >> 1));
+					idx = Arrays.copyOf(idx, capacity);
+					vals = Arrays.copyOf(vals, capacity);
+				}
+				final int start = size;
+				for(int t = 0; t < count; t++){
+					final int j = touched[t];
+					if(spa[j] != 0.0d){
+						idx[size] = j;
+						vals[size++] = spa[j];
+					}
+					spa[j] = 0.0d;
+					marked[j] = false;
+				}
+				cPtr[row + 1] = size - start;
+			}
+			blockIdx[block] = idx;
+			blockVals[block] = vals;
+		});
+
+		for(int row = 0; row < rows; row++)
+			cPtr[row + 1] += cPtr[row];
+		final int[] cIdx = new int[cPtr[rows]];
+		final double[] cVals = new double[cPtr[rows]];
+		for(int block = 0; block < blocks; block++){
+			final int first = block * SPGEMM_BLOCK, last = Math.min(first + SPGEMM_BLOCK, rows);
+			System.arraycopy(blockIdx[block], 0, cIdx, cPtr[first], cPtr[last] - cPtr[first]);
+			System.arraycopy(blockVals[block], 0, cVals, cPtr[first], cPtr[last] - cPtr[first]);
+		}
+		return new MatrixCSR(rows, n, cPtr, cIdx, cVals);
+	}
+
+	/**Computes c = this*b, for a row-major rows*b.cols array c, as {@link #multiply(Matrix)} does for dense b.
+	 * If b is sparse, only the non-zeros of the selected rows of b are accumulated.
+	 * <p/>Runs in O(nnz*b.cols + rows*b.cols), or less if b is sparse.
+	 */
+	void multiplyRight(Matrix b, double[] cv){
+		final int n = b.cols;
+		if(cols != b.rows || cv.length != rows * n)
+			throw new MatrixDimensionMismatchException();
+		final double[] bv = b.denseValues();
+
+		if(n == 1 && bv != null){
+			multiply(bv, cv);
+			return;
+		}
+		Arrays.fill(cv, 0.0d);
+		if(bv == null && b.isSparse()){
+			final MatrixCSR bc = of(b);
+			IntStream range = values.length > PARALLEL_LIMIT ? IntStream.range(0, rows).parallel() : IntStream.range(0, rows).sequential();
+			range.forEach((row) -> {
+				final int off = row * n;
+				for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++){
+					final double v = values[p];
+					final int col = colIdx[p];
+					for(int q = bc.rowPtr[col], bEnd = bc.rowPtr[col + 1]; q < bEnd; q++)
+						cv[off + bc.colIdx[q]] += v * bc.values[q];
+				}
+			});
+			return;
+		}
+
+		IntStream range = (long) values.length * n > PARALLEL_LIMIT ? IntStream.range(0, rows).parallel() : IntStream.range(0, rows).sequential();
+		range.forEach((row) -> {
+			final int off = row * n;
+			for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++){
+				final double v = values[p];
+				final int col = colIdx[p];
+				if(bv != null){
+					final int bOff = col * n;
+					for(int j = 0; j < n; j++)
+						cv[off + j] += v * bv[bOff + j];
+				}else{
+					for(int j = 0; j < n; j++)
+						cv[off + j] += v * b.internalGetValueAt(col, j);
+				}
+			}
+		});
+	}
+
+	/**Computes c += a*this, for a strided m*rows Matrix a and a row-major m*cols array c.
+	 * Each row of c is accumulated from the rows of this selected by the non-zeros of the corresponding row of a.
+	 * <br/>Parallel over rows of a if m*nonZeroCount() > PARALLEL_LIMIT.
+	 * <p/>Runs in O(m*(rows + nnz)).
+	 */
+	void multiplyLeft(Strided a, double[] c){
+		if(a.cols != rows || c.length != a.rows * cols)
+			throw new MatrixDimensionMismatchException();
+		IntStream range = (long) a.rows * values.length > PARALLEL_LIMIT ? IntStream.range(0, a.rows).parallel() : IntStream.range(0, a.rows).sequential();
+		range.forEach((i) -> {
+			final int off = i * cols;
+			for(int k = 0; k < rows; k++){
+				final double v = a.data[a.offset + i * a.rowStride + k * a.colStride];
+				if(v == 0.0d)
+					continue;
+				for(int p = rowPtr[k], end = rowPtr[k + 1]; p < end; p++)
+					c[off + colIdx[p]] += v * values[p];
+			}
+		});
+	}
+
+	@Override
+	public MatrixCSC transposedView(){
+		return transpose();
+	}
+
+	/**Returns the transposed of this in CSC format, sharing the same arrays.
+	 * <p/>Runs in O(1).
+	 */
+	@Override
+	public MatrixCSC transpose(){
+		return new MatrixCSC(cols, rows, rowPtr, colIdx, values);
+	}
+
+	/**Converts this to an equal Matrix in CSC format.
+	 * <p/>Runs in O(nnz + rows + cols).
+	 */
+	public MatrixCSC toCSC(){
+		MatrixCSR t = transposed(rows, cols, rowPtr, colIdx, values);
+		return new MatrixCSC(rows, cols, t.rowPtr, t.colIdx, t.values);
+	}
+
+	/**Transposes the n*m Matrix given by the compressed arrays by counting sort.
+	 * <p/>Runs in O(nnz + n + m).
+	 * @return the m*n transposed, in CSR format
+	 */
+	static MatrixCSR transposed(int n, int m, int[] ptr, int[] idx, double[] vals){
+		int[] tPtr = new int[m + 1];
+		for(int i : idx)
+			tPtr[i + 1]++;
+		for(int j = 0; j < m; j++)
+			tPtr[j + 1] += tPtr[j];
+		int[] next = Arrays.copyOf(tPtr, m);
+		int[] tIdx = new int[idx.length];
+		double[] tVals = new double[vals.length];
+		for(int i = 0; i < n; i++){
+			for(int p = ptr[i], end = ptr[i + 1]; p < end; p++){
+				int q = next[idx[p]]++;
+				tIdx[q] = i;
+				tVals[q] = vals[p];
+			}
+		}
+		return new MatrixCSR(m, n, tPtr, tIdx, tVals);
+	}
+
+	/**Collects (row, col, value) triplets in primitive arrays
+	 * and compresses them into a MatrixCSR or MatrixCSC.
+	 * <br/>Duplicate entries are summed; entries that end up zero are dropped.
+	 */
+	public static final class Builder{
+
+		private final int rows, cols;
+		private int[] tRows = new int[16], tCols = new int[16];
+		private double[] tVals = new double[16];
+		private int size = 0;
+
+		private Builder(int rows, int cols){
+			if(rows <= 0 || cols <= 0)
+				throw new MatrixCreationException();
+			this.rows = rows;
+			this.cols = cols;
+		}
+
+		/**Adds val to the entry at (row, col).
+		 * <p/>Runs in amortized O(1).
+		 * @return this
+		 */
+		public Builder add(int row, int col, double val){
+			if(row < 0 || col < 0 || row >= rows || col >= cols)
+				throw new MatrixIndexOutOfBoundsException(row, col, rows, cols);
+			if(val == 0.0d)
+				return this;
+			if(size == tVals.length){
+				int capacity = size + (size >> 1);
+				tRows = Arrays.copyOf(tRows, capacity);
+				tCols = Arrays.copyOf(tCols, capacity);
+				tVals = Arrays.copyOf(tVals, capacity);
+			}
+			tRows[size] = row;
+			tCols[size] = col;
+			tVals[size++] = val;
+			return this;
+		}
+
+		/**Runs in O(nnz*log(nnz in row) + rows).*/
+		public MatrixCSR build(){
+			return compress(rows, cols, tRows, tCols);
+		}
+
+		/**Runs in O(nnz*log(nnz in column) + cols).*/
+		public MatrixCSC buildCSC(){
+			MatrixCSR t = compress(cols, rows, tCols, tRows);
+			return new MatrixCSC(rows, cols, t.rowPtr, t.colIdx, t.values);
+		}
+
+		private MatrixCSR compress(int n, int m, int[] major, int[] minor){
+			int[] ptr = new int[n + 1];
+			for(int k = 0; k < size; k++)
+				ptr[major[k] + 1]++;
+			for(int i = 0; i < n; i++)
+				ptr[i + 1] += ptr[i];
+			int[] next = Arrays.copyOf(ptr, n);
+			long[] keys = new long[size];
+			for(int k = 0; k < size; k++)
+				keys[next[major[k]]++] = ((long) minor[k] << 32) | k;
+
+			int[] idx = new int[size];
+			double[] vals = new double[size];
+			int q = 0;
+			for(int i = 0; i < n; i++){
+				int start = ptr[i], end = ptr[i + 1];
+				Arrays.sort(keys, start, end);
+				ptr[i] = q;
+				for(int p = start; p < end; p++){
+					int j = (int) (keys[p] >>> 32);
+					double v = tVals[(int) keys[p]];
+					if(q > ptr[i] && idx[q - 1] == j){
+						vals[q - 1] += v;
+					}else{
+						idx[q] = j;
+						vals[q++] = v;
+					}
+				}
+				int r = ptr[i];
+				for(int p = ptr[i]; p < q; p++){
+					if(vals[p] != 0.0d){
+						idx[r] = idx[p];
+						vals[r++] = vals[p];
+					}
+				}
+				q = r;
+			}
+			ptr[n] = q;
+			return new MatrixCSR(n, m, ptr, Arrays.copyOf(idx, q), Arrays.copyOf(vals, q));
+		}
+	}
+}
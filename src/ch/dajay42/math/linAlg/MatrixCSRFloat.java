@@ -0,0 +1,267 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.function.IntDoubleConsumer;
+import ch.dajay42.math.function.IntIntDoubleConsumer;
+
+/**Immutable sparse Matrix in Compressed Sparse Row format, that stores its non-zero values in single precision.
+ * <p/>The layout is that of {@link MatrixCSR}; only values is a float[], which halves the memory traffic of a sparse product
+ * for the typical nonZeroCount() much greater than rows.
+ * <br/>Products with double vectors and matrices accumulate in double; products with float vectors
+ * accumulate as set by {@link MatrixDenseFloat#ACCUMULATE_IN_DOUBLE}.
+ * <p/>Any attempt to modify a MatrixCSRFloat throws an {@link UnsupportedOperationException}.
+ * Use {@link #of(Matrix)} to create one.
+ * @see MatrixDenseFloat
+ * @author DaJay42
+ */
+public class MatrixCSRFloat extends Matrix{
+
+	private static final long serialVersionUID = 1L;
+
+	final int[] rowPtr;
+	final int[] colIdx;
+	final float[] values;
+
+	/**Wraps the given arrays, which must already be in valid CSR form. They are not copied.*/
+	MatrixCSRFloat(int rows, int cols, int[] rowPtr, int[] colIdx, float[] values){
+		super(rows, cols);
+		if(rowPtr.length != rows + 1 || colIdx.length != values.length || rowPtr[rows] != values.length)
+			throw new MatrixCreationException();
+		this.rowPtr = rowPtr;
+		this.colIdx = colIdx;
+		this.values = values;
+	}
+
+	/**Creates a new MatrixCSRFloat equal to other, rounded to float.
+	 * <br/>Values that round to zero are kept as explicit entries.
+	 * <p/>Runs in O(rows*cols), or in O(nonZeroCount()) if other is a MatrixCSR.
+	 * @param other Matrix to convert
+	 * @return compressed float copy of other
+	 */
+	public static MatrixCSRFloat of(Matrix other){
+		if(other instanceof MatrixCSRFloat)
+			return (MatrixCSRFloat) other;
+		MatrixCSR csr = MatrixCSR.of(other);
+		float[] values = new float[csr.values.length];
+		FloatKernels.narrow(csr.values, values);
+		return new MatrixCSRFloat(csr.rows, csr.cols, csr.rowPtr, csr.colIdx, values);
+	}
+
+	/**Creates a new MatrixCSR equal to this, sharing the index arrays.
+	 * <p/>Runs in O(nonZeroCount()).
+	 * @return double copy of this
+	 */
+	public MatrixCSR toDouble(){
+		return new MatrixCSR(rows, cols, rowPtr, colIdx, FloatKernels.widen(values));
+	}
+
+	/**Runs in O(1).*/
+	@Override
+	public int nonZeroCount(){
+		return values.length;
+	}
+
+	/**Runs in O(nonZeroCount()).*/
+	@Override
+	public void forEachNonZero(IntDoubleConsumer f){
+		assertElemIndexable();
+		for(int row = 0; row < rows; row++)
+			for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++)
+				f.accept(asElemIndex(row, colIdx[p]), values[p]);
+	}
+
+	/**Runs in O(nonZeroCount() + rows).*/
+	@Override
+	public void forEachNonZeroAt(IntIntDoubleConsumer f){
+		for(int row = 0; row < rows; row++)
+			for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++)
+				f.accept(row, colIdx[p], values[p]);
+	}
+
+	@Override
+	public Spliterator.OfInt nonZeroSpliterator(){
+		assertElemIndexable();
+		return new CompressedNonZeroSpliterator(rowPtr, colIdx, cols, 1, 0, values.length);
+	}
+
+	private int find(int row, int col){
+		return Arrays.binarySearch(colIdx, rowPtr[row], rowPtr[row + 1], col);
+	}
+
+	/**Runs in O(log(nnz in row)).*/
+	@Override
+	protected double internalGetValueAt(int row, int col){
+		int p = find(row, col);
+		return p >= 0 ? values[p] : 0.0d;
+	}
+
+	/**Runs in O(log(nnz in row)).*/
+	@Override
+	protected double internalGetValueAt(int elem){
+		return internalGetValueAt(asRowIndex(elem), asColIndex(elem));
+	}
+
+	@Override
+	protected void internalSetValueAt(int row, int col, double val){
+		throw new UnsupportedOperationException("MatrixCSRFloat is immutable.");
+	}
+
+	@Override
+	protected void internalSetValueAt(int elem, double val){
+		throw new UnsupportedOperationException("MatrixCSRFloat is immutable.");
+	}
+
+	@Override
+	protected double internalModValueAt(int row, int col, double off){
+		throw new UnsupportedOperationException("MatrixCSRFloat is immutable.");
+	}
+
+	@Override
+	protected double internalModValueAt(int elem, double off){
+		throw new UnsupportedOperationException("MatrixCSRFloat is immutable.");
+	}
+
+	@Override
+	public boolean isLazy(){
+		return false;
+	}
+
+	@Override
+	public boolean isSparse(){
+		return true;
+	}
+
+	@Override
+	public boolean isView(){
+		return false;
+	}
+
+	/**Runs in O(1).*/
+	@Override
+	public double getFilledness(){
+		return values.length / ((double) rows * cols);
+	}
+
+	private IntStream rowRange(long work){
+		return work > PARALLEL_LIMIT ? IntStream.range(0, rows).parallel() : IntStream.range(0, rows).sequential();
+	}
+
+	/**Sparse matrix-vector product y = this*x, accumulated in double.
+	 * <br/>Parallel over rows if nonZeroCount() > PARALLEL_LIMIT.
+	 * <p/>Runs in O(nnz + rows).
+	 * @param x input vector of length cols
+	 * @param y output vector of length rows, overwritten
+	 */
+	@Override
+	public void multiply(double[] x, double[] y){
+		if(x.length != cols || y.length != rows)
+			throw new MatrixDimensionMismatchException();
+		rowRange(values.length).forEach((row) -> {
+			double s = 0.0d;
+			for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++)
+				s += values[p] * x[colIdx[p]];
+			y[row] = s;
+		});
+	}
+
+	/**Sparse matrix-vector product y = this*x in single precision,
+	 * accumulated as set by {@link MatrixDenseFloat#ACCUMULATE_IN_DOUBLE}.
+	 * <br/>Parallel over rows if nonZeroCount() > PARALLEL_LIMIT.
+	 * <p/>Runs in O(nnz + rows).
+	 * @param x input vector of length cols
+	 * @param y output vector of length rows, overwritten
+	 */
+	public void multiply(float[] x, float[] y){
+		if(x.length != cols || y.length != rows)
+			throw new MatrixDimensionMismatchException();
+		final boolean doubleAcc = MatrixDenseFloat.ACCUMULATE_IN_DOUBLE;
+		rowRange(values.length).forEach((row) -> {
+			if(doubleAcc){
+				double s = 0.0d;
+				for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++)
+					s += (double) values[p] * x[colIdx[p]];
+				y[row] = (float) s;
+			}else{
+				float s = 0.0f;
+				for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++)
+					s += values[p] * x[colIdx[p]];
+				y[row] = s;
+			}
+		});
+	}
+
+	/**Sparse-dense product, computed as by {@link MatrixCSR#multiply(Matrix)}.
+	 * <br/>If b is a MatrixDenseFloat, so is the result, and it is accumulated
+	 * as set by {@link MatrixDenseFloat#ACCUMULATE_IN_DOUBLE}; if b is sparse, the result is sparse double,
+	 * computed by {@link MatrixCSR#multiply(MatrixCSR)}; otherwise, the result is dense double.
+	 * <br/>Parallel over rows if nonZeroCount()*b.cols > PARALLEL_LIMIT.
+	 * <p/>Runs in O(nnz*b.cols + rows*b.cols), or as {@link MatrixCSR#multiply(MatrixCSR)} if b is sparse.
+	 */
+	@Override
+	public Matrix multiply(Matrix b){
+		if(cols != b.rows)
+			throw new MatrixDimensionMismatchException();
+		if(b.isSparse())
+			return toDouble().multiply(MatrixCSR.of(b));
+		final int n = b.cols;
+		final float[] bf = b.floatValues();
+		if(bf != null){
+			MatrixDenseFloat c = new MatrixDenseFloat(rows, n);
+			if(n == 1){
+				multiply(bf, c.floatValues());
+				return c;
+			}
+			final float[] cv = c.floatValues();
+			final boolean doubleAcc = MatrixDenseFloat.ACCUMULATE_IN_DOUBLE;
+			rowRange((long) values.length * n).forEach((row) -> {
+				final int off = row * n;
+				if(doubleAcc){
+					final double[] acc = new double[n];
+					for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++){
+						final double v = values[p];
+						final int bOff = colIdx[p] * n;
+						for(int j = 0; j < n; j++)
+							acc[j] += v * bf[bOff + j];
+					}
+					for(int j = 0; j < n; j++)
+						cv[off + j] = (float) acc[j];
+				}else{
+					for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++){
+						final float v = values[p];
+						final int bOff = colIdx[p] * n;
+						for(int j = 0; j < n; j++)
+							cv[off + j] += v * bf[bOff + j];
+					}
+				}
+			});
+			return c;
+		}
+
+		Matrix c = zeroes(rows, n);
+		final double[] cv = c.denseValues();
+		final double[] bv = b.denseValues();
+		if(n == 1 && bv != null){
+			multiply(bv, cv);
+			return c;
+		}
+		rowRange((long) values.length * n).forEach((row) -> {
+			final int off = row * n;
+			for(int p = rowPtr[row], end = rowPtr[row + 1]; p < end; p++){
+				final double v = values[p];
+				final int col = colIdx[p];
+				if(bv != null){
+					final int bOff = col * n;
+					for(int j = 0; j < n; j++)
+						cv[off + j] += v * bv[bOff + j];
+				}else{
+					for(int j = 0; j < n; j++)
+						cv[off + j] += v * b.internalGetValueAt(col, j);
+				}
+			}
+		});
+		return c;
+	}
+}
@@ -5,13 +5,14 @@ public class MatrixColView extends MatrixView{
 	protected final int col;
 	
 	public MatrixColView(int col, Matrix base){
-		super(base.rows, 1, base);
+		super(base.rows, 1, base, 0, col, false);
 		this.col = col;
 	}
 	
 	@Override
 	protected int transformElemIndex(int elem){
-		return elem + col;
+		int row = asRowIndex(elem), col = asColIndex(elem);
+		return base.asElemIndex(transformRowIndex(row, col), transformColIndex(row, col));
 	}
 	
 	@Override
@@ -24,6 +25,16 @@ public class MatrixColView extends MatrixView{
 		return col + this.col;
 	}
 	
+	@Override
+	protected boolean isInvertible(){
+		return true;
+	}
+	
+	@Override
+	protected int inverseElemIndex(int baseRow, int baseCol){
+		return baseCol == col ? baseRow : -1;
+	}
+	
 	@Override
 	public boolean isLazy(){
 		return false;
@@ -5,13 +5,14 @@ public class MatrixColsView extends MatrixView{
 	protected final int startCol;
 	
 	public MatrixColsView(int startCol, int cols, Matrix base){
-		super(base.rows, cols, base);
+		super(base.rows, cols, base, 0, startCol, false);
 		this.startCol = startCol;
 	}
 	
 	@Override
 	protected int transformElemIndex(int elem){
-		return elem + startCol;
+		int row = asRowIndex(elem), col = asColIndex(elem);
+		return base.asElemIndex(transformRowIndex(row, col), transformColIndex(row, col));
 	}
 	
 	@Override
@@ -24,6 +25,16 @@ public class MatrixColsView extends MatrixView{
 		return col + startCol;
 	}
 	
+	@Override
+	protected boolean isInvertible(){
+		return true;
+	}
+	
+	@Override
+	protected int inverseElemIndex(int baseRow, int baseCol){
+		return baseCol >= startCol && baseCol < startCol + cols ? asElemIndex(baseRow, baseCol - startCol) : -1;
+	}
+	
 	@Override
 	public boolean isLazy(){
 		return false;
@@ -0,0 +1,309 @@
+package ch.dajay42.math.linAlg;
+
+import ch.dajay42.math.arithmetic.ComplexArray;
+import ch.dajay42.math.arithmetic.DoubleComplex;
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleUnaryOp;
+
+/**Matrix of complex numbers, stored split: the real parts in one row-major double[], the imaginary parts in another.
+ * <p/>Split storage keeps element-wise arithmetic and the butterflies of the {@link FFT} free of shuffles between components;
+ * {@link #ofInterleaved(int, int, double[])} and {@link #toInterleaved()} convert from and to the interleaved layout
+ * of re, im pairs that other libraries use.
+ * <br/>The transforms work in place and are parallel over rows and columns, as described in {@link FFT}.
+ * @author DaJay42
+ */
+public final class MatrixComplex{
+
+	/**Number of Rows*/
+	public final int rows;
+	/**Number of Columns*/
+	public final int cols;
+	/**Number of Elements*/
+	public final int elems;
+
+	final double[] real, imaginary;
+
+	/**Creates a new, zero-filled MatrixComplex of size rows*cols.
+	 * @param rows rows
+	 * @param cols columns
+	 */
+	public MatrixComplex(int rows, int cols){
+		if(rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE)
+			throw new MatrixCreationException();
+		this.rows = rows;
+		this.cols = cols;
+		this.elems = rows * cols;
+		this.real = new double[elems];
+		this.imaginary = new double[elems];
+	}
+
+	/**Creates a new MatrixComplex with the given real part and zero imaginary part.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public static MatrixComplex of(Matrix real){
+		MatrixComplex m = new MatrixComplex(real.rows, real.cols);
+		copy(real, m.real);
+		return m;
+	}
+
+	/**Creates a new MatrixComplex with the given real and imaginary parts.
+	 * <p/>Runs in O(rows*cols).
+	 * @throws MatrixDimensionMismatchException if real and imaginary are not of the same size
+	 */
+	public static MatrixComplex of(Matrix real, Matrix imaginary){
+		if(real.rows != imaginary.rows || real.cols != imaginary.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+		MatrixComplex m = of(real);
+		copy(imaginary, m.imaginary);
+		return m;
+	}
+
+	/**Creates a new MatrixComplex of size rows*cols from row-major, interleaved pairs of real and imaginary parts.
+	 * <p/>Runs in O(rows*cols).
+	 * @throws MatrixDimensionMismatchException if values does not hold 2*rows*cols values
+	 */
+	public static MatrixComplex ofInterleaved(int rows, int cols, double[] values){
+		MatrixComplex m = new MatrixComplex(rows, cols);
+		if(values.length != 2 * m.elems){
+			throw new MatrixDimensionMismatchException();
+		}
+		for(int i = 0; i < m.elems; i++){
+			m.real[i] = values[2 * i];
+			m.imaginary[i] = values[2 * i + 1];
+		}
+		return m;
+	}
+
+	private static void copy(Matrix m, double[] dst){
+		double[] v = m.denseValues();
+		System.arraycopy(v != null ? v : m.getValuesRowMajor(), 0, dst, 0, dst.length);
+	}
+
+	/**Returns row-major, interleaved pairs of the real and imaginary parts of this.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public double[] toInterleaved(){
+		double[] values = new double[2 * elems];
+		for(int i = 0; i < elems; i++){
+			values[2 * i] = real[i];
+			values[2 * i + 1] = imaginary[i];
+		}
+		return values;
+	}
+
+	/**Returns the elements of this, row-major, as a ComplexArray sharing the storage of this.*/
+	public ComplexArray asArray(){
+		return new ComplexArray(real, imaginary);
+	}
+
+	/**Returns a new Matrix equal to the real part of this.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public Matrix getReal(){
+		return Matrix.zeroes(rows, cols).fill(real);
+	}
+
+	/**Returns a new Matrix equal to the imaginary part of this.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public Matrix getImaginary(){
+		return Matrix.zeroes(rows, cols).fill(imaginary);
+	}
+
+	/**Returns a new Matrix of the absolute values of the elements of this.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public Matrix abs(){
+		MatrixDense m = new MatrixDense(rows, cols);
+		double[] v = m.denseValues();
+		for(int i = 0; i < elems; i++)
+			v[i] = Math.hypot(real[i], imaginary[i]);
+		return m;
+	}
+
+	private int index(int row, int col){
+		if(row < 0 || row >= rows || col < 0 || col >= cols)
+			throw new MatrixIndexOutOfBoundsException(row, col, rows, cols);
+		return row * cols + col;
+	}
+
+	/**Returns the element at (row, col).*/
+	public DoubleComplex getValueAt(int row, int col){
+		int i = index(row, col);
+		return new DoubleComplex(real[i], imaginary[i]);
+	}
+
+	/**Sets the element at (row, col) to value.*/
+	public void setValueAt(int row, int col, DoubleComplex value){
+		int i = index(row, col);
+		real[i] = value.real;
+		imaginary[i] = value.imaginary;
+	}
+
+	/**Sets the element at (row, col) to re + im*i.*/
+	public void setValueAt(int row, int col, double re, double im){
+		int i = index(row, col);
+		real[i] = re;
+		imaginary[i] = im;
+	}
+
+	/**Returns a new MatrixComplex equal to this.*/
+	@Override
+	public MatrixComplex clone(){
+		MatrixComplex m = new MatrixComplex(rows, cols);
+		System.arraycopy(real, 0, m.real, 0, elems);
+		System.arraycopy(imaginary, 0, m.imaginary, 0, elems);
+		return m;
+	}
+
+	private void requireSameSize(MatrixComplex b){
+		if(rows != b.rows || cols != b.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+	}
+
+	// ARITHMETIC
+
+	/**Returns this+b.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public MatrixComplex sum(MatrixComplex b){
+		requireSameSize(b);
+		MatrixComplex c = new MatrixComplex(rows, cols);
+		asArray().addInto(b.asArray(), c.asArray());
+		return c;
+	}
+
+	/**Returns the element-wise product of this and b.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public MatrixComplex multiplyElementWise(MatrixComplex b){
+		requireSameSize(b);
+		MatrixComplex c = new MatrixComplex(rows, cols);
+		asArray().multiplyInto(b.asArray(), c.asArray());
+		return c;
+	}
+
+	/**Returns this, each element multiplied by the real s.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public MatrixComplex scale(double s){
+		MatrixComplex c = new MatrixComplex(rows, cols);
+		DenseKernels.scalar(DoubleBinaryOp.MUL, real, s, c.real);
+		DenseKernels.scalar(DoubleBinaryOp.MUL, imaginary, s, c.imaginary);
+		return c;
+	}
+
+	/**Returns the complex conjugate of this.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public MatrixComplex conjugate(){
+		MatrixComplex c = new MatrixComplex(rows, cols);
+		asArray().conjugateInto(c.asArray());
+		return c;
+	}
+
+	/**Returns the product this*b, as four real products by the kernel of {@link Matrix#multiply(Matrix)}.
+	 * <p/>Runs in O(rows*cols*b.cols).
+	 */
+	public MatrixComplex multiply(MatrixComplex b){
+		if(cols != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		MatrixComplex c = new MatrixComplex(rows, b.cols);
+		Strided ar = new Strided(real, 0, cols, 1, rows, cols), ai = new Strided(imaginary, 0, cols, 1, rows, cols);
+		Strided br = new Strided(b.real, 0, b.cols, 1, b.rows, b.cols), bi = new Strided(b.imaginary, 0, b.cols, 1, b.rows, b.cols);
+		double[] negated = new double[b.elems];
+		DenseKernels.unary(DoubleUnaryOp.NEG, b.imaginary, negated);
+		DenseGemm.multiply(ar, br, c.real);
+		DenseGemm.multiply(ai, new Strided(negated, 0, b.cols, 1, b.rows, b.cols), c.real);
+		DenseGemm.multiply(ar, bi, c.imaginary);
+		DenseGemm.multiply(ai, br, c.imaginary);
+		return c;
+	}
+
+	// TRANSFORMS
+
+	/**Replaces this by its two-dimensional discrete Fourier transform.
+	 * <p/>Runs in O(rows*cols*log(rows*cols)).
+	 * @return this
+	 */
+	public MatrixComplex fft(){
+		FFT.transform2D(real, imaginary, rows, cols, false);
+		return this;
+	}
+
+	/**Replaces this by its two-dimensional inverse discrete Fourier transform, scaled by 1/(rows*cols).
+	 * <p/>Runs in O(rows*cols*log(rows*cols)).
+	 * @return this
+	 */
+	public MatrixComplex ifft(){
+		FFT.transform2D(real, imaginary, rows, cols, true);
+		return this;
+	}
+
+	/**Replaces each row of this by its discrete Fourier transform.
+	 * <p/>Runs in O(rows*cols*log(cols)).
+	 * @return this
+	 */
+	public MatrixComplex fftRows(){
+		FFT.transformRows(real, imaginary, rows, cols, false);
+		return this;
+	}
+
+	/**Replaces each row of this by its inverse discrete Fourier transform, scaled by 1/cols.
+	 * <p/>Runs in O(rows*cols*log(cols)).
+	 * @return this
+	 */
+	public MatrixComplex ifftRows(){
+		FFT.transformRows(real, imaginary, rows, cols, true);
+		return inplaceScale(1.0d / cols);
+	}
+
+	/**Replaces each column of this by its discrete Fourier transform.
+	 * <p/>Runs in O(rows*cols*log(rows)).
+	 * @return this
+	 */
+	public MatrixComplex fftColumns(){
+		FFT.transformColumns(real, imaginary, rows, cols, false);
+		return this;
+	}
+
+	/**Replaces each column of this by its inverse discrete Fourier transform, scaled by 1/rows.
+	 * <p/>Runs in O(rows*cols*log(rows)).
+	 * @return this
+	 */
+	public MatrixComplex ifftColumns(){
+		FFT.transformColumns(real, imaginary, rows, cols, true);
+		return inplaceScale(1.0d / rows);
+	}
+
+	private MatrixComplex inplaceScale(double s){
+		DenseKernels.scalar(DoubleBinaryOp.MUL, real, s, real);
+		DenseKernels.scalar(DoubleBinaryOp.MUL, imaginary, s, imaginary);
+		return this;
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder builder = new StringBuilder();
+		builder.append('[');
+		for(int row = 0; row < rows; row++){
+			if(row > 0) builder.append(',');
+			builder.append(System.lineSeparator());
+			builder.append('[');
+			for(int col = 0; col < cols; col++){
+				if(col > 0) builder.append(',');
+				int i = row * cols + col;
+				builder.append(real[i]);
+				if(imaginary[i] >= 0.0d || Double.isNaN(imaginary[i])) builder.append('+');
+				builder.append(imaginary[i]).append('i');
+			}
+			builder.append(']');
+		}
+		builder.append(System.lineSeparator());
+		builder.append(']');
+		return builder.toString();
+	}
+}
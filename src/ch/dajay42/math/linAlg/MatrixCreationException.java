@@ -9,4 +9,8 @@ public final class MatrixCreationException extends IllegalArgumentException{
 	public MatrixCreationException(){
 		super("Matrix error: Matrix dimensions must be positive.");
 	}
+	
+	public MatrixCreationException(String reason){
+		super(reason);
+	}
 }
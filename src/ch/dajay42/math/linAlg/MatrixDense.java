@@ -21,6 +21,8 @@ public class MatrixDense extends Matrix{
 	@SuppressWarnings("WeakerAccess")
 	public MatrixDense(int rows, int cols){
 		super(rows, cols);
+		if(!isElemIndexable())
+			throw new MatrixCreationException("Matrix error: Dense Matrix of size " + rows + "*" + cols + " exceeds the maximum array length.");
 		this.values = new double[elems];
 		this.parallelize = elems > PARALLEL_LIMIT;
 	}
@@ -57,6 +59,11 @@ public class MatrixDense extends Matrix{
 		values[elem] = val;
 	}
 	
+	@Override
+	double[] denseValues(){
+		return values;
+	}
+	
 	@Override
 	public boolean isLazy(){
 		return false;
@@ -106,26 +113,32 @@ public class MatrixDense extends Matrix{
 	}
 	
 	@Override
-	public Matrix fill(Matrix other) {
-		if(rows != other.rows || cols != other.cols){
+	public Matrix fill(double[] values) {
+		if(elems != values.length){
 			throw new MatrixDimensionMismatchException();
 		}
-		if(parallelize)
-			Arrays.parallelSetAll(values, other::internalGetValueAt);
-		else
-			Arrays.setAll(values, other::internalGetValueAt);
+		System.arraycopy(values, 0, this.values, 0, elems);
 		return this;
 	}
 	
 	@Override
-	public Matrix inplaceSum(Matrix b) {
-		if(cols != b.cols || rows != b.rows){
+	public Matrix fill(Matrix other) {
+		if(rows != other.rows || cols != other.cols){
 			throw new MatrixDimensionMismatchException();
 		}
+		if(other instanceof MatrixView && ((MatrixView) other).isStrided()){
+			((MatrixView) other).copyRowMajor(values);
+			return this;
+		}
+		float[] floats = other.floatValues();
+		if(floats != null){
+			FloatKernels.widen(floats, values);
+			return this;
+		}
 		if(parallelize)
-			Arrays.parallelSetAll(values, (elem) -> values[elem] + b.internalGetValueAt(elem));
+			Arrays.parallelSetAll(values, other::internalGetValueAt);
 		else
-			Arrays.setAll(values, (elem) -> values[elem] + b.internalGetValueAt(elem));
+			Arrays.setAll(values, other::internalGetValueAt);
 		return this;
 	}
 }
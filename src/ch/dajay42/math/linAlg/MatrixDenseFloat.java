@@ -0,0 +1,300 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.Summation;
+import ch.dajay42.math.function.DoubleReducer;
+import ch.dajay42.math.function.DoubleReduction;
+import ch.dajay42.math.function.DoubleTernaryOperator;
+
+/**Dense Matrix that stores its values in single precision, in a row-major float[].
+ * <p/>Values are rounded to float when they are set, and widened to double when they are read,
+ * so that a MatrixDenseFloat fulfills the same contract as any other Matrix, at half the memory and memory traffic of {@link MatrixDense}.
+ * <br/>Element-wise operations and products between float matrices run on float loops of {@link FloatKernels};
+ * those between float and dense double matrices convert their operands in bulk, rather than element by element.
+ * Operations on a MatrixDenseFloat that create a new Matrix return a MatrixDenseFloat.
+ * <p/>Products of float matrices and their reductions, such as {@link #dot(Matrix)} and {@link #reduce(DoubleReducer)},
+ * accumulate in float, unless {@link #ACCUMULATE_IN_DOUBLE} is set. Products that involve a double Matrix always accumulate in double.
+ * @see MatrixCSRFloat
+ * @author DaJay42
+ */
+public class MatrixDenseFloat extends Matrix{
+
+	private static final long serialVersionUID = 1L;
+
+	/**Whether products and sums of float matrices accumulate in double, rounding once at the end.
+	 * <br/>Slower, but the error then no longer grows with the number of terms at float precision.*/
+	public static boolean ACCUMULATE_IN_DOUBLE = false;
+
+	private final float[] values;
+
+	private final boolean parallelize;
+
+
+	/**Creates new, zero-filled Matrix of size NxM
+	 * @param rows rows
+	 * @param cols columns
+	 */
+	public MatrixDenseFloat(int rows, int cols){
+		super(rows, cols);
+		if(!isElemIndexable())
+			throw new MatrixCreationException("Matrix error: Dense Matrix of size " + rows + "*" + cols + " exceeds the maximum array length.");
+		this.values = new float[elems];
+		this.parallelize = elems > PARALLEL_LIMIT;
+	}
+
+	/**Creates a new MatrixDenseFloat equal to other, rounded to float.
+	 * <p/>Runs in O(rows*cols).
+	 * @param other Matrix to convert
+	 * @return float copy of other
+	 */
+	public static MatrixDenseFloat of(Matrix other){
+		MatrixDenseFloat m = new MatrixDenseFloat(other.rows, other.cols);
+		m.fill(other);
+		return m;
+	}
+
+	/**Creates a new dense double Matrix equal to this.
+	 * <p/>Runs in O(rows*cols).
+	 * @return double copy of this
+	 */
+	public Matrix toDouble(){
+		return zeroes(rows, cols).fill(this);
+	}
+
+	@Override
+	protected double internalGetValueAt(int row, int col){
+		return values[asElemIndex(row, col)];
+	}
+
+	@Override
+	protected double internalGetValueAt(int elem){
+		return values[elem];
+	}
+
+	@Override
+	protected void internalSetValueAt(int row, int col, double val){
+		values[asElemIndex(row, col)] = (float) val;
+	}
+
+	@Override
+	protected void internalSetValueAt(int elem, double val){
+		values[elem] = (float) val;
+	}
+
+	@Override
+	protected double internalModValueAt(int row, int col, double off){
+		return internalModValueAt(asElemIndex(row, col), off);
+	}
+
+	@Override
+	protected double internalModValueAt(int elem, double off){
+		return values[elem] = (float) (values[elem] + off);
+	}
+
+	@Override
+	float[] floatValues(){
+		return values;
+	}
+
+	@Override
+	public boolean isLazy(){
+		return false;
+	}
+
+	@Override
+	public boolean isSparse(){
+		return false;
+	}
+
+	@Override
+	public boolean isView(){
+		return false;
+	}
+
+	private IntStream elemRange(){
+		return parallelize ? IntStream.range(0, elems).parallel() : IntStream.range(0, elems).sequential();
+	}
+
+	@Override
+	public Matrix fill(double d){
+		Arrays.fill(values, (float) d);
+		return this;
+	}
+
+	@Override
+	public Matrix fill(DoubleSupplier f){
+		elemRange().forEach((elem) -> values[elem] = (float) f.getAsDouble());
+		return this;
+	}
+
+	@Override
+	public Matrix fill(IntToDoubleFunction f){
+		elemRange().forEach((elem) -> values[elem] = (float) f.applyAsDouble(elem));
+		return this;
+	}
+
+	@Override
+	public Matrix fill(double[] values){
+		if(elems != values.length){
+			throw new MatrixDimensionMismatchException();
+		}
+		FloatKernels.narrow(values, this.values);
+		return this;
+	}
+
+	/**{@inheritDoc}
+	 * <br/>Float matrices are copied, dense double matrices and strided Views converted in bulk.
+	 */
+	@Override
+	public Matrix fill(Matrix other){
+		if(rows != other.rows || cols != other.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+		float[] floats = other.floatValues();
+		if(floats != null){
+			System.arraycopy(floats, 0, values, 0, elems);
+			return this;
+		}
+		double[] doubles = other.denseValues();
+		if(doubles != null){
+			FloatKernels.narrow(doubles, values);
+			return this;
+		}
+		Strided s = Strided.of(other);
+		if(s != null){
+			for(int row = 0; row < rows; row++)
+				for(int col = 0, src = s.offset + row * s.rowStride, dst = row * cols; col < cols; col++, src += s.colStride)
+					values[dst + col] = (float) s.data[src];
+			return this;
+		}
+		if(other.isSparse()){
+			Arrays.fill(values, 0.0f);
+			other.forEachNonZero((elem, val) -> values[elem] = (float) val);
+			return this;
+		}
+		elemRange().forEach((elem) -> values[elem] = (float) other.internalGetValueAt(elem));
+		return this;
+	}
+
+	@Override
+	public double[] getValuesRowMajor(){
+		return FloatKernels.widen(values);
+	}
+
+	@Override
+	public MatrixDenseFloat clone(){
+		MatrixDenseFloat m = new MatrixDenseFloat(rows, cols);
+		System.arraycopy(values, 0, m.values, 0, elems);
+		return m;
+	}
+
+	@Override
+	public Matrix getRow(int row){
+		return getRowInto(row, new MatrixDenseFloat(1, cols));
+	}
+
+	@Override
+	public Matrix getColumn(int col){
+		return getColumnInto(col, new MatrixDenseFloat(rows, 1));
+	}
+
+	/**{@inheritDoc}
+	 * <br/>The product of two float matrices is computed in float, accumulated as set by {@link #ACCUMULATE_IN_DOUBLE},
+	 * that of a float and a dense double Matrix is computed in double; both return a MatrixDenseFloat.
+	 */
+	@Override
+	public Matrix multiply(Matrix b){
+		if(cols != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		if(b.floatValues() != null || Strided.of(b) != null)
+			return multiplyInto(b, new MatrixDenseFloat(rows, b.cols));
+		return super.multiply(b);
+	}
+
+	@Override
+	public Matrix transpose(){
+		return transposeInto(new MatrixDenseFloat(cols, rows));
+	}
+
+	@Override
+	public Matrix transposeInto(Matrix out){
+		float[] floats = out.floatValues();
+		if(floats == null || floats == values || out.rows != cols || out.cols != rows)
+			return super.transposeInto(out);
+		for(int row = 0; row < rows; row++)
+			for(int col = 0, src = row * cols; col < cols; col++)
+				floats[col * rows + row] = values[src + col];
+		return out;
+	}
+
+	@Override
+	public Matrix sum(Matrix b){
+		return sumInto(b, new MatrixDenseFloat(rows, cols));
+	}
+
+	@Override
+	public Matrix elementWise(DoubleUnaryOperator f){
+		return elementWiseInto(f, new MatrixDenseFloat(rows, cols));
+	}
+
+	@Override
+	public Matrix elementWise(DoubleBinaryOperator f, Matrix b){
+		return elementWiseInto(f, b, new MatrixDenseFloat(rows, cols));
+	}
+
+	@Override
+	public Matrix elementWise(DoubleTernaryOperator f, Matrix b, Matrix c){
+		return elementWiseInto(f, b, c, new MatrixDenseFloat(rows, cols));
+	}
+
+	@Override
+	public Matrix scalarOp(DoubleBinaryOperator f, double b){
+		return scalarOpInto(f, b, new MatrixDenseFloat(rows, cols));
+	}
+
+	/**{@inheritDoc}
+	 * <br/>If b is float as well, the products are accumulated as set by {@link #ACCUMULATE_IN_DOUBLE}, unless {@link #SUMMATION} is set.
+	 */
+	@Override
+	public double dot(Matrix b){
+		float[] floats = b.floatValues();
+		if(floats == null || SUMMATION != Summation.NAIVE)
+			return super.dot(b);
+		if(cols != b.rows)
+			throw new MatrixDimensionMismatchException();
+		if(rows != 1 || b.cols != 1)
+			throw new MatrixNotAVectorException();
+		return FloatKernels.dot(values, floats, ACCUMULATE_IN_DOUBLE);
+	}
+
+	/**{@inheritDoc}
+	 * <br/>The squares are accumulated as set by {@link #ACCUMULATE_IN_DOUBLE}, unless {@link #SUMMATION} is set.
+	 */
+	@Override
+	public double norm(){
+		if(SUMMATION != Summation.NAIVE)
+			return super.norm();
+		return Math.sqrt(FloatKernels.sum(values, true, ACCUMULATE_IN_DOUBLE));
+	}
+
+	/**{@inheritDoc}
+	 * <br/>SUM, MEAN and L2 are accumulated as set by {@link #ACCUMULATE_IN_DOUBLE}, unless {@link #SUMMATION} is set.
+	 */
+	@Override
+	public double reduce(DoubleReducer r){
+		if(SUMMATION == Summation.NAIVE){
+			if(r == DoubleReduction.SUM || r == DoubleReduction.MEAN)
+				return r.finish(FloatKernels.sum(values, false, ACCUMULATE_IN_DOUBLE), elems);
+			if(r == DoubleReduction.L2)
+				return r.finish(FloatKernels.sum(values, true, ACCUMULATE_IN_DOUBLE), elems);
+		}
+		return super.reduce(r);
+	}
+}
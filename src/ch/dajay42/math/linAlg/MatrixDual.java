@@ -0,0 +1,211 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import ch.dajay42.math.arithmetic.DoubleDual;
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleUnaryOp;
+
+/**Matrix of dual numbers primal + tangent*e, with e*e = 0, for forward-mode automatic differentiation:
+ * each operation computes its result and, alongside, the directional derivative of that result in the direction of the input tangents.
+ * <p/>Where a Matrix of {@link DoubleDual} would hold one object per element and allocate one per operation on it,
+ * a MatrixDual stores primals and tangents in two row-major double[], and computes each operation by array kernels:
+ * primals by those of Matrix, tangents by those of {@link DerivativeKernels}, products by GEMM.
+ * <br/>Element-wise operators other than the tagged ones of ch.dajay42.math.function are given together with their derivatives.
+ * <p/>To obtain a full Jacobian, evaluate once per input element, seeding the tangent with that element's unit Matrix;
+ * to obtain the gradient of a scalar with respect to many inputs, {@link GradientTape} takes a single pass instead.
+ * @author DaJay42
+ */
+public final class MatrixDual{
+
+	/**Number of Rows*/
+	public final int rows;
+	/**Number of Columns*/
+	public final int cols;
+
+	final double[] primal, tangent;
+
+	/**Creates a new MatrixDual of size rows*cols, zero in both primal and tangent.
+	 * @param rows rows
+	 * @param cols columns
+	 */
+	public MatrixDual(int rows, int cols){
+		if(rows <= 0 || cols <= 0)
+			throw new MatrixCreationException();
+		this.rows = rows;
+		this.cols = cols;
+		this.primal = new double[rows * cols];
+		this.tangent = new double[rows * cols];
+	}
+
+	/**Creates a new MatrixDual with copies of the given primal and tangent.
+	 * <p/>Runs in O(rows*cols).
+	 * @throws MatrixDimensionMismatchException if primal and tangent are not of the same size
+	 */
+	public static MatrixDual of(Matrix primal, Matrix tangent){
+		if(primal.rows != tangent.rows || primal.cols != tangent.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+		MatrixDual d = new MatrixDual(primal.rows, primal.cols);
+		copy(primal, d.primal);
+		copy(tangent, d.tangent);
+		return d;
+	}
+
+	/**Creates a new MatrixDual with a copy of the given primal and zero tangent, i.e. a constant.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public static MatrixDual constant(Matrix primal){
+		MatrixDual d = new MatrixDual(primal.rows, primal.cols);
+		copy(primal, d.primal);
+		return d;
+	}
+
+	private static void copy(Matrix m, double[] dst){
+		double[] v = m.denseValues();
+		System.arraycopy(v != null ? v : m.getValuesRowMajor(), 0, dst, 0, dst.length);
+	}
+
+	/**Returns a new Matrix equal to the primal of this.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public Matrix getPrimal(){
+		return Matrix.zeroes(rows, cols).fill(primal);
+	}
+
+	/**Returns a new Matrix equal to the tangent of this.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public Matrix getTangent(){
+		return Matrix.zeroes(rows, cols).fill(tangent);
+	}
+
+	/**Returns the element at (row, col) of this.
+	 * <p/>Runs in O(1).
+	 */
+	public DoubleDual getValueAt(int row, int col){
+		if(row < 0 || row >= rows || col < 0 || col >= cols)
+			throw new MatrixIndexOutOfBoundsException(row, col, rows, cols);
+		return new DoubleDual(primal[row * cols + col], tangent[row * cols + col]);
+	}
+
+	private void requireSameSize(MatrixDual b){
+		if(rows != b.rows || cols != b.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+	}
+
+	/**Returns this+b.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public MatrixDual sum(MatrixDual b){
+		requireSameSize(b);
+		MatrixDual c = new MatrixDual(rows, cols);
+		DenseKernels.binary(DoubleBinaryOp.ADD, primal, b.primal, c.primal);
+		DenseKernels.binary(DoubleBinaryOp.ADD, tangent, b.tangent, c.tangent);
+		return c;
+	}
+
+	/**Returns f applied to each element of this.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public MatrixDual elementWise(DoubleUnaryOp f){
+		MatrixDual c = new MatrixDual(rows, cols);
+		DenseKernels.unary(f, primal, c.primal);
+		DerivativeKernels.unary(f, primal, tangent, c.tangent);
+		return c;
+	}
+
+	/**Returns f applied to each element of this.
+	 * <p/>Runs in O(rows*cols*(f+df)).
+	 * @param f operator
+	 * @param df derivative of f
+	 */
+	public MatrixDual elementWise(DoubleUnaryOperator f, DoubleUnaryOperator df){
+		MatrixDual c = new MatrixDual(rows, cols);
+		for(int i = 0; i < primal.length; i++)
+			c.primal[i] = f.applyAsDouble(primal[i]);
+		DerivativeKernels.unary(df, primal, tangent, c.tangent);
+		return c;
+	}
+
+	/**Returns f applied to each pair of corresponding elements of this and b.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public MatrixDual elementWise(DoubleBinaryOp f, MatrixDual b){
+		requireSameSize(b);
+		MatrixDual c = new MatrixDual(rows, cols);
+		DenseKernels.binary(f, primal, b.primal, c.primal);
+		DerivativeKernels.binaryFirst(f, primal, b.primal, tangent, c.tangent);
+		DerivativeKernels.binarySecond(f, primal, b.primal, b.tangent, c.tangent);
+		return c;
+	}
+
+	/**Returns f applied to each pair of corresponding elements of this and b.
+	 * <p/>Runs in O(rows*cols*(f+dfa+dfb)).
+	 * @param f operator
+	 * @param dfa partial derivative of f in its first argument
+	 * @param dfb partial derivative of f in its second argument
+	 */
+	public MatrixDual elementWise(DoubleBinaryOperator f, DoubleBinaryOperator dfa, DoubleBinaryOperator dfb, MatrixDual b){
+		requireSameSize(b);
+		MatrixDual c = new MatrixDual(rows, cols);
+		for(int i = 0; i < primal.length; i++)
+			c.primal[i] = f.applyAsDouble(primal[i], b.primal[i]);
+		DerivativeKernels.binary(dfa, primal, b.primal, tangent, c.tangent);
+		DerivativeKernels.binary(dfb, primal, b.primal, b.tangent, c.tangent);
+		return c;
+	}
+
+	/**Returns f(e, s) for each element e of this, s being a constant.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	public MatrixDual scalarOp(DoubleBinaryOp f, double s){
+		MatrixDual c = new MatrixDual(rows, cols);
+		DenseKernels.scalar(f, primal, s, c.primal);
+		DerivativeKernels.scalar(f, primal, s, tangent, c.tangent);
+		return c;
+	}
+
+	/**Returns f(e, s) for each element e of this, s being a constant.
+	 * <p/>Runs in O(rows*cols*(f+df)).
+	 * @param f operator
+	 * @param df partial derivative of f in its first argument
+	 */
+	public MatrixDual scalarOp(DoubleBinaryOperator f, DoubleBinaryOperator df, double s){
+		MatrixDual c = new MatrixDual(rows, cols);
+		for(int i = 0; i < primal.length; i++)
+			c.primal[i] = f.applyAsDouble(primal[i], s);
+		DerivativeKernels.scalar(df, primal, s, tangent, c.tangent);
+		return c;
+	}
+
+	/**Returns the product this*b, whose tangent is tangent*b.primal + primal*b.tangent.
+	 * <p/>Runs in O(rows*cols*b.cols), three products.
+	 */
+	public MatrixDual multiply(MatrixDual b){
+		if(cols != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		MatrixDual c = new MatrixDual(rows, b.cols);
+		Strided p = new Strided(primal, 0, cols, 1, rows, cols), t = new Strided(tangent, 0, cols, 1, rows, cols);
+		Strided bp = new Strided(b.primal, 0, b.cols, 1, b.rows, b.cols), bt = new Strided(b.tangent, 0, b.cols, 1, b.rows, b.cols);
+		DenseGemm.multiply(p, bp, c.primal);
+		DenseGemm.multiply(t, bp, c.tangent);
+		DenseGemm.multiply(p, bt, c.tangent);
+		return c;
+	}
+
+	/**Returns f applied to all elements of this.
+	 * <p/>Runs in O(rows*cols).
+	 * @param f one of ADD, MUL, MIN and MAX
+	 * @throws IllegalArgumentException if f is not a reduction
+	 */
+	public DoubleDual aggregate(DoubleBinaryOp f){
+		if(!f.isReduction())
+			throw new IllegalArgumentException(f + " is not a reduction");
+		double r = DenseKernels.reduce(f, primal);
+		return new DoubleDual(r, DerivativeKernels.aggregateTangent(f, primal, r, tangent));
+	}
+}
@@ -4,27 +4,59 @@ import java.util.function.*;
 import java.util.stream.IntStream;
 
 import ch.dajay42.collections.*;
+import ch.dajay42.math.Summation;
 import ch.dajay42.math.function.*;
 
+/**Matrix whose values are computed on demand.
+ * <p/>Operations on a MatrixLazy do not compute anything; they record an expression DAG of {@link LazyNode}s,
+ * whose leaves are other matrices or functions of the element index.
+ * Single elements are computed by walking the DAG; {@link #eval()} compiles it into a {@link LazyProgram},
+ * which merges common subexpressions and evaluates the whole DAG chunk by chunk, in parallel.
+ * Point updates are collected in a sparse overlay at the root of the DAG.
+ * @author DaJay42
+ */
 public class MatrixLazy extends Matrix {
 	private static final long serialVersionUID = 1L;
 	
 	
-	private IntToDoubleFunction f;
+	/**Elements per tile of the cache of {@link #cacheIfLazy()}.*/
+	public static int CACHE_TILE_SIZE = 4 * LazyProgram.CHUNK;
+	
+	private LazyNode root;
 	
 	
 	@SuppressWarnings("WeakerAccess")
 	public MatrixLazy(int rows, int cols, IntToDoubleFunction f) {
-		super(rows,cols);
-		if(f == null)
-			throw new NullPointerException();
-		
-		this.f = f;
+		this(new LazyNode.FunctionLeaf(rows, cols, f));
 	}
 	
 	MatrixLazy(Matrix source){
-		super(source.rows,source.cols);
-		this.f = source::internalGetValueAt;
+		this(new LazyNode.MatrixLeaf(source, false));
+	}
+	
+	private MatrixLazy(LazyNode root){
+		super(root.rows, root.cols);
+		//the expression is evaluated by element index
+		assertElemIndexable();
+		this.root = root;
+	}
+	
+	/**Returns the root of the expression of this, for use in another expression.
+	 * <br/>Later point updates to this will not affect that expression.*/
+	LazyNode node(){
+		if(root instanceof LazyNode.Overlay)
+			((LazyNode.Overlay) root).seal();
+		return root;
+	}
+	
+	/**Returns the expression of m, for use as operand.*/
+	private static LazyNode node(Matrix m){
+		return m instanceof MatrixLazy ? ((MatrixLazy) m).node() : new LazyNode.MatrixLeaf(m, false);
+	}
+	
+	private void assertSameSize(Matrix b){
+		if(this.rows != b.rows || this.cols != b.cols)
+			throw new MatrixDimensionMismatchException();
 	}
 	
 	@Override
@@ -32,13 +64,46 @@ public class MatrixLazy extends Matrix {
 		return this;
 	}
 
+	/**Computes all values of this into a new dense Matrix.
+	 * <p/>Runs in O(rows*cols*nodes), in parallel if that exceeds PARALLEL_LIMIT.
+	 */
 	public Matrix eval(){
-		return Matrix.zeroes(rows, cols).fill((IntToDoubleFunction) this);
+		Matrix m = Matrix.zeroes(rows, cols, false);
+		LazyProgram.compile(root).run(m.denseValues());
+		return m;
+	}
+
+	@Override
+	public double[] getValuesRowMajor(){
+		double[] values = new double[elems];
+		LazyProgram.compile(root).run(values);
+		return values;
+	}
+	
+	/**{@inheritDoc}
+	 * <p/>Delegates to the source Matrix, if this is just a lazy wrapper of one.
+	 */
+	@Override
+	public int nonZeroCount(){
+		if(root instanceof LazyNode.MatrixLeaf && !((LazyNode.MatrixLeaf) root).transposed)
+			return ((LazyNode.MatrixLeaf) root).source.nonZeroCount();
+		return super.nonZeroCount();
+	}
+	
+	/**{@inheritDoc}
+	 * <p/>Delegates to the source Matrix, if this is just a lazy wrapper of one.
+	 */
+	@Override
+	public void forEachNonZero(IntDoubleConsumer f){
+		if(root instanceof LazyNode.MatrixLeaf && !((LazyNode.MatrixLeaf) root).transposed)
+			((LazyNode.MatrixLeaf) root).source.forEachNonZero(f);
+		else
+			super.forEachNonZero(f);
 	}
 
 	@Override
 	public double applyAsDouble(int elem) {
-		return f.applyAsDouble(elem);
+		return root.valueAt(elem);
 	}
 
 	@Override
@@ -48,7 +113,7 @@ public class MatrixLazy extends Matrix {
 
 	@Override
 	protected double internalGetValueAt(int elem) {
-		return f.applyAsDouble(elem);
+		return root.valueAt(elem);
 	}
 
 	@Override
@@ -58,8 +123,9 @@ public class MatrixLazy extends Matrix {
 
 	@Override
 	protected void internalSetValueAt(int elem, double val) {
-		final IntToDoubleFunction g = f;
-		f = (ee) -> ee == elem ? val : g.applyAsDouble(ee);
+		LazyNode.Overlay overlay = root instanceof LazyNode.Overlay ? ((LazyNode.Overlay) root).writable() : new LazyNode.Overlay(root);
+		overlay.set(elem, val);
+		root = overlay;
 	}
 	
 	@Override
@@ -84,44 +150,45 @@ public class MatrixLazy extends Matrix {
 	
 	@Override
 	protected double internalModValueAt(int elem, double off) {
-		final IntToDoubleFunction g = f;
-		final double v = g.applyAsDouble(elem) + off;
-		f = (ee) -> ee == elem ? v : g.applyAsDouble(ee);
+		final double v = root.valueAt(elem) + off;
+		internalSetValueAt(elem, v);
 		return v;
 	}
 
 	@Override
 	public MatrixLazy clone() {
-		return new MatrixLazy(rows, cols, f);
+		return new MatrixLazy(node());
 	}
 
 	@Override
 	public MatrixLazy getRow(int row) {
 		assertBounds(row, 0);
-		return new MatrixLazy(1, cols, (col) -> f.applyAsDouble(asElemIndex(row, col)));
+		final LazyNode n = node();
+		return new MatrixLazy(1, cols, (col) -> n.valueAt(asElemIndex(row, col)));
 	}
 
 	@Override
 	public MatrixLazy getColumn(int col) {
 		assertBounds(0, col);
-		return new MatrixLazy(rows, 1, (row) -> f.applyAsDouble(asElemIndex(row, col)));
+		final LazyNode n = node();
+		return new MatrixLazy(rows, 1, (row) -> n.valueAt(asElemIndex(row, col)));
 	}
 
 	@Override
 	public MatrixLazy fill(double d) {
-		f = (elem) -> d;
+		root = new LazyNode.ConstantLeaf(rows, cols, d);
 		return this;
 	}
 
 	@Override
 	public MatrixLazy fill(DoubleSupplier f) {
-		this.f = (elem) -> f.getAsDouble();
+		root = new LazyNode.FunctionLeaf(rows, cols, (elem) -> f.getAsDouble());
 		return this;
 	}
 
 	@Override
 	public MatrixLazy fill(IntToDoubleFunction f) {
-		this.f = f;
+		root = new LazyNode.FunctionLeaf(rows, cols, f);
 		return this;
 	}
 
@@ -130,7 +197,7 @@ public class MatrixLazy extends Matrix {
 		if(rows != values.length || cols != values[0].length)
 			throw new MatrixDimensionMismatchException();
 		
-		f = (elem) -> values[asRowIndex(elem)][asColIndex(elem)];
+		root = new LazyNode.FunctionLeaf(rows, cols, (elem) -> values[asRowIndex(elem)][asColIndex(elem)]);
 		return this;
 	}
 
@@ -139,21 +206,20 @@ public class MatrixLazy extends Matrix {
 		if(rows != other.rows || cols != other.cols)
 			throw new MatrixDimensionMismatchException();
 		
-		f = other::internalGetValueAt;
+		root = node(other);
 		return this;
 	}
 
+	/**{@inheritDoc}
+	 * <p/>The product is computed by {@link Matrix#multiply(Matrix)}, once, when first needed.
+	 */
 	@Override
-	public Matrix multiplySimple(Matrix b) {
-		return this.cacheIfLazy().internalMultiplySimple(b.lazy());
+	public MatrixLazy multiplySimple(Matrix b) {
+		return new MatrixLazy(new LazyNode.MatMul(root, node(b)));
 	}
 	
 	public MatrixLazy multiplySimple(MatrixLazy b) {
-		return this.cacheIfLazy().internalMultiplySimple(b.cacheIfLazy());
-	}
-
-	private MatrixLazy internalMultiplySimple(MatrixLazy b){
-		return new MatrixLazy(rows, b.cols, (elem) -> this.getRow(b.asColIndex(elem)).dot(b.getColumn(b.asRowIndex(elem)))).cacheIfLazy();
+		return multiplySimple((Matrix) b);
 	}
 	
 	
@@ -166,17 +232,27 @@ public class MatrixLazy extends Matrix {
 	public double dot(MatrixLazy b){
 		if(cols != b.rows || rows != 1 || b.cols != 1)
 			throw new MatrixDimensionMismatchException();
-		return IntStream.range(0, cols).mapToDouble((elem) -> this.f.applyAsDouble(elem) * b.f.applyAsDouble(elem)).sum();
+		if(SUMMATION != Summation.NAIVE)
+			return SUMMATION.sum(IntStream.range(0, cols).mapToDouble((elem) -> root.valueAt(elem) * b.root.valueAt(elem)).toArray());
+		return IntStream.range(0, cols).mapToDouble((elem) -> root.valueAt(elem) * b.root.valueAt(elem)).sum();
 	}
 
 	@Override
 	public MatrixLazy transpose() {
-		return new MatrixLazy(cols, rows, (elem) -> f.applyAsDouble(asRowIndex(elem) * rows + asColIndex(elem)));
+		return new MatrixLazy(new LazyNode.Transpose(node()));
+	}
+	
+	/**Same as {@link #transpose()}, which copies nothing until evaluated.*/
+	@Override
+	public MatrixLazy transposedView() {
+		return transpose();
 	}
 	
 	@SuppressWarnings("OptionalGetWithoutIsPresent")
 	public double aggregate(DoubleBinaryOperator f){
-		return IntStream.range(0, elems).mapToDouble(this.f).reduce(f).getAsDouble();
+		if(f == DoubleBinaryOp.ADD && SUMMATION != Summation.NAIVE)
+			return reduce(DoubleReduction.SUM);
+		return IntStream.range(0, elems).mapToDouble(root::valueAt).reduce(f).getAsDouble();
 	}
 
 	@Override
@@ -202,17 +278,14 @@ public class MatrixLazy extends Matrix {
 	}
 
 	public MatrixLazy inplaceSum(MatrixLazy b) {
-		if(this.rows != b.rows || this.cols != b.cols)
-			throw new MatrixDimensionMismatchException();
-
-		final IntToDoubleFunction g = f;
-		f = (elem) -> g.applyAsDouble(elem) + b.f.applyAsDouble(elem);
-		return this;
+		return this.inplaceSum((Matrix) b);
 	}
 
 	@Override
 	public MatrixLazy inplaceSum(Matrix b){
-		return this.inplaceSum(b.lazy());
+		assertSameSize(b);
+		root = new LazyNode.Binary(DoubleBinaryOp.ADD, root, node(b));
+		return this;
 	}
 
 	@Override
@@ -222,8 +295,7 @@ public class MatrixLazy extends Matrix {
 
 	@Override
 	public MatrixLazy inplaceElementWise(DoubleUnaryOperator f) {
-		final IntToDoubleFunction g = this.f;
-		this.f = (elem) -> f.applyAsDouble(g.applyAsDouble(elem));
+		root = new LazyNode.Unary(f, root);
 		return this;
 	}
 
@@ -233,16 +305,14 @@ public class MatrixLazy extends Matrix {
 	}
 
 	public MatrixLazy inplaceElementWise(DoubleBinaryOperator f, MatrixLazy b) {
-		if(this.rows != b.rows || this.cols != b.cols)
-			throw new MatrixDimensionMismatchException();
-		final IntToDoubleFunction g = this.f;
-		this.f = (elem) -> f.applyAsDouble(g.applyAsDouble(elem), b.f.applyAsDouble(elem));
-		return this;
+		return inplaceElementWise(f, (Matrix) b);
 	}
 
 	@Override
 	public MatrixLazy inplaceElementWise(DoubleBinaryOperator f, Matrix b){
-		return inplaceElementWise(f, b.lazy());
+		assertSameSize(b);
+		root = new LazyNode.Binary(f, root, node(b));
+		return this;
 	}
 	
 	@Override
@@ -252,16 +322,15 @@ public class MatrixLazy extends Matrix {
 	
 	@SuppressWarnings("WeakerAccess")
 	public MatrixLazy inplaceElementWise(DoubleTernaryOperator f, MatrixLazy b, MatrixLazy c) {
-		if(this.rows != b.rows || this.cols != b.cols || this.rows != c.rows || this.cols != c.cols)
-			throw new MatrixDimensionMismatchException();
-		final IntToDoubleFunction g = this.f;
-		this.f = (elem) -> f.applyAsDouble(g.applyAsDouble(elem), b.f.applyAsDouble(elem), c.f.applyAsDouble(elem));
-		return this;
+		return inplaceElementWise(f, (Matrix) b, (Matrix) c);
 	}
 
 	@Override
 	public MatrixLazy inplaceElementWise(DoubleTernaryOperator f, Matrix b, Matrix c){
-		return inplaceElementWise(f, b.lazy(), c.lazy());
+		assertSameSize(b);
+		assertSameSize(c);
+		root = new LazyNode.Ternary(f, root, node(b), node(c));
+		return this;
 	}
 
 	@Override
@@ -271,8 +340,7 @@ public class MatrixLazy extends Matrix {
 
 	@Override
 	public MatrixLazy inplaceScalarOp(DoubleBinaryOperator f, double b) {
-		final IntToDoubleFunction g = this.f;
-		this.f = (elem) -> f.applyAsDouble(g.applyAsDouble(elem), b);
+		root = new LazyNode.Scalar(f, root, b);
 		return this;
 	}
 
@@ -281,13 +349,32 @@ public class MatrixLazy extends Matrix {
 		return clone().inplaceScalarOp(f, b);
 	}
 	
+	/**Returns a MatrixLazy with the current values of this, each computed at most once, on first access.
+	 * <p/>Values are computed and kept in tiles of consecutive elements, so that huge matrices only occupy memory
+	 * for the tiles actually touched. Safe for parallel readers; each tile is computed exactly once.
+	 * @return cached copy of this
+	 */
 	@Override
 	public MatrixLazy cacheIfLazy(){
-		final FixedIntToDoubleCache cache = new FixedIntToDoubleCache(elems);
-		return new MatrixLazy(rows, cols, (elem) -> {
-			if(!cache.containsKey(elem))
-				cache.put(elem, f.applyAsDouble(elem));
-			return cache.get(elem);
+		return cacheIfLazy(0);
+	}
+	
+	/**Returns a MatrixLazy with the current values of this, computed on first access and kept in at most maxTiles tiles.
+	 * <br/>Once maxTiles tiles are cached, computing another one evicts a tile that was not used recently;
+	 * evicted tiles are recomputed if touched again.
+	 * @param maxTiles maximal number of tiles of CACHE_TILE_SIZE elements to keep, or 0 for unbounded
+	 * @return cached copy of this
+	 */
+	public MatrixLazy cacheIfLazy(int maxTiles){
+		final LazyNode n = node();
+		final LazyProgram[] program = new LazyProgram[1];
+		ChunkedIntToDoubleCache cache = new ChunkedIntToDoubleCache(elems, CACHE_TILE_SIZE, maxTiles, (from, tile, len) -> {
+			//racy, but at worst compiles twice: LazyProgram is immutable once constructed
+			LazyProgram p = program[0];
+			if(p == null)
+				program[0] = p = LazyProgram.compile(n);
+			p.run(from, tile, 0, len);
 		});
+		return new MatrixLazy(new LazyNode.CacheLeaf(rows, cols, cache));
 	}
 }
@@ -11,7 +11,8 @@ public class MatrixMaskedColView extends MatrixView{
 	
 	@Override
 	protected int transformElemIndex(int elem){
-		return asColIndex(elem) >= maskedCol ? elem + 1 : elem;
+		int row = asRowIndex(elem), col = asColIndex(elem);
+		return base.asElemIndex(transformRowIndex(row, col), transformColIndex(row, col));
 	}
 	
 	@Override
@@ -24,6 +25,16 @@ public class MatrixMaskedColView extends MatrixView{
 		return col >= maskedCol ? col + 1 : col;
 	}
 	
+	@Override
+	protected boolean isInvertible(){
+		return true;
+	}
+	
+	@Override
+	protected int inverseElemIndex(int baseRow, int baseCol){
+		return baseCol == maskedCol ? -1 : asElemIndex(baseRow, baseCol > maskedCol ? baseCol - 1 : baseCol);
+	}
+	
 	@Override
 	public boolean isLazy(){
 		return false;
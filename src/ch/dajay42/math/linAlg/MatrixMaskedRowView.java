@@ -24,6 +24,16 @@ public class MatrixMaskedRowView extends MatrixView{
 		return col;
 	}
 	
+	@Override
+	protected boolean isInvertible(){
+		return true;
+	}
+	
+	@Override
+	protected int inverseElemIndex(int baseRow, int baseCol){
+		return baseRow == maskedRow ? -1 : asElemIndex(baseRow > maskedRow ? baseRow - 1 : baseRow, baseCol);
+	}
+	
 	@Override
 	public boolean isLazy(){
 		return false;
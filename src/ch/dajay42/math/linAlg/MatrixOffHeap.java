@@ -0,0 +1,393 @@
+package ch.dajay42.math.linAlg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.Summation;
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleReduction;
+import ch.dajay42.math.function.IntDoubleConsumer;
+import ch.dajay42.math.function.IntIntDoubleConsumer;
+
+/**Dense Matrix stored outside the Java heap, either in native memory or in a memory-mapped file.
+ * <p/>Values are stored row-major as little-endian doubles, in segments of at most 2^SEGMENT_SHIFT values each,
+ * so that a MatrixOffHeap may hold up to rows*cols = (2^31-1)^2 elements.
+ * Such matrices are addressed by (row, col) or by long element index; an int element index still addresses
+ * the first Integer.MAX_VALUE elements. Reductions, counts and the non-zero traversals copy one row at a time
+ * out of the segments, so they work for any size; only operations that address every element by int index,
+ * such as {@link #getValuesRowMajor()}, reject larger matrices, see {@link Matrix#isElemIndexable()}.
+ * <p/>Mapping an existing file is instant: values are paged in by the operating system on first access,
+ * and changes to a writable mapping are written back to the file, at the latest on {@link #force()}.
+ * @author DaJay42
+ */
+public class MatrixOffHeap extends Matrix{
+
+	private static final long serialVersionUID = 1L;
+
+	/**log2 of the number of values per segment.*/
+	static final int SEGMENT_SHIFT = 27;
+
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	/**Number of elements, rows*cols.*/
+	public final long size;
+
+	private final transient DoubleBuffer[] segments;
+
+	private final transient MappedByteBuffer[] mapped;
+
+	private MatrixOffHeap(int rows, int cols, ByteBuffer[] buffers){
+		super(rows, cols);
+		this.size = (long) rows * cols;
+		this.segments = new DoubleBuffer[buffers.length];
+		for(int s = 0; s < buffers.length; s++)
+			segments[s] = buffers[s].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		this.mapped = buffers instanceof MappedByteBuffer[] ? (MappedByteBuffer[]) buffers : null;
+	}
+
+	/**Creates a new, zero-filled Matrix of size rows*cols in native memory.
+	 * @param rows rows
+	 * @param cols columns
+	 * @return new MatrixOffHeap
+	 */
+	public static MatrixOffHeap allocate(int rows, int cols){
+		long size = (long) rows * cols;
+		ByteBuffer[] buffers = new ByteBuffer[segmentCount(size)];
+		for(int s = 0; s < buffers.length; s++)
+			buffers[s] = ByteBuffer.allocateDirect((int) segmentLength(size, s) * Double.BYTES);
+		return new MatrixOffHeap(rows, cols, buffers);
+	}
+
+	/**Maps rows*cols little-endian doubles, starting at byte offset, from file.
+	 * <br/>If writable, the file is created or extended as necessary, and changes are written back to it;
+	 * otherwise the file must be large enough, and any attempt to modify the Matrix fails.
+	 * @param file file to map
+	 * @param offset byte offset of the first value
+	 * @param rows rows
+	 * @param cols columns
+	 * @param writable whether to map for writing
+	 * @return MatrixOffHeap backed by file
+	 * @throws IOException if the file cannot be opened or mapped
+	 */
+	public static MatrixOffHeap map(Path file, long offset, int rows, int cols, boolean writable) throws IOException{
+		long size = (long) rows * cols;
+		MappedByteBuffer[] buffers = new MappedByteBuffer[segmentCount(size)];
+		try(FileChannel channel = writable
+				? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)
+				: FileChannel.open(file, StandardOpenOption.READ)){
+			if(!writable && channel.size() < offset + size * Double.BYTES)
+				throw new IOException("File too small for a "+rows+"*"+cols+" Matrix at offset "+offset+": "+file);
+			FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+			for(int s = 0; s < buffers.length; s++)
+				buffers[s] = channel.map(mode, offset + ((long) s << SEGMENT_SHIFT) * Double.BYTES, segmentLength(size, s) * Double.BYTES);
+		}
+		return new MatrixOffHeap(rows, cols, buffers);
+	}
+
+	private static int segmentCount(long size){
+		return (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+	}
+
+	private static long segmentLength(long size, int s){
+		return Math.min(1L << SEGMENT_SHIFT, size - ((long) s << SEGMENT_SHIFT));
+	}
+
+	/**Returns true iff this is backed by a memory-mapped file.*/
+	public boolean isMapped(){
+		return mapped != null;
+	}
+
+	/**Writes any changes to a memory-mapped Matrix back to its file. Does nothing otherwise.*/
+	public void force(){
+		if(mapped != null)
+			for(MappedByteBuffer buffer : mapped)
+				if(!buffer.isReadOnly())
+					buffer.force();
+	}
+
+	/**Gets the value at long element index elem.
+	 * @param elem element index, row*cols+col
+	 * @return value
+	 */
+	public double getValueAt(long elem){
+		if(elem < 0 || elem >= size)
+			throw new MatrixIndexOutOfBoundsException((int) (elem / cols), (int) (elem % cols), rows, cols);
+		return get(elem);
+	}
+
+	/**Sets the value at long element index elem.
+	 * @param elem element index, row*cols+col
+	 * @param val new value
+	 */
+	public void setValueAt(long elem, double val){
+		if(elem < 0 || elem >= size)
+			throw new MatrixIndexOutOfBoundsException((int) (elem / cols), (int) (elem % cols), rows, cols);
+		set(elem, val);
+	}
+
+	private double get(long elem){
+		return segments[(int) (elem >>> SEGMENT_SHIFT)].get((int) (elem & SEGMENT_MASK));
+	}
+
+	private void set(long elem, double val){
+		segments[(int) (elem >>> SEGMENT_SHIFT)].put((int) (elem & SEGMENT_MASK), val);
+	}
+
+	@Override
+	protected double internalGetValueAt(int row, int col){
+		return get((long) row * cols + col);
+	}
+
+	@Override
+	protected double internalGetValueAt(int elem){
+		return get(elem);
+	}
+
+	@Override
+	protected void internalSetValueAt(int row, int col, double val){
+		set((long) row * cols + col, val);
+	}
+
+	@Override
+	protected void internalSetValueAt(int elem, double val){
+		set(elem, val);
+	}
+
+	@Override
+	protected double internalModValueAt(int row, int col, double off){
+		long elem = (long) row * cols + col;
+		double v = get(elem) + off;
+		set(elem, v);
+		return v;
+	}
+
+	@Override
+	protected double internalModValueAt(int elem, double off){
+		double v = get(elem) + off;
+		set(elem, v);
+		return v;
+	}
+
+	@Override
+	public boolean isLazy(){
+		return false;
+	}
+
+	@Override
+	public boolean isSparse(){
+		return false;
+	}
+
+	@Override
+	public boolean isView(){
+		return false;
+	}
+
+	/**Runs f on every row index, in parallel if size exceeds PARALLEL_LIMIT.*/
+	private void forEachRow(IntConsumer f){
+		(size > PARALLEL_LIMIT ? IntStream.range(0, rows).parallel() : IntStream.range(0, rows).sequential()).forEach(f);
+	}
+
+	/**Returns the results of rowOp on every row of this, copied out of the segments, folded in row order by combine.
+	 * Blocks of REDUCE_BLOCK rows run in parallel if size exceeds PARALLEL_LIMIT; combine must be associative.*/
+	private double foldRows(ToDoubleFunction<double[]> rowOp, DoubleBinaryOperator combine){
+		int blocks = (rows + REDUCE_BLOCK - 1) / REDUCE_BLOCK;
+		double[] partial = (size > PARALLEL_LIMIT ? IntStream.range(0, blocks).parallel() : IntStream.range(0, blocks).sequential()).mapToDouble((b) -> {
+			double[] buffer = new double[cols];
+			int row = b * REDUCE_BLOCK, end = Math.min(row + REDUCE_BLOCK, rows);
+			getRow(row, buffer, 0);
+			double acc = rowOp.applyAsDouble(buffer);
+			for(row++; row < end; row++){
+				getRow(row, buffer, 0);
+				acc = combine.applyAsDouble(acc, rowOp.applyAsDouble(buffer));
+			}
+			return acc;
+		}).toArray();
+		double r = partial[0];
+		for(int b = 1; b < partial.length; b++)
+			r = combine.applyAsDouble(r, partial[b]);
+		return r;
+	}
+
+	/**Runs in O(rows*cols*f), row by row, so for any size.*/
+	@Override
+	public double aggregate(DoubleBinaryOperator f){
+		if(f == DoubleBinaryOp.ADD && SUMMATION != Summation.NAIVE)
+			return reduce(DoubleReduction.SUM);
+		if(f instanceof DoubleBinaryOp && ((DoubleBinaryOp) f).isReduction())
+			return foldRows((row) -> DenseKernels.reduce((DoubleBinaryOp) f, row), f);
+		return foldRows((row) -> {
+			double acc = row[0];
+			for(int col = 1; col < row.length; col++)
+				acc = f.applyAsDouble(acc, row[col]);
+			return acc;
+		}, f);
+	}
+
+	/**Runs in O(rows*cols), row by row, so for any size.*/
+	@Override
+	public double norm(){
+		if(SUMMATION != Summation.NAIVE)
+			return reduce(DoubleReduction.L2);
+		return Math.sqrt(foldRows((row) -> DenseKernels.dot(row, row), Double::sum));
+	}
+
+	/**Runs in O(rows*cols), row by row, so for any size.*/
+	@Override
+	public long countWhere(DoublePredicate doublePredicate){
+		int blocks = (rows + REDUCE_BLOCK - 1) / REDUCE_BLOCK;
+		return (size > PARALLEL_LIMIT ? IntStream.range(0, blocks).parallel() : IntStream.range(0, blocks).sequential()).mapToLong((b) -> {
+			double[] buffer = new double[cols];
+			long count = 0;
+			for(int row = b * REDUCE_BLOCK, end = Math.min(row + REDUCE_BLOCK, rows); row < end; row++){
+				getRow(row, buffer, 0);
+				for(double v : buffer)
+					if(doublePredicate.test(v))
+						count++;
+			}
+			return count;
+		}).sum();
+	}
+
+	/**Runs in O(rows*cols), row by row.
+	 * @throws IllegalMatrixException if there are more than Integer.MAX_VALUE non-zero values;
+	 * {@link #countWhere(DoublePredicate)} counts them as a long.
+	 */
+	@Override
+	public int nonZeroCount(){
+		long count = countWhere((v) -> v != 0.0d);
+		if(count > Integer.MAX_VALUE)
+			throw new IllegalMatrixException("Matrix error: Matrix of size " + rows + "*" + cols
+					+ " has " + count + " non-zero values, more than Integer.MAX_VALUE.");
+		return (int) count;
+	}
+
+	/**Runs in O(rows*cols), row by row, so for any size.*/
+	@Override
+	public double getFilledness(){
+		return countWhere((v) -> v != 0.0d) / (double) size;
+	}
+
+	/**Runs in O(rows*cols).*/
+	@Override
+	public void forEachNonZero(IntDoubleConsumer f){
+		assertElemIndexable();
+		forEachNonZeroAt((row, col, val) -> f.accept(row * cols + col, val));
+	}
+
+	/**Runs in O(rows*cols), row by row, so for any size.*/
+	@Override
+	public void forEachNonZeroAt(IntIntDoubleConsumer f){
+		double[] buffer = new double[cols];
+		for(int row = 0; row < rows; row++){
+			getRow(row, buffer, 0);
+			for(int col = 0; col < cols; col++)
+				if(buffer[col] != 0.0d)
+					f.accept(row, col, buffer[col]);
+		}
+	}
+
+	@Override
+	public Matrix fill(double d){
+		forEachRow((row) -> {
+			long off = (long) row * cols;
+			for(int col = 0; col < cols; col++)
+				set(off + col, d);
+		});
+		return this;
+	}
+
+	@Override
+	public Matrix fill(DoubleSupplier f){
+		forEachRow((row) -> {
+			long off = (long) row * cols;
+			for(int col = 0; col < cols; col++)
+				set(off + col, f.getAsDouble());
+		});
+		return this;
+	}
+
+	@Override
+	public Matrix fill(double[] values){
+		if(size != values.length)
+			throw new MatrixDimensionMismatchException();
+		for(int s = 0, pos = 0; s < segments.length; s++){
+			DoubleBuffer segment = segments[s].duplicate();
+			segment.clear();
+			int len = segment.remaining();
+			segment.put(values, pos, len);
+			pos += len;
+		}
+		return this;
+	}
+
+	@Override
+	public Matrix fill(Matrix other){
+		if(rows != other.rows || cols != other.cols)
+			throw new MatrixDimensionMismatchException();
+		forEachRow((row) -> {
+			long off = (long) row * cols;
+			for(int col = 0; col < cols; col++)
+				set(off + col, other.internalGetValueAt(row, col));
+		});
+		return this;
+	}
+
+	@Override
+	public double[] getValuesRowMajor(){
+		assertElemIndexable();
+		double[] values = new double[elems];
+		for(int s = 0, pos = 0; s < segments.length; s++){
+			DoubleBuffer segment = segments[s].duplicate();
+			segment.clear();
+			int len = segment.remaining();
+			segment.get(values, pos, len);
+			pos += len;
+		}
+		return values;
+	}
+
+	/**Copies row row into dst[off..off+cols).
+	 * <p/>Runs in O(cols).
+	 */
+	public void getRow(int row, double[] dst, int off){
+		assertBounds(row, 0);
+		long elem = (long) row * cols;
+		for(int done = 0; done < cols; ){
+			DoubleBuffer segment = segments[(int) (elem >>> SEGMENT_SHIFT)].duplicate();
+			segment.position((int) (elem & SEGMENT_MASK));
+			int len = Math.min(cols - done, segment.remaining());
+			segment.get(dst, off + done, len);
+			done += len;
+			elem += len;
+		}
+	}
+
+	/**Copies src[off..off+cols) into row row.
+	 * <p/>Runs in O(cols).
+	 */
+	public void setRow(int row, double[] src, int off){
+		assertBounds(row, 0);
+		long elem = (long) row * cols;
+		for(int done = 0; done < cols; ){
+			DoubleBuffer segment = segments[(int) (elem >>> SEGMENT_SHIFT)].duplicate();
+			segment.position((int) (elem & SEGMENT_MASK));
+			int len = Math.min(cols - done, segment.remaining());
+			segment.put(src, off + done, len);
+			done += len;
+			elem += len;
+		}
+	}
+}
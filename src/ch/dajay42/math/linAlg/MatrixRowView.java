@@ -5,7 +5,7 @@ public class MatrixRowView extends MatrixView{
 	protected final int row;
 	
 	public MatrixRowView(int row, Matrix base){
-		super(1, base.cols, base);
+		super(1, base.cols, base, row, 0, false);
 		this.row = row;
 	}
 	
@@ -24,6 +24,16 @@ public class MatrixRowView extends MatrixView{
 		return col;
 	}
 	
+	@Override
+	protected boolean isInvertible(){
+		return true;
+	}
+	
+	@Override
+	protected int inverseElemIndex(int baseRow, int baseCol){
+		return baseRow == row ? baseCol : -1;
+	}
+	
 	@Override
 	public boolean isLazy(){
 		return false;
@@ -5,7 +5,7 @@ public class MatrixRowsView extends MatrixView{
 	protected final int startRow;
 	
 	public MatrixRowsView(int startRow, int rows, Matrix base){
-		super(rows, base.cols, base);
+		super(rows, base.cols, base, startRow, 0, false);
 		this.startRow = startRow;
 	}
 	
@@ -24,6 +24,16 @@ public class MatrixRowsView extends MatrixView{
 		return col;
 	}
 	
+	@Override
+	protected boolean isInvertible(){
+		return true;
+	}
+	
+	@Override
+	protected int inverseElemIndex(int baseRow, int baseCol){
+		return baseRow >= startRow && baseRow < startRow + rows ? asElemIndex(baseRow - startRow, baseCol) : -1;
+	}
+	
 	@Override
 	public boolean isLazy(){
 		return false;
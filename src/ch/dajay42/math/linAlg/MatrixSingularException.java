@@ -0,0 +1,12 @@
+package ch.dajay42.math.linAlg;
+
+/**Thrown to indicate that an operation requires a non-singular Matrix.
+ */
+public final class MatrixSingularException extends IllegalMatrixException{
+	
+	private static final long serialVersionUID = 1L;
+	
+	public MatrixSingularException(){
+		super("Matrix error: Matrix must not be singular.");
+	}
+}
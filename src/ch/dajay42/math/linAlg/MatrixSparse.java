@@ -1,63 +1,155 @@
 package ch.dajay42.math.linAlg;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
 
+import ch.dajay42.collections.NonNegativeLongMapDouble;
+import ch.dajay42.math.function.IntDoubleConsumer;
+import ch.dajay42.math.function.IntIntDoubleConsumer;
+
+/**Mutable sparse Matrix, that stores its non-zero values in a primitive hash map.
+ * <p/>Values are keyed by the long row*cols+col, which equals the element index where there is one,
+ * so that a MatrixSparse may have more than Integer.MAX_VALUE elements;
+ * such a Matrix is only accessed by row and column, see {@link Matrix#isElemIndexable()}.
+ * @author DaJay42
+ */
 public class MatrixSparse extends Matrix{
 
 	private static final long serialVersionUID = 1L;
 
-	private final Map<Integer, Double> values;
-	
-	
+	private final NonNegativeLongMapDouble values;
+
+
 	@SuppressWarnings("WeakerAccess")
 	public MatrixSparse(int rows, int cols) {
 		super(rows, cols);
-		values = new HashMap<>(); // TODO: is there any usable specialized int-double map implementation?
+		values = new NonNegativeLongMapDouble();
 	}
-	
+
+	private long key(int row, int col){
+		return (long) row * cols + col;
+	}
+
 	@Override
 	protected double internalGetValueAt(int row, int col) {
-		Double d = values.get(asElemIndex(row, col));
-		return (d == null ? 0.0d : d);
+		return values.get(key(row, col));
 	}
 
 	@Override
 	protected void internalSetValueAt(int row, int col, double val) {
-		if(val == 0.0d){
-			values.remove(asElemIndex(row, col));
-		}else{
-			values.put(asElemIndex(row, col), val);
-		}
+		values.put(key(row, col), val);
 	}
 
 	@Override
 	protected double internalGetValueAt(int elem) {
-		Double d = values.get(elem);
-		return (d == null ? 0.0d : d);
+		return values.get(elem);
 	}
 
 	@Override
 	protected void internalSetValueAt(int elem, double val) {
-		if(val == 0.0d){
-			values.remove(elem);
-		}else{
-			values.put(elem, val);
+		values.put(elem, val);
+	}
+
+	@Override
+	protected double internalModValueAt(int row, int col, double off){
+		return values.add(key(row, col), off);
+	}
+
+	@Override
+	protected double internalModValueAt(int elem, double off){
+		return values.add(elem, off);
+	}
+
+	/**Runs in O(1).*/
+	@Override
+	public int nonZeroCount(){
+		return values.size();
+	}
+
+	/**Runs in O(nonZeroCount()).*/
+	@Override
+	public void forEachNonZero(IntDoubleConsumer f){
+		assertElemIndexable();
+		values.forEachNonZero((key, val) -> f.accept((int) key, val));
+	}
+
+	/**Runs in O(nonZeroCount()).*/
+	@Override
+	public void forEachNonZeroAt(IntIntDoubleConsumer f){
+		values.forEachNonZero((key, val) -> f.accept((int) (key / cols), (int) (key % cols), val));
+	}
+
+	@Override
+	public Spliterator.OfInt nonZeroSpliterator(){
+		assertElemIndexable();
+		return new IntKeySpliterator(values.keySpliterator());
+	}
+
+	@Override
+	DoubleStream nonZeroValues(){
+		Spliterator.OfLong keys = values.keySpliterator();
+		return StreamSupport.longStream(keys, keys.estimateSize() > PARALLEL_LIMIT).mapToDouble(values::get);
+	}
+
+	@Override
+	public Matrix fill(double d){
+		if(d == 0.0d){
+			values.clear();
+			return this;
 		}
+		return super.fill(d);
 	}
-	
+
 	@Override
 	public boolean isLazy(){
 		return false;
 	}
-	
+
 	@Override
 	public boolean isSparse(){
 		return true;
 	}
-	
+
 	@Override
 	public boolean isView(){
 		return false;
 	}
+
+	/**Spliterator over the keys of a Matrix with element indices, which are all ints.*/
+	private static final class IntKeySpliterator implements Spliterator.OfInt{
+
+		private final Spliterator.OfLong keys;
+
+		IntKeySpliterator(Spliterator.OfLong keys){
+			this.keys = keys;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action){
+			return keys.tryAdvance((long key) -> action.accept((int) key));
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action){
+			keys.forEachRemaining((long key) -> action.accept((int) key));
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit(){
+			Spliterator.OfLong prefix = keys.trySplit();
+			return prefix != null ? new IntKeySpliterator(prefix) : null;
+		}
+
+		@Override
+		public long estimateSize(){
+			return keys.estimateSize();
+		}
+
+		@Override
+		public int characteristics(){
+			return keys.characteristics();
+		}
+	}
 }
@@ -0,0 +1,771 @@
+package ch.dajay42.math.linAlg;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**Streaming reader and writer for matrices in delimited text, such as CSV.
+ * <p/>Each line holds one row, its values separated by a single ASCII delimiter.
+ * Values may be surrounded by blanks and double quotes; empty values are read as NaN.
+ * Blank lines and lines starting with '#' are skipped, as are the first skipLines lines of the input.
+ * <br/>The number of columns is that of the first row; shorter rows are padded with zeroes, longer rows are an error.
+ * If the delimiter is a blank, values are separated by runs of blanks instead.
+ * <p/>Text is read and written in buffers of BUFFER_SIZE bytes, and parsed from bytes directly into the Matrix:
+ * values of up to 19 significant digits, which covers everything {@link Double#toString(double)} writes,
+ * are converted without creating a String, see {@link #parseDouble(byte[], int, int)}.
+ * <br/>Files may be split at line boundaries and parsed in parallel, see {@link #read(Path, char, int, boolean, boolean)}.
+ * Dense matrices with more than 2^31-1 elements are read into a {@link MatrixOffHeap}, sparse ones into a {@link MatrixCSR}.
+ * @see MatrixBinaryFormat
+ * @author DaJay42
+ */
+public final class MatrixTextFormat{
+
+	public static final char COMMA = ',', SEMICOLON = ';', TAB = '\t', SPACE = ' ';
+
+	/**Bytes staged per channel read or write.*/
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**Values per block, in which a dense Matrix of yet unknown size is collected.*/
+	private static final int BLOCK_VALUES = 1 << 18;
+
+	/**Bytes below which a file is not split any further for parallel parsing.*/
+	private static final long MIN_CHUNK_SIZE = 1 << 22;
+
+	/**Longest text a double is written as, "-2.2250738585072014E-308".*/
+	private static final int MAX_DOUBLE_CHARS = 24;
+
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	/**Range of decimal exponents q covered by the table of 5^q.*/
+	private static final int MIN_POWER = -342, MAX_POWER = 308;
+
+	/**5^q ~ (FIVE_HI[power]*2^64 + FIVE_LO[power]) * 2^FIVE_EXP[power], for i = q - MIN_POWER,
+	 * with the 128-bit mantissa truncated, and its highest bit set.*/
+	private static final long[] FIVE_HI, FIVE_LO;
+	private static final int[] FIVE_EXP;
+
+	static{
+		int n = MAX_POWER - MIN_POWER + 1;
+		FIVE_HI = new long[n];
+		FIVE_LO = new long[n];
+		FIVE_EXP = new int[n];
+		for(int q = MIN_POWER; q <= MAX_POWER; q++){
+			BigInteger p = BigInteger.valueOf(5).pow(Math.abs(q));
+			BigInteger t;
+			int exp;
+			if(q >= 0){
+				exp = p.bitLength() - 128;
+				t = exp >= 0 ? p.shiftRight(exp) : p.shiftLeft(-exp);
+			}else{
+				exp = -127 - p.bitLength();
+				t = BigInteger.ONE.shiftLeft(-exp).divide(p);
+			}
+			FIVE_HI[q - MIN_POWER] = t.shiftRight(64).longValue();
+			FIVE_LO[q - MIN_POWER] = t.longValue();
+			FIVE_EXP[q - MIN_POWER] = exp;
+		}
+	}
+
+	private MatrixTextFormat(){
+	}
+
+	private static byte checkDelimiter(char delimiter){
+		if(delimiter > 127 || delimiter == '\n' || delimiter == '\r' || delimiter == '"' || delimiter == '#'
+				|| delimiter == '.' || delimiter == '-' || delimiter == '+' || (delimiter >= '0' && delimiter <= '9'))
+			throw new IllegalArgumentException("Not a valid delimiter: '"+delimiter+"'.");
+		return (byte) delimiter;
+	}
+
+	// WRITING
+
+	/**Writes m to channel, one row per line, values separated by delimiter.
+	 * <br/>Integral values are written without fraction, all others as by {@link Double#toString(double)},
+	 * so that reading the text back yields the same values.
+	 * <p/>Runs in O(rows*cols).
+	 * @throws IOException if writing fails
+	 */
+	public static void write(Matrix m, WritableByteChannel channel, char delimiter) throws IOException{
+		final byte d = checkDelimiter(delimiter);
+		Sink sink = new Sink(channel);
+		double[] row = new double[m.cols];
+		for(int r = 0; r < m.rows; r++){
+			getRow(m, r, row);
+			for(int c = 0; c < row.length; c++){
+				if(c > 0)
+					sink.put(d);
+				sink.putDouble(row[c]);
+			}
+			sink.put((byte) '\n');
+		}
+		sink.flush();
+	}
+
+	/**Writes m to file, replacing its contents.
+	 * @throws IOException if writing fails
+	 * @see #write(Matrix, WritableByteChannel, char)
+	 */
+	public static void write(Matrix m, Path file, char delimiter) throws IOException{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+			write(m, channel, delimiter);
+		}
+	}
+
+	private static void getRow(Matrix m, int row, double[] dst){
+		double[] values = m.denseValues();
+		float[] floats;
+		if(values != null){
+			System.arraycopy(values, row * m.cols, dst, 0, m.cols);
+		}else if((floats = m.floatValues()) != null){
+			FloatKernels.widen(floats, row * m.cols, dst, 0, m.cols);
+		}else if(m instanceof MatrixOffHeap){
+			((MatrixOffHeap) m).getRow(row, dst, 0);
+		}else{
+			for(int col = 0; col < m.cols; col++)
+				dst[col] = m.internalGetValueAt(row, col);
+		}
+	}
+
+	private static void setRow(Matrix m, int row, double[] src, int off){
+		double[] values = m.denseValues();
+		float[] floats;
+		if(values != null){
+			System.arraycopy(src, off, values, row * m.cols, m.cols);
+		}else if((floats = m.floatValues()) != null){
+			FloatKernels.narrow(src, off, floats, row * m.cols, m.cols);
+		}else if(m instanceof MatrixOffHeap){
+			((MatrixOffHeap) m).setRow(row, src, off);
+		}else{
+			for(int col = 0; col < m.cols; col++)
+				m.internalSetValueAt(row, col, src[off + col]);
+		}
+	}
+
+	// READING
+
+	/**Reads a Matrix from channel, row by row.
+	 * <br/>As the number of rows is only known at the end, a dense Matrix is collected in blocks and copied once;
+	 * use {@link #readInto(ReadableByteChannel, char, int, Matrix)} to read into a Matrix of known size instead.
+	 * @param channel channel to read from
+	 * @param delimiter value separator
+	 * @param skipLines number of leading lines to skip, such as a header
+	 * @param sparse whether to collect only non-zero values into a {@link MatrixCSR}
+	 * @return new Matrix
+	 * @throws IOException if reading fails or the text is malformed
+	 */
+	public static Matrix read(ReadableByteChannel channel, char delimiter, int skipLines, boolean sparse) throws IOException{
+		final byte d = checkDelimiter(delimiter);
+		LineReader lines = new LineReader(channel);
+		lines.skip(skipLines);
+		if(!lines.nextData())
+			throw new IOException("Text Matrix holds no rows.");
+		final int cols = countValues(lines.buf, lines.start, lines.end, d);
+		return sparse ? readSparse(lines, d, cols) : readDense(lines, d, cols);
+	}
+
+	/**Reads a Matrix from file.
+	 * <br/>If parallel, the file is split at line boundaries into chunks of at least 4 MiB, which are parsed concurrently.
+	 * The chunks are then read twice, first to count their rows, then to parse them straight into the Matrix.
+	 * @param file file to read
+	 * @param delimiter value separator
+	 * @param skipLines number of leading lines to skip, such as a header
+	 * @param sparse whether to collect only non-zero values into a {@link MatrixCSR}
+	 * @param parallel whether to parse in parallel
+	 * @return new Matrix
+	 * @throws IOException if reading fails or the text is malformed
+	 */
+	public static Matrix read(Path file, char delimiter, int skipLines, boolean sparse, boolean parallel) throws IOException{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			return parallel ? readParallel(channel, checkDelimiter(delimiter), skipLines, sparse) : read(channel, delimiter, skipLines, sparse);
+		}
+	}
+
+	/**Reads a dense Matrix from a CSV file without header.
+	 * @throws IOException if reading fails or the text is malformed
+	 */
+	public static Matrix read(Path file) throws IOException{
+		return read(file, COMMA, 0, false, false);
+	}
+
+	/**Reads exactly out.rows rows of out.cols values from channel into out, row by row.
+	 * <br/>With a {@link MatrixOffHeap} as out, text larger than the heap can be read.
+	 * @return out
+	 * @throws IOException if reading fails, the text is malformed, or its size differs from that of out
+	 */
+	public static Matrix readInto(ReadableByteChannel channel, char delimiter, int skipLines, Matrix out) throws IOException{
+		final byte d = checkDelimiter(delimiter);
+		LineReader lines = new LineReader(channel);
+		lines.skip(skipLines);
+		double[] row = new double[out.cols];
+		int r = 0;
+		while(lines.nextData()){
+			if(r == out.rows)
+				throw new IOException("Text Matrix holds more than "+out.rows+" rows.");
+			parseLine(lines.buf, lines.start, lines.end, d, row, 0, out.cols, r);
+			setRow(out, r++, row, 0);
+		}
+		if(r < out.rows)
+			throw new IOException("Text Matrix holds "+r+" rows, expected "+out.rows+".");
+		return out;
+	}
+
+	private static Matrix allocate(int rows, int cols){
+		return (long) rows * cols > Integer.MAX_VALUE ? MatrixOffHeap.allocate(rows, cols) : Matrix.zeroes(rows, cols, false);
+	}
+
+	private static Matrix readDense(LineReader lines, byte delimiter, int cols) throws IOException{
+		final int blockRows = Math.max(1, BLOCK_VALUES / cols);
+		ArrayList<double[]> blocks = new ArrayList<>();
+		double[] block = null;
+		int rows = 0;
+		do{
+			if(rows == Integer.MAX_VALUE)
+				throw new IOException("Text Matrix holds too many rows.");
+			int r = rows % blockRows;
+			if(r == 0)
+				blocks.add(block = new double[blockRows * cols]);
+			parseLine(lines.buf, lines.start, lines.end, delimiter, block, r * cols, cols, rows++);
+		}while(lines.nextData());
+
+		Matrix m = allocate(rows, cols);
+		double[] values = m.denseValues();
+		for(int b = 0, row = 0; b < blocks.size(); b++){
+			int count = Math.min(blockRows, rows - row);
+			if(values != null){
+				System.arraycopy(blocks.get(b), 0, values, row * cols, count * cols);
+				row += count;
+			}else{
+				for(int r = 0; r < count; r++)
+					setRow(m, row++, blocks.get(b), r * cols);
+			}
+			blocks.set(b, null);
+		}
+		return m;
+	}
+
+	private static MatrixCSR readSparse(LineReader lines, byte delimiter, int cols) throws IOException{
+		double[] row = new double[cols];
+		NonZeros nz = new NonZeros(1024);
+		int rows = 0;
+		do{
+			if(rows == Integer.MAX_VALUE)
+				throw new IOException("Text Matrix holds too many rows.");
+			parseLine(lines.buf, lines.start, lines.end, delimiter, row, 0, cols, rows);
+			nz.addRow(row, rows++);
+		}while(lines.nextData());
+		return new MatrixCSR(rows, cols, Arrays.copyOf(nz.rowPtr, rows + 1), Arrays.copyOf(nz.colIdx, nz.size), Arrays.copyOf(nz.values, nz.size));
+	}
+
+	private static Matrix readParallel(FileChannel channel, byte delimiter, int skipLines, boolean sparse) throws IOException{
+		final long size = channel.size();
+		LineReader header = new LineReader(new FileRange(channel, 0, size));
+		header.skip(skipLines);
+		final long start = header.position();
+
+		final int chunks = (int) Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4L, (size - start) / MIN_CHUNK_SIZE));
+		final long[] bounds = new long[chunks + 1];
+		bounds[0] = start;
+		bounds[chunks] = size;
+		for(int k = 1; k < chunks; k++)
+			bounds[k] = nextLine(channel, Math.max(bounds[k - 1], start + (size - start) / chunks * k), size);
+
+		//first pass: rows per chunk, and values in the first row
+		final int[] chunkRows = new int[chunks], chunkCols = new int[chunks];
+		forEachChunk(chunks, (k) -> {
+			LineReader lines = new LineReader(new FileRange(channel, bounds[k], bounds[k + 1]));
+			int rows = 0;
+			while(lines.nextData()){
+				if(rows == 0)
+					chunkCols[k] = countValues(lines.buf, lines.start, lines.end, delimiter);
+				if(++rows == Integer.MAX_VALUE)
+					throw new IOException("Text Matrix holds too many rows.");
+			}
+			chunkRows[k] = rows;
+		});
+		final int[] firstRow = new int[chunks + 1];
+		int cols = 0;
+		for(int k = 0; k < chunks; k++){
+			if((long) firstRow[k] + chunkRows[k] > Integer.MAX_VALUE)
+				throw new IOException("Text Matrix holds too many rows.");
+			firstRow[k + 1] = firstRow[k] + chunkRows[k];
+			if(cols == 0)
+				cols = chunkCols[k];
+		}
+		final int rows = firstRow[chunks];
+		if(rows == 0)
+			throw new IOException("Text Matrix holds no rows.");
+		final int n = cols;
+
+		//second pass: parse each chunk into its rows
+		if(!sparse){
+			final Matrix m = allocate(rows, n);
+			final double[] values = m.denseValues();
+			forEachChunk(chunks, (k) -> {
+				LineReader lines = new LineReader(new FileRange(channel, bounds[k], bounds[k + 1]));
+				double[] row = values == null ? new double[n] : null;
+				for(int r = firstRow[k]; lines.nextData(); r++){
+					if(values != null){
+						parseLine(lines.buf, lines.start, lines.end, delimiter, values, r * n, n, r);
+					}else{
+						parseLine(lines.buf, lines.start, lines.end, delimiter, row, 0, n, r);
+						setRow(m, r, row, 0);
+					}
+				}
+			});
+			return m;
+		}
+
+		final NonZeros[] parts = new NonZeros[chunks];
+		forEachChunk(chunks, (k) -> {
+			LineReader lines = new LineReader(new FileRange(channel, bounds[k], bounds[k + 1]));
+			double[] row = new double[n];
+			NonZeros nz = parts[k] = new NonZeros(Math.max(16, chunkRows[k]));
+			for(int r = 0; lines.nextData(); r++){
+				parseLine(lines.buf, lines.start, lines.end, delimiter, row, 0, n, firstRow[k] + r);
+				nz.addRow(row, r);
+			}
+		});
+		long nnz = 0;
+		for(NonZeros nz : parts)
+			nnz += nz.size;
+		if(nnz > Integer.MAX_VALUE - 8)
+			throw new IOException("Text Matrix holds too many non-zero values for a MatrixCSR.");
+		int[] rowPtr = new int[rows + 1], colIdx = new int[(int) nnz];
+		double[] values = new double[(int) nnz];
+		for(int k = 0; k < chunks; k++){
+			int off = rowPtr[firstRow[k]];
+			for(int r = 1; r <= chunkRows[k]; r++)
+				rowPtr[firstRow[k] + r] = off + parts[k].rowPtr[r];
+			System.arraycopy(parts[k].colIdx, 0, colIdx, off, parts[k].size);
+			System.arraycopy(parts[k].values, 0, values, off, parts[k].size);
+			parts[k] = null;
+		}
+		return new MatrixCSR(rows, n, rowPtr, colIdx, values);
+	}
+
+	private interface ChunkTask{
+		void run(int chunk) throws IOException;
+	}
+
+	private static void forEachChunk(int chunks, ChunkTask task) throws IOException{
+		try{
+			IntStream.range(0, chunks).parallel().forEach((k) -> {
+				try{
+					task.run(k);
+				}catch(IOException e){
+					throw new UncheckedIOException(e);
+				}
+			});
+		}catch(UncheckedIOException e){
+			throw e.getCause();
+		}
+	}
+
+	/**Returns the offset of the first line that starts at or after position.*/
+	private static long nextLine(FileChannel channel, long position, long end) throws IOException{
+		if(position == 0)
+			return 0;
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		for(long p = position - 1; p < end; ){
+			buffer.clear();
+			int n = channel.read(buffer, p);
+			if(n < 0)
+				break;
+			for(int i = 0; i < n; i++)
+				if(buffer.get(i) == '\n')
+					return p + i + 1;
+			p += n;
+		}
+		return end;
+	}
+
+	// PARSING
+
+	private static boolean isBlank(byte c){
+		return c == ' ' || c == '\t';
+	}
+
+	private static boolean isDigit(byte c){
+		return c >= '0' && c <= '9';
+	}
+
+	/**Returns the number of values on the line b[from..to).*/
+	private static int countValues(byte[] b, int from, int to, byte delimiter){
+		if(isBlank(delimiter)){
+			int n = 0;
+			for(int p = from; p < to; ){
+				while(p < to && isBlank(b[p]))
+					p++;
+				if(p < to)
+					n++;
+				while(p < to && !isBlank(b[p]))
+					p++;
+			}
+			return n;
+		}
+		int n = 1;
+		for(int p = from; p < to; p++)
+			if(b[p] == delimiter)
+				n++;
+		return n;
+	}
+
+	/**Parses the values on the line b[from..to) into dst[off..off+cols), padding missing values with zeroes.
+	 * @param row index of the row, for error messages
+	 * @throws IOException if the line holds more than cols values or a malformed value
+	 */
+	private static void parseLine(byte[] b, int from, int to, byte delimiter, double[] dst, int off, int cols, int row) throws IOException{
+		final boolean blanks = isBlank(delimiter);
+		int n = 0;
+		int p = from;
+		while(true){
+			if(blanks){
+				while(p < to && isBlank(b[p]))
+					p++;
+				if(p == to)
+					break;
+			}
+			int q = p;
+			while(q < to && b[q] != delimiter && !(blanks && isBlank(b[q])))
+				q++;
+			if(n == cols)
+				throw new IOException("Row "+row+" holds more than "+cols+" values.");
+			dst[off + n++] = parseValue(b, p, q, row);
+			if(q == to)
+				break;
+			p = q + 1;
+		}
+		Arrays.fill(dst, off + n, off + cols, 0.0d);
+	}
+
+	private static double parseValue(byte[] b, int from, int to, int row) throws IOException{
+		while(from < to && isBlank(b[from]))
+			from++;
+		while(to > from && isBlank(b[to - 1]))
+			to--;
+		if(to - from >= 2 && b[from] == '"' && b[to - 1] == '"'){
+			from++;
+			to--;
+		}
+		if(from == to)
+			return Double.NaN;
+		try{
+			return parseDouble(b, from, to);
+		}catch(NumberFormatException e){
+			throw new IOException("Malformed value \""+new String(b, from, to - from, StandardCharsets.ISO_8859_1)+"\" in row "+row+".");
+		}
+	}
+
+	/**Parses the decimal number in b[from..to), as {@link Double#parseDouble(String)} would.
+	 * <br/>Numbers m*10^q with at most 19 significant digits are converted exactly:
+	 * by a single, correctly rounded multiplication or division if m &lt;= 2^53 and |q| &lt;= 22,
+	 * otherwise by multiplying m with a 128-bit approximation of 5^q, as by Eisel and Lemire,
+	 * unless the truncated product is too close to a tie to round it correctly.
+	 * Those, longer numbers, subnormal results, as well as NaN, Infinity and malformed numbers,
+	 * are handed to {@link Double#parseDouble(String)}.
+	 * <p/>Runs in O(to-from).
+	 * @throws NumberFormatException if b[from..to) is not a number
+	 */
+	static double parseDouble(byte[] b, int from, int to){
+		int i = from;
+		boolean negative = false;
+		if(i < to && (b[i] == '-' || b[i] == '+'))
+			negative = b[i++] == '-';
+		long mantissa = 0;
+		int digits = 0, exponent = 0;
+		boolean any = false;
+		for(; i < to && isDigit(b[i]); i++){
+			any = true;
+			if(digits < 19){
+				mantissa = mantissa * 10 + (b[i] - '0');
+				if(mantissa != 0)
+					digits++;
+			}else if(b[i] == '0'){
+				exponent++;
+			}else{
+				return parseSlow(b, from, to);
+			}
+		}
+		if(i < to && b[i] == '.'){
+			for(i++; i < to && isDigit(b[i]); i++){
+				any = true;
+				if(digits < 19){
+					mantissa = mantissa * 10 + (b[i] - '0');
+					if(mantissa != 0)
+						digits++;
+					exponent--;
+				}else if(b[i] != '0'){
+					return parseSlow(b, from, to);
+				}
+			}
+		}
+		if(!any)
+			return parseSlow(b, from, to);
+		if(i < to && (b[i] == 'e' || b[i] == 'E')){
+			boolean negativeExponent = false;
+			if(++i < to && (b[i] == '-' || b[i] == '+'))
+				negativeExponent = b[i++] == '-';
+			if(i == to || !isDigit(b[i]))
+				return parseSlow(b, from, to);
+			int e = 0;
+			for(; i < to && isDigit(b[i]); i++)
+				if(e < 100000)
+					e = e * 10 + (b[i] - '0');
+			exponent += negativeExponent ? -e : e;
+		}
+		if(i != to)
+			return parseSlow(b, from, to);
+		if(mantissa == 0)
+			return negative ? -0.0d : 0.0d;
+		if(Long.compareUnsigned(mantissa, 1L << 53) <= 0 && exponent >= -22 && exponent <= 22){
+			double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+			return negative ? -value : value;
+		}
+		if(exponent < MIN_POWER || exponent > MAX_POWER)
+			return parseSlow(b, from, to);
+
+		//m*5^q*2^q, with the 192-bit product of m and the table entry truncated to its upper 128 bits.
+		//As the table entry is truncated by less than 1, the product is less than 2^64 too small,
+		//which can carry at most 1 into the middle word, and nothing into the upper one unless middle is all ones.
+		final int power = exponent - MIN_POWER;
+		final int lz = Long.numberOfLeadingZeros(mantissa);
+		final long m = mantissa << lz;
+		final long lowHigh = unsignedMultiplyHigh(m, FIVE_LO[power]);
+		final long highLow = m * FIVE_HI[power];
+		final long middle = highLow + lowHigh;
+		final long upper = unsignedMultiplyHigh(m, FIVE_HI[power]) + (Long.compareUnsigned(middle, highLow) < 0 ? 1 : 0);
+		if(middle == -1L)
+			return parseSlow(b, from, to);
+
+		//upper holds 54 significant bits and a round bit; all bits below may only all be zero at a tie
+		final int upperBit = (int) (upper >>> 63);
+		final int shift = upperBit + 9;
+		long bits = upper >>> shift;
+		if((upper & ((1L << shift) - 1)) == 0 && middle == 0 && (bits & 1) == 1)
+			return parseSlow(b, from, to);
+		bits = (bits + 1) >>> 1;
+		int binaryExponent = 138 + upperBit + FIVE_EXP[power] + exponent - lz + 52 + 1023;
+		if(bits == 1L << 53){
+			bits >>>= 1;
+			binaryExponent++;
+		}
+		if(binaryExponent < 1 || binaryExponent > 2046)
+			return parseSlow(b, from, to);
+		bits = (bits & ~(1L << 52)) | (long) binaryExponent << 52;
+		return Double.longBitsToDouble(negative ? bits | Long.MIN_VALUE : bits);
+	}
+
+	private static long unsignedMultiplyHigh(long a, long b){
+		return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+	}
+
+	private static double parseSlow(byte[] b, int from, int to){
+		return Double.parseDouble(new String(b, from, to - from, StandardCharsets.ISO_8859_1));
+	}
+
+	// BUFFERING
+
+	/**Non-zero values of consecutive rows, in growing CSR arrays.*/
+	private static final class NonZeros{
+		int[] rowPtr;
+		int[] colIdx = new int[1024];
+		double[] values = new double[1024];
+		int size = 0;
+
+		NonZeros(int rows){
+			rowPtr = new int[rows + 1];
+		}
+
+		void addRow(double[] row, int r) throws IOException{
+			for(int col = 0; col < row.length; col++){
+				if(row[col] == 0.0d)
+					continue;
+				if(size == values.length){
+					if(size >= Integer.MAX_VALUE - 8)
+						throw new IOException("Text Matrix holds too many non-zero values for a MatrixCSR.");
+					int capacity = (int) Math.min(Integer.MAX_VALUE - 8, size + (long) (size >> 1));
+					colIdx = Arrays.copyOf(colIdx, capacity);
+					values = Arrays.copyOf(values, capacity);
+				}
+				colIdx[size] = col;
+				values[size++] = row[col];
+			}
+			if(r + 1 == rowPtr.length)
+				rowPtr = Arrays.copyOf(rowPtr, (int) Math.min(Integer.MAX_VALUE - 8, rowPtr.length + (long) (rowPtr.length >> 1) + 1));
+			rowPtr[r + 1] = size;
+		}
+	}
+
+	/**Reads lines from a channel into a growing byte buffer.
+	 * <br/>After {@link #next()}, the current line, without its line terminator, is buf[start..end).*/
+	private static final class LineReader{
+		final ReadableByteChannel channel;
+		byte[] buf = new byte[BUFFER_SIZE];
+		int start, end;
+		private int pos = 0, scan = 0, limit = 0;
+		private long offset = 0;
+		private boolean eof = false;
+
+		LineReader(ReadableByteChannel channel){
+			this.channel = channel;
+		}
+
+		/**Returns the channel position of the next line, relative to where this started reading.*/
+		long position(){
+			return offset + pos;
+		}
+
+		boolean next() throws IOException{
+			while(true){
+				while(scan < limit && buf[scan] != '\n')
+					scan++;
+				if(scan < limit || (eof && pos < limit)){
+					start = pos;
+					end = scan;
+					pos = scan = Math.min(scan + 1, limit);
+					if(end > start && buf[end - 1] == '\r')
+						end--;
+					return true;
+				}
+				if(eof)
+					return false;
+				fill();
+			}
+		}
+
+		/**Advances to the next line that holds values, skipping blank lines and comments.*/
+		boolean nextData() throws IOException{
+			while(next()){
+				int p = start;
+				while(p < end && isBlank(buf[p]))
+					p++;
+				if(p < end && buf[p] != '#')
+					return true;
+			}
+			return false;
+		}
+
+		void skip(int lines) throws IOException{
+			for(int i = 0; i < lines && next(); i++);
+		}
+
+		private void fill() throws IOException{
+			if(pos > 0){
+				System.arraycopy(buf, pos, buf, 0, limit - pos);
+				offset += pos;
+				limit -= pos;
+				scan -= pos;
+				pos = 0;
+			}
+			if(limit == buf.length)
+				buf = Arrays.copyOf(buf, buf.length * 2);
+			int n = channel.read(ByteBuffer.wrap(buf, limit, buf.length - limit));
+			if(n < 0)
+				eof = true;
+			else
+				limit += n;
+		}
+	}
+
+	/**Reads the bytes [position, end) of a FileChannel by positional reads,
+	 * so that any number of FileRanges may read the same channel concurrently.*/
+	private static final class FileRange implements ReadableByteChannel{
+		final FileChannel channel;
+		long position;
+		final long end;
+
+		FileRange(FileChannel channel, long position, long end){
+			this.channel = channel;
+			this.position = position;
+			this.end = end;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException{
+			if(position >= end)
+				return -1;
+			int limit = dst.limit();
+			if(dst.remaining() > end - position)
+				dst.limit(dst.position() + (int) (end - position));
+			int n = channel.read(dst, position);
+			dst.limit(limit);
+			if(n < 0)
+				return -1;
+			position += n;
+			return n;
+		}
+
+		@Override
+		public boolean isOpen(){
+			return channel.isOpen();
+		}
+
+		@Override
+		public void close(){
+		}
+	}
+
+	/**Staging buffer in front of a channel.*/
+	private static final class Sink{
+		final byte[] buf = new byte[BUFFER_SIZE];
+		final WritableByteChannel channel;
+		int pos = 0;
+
+		Sink(WritableByteChannel channel){
+			this.channel = channel;
+		}
+
+		void ensure(int bytes) throws IOException{
+			if(buf.length - pos < bytes)
+				flush();
+		}
+
+		void flush() throws IOException{
+			ByteBuffer buffer = ByteBuffer.wrap(buf, 0, pos);
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			pos = 0;
+		}
+
+		void put(byte b) throws IOException{
+			ensure(1);
+			buf[pos++] = b;
+		}
+
+		void putDouble(double v) throws IOException{
+			ensure(MAX_DOUBLE_CHARS);
+			if(v == (long) v && Math.abs(v) < 1e15 && Double.doubleToRawLongBits(v) != Long.MIN_VALUE){
+				putLong((long) v);
+				return;
+			}
+			String s = Double.toString(v);
+			for(int i = 0; i < s.length(); i++)
+				buf[pos++] = (byte) s.charAt(i);
+		}
+
+		private void putLong(long v){
+			if(v < 0){
+				buf[pos++] = '-';
+				v = -v;
+			}
+			int end = pos;
+			for(long rest = v; rest != 0 || end == pos; rest /= 10)
+				end++;
+			for(int p = end - 1; p >= pos; p--, v /= 10)
+				buf[p] = (byte) ('0' + v % 10);
+			pos = end;
+		}
+	}
+}
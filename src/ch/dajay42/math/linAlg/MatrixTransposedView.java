@@ -3,7 +3,13 @@ package ch.dajay42.math.linAlg;
 public class MatrixTransposedView extends MatrixView{
 	
 	public MatrixTransposedView(Matrix base){
-		super(base.cols, base.rows, base);
+		super(base.cols, base.rows, base, 0, 0, true);
+	}
+	
+	/**Returns base, without copying.*/
+	@Override
+	public Matrix transposedView(){
+		return base;
 	}
 	
 	@Override
@@ -21,6 +27,16 @@ public class MatrixTransposedView extends MatrixView{
 		return row;
 	}
 	
+	@Override
+	protected boolean isInvertible(){
+		return true;
+	}
+	
+	@Override
+	protected int inverseElemIndex(int baseRow, int baseCol){
+		return asElemIndex(baseCol, baseRow);
+	}
+	
 	@Override
 	public boolean isLazy(){
 		return false;
@@ -1,9 +1,30 @@
 package ch.dajay42.math.linAlg;
 
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.function.IntDoubleConsumer;
+
+/**Matrix whose entries are those of an underlying Matrix base, rearranged by an index transform.
+ * <p/>A View that maps (row, col) affinely onto base, such as a row, column, block or transposed View,
+ * is strided if base is dense or itself a strided View: it then addresses the backing array of the dense Matrix
+ * at the bottom of the chain directly, through a single descriptor (offset, rowStride, colStride)
+ * composed at construction, rather than going through every View in between for each element.
+ * Bulk fills and copies of strided Views are done row by row, with System.arraycopy where rows are contiguous.
+ * <br/>Other Views, and Views of those, go through base for each element.
+ * @author DaJay42
+ */
 public abstract class MatrixView extends Matrix{
 	
 	protected final Matrix base;
 	
+	/**Backing array addressed by this, or null if this is not strided.*/
+	final double[] data;
+	
+	/**Descriptor of a strided View: this(row, col) = data[offset + row*rowStride + col*colStride].*/
+	final int offset, rowStride, colStride;
+	
 	/**
 	 * Create a MatrixView of size rows*cols,
 	 * with underlying Matrix base.
@@ -14,9 +35,62 @@ public abstract class MatrixView extends Matrix{
 	protected MatrixView(int rows, int cols, Matrix base){
 		super(rows, cols);
 		this.base = base;
+		this.data = null;
+		this.offset = this.rowStride = this.colStride = 0;
+	}
+	
+	/**
+	 * Create a MatrixView of size rows*cols, with underlying Matrix base,
+	 * such that this(row, col) = base(rowOff + row, colOff + col),
+	 * or this(row, col) = base(rowOff + col, colOff + row) if transposed.
+	 * <br/>The View is strided if base is dense or a strided View, and the View lies within base.
+	 * @param rows number of rows in the view
+	 * @param cols number of cols in the view
+	 * @param base underlying matrix
+	 * @param rowOff row of base at row 0 of this
+	 * @param colOff column of base at column 0 of this
+	 * @param transposed whether rows of this are columns of base
+	 */
+	protected MatrixView(int rows, int cols, Matrix base, int rowOff, int colOff, boolean transposed){
+		super(rows, cols);
+		this.base = base;
+		double[] baseData;
+		int baseOffset = 0, baseRowStride = base.cols, baseColStride = 1;
+		if(base instanceof MatrixView){
+			MatrixView view = (MatrixView) base;
+			baseData = view.data;
+			baseOffset = view.offset;
+			baseRowStride = view.rowStride;
+			baseColStride = view.colStride;
+		}else{
+			baseData = base.denseValues();
+		}
+		boolean within = rowOff >= 0 && colOff >= 0
+				&& rowOff + (transposed ? cols : rows) <= base.rows && colOff + (transposed ? rows : cols) <= base.cols;
+		if(baseData != null && within){
+			this.data = baseData;
+			this.offset = baseOffset + rowOff * baseRowStride + colOff * baseColStride;
+			this.rowStride = transposed ? baseColStride : baseRowStride;
+			this.colStride = transposed ? baseRowStride : baseColStride;
+		}else{
+			this.data = null;
+			this.offset = this.rowStride = this.colStride = 0;
+		}
+	}
+	
+	/**Returns true iff this View addresses the backing array of a dense Matrix directly.
+	 * @return iff this is strided*/
+	public boolean isStrided(){
+		return data != null;
+	}
+	
+	@Override
+	Object storage(){
+		return base.storage();
 	}
 	
 	/**Returns the element index of base corresponding to index elem of this.
+	 * Only called if base is {@link #isElemIndexable()}.
 	 * May throw {@link MatrixIndexOutOfBoundsException} if appropriate.
 	 * @param elem element index in this
 	 * @return element index in base
@@ -39,24 +113,173 @@ public abstract class MatrixView extends Matrix{
 	 */
 	protected abstract int transformColIndex(int row, int col);
 	
+	/**Returns true iff every entry of base is visible at most once in this,
+	 * and {@link #inverseElemIndex(int, int)} is implemented accordingly.
+	 * @return iff this View can be inverted
+	 */
+	protected boolean isInvertible(){
+		return false;
+	}
+	
+	/**Returns the element index of this corresponding to indices baseRow,baseCol of base,
+	 * or -1 if that entry of base is not visible in this.
+	 * Only called if {@link #isInvertible()} returns true.
+	 * @param baseRow row index in base
+	 * @param baseCol column index in base
+	 * @return element index in this, or -1
+	 */
+	protected int inverseElemIndex(int baseRow, int baseCol){
+		throw new UnsupportedOperationException();
+	}
+	
+	/**Runs in O(base.nonZeroCount()) if base is sparse and this is invertible, O(rows*cols) otherwise.*/
+	@Override
+	public void forEachNonZero(IntDoubleConsumer f){
+		assertElemIndexable();
+		if(base.isSparse() && isInvertible()){
+			base.forEachNonZeroAt((baseRow, baseCol, val) -> {
+				int elem = inverseElemIndex(baseRow, baseCol);
+				if(elem >= 0)
+					f.accept(elem, val);
+			});
+			return;
+		}
+		for(int row = 0; row < rows; row++){
+			for(int col = 0; col < cols; col++){
+				double v = internalGetValueAt(row, col);
+				if(v != 0.0d)
+					f.accept(asElemIndex(row, col), v);
+			}
+		}
+	}
+	
 	@Override
 	protected double internalGetValueAt(int row, int col){
+		if(data != null)
+			return data[offset + row * rowStride + col * colStride];
 		return base.internalGetValueAt(transformRowIndex(row, col), transformColIndex(row, col));
 	}
 	
 	@Override
 	protected double internalGetValueAt(int elem){
+		if(data != null)
+			return data[offset + asRowIndex(elem) * rowStride + asColIndex(elem) * colStride];
+		if(!base.isElemIndexable())
+			return internalGetValueAt(asRowIndex(elem), asColIndex(elem));
 		return base.internalGetValueAt(transformElemIndex(elem));
 	}
 	
 	@Override
 	protected void internalSetValueAt(int row, int col, double val){
-		base.internalSetValueAt(transformRowIndex(row,col),transformColIndex(row,col),val);
+		if(data != null)
+			data[offset + row * rowStride + col * colStride] = val;
+		else
+			base.internalSetValueAt(transformRowIndex(row,col),transformColIndex(row,col),val);
 	}
 	
 	@Override
 	protected void internalSetValueAt(int elem, double val){
-		base.internalSetValueAt(transformElemIndex(elem),val);
+		if(data != null)
+			data[offset + asRowIndex(elem) * rowStride + asColIndex(elem) * colStride] = val;
+		else if(!base.isElemIndexable())
+			internalSetValueAt(asRowIndex(elem), asColIndex(elem), val);
+		else
+			base.internalSetValueAt(transformElemIndex(elem),val);
+	}
+	
+	/**Copies len values from src, starting at srcOff, every srcStride-th entry,
+	 * to dst, starting at dstOff, every dstStride-th entry.*/
+	static void copy(double[] src, int srcOff, int srcStride, double[] dst, int dstOff, int dstStride, int len){
+		if(srcStride == 1 && dstStride == 1){
+			System.arraycopy(src, srcOff, dst, dstOff, len);
+		}else{
+			for(int i = 0; i < len; i++)
+				dst[dstOff + i * dstStride] = src[srcOff + i * srcStride];
+		}
+	}
+	
+	/**Runs f on every row index, in parallel if elems exceeds PARALLEL_LIMIT.*/
+	private void forEachRow(IntConsumer f){
+		(elems > PARALLEL_LIMIT ? IntStream.range(0, rows).parallel() : IntStream.range(0, rows).sequential()).forEach(f);
+	}
+	
+	/**Copies the values of this strided View, in row-major order, into dst[0..elems).*/
+	void copyRowMajor(double[] dst){
+		forEachRow((row) -> copy(data, offset + row * rowStride, colStride, dst, row * cols, 1, cols));
+	}
+	
+	/**Runs in O(rows*cols), as one strided copy per row if this is strided.*/
+	@Override
+	public double[] getValuesRowMajor(){
+		if(data == null)
+			return super.getValuesRowMajor();
+		double[] ds = new double[elems];
+		copyRowMajor(ds);
+		return ds;
+	}
+	
+	/**Runs in O(rows*cols), as one strided copy per row if this is strided.*/
+	@Override
+	public double[][] getValues(){
+		if(data == null)
+			return super.getValues();
+		double[][] ds = new double[rows][cols];
+		forEachRow((row) -> copy(data, offset + row * rowStride, colStride, ds[row], 0, 1, cols));
+		return ds;
+	}
+	
+	@Override
+	public Matrix fill(double d){
+		if(data == null)
+			return super.fill(d);
+		forEachRow((row) -> {
+			int start = offset + row * rowStride;
+			if(colStride == 1)
+				Arrays.fill(data, start, start + cols, d);
+			else
+				for(int col = 0; col < cols; col++)
+					data[start + col * colStride] = d;
+		});
+		return this;
+	}
+	
+	@Override
+	public Matrix fill(double[] values){
+		if(data == null)
+			return super.fill(values);
+		if(elems != values.length)
+			throw new MatrixDimensionMismatchException();
+		forEachRow((row) -> copy(values, row * cols, 1, data, offset + row * rowStride, colStride, cols));
+		return this;
+	}
+	
+	@Override
+	public Matrix fill(double[][] values){
+		if(data == null)
+			return super.fill(values);
+		if(rows != values.length || cols != values[0].length)
+			throw new MatrixDimensionMismatchException();
+		forEachRow((row) -> copy(values[row], 0, 1, data, offset + row * rowStride, colStride, cols));
+		return this;
+	}
+	
+	/**Runs in O(rows*cols), as one strided copy per row if this is strided and other is dense or strided.*/
+	@Override
+	public Matrix fill(Matrix other){
+		if(rows != other.rows || cols != other.cols)
+			throw new MatrixDimensionMismatchException();
+		double[] src = other.denseValues();
+		if(data != null && src != null){
+			forEachRow((row) -> copy(src, row * cols, 1, data, offset + row * rowStride, colStride, cols));
+			return this;
+		}
+		if(data != null && other instanceof MatrixView && ((MatrixView) other).data != null){
+			MatrixView view = (MatrixView) other;
+			forEachRow((row) -> copy(view.data, view.offset + row * view.rowStride, view.colStride,
+					data, offset + row * rowStride, colStride, cols));
+			return this;
+		}
+		return super.fill(other);
 	}
 	
 	@Override
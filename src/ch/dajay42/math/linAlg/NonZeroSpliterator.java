@@ -0,0 +1,66 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**Spliterator over the element indices of the non-zero values of a Matrix,
+ * found by scanning a range of element indices.
+ * <br/>Used for Matrix implementations that do not know their non-zeros without looking.
+ */
+final class NonZeroSpliterator implements Spliterator.OfInt{
+
+	private final Matrix matrix;
+	private int elem;
+	private final int fence;
+
+	NonZeroSpliterator(Matrix matrix, int origin, int fence){
+		this.matrix = matrix;
+		this.elem = origin;
+		this.fence = fence;
+	}
+
+	@Override
+	public boolean tryAdvance(IntConsumer action){
+		while(elem < fence){
+			int e = elem++;
+			if(matrix.internalGetValueAt(e) != 0.0d){
+				action.accept(e);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void forEachRemaining(IntConsumer action){
+		for(; elem < fence; elem++)
+			if(matrix.internalGetValueAt(elem) != 0.0d)
+				action.accept(elem);
+	}
+
+	@Override
+	public Spliterator.OfInt trySplit(){
+		int mid = (elem + fence) >>> 1;
+		if(mid - elem < Matrix.PARALLEL_LIMIT / 4)
+			return null;
+		Spliterator.OfInt prefix = new NonZeroSpliterator(matrix, elem, mid);
+		elem = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize(){
+		return fence - elem;
+	}
+
+	@Override
+	public int characteristics(){
+		return ORDERED | DISTINCT | SORTED | NONNULL;
+	}
+
+	@Override
+	public Comparator<? super Integer> getComparator(){
+		return null;
+	}
+}
@@ -0,0 +1,740 @@
+package ch.dajay42.math.linAlg;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.*;
+
+import ch.dajay42.math.function.*;
+import ch.dajay42.math.linAlg.partition.*;
+
+/**Matrix partitioned by blocks of consecutive rows across the workers of a {@link Transport}, partition k living on worker k.
+ * <p/>Element-wise operations and reductions run on each partition where it lives;
+ * partial accumulators of reductions are combined by the coordinator.
+ * The product this*B broadcasts B to all workers, each of which multiplies its partition by it, into a partition of the result;
+ * {@link #multiply(double[], double[])} broadcasts x and gathers the partitions of y,
+ * and {@link #transposeMultiply(Matrix)} sums the partial products of all partitions.
+ * <br/>Operands not partitioned alike are scattered first, outputs not partitioned alike are gathered into afterwards.
+ * Everything else falls back to the defaults of Matrix, which reach each element through a round trip to its worker:
+ * correct, but only sensible for a handful of elements. Use {@link #gather()} to work on a local copy instead.
+ * <p/>Partitions are discarded when the PartitionedMatrix is closed, or else some time after it becomes unreachable.
+ * Operators and reducers must be Serializable if the transport crosses process boundaries,
+ * as are the constants of DoubleUnaryOp, DoubleBinaryOp, DoubleTernaryOp and DoubleReduction.
+ * Partitions are computed as set by {@link #SUMMATION} and {@link #PARALLEL_LIMIT} of the JVM they live in.
+ * @author DaJay42
+ */
+public class PartitionedMatrix extends Matrix implements AutoCloseable{
+
+	private static final long serialVersionUID = 1L;
+
+	/**Source of partition ids, randomly seeded so that coordinators sharing a worker do not collide.*/
+	private static final AtomicLong IDS = new AtomicLong(new SecureRandom().nextLong());
+
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	private final transient Transport transport;
+
+	/**Partition k holds rows bounds[k] through bounds[k+1]-1.*/
+	private final int[] bounds;
+
+	private final long id;
+
+	private final boolean sparse;
+
+	private final transient Cleaner.Cleanable cleanable;
+
+	/**Creates a new, zero-filled Matrix of size rows*cols, partitioned as evenly as possible across the workers of transport,
+	 * or across the first rows workers if there are fewer rows.
+	 * @param transport transport to the workers
+	 * @param rows rows
+	 * @param cols columns
+	 * @param sparse whether the partitions are sparse
+	 */
+	public PartitionedMatrix(Transport transport, int rows, int cols, boolean sparse){
+		this(transport, evenBounds(rows, transport.workers()), cols, sparse);
+		final long id = this.id;
+		all((k) -> zeroes(id, bounds[k + 1] - bounds[k], cols, sparse));
+	}
+
+	/**Creates a PartitionedMatrix whose partitions do not exist yet.*/
+	private PartitionedMatrix(Transport transport, int[] bounds, int cols, boolean sparse){
+		super(bounds[bounds.length - 1], cols);
+		this.transport = transport;
+		this.bounds = bounds;
+		this.id = IDS.getAndIncrement();
+		this.sparse = sparse;
+		this.cleanable = CLEANER.register(this, new Release(transport, id, bounds.length - 1));
+	}
+
+	private static int[] evenBounds(int rows, int workers){
+		if(rows <= 0)
+			throw new MatrixCreationException();
+		int n = Math.min(rows, workers);
+		int[] bounds = new int[n + 1];
+		for(int k = 0; k <= n; k++)
+			bounds[k] = (int) ((long) rows * k / n);
+		return bounds;
+	}
+
+	/**Creates a new PartitionedMatrix equal to m, sending each worker a copy of its rows of m.
+	 * <p/>Runs in O(rows*cols), plus the transfer.
+	 * @param transport transport to the workers
+	 * @param m Matrix to partition
+	 * @return partitioned copy of m
+	 */
+	public static PartitionedMatrix scatter(Transport transport, Matrix m){
+		PartitionedMatrix p = new PartitionedMatrix(transport, evenBounds(m.rows, transport.workers()), m.cols, m.isSparse());
+		p.store(m);
+		return p;
+	}
+
+	/**Returns a new local Matrix equal to this, assembled from copies of all partitions.
+	 * <p/>Runs in O(rows*cols), plus the transfer.
+	 * @return local copy of this
+	 */
+	public Matrix gather(){
+		final long id = this.id;
+		Matrix m = zeroes(rows, cols, sparse);
+		List<Matrix> parts = all((k) -> fetch(id));
+		for(int k = 0; k < parts.size(); k++)
+			m.getRowsView(bounds[k], parts.get(k).rows).fill(parts.get(k));
+		return m;
+	}
+
+	/**Returns the transport this is partitioned across.*/
+	public Transport transport(){
+		return transport;
+	}
+
+	/**Returns the number of partitions, which is the number of workers unless there are fewer rows.*/
+	public int partitions(){
+		return bounds.length - 1;
+	}
+
+	/**Returns the first row of partition k.*/
+	public int partitionStart(int k){
+		return bounds[k];
+	}
+
+	/**Discards all partitions of this. Any use of this afterwards fails.*/
+	@Override
+	public void close(){
+		cleanable.clean();
+	}
+
+	/**Discards the partitions of a PartitionedMatrix, without waiting for the workers to do so.*/
+	private static final class Release implements Runnable{
+		private final Transport transport;
+		private final long id;
+		private final int partitions;
+
+		Release(Transport transport, long id, int partitions){
+			this.transport = transport;
+			this.id = id;
+			this.partitions = partitions;
+		}
+
+		@Override
+		public void run(){
+			for(int k = 0; k < partitions; k++){
+				try{
+					transport.submit(k, free(id));
+				}catch(RuntimeException e){
+					//transport closed: the workers are gone already
+				}
+			}
+		}
+	}
+
+	// COORDINATION
+
+	/**Submits the task of each partition to its worker, and returns their results, in order of partitions,
+	 * once all of them have completed.
+	 * @throws RuntimeException the failure of the first failed task
+	 */
+	private <R> List<R> all(IntFunction<PartitionTask<R>> tasks){
+		int n = partitions();
+		List<CompletableFuture<R>> futures = new ArrayList<>(n);
+		for(int k = 0; k < n; k++)
+			futures.add(transport.submit(k, tasks.apply(k)));
+		List<R> results = new ArrayList<>(n);
+		RuntimeException failure = null;
+		for(CompletableFuture<R> f : futures){
+			try{
+				results.add(await(f));
+			}catch(RuntimeException e){
+				if(failure == null)
+					failure = e;
+			}
+		}
+		if(failure != null)
+			throw failure;
+		return results;
+	}
+
+	private static <R> R await(CompletableFuture<R> f){
+		try{
+			return f.join();
+		}catch(CompletionException e){
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if(cause instanceof Error)
+				throw (Error) cause;
+			if(cause instanceof IOException)
+				throw new UncheckedIOException((IOException) cause);
+			throw new IllegalMatrixException("Matrix error: Partition task failed with "+cause);
+		}
+	}
+
+	private int partitionOf(int row){
+		int k = Arrays.binarySearch(bounds, row);
+		return k >= 0 ? k : -k - 2;
+	}
+
+	/**Whether m is a PartitionedMatrix on the same transport, partitioned like this.*/
+	private boolean alike(Matrix m){
+		return m instanceof PartitionedMatrix && ((PartitionedMatrix) m).transport == transport
+				&& Arrays.equals(((PartitionedMatrix) m).bounds, bounds);
+	}
+
+	/**Returns a new PartitionedMatrix partitioned like this, with cols columns, whose partitions are created by the first task writing to them.*/
+	private PartitionedMatrix like(int cols, boolean sparse){
+		return new PartitionedMatrix(transport, bounds, cols, sparse);
+	}
+
+	/**Returns m partitioned like this: m itself if it already is, otherwise a scattered copy, to be {@link #release(PartitionedMatrix, Matrix)}d after use.*/
+	private PartitionedMatrix operand(Matrix m){
+		if(alike(m))
+			return (PartitionedMatrix) m;
+		PartitionedMatrix p = like(m.cols, m.isSparse());
+		p.store(m);
+		return p;
+	}
+
+	private static void release(PartitionedMatrix operand, Matrix m){
+		if(operand != m)
+			operand.close();
+	}
+
+	/**Runs op on out if it is partitioned like this, or else on a temporary PartitionedMatrix, which is then gathered into out.
+	 * @return out
+	 */
+	private Matrix into(Matrix out, Consumer<PartitionedMatrix> op){
+		if(alike(out)){
+			op.accept((PartitionedMatrix) out);
+			return out;
+		}
+		try(PartitionedMatrix tmp = like(out.cols, out.isSparse())){
+			op.accept(tmp);
+			out.fill(tmp.gather());
+		}
+		return out;
+	}
+
+	/**Replaces the partitions of this by copies of the rows of m.*/
+	private void store(Matrix m){
+		final Matrix local = m instanceof PartitionedMatrix ? ((PartitionedMatrix) m).gather() : m;
+		final long id = this.id;
+		all((k) -> {
+			int n = bounds[k + 1] - bounds[k];
+			return put(id, zeroes(n, cols, local.isSparse()).fill(local.getRowsView(bounds[k], n)));
+		});
+	}
+
+	// TASKS
+	//Tasks are built by static methods, so that they capture nothing but their arguments.
+
+	private static PartitionTask<Void> zeroes(long id, int rows, int cols, boolean sparse){
+		return (w) -> {
+			w.put(id, zeroes(rows, cols, sparse));
+			return null;
+		};
+	}
+
+	private static PartitionTask<Void> put(long id, Matrix m){
+		return (w) -> {
+			w.put(id, m);
+			return null;
+		};
+	}
+
+	private static PartitionTask<Matrix> fetch(long id){
+		return (w) -> w.get(id).clone();
+	}
+
+	private static PartitionTask<Void> free(long id){
+		return (w) -> {
+			w.remove(id);
+			return null;
+		};
+	}
+
+	private static PartitionTask<Void> copy(long a, long out){
+		return (w) -> {
+			w.put(out, w.get(a).clone());
+			return null;
+		};
+	}
+
+	private static PartitionTask<Void> fill(long id, double d){
+		return (w) -> {
+			w.get(id).fill(d);
+			return null;
+		};
+	}
+
+	private static PartitionTask<Double> getValue(long id, int row, int col){
+		return (w) -> w.get(id).getValueAt(row, col);
+	}
+
+	private static PartitionTask<Void> setValue(long id, int row, int col, double val){
+		return (w) -> {
+			w.get(id).setValueAt(row, col, val);
+			return null;
+		};
+	}
+
+	private static PartitionTask<Double> modValue(long id, int row, int col, double off){
+		return (w) -> w.get(id).modValueAt(row, col, off);
+	}
+
+	private static PartitionTask<double[]> getRow(long id, int row){
+		return (w) -> w.get(id).getRow(row).getValuesRowMajor();
+	}
+
+	private static PartitionTask<Integer> nonZeroCount(long id){
+		return (w) -> w.get(id).nonZeroCount();
+	}
+
+	private static PartitionTask<Void> unary(DoubleUnaryOperator f, long a, long out, boolean sparse){
+		return (w) -> {
+			Matrix x = w.get(a);
+			x.elementWiseInto(f, w.target(out, x.rows, x.cols, sparse));
+			return null;
+		};
+	}
+
+	private static PartitionTask<Void> binary(DoubleBinaryOperator f, long a, long b, long out, boolean sparse){
+		return (w) -> {
+			Matrix x = w.get(a);
+			x.elementWiseInto(f, w.get(b), w.target(out, x.rows, x.cols, sparse));
+			return null;
+		};
+	}
+
+	private static PartitionTask<Void> ternary(DoubleTernaryOperator f, long a, long b, long c, long out, boolean sparse){
+		return (w) -> {
+			Matrix x = w.get(a);
+			x.elementWiseInto(f, w.get(b), w.get(c), w.target(out, x.rows, x.cols, sparse));
+			return null;
+		};
+	}
+
+	private static PartitionTask<Void> scalar(DoubleBinaryOperator f, long a, double s, long out, boolean sparse){
+		return (w) -> {
+			Matrix x = w.get(a);
+			x.scalarOpInto(f, s, w.target(out, x.rows, x.cols, sparse));
+			return null;
+		};
+	}
+
+	/**Returns the accumulator of r over a partition, before {@link DoubleReducer#finish(double, long)}.*/
+	private static PartitionTask<Double> accumulate(DoubleReducer r, long a){
+		return (w) -> {
+			Matrix x = w.get(a);
+			if(r == DoubleReduction.MEAN)
+				return x.reduce(DoubleReduction.SUM);
+			if(r == DoubleReduction.L2){
+				double norm = x.reduce(DoubleReduction.L2);
+				return norm * norm;
+			}
+			if(r instanceof DoubleReduction)
+				return x.reduce(r);
+			return x.reduce(new DoubleReducer(){
+				@Override
+				public double identity(){
+					return r.identity();
+				}
+
+				@Override
+				public double accumulate(double acc, double value){
+					return r.accumulate(acc, value);
+				}
+
+				@Override
+				public double combine(double a, double b){
+					return r.combine(a, b);
+				}
+			});
+		};
+	}
+
+	private static PartitionTask<double[]> reduceRows(DoubleReducer r, long a){
+		return (w) -> w.get(a).reduceRowWise(r).getValuesRowMajor();
+	}
+
+	private static PartitionTask<Void> multiply(long a, Matrix b, long out, boolean sparse){
+		return (w) -> {
+			Matrix x = w.get(a);
+			x.multiplyInto(b, w.target(out, x.rows, b.cols, sparse));
+			return null;
+		};
+	}
+
+	private static PartitionTask<double[]> multiplyVector(long a, double[] x){
+		return (w) -> {
+			Matrix m = w.get(a);
+			double[] y = new double[m.rows];
+			m.multiply(x, y);
+			return y;
+		};
+	}
+
+	private static PartitionTask<Matrix> transposeMultiply(long a, long b){
+		return (w) -> w.get(a).transposedView().multiply(w.get(b));
+	}
+
+	// MATRIX
+
+	@Override
+	protected double internalGetValueAt(int row, int col){
+		int k = partitionOf(row);
+		return await(transport.submit(k, getValue(id, row - bounds[k], col)));
+	}
+
+	@Override
+	protected double internalGetValueAt(int elem){
+		return internalGetValueAt(asRowIndex(elem), asColIndex(elem));
+	}
+
+	@Override
+	protected void internalSetValueAt(int row, int col, double val){
+		int k = partitionOf(row);
+		await(transport.submit(k, setValue(id, row - bounds[k], col, val)));
+	}
+
+	@Override
+	protected void internalSetValueAt(int elem, double val){
+		internalSetValueAt(asRowIndex(elem), asColIndex(elem), val);
+	}
+
+	@Override
+	protected double internalModValueAt(int row, int col, double off){
+		int k = partitionOf(row);
+		return await(transport.submit(k, modValue(id, row - bounds[k], col, off)));
+	}
+
+	@Override
+	protected double internalModValueAt(int elem, double off){
+		return internalModValueAt(asRowIndex(elem), asColIndex(elem), off);
+	}
+
+	@Override
+	public boolean isLazy(){
+		return false;
+	}
+
+	@Override
+	public boolean isSparse(){
+		return sparse;
+	}
+
+	@Override
+	public boolean isView(){
+		return false;
+	}
+
+	@Override
+	public int nonZeroCount(){
+		final long id = this.id;
+		return all((k) -> nonZeroCount(id)).stream().mapToInt(Integer::intValue).sum();
+	}
+
+	@Override
+	public Matrix fill(double d){
+		final long id = this.id;
+		all((k) -> fill(id, d));
+		return this;
+	}
+
+	/**{@inheritDoc}
+	 * <br/>Each partition is generated by the coordinator, in order, and then sent to its worker.
+	 */
+	@Override
+	public Matrix fill(DoubleSupplier f){
+		final long id = this.id;
+		all((k) -> put(id, zeroes(bounds[k + 1] - bounds[k], cols, sparse).fill(f)));
+		return this;
+	}
+
+	/**{@inheritDoc}
+	 * <br/>Each partition is generated by the coordinator, in order, and then sent to its worker.
+	 */
+	@Override
+	public Matrix fill(IntToDoubleFunction f){
+		final long id = this.id;
+		all((k) -> {
+			final int offset = bounds[k] * cols;
+			return put(id, zeroes(bounds[k + 1] - bounds[k], cols, sparse).fill((elem) -> f.applyAsDouble(offset + elem)));
+		});
+		return this;
+	}
+
+	@Override
+	public Matrix fill(double[] values){
+		if(elems != values.length){
+			throw new MatrixDimensionMismatchException();
+		}
+		final long id = this.id;
+		all((k) -> {
+			int n = bounds[k + 1] - bounds[k];
+			return put(id, zeroes(n, cols, sparse).fill(Arrays.copyOfRange(values, bounds[k] * cols, bounds[k + 1] * cols)));
+		});
+		return this;
+	}
+
+	/**{@inheritDoc}
+	 * <br/>If other is partitioned alike, each worker copies its partition; otherwise, the rows of other are scattered.
+	 */
+	@Override
+	public Matrix fill(Matrix other){
+		if(rows != other.rows || cols != other.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+		if(other == this)
+			return this;
+		if(alike(other)){
+			final long a = ((PartitionedMatrix) other).id, out = id;
+			all((k) -> copy(a, out));
+		}else{
+			store(other);
+		}
+		return this;
+	}
+
+	@Override
+	public double[] getValuesRowMajor(){
+		return gather().getValuesRowMajor();
+	}
+
+	@Override
+	public PartitionedMatrix clone(){
+		final long a = id;
+		PartitionedMatrix c = like(cols, sparse);
+		all((k) -> copy(a, c.id));
+		return c;
+	}
+
+	/**{@inheritDoc}
+	 * <br/>The row is fetched from its worker as a whole.
+	 */
+	@Override
+	public Matrix getRow(int row){
+		if(row < 0 || row >= rows)
+			throw new MatrixIndexOutOfBoundsException(row, 0, rows, cols);
+		int k = partitionOf(row);
+		return zeroes(1, cols).fill(await(transport.submit(k, getRow(id, row - bounds[k]))));
+	}
+
+	/**Returns the transposed of this, as a local Matrix.
+	 * <p/>Runs in O(rows*cols), plus the transfer.
+	 */
+	@Override
+	public Matrix transpose(){
+		return gather().transpose();
+	}
+
+	@Override
+	public Matrix sum(Matrix b){
+		return elementWise(DoubleBinaryOp.ADD, b);
+	}
+
+	@Override
+	public Matrix sumInto(Matrix b, Matrix out){
+		return elementWiseInto(DoubleBinaryOp.ADD, b, out);
+	}
+
+	@Override
+	public Matrix elementWise(DoubleUnaryOperator f){
+		return elementWiseInto(f, like(cols, sparse));
+	}
+
+	@Override
+	public Matrix elementWiseInto(DoubleUnaryOperator f, Matrix out){
+		if(rows != out.rows || cols != out.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+		final long a = id;
+		return into(out, (o) -> all((k) -> unary(f, a, o.id, o.sparse)));
+	}
+
+	@Override
+	public Matrix elementWise(DoubleBinaryOperator f, Matrix b){
+		return elementWiseInto(f, b, like(cols, sparse));
+	}
+
+	@Override
+	public Matrix elementWiseInto(DoubleBinaryOperator f, Matrix b, Matrix out){
+		if(cols != b.cols || rows != b.rows || rows != out.rows || cols != out.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+		final long a = id;
+		final PartitionedMatrix pb = operand(b);
+		try{
+			return into(out, (o) -> all((k) -> binary(f, a, pb.id, o.id, o.sparse)));
+		}finally{
+			release(pb, b);
+		}
+	}
+
+	@Override
+	public Matrix elementWise(DoubleTernaryOperator f, Matrix b, Matrix c){
+		return elementWiseInto(f, b, c, like(cols, sparse));
+	}
+
+	@Override
+	public Matrix elementWiseInto(DoubleTernaryOperator f, Matrix b, Matrix c, Matrix out){
+		if(cols != b.cols || rows != b.rows || cols != c.cols || rows != c.rows || rows != out.rows || cols != out.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+		final long a = id;
+		final PartitionedMatrix pb = operand(b), pc = operand(c);
+		try{
+			return into(out, (o) -> all((k) -> ternary(f, a, pb.id, pc.id, o.id, o.sparse)));
+		}finally{
+			release(pb, b);
+			release(pc, c);
+		}
+	}
+
+	@Override
+	public Matrix scalarOp(DoubleBinaryOperator f, double b){
+		return scalarOpInto(f, b, like(cols, sparse));
+	}
+
+	@Override
+	public Matrix scalarOpInto(DoubleBinaryOperator f, double b, Matrix out){
+		if(rows != out.rows || cols != out.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+		final long a = id;
+		return into(out, (o) -> all((k) -> scalar(f, a, b, o.id, o.sparse)));
+	}
+
+	/**{@inheritDoc}
+	 * <br/>Each worker accumulates its partition, and the coordinator combines the accumulators.
+	 */
+	@Override
+	public double reduce(DoubleReducer r){
+		final long a = id;
+		double acc = r.identity();
+		for(double partial : all((k) -> accumulate(r, a)))
+			acc = r.combine(acc, partial);
+		return r.finish(acc, elems);
+	}
+
+	/**{@inheritDoc}
+	 * <br/>Each worker reduces the rows of its partition.
+	 */
+	@Override
+	public Matrix reduceRowWise(DoubleReducer r){
+		final long a = id;
+		ColumnVectorDense v = new ColumnVectorDense(rows);
+		List<double[]> parts = all((k) -> reduceRows(r, a));
+		for(int k = 0; k < parts.size(); k++)
+			System.arraycopy(parts.get(k), 0, v.denseValues(), bounds[k], parts.get(k).length);
+		return v;
+	}
+
+	@Override
+	public double norm(){
+		return reduce(DoubleReduction.L2);
+	}
+
+	/**{@inheritDoc}
+	 * <br/>The result is partitioned like this.
+	 */
+	@Override
+	public Matrix multiply(Matrix b){
+		if(cols != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		return multiplyInto(b, like(b.cols, false));
+	}
+
+	/**{@inheritDoc}
+	 * <br/>b is broadcast to all workers, gathered first if it is partitioned itself,
+	 * and each worker multiplies its partition by b, into its partition of out.
+	 */
+	@Override
+	public Matrix multiplyInto(Matrix b, Matrix out){
+		if(cols != b.rows || rows != out.rows || b.cols != out.cols){
+			throw new MatrixDimensionMismatchException();
+		}
+		if(out == this || out == b)
+			throw new MatrixAliasingException();
+		final long a = id;
+		final Matrix local = b instanceof PartitionedMatrix ? ((PartitionedMatrix) b).gather() : b;
+		return into(out, (o) -> all((k) -> multiply(a, local, o.id, o.sparse)));
+	}
+
+	/**{@inheritDoc}
+	 * <br/>x is broadcast to all workers, and each worker returns its part of y.
+	 */
+	@Override
+	public void multiply(double[] x, double[] y){
+		if(x.length != cols || y.length != rows)
+			throw new MatrixDimensionMismatchException();
+		final long a = id;
+		List<double[]> parts = all((k) -> multiplyVector(a, x));
+		for(int k = 0; k < parts.size(); k++)
+			System.arraycopy(parts.get(k), 0, y, bounds[k], parts.get(k).length);
+	}
+
+	/**Returns this^T*b, as a local Matrix.
+	 * <br/>b is partitioned like this, scattered first if it is not; each worker multiplies the transposed of its partition
+	 * by its partition of b, and the coordinator sums these partial products.
+	 * <p/>Runs in O(rows*cols*b.cols/partitions()) per worker, plus O(partitions()*cols*b.cols) for the sum.
+	 * @param b Matrix with as many rows as this
+	 * @return cols*b.cols product
+	 */
+	public Matrix transposeMultiply(Matrix b){
+		if(rows != b.rows){
+			throw new MatrixDimensionMismatchException();
+		}
+		final long a = id;
+		final PartitionedMatrix pb = operand(b);
+		try{
+			Matrix sum = zeroes(cols, b.cols);
+			for(Matrix part : all((k) -> transposeMultiply(a, pb.id)))
+				sum.inplaceSum(part);
+			return sum;
+		}finally{
+			release(pb, b);
+		}
+	}
+
+	@Override
+	public boolean equals(Matrix other){
+		return gather().equals(other instanceof PartitionedMatrix ? ((PartitionedMatrix) other).gather() : other);
+	}
+
+	@Override
+	public String toString(){
+		return gather().toString();
+	}
+
+	@Override
+	Object writeReplace() throws ObjectStreamException{
+		return gather().writeReplace();
+	}
+}
@@ -46,6 +46,11 @@ public class RowVectorDense extends Matrix{
 		values[elem] = val;
 	}
 	
+	@Override
+	double[] denseValues(){
+		return values;
+	}
+	
 	@Override
 	public boolean isLazy(){
 		return false;
@@ -93,22 +98,19 @@ public class RowVectorDense extends Matrix{
 		if(rows != other.rows || cols != other.cols){
 			throw new MatrixDimensionMismatchException();
 		}
+		if(other instanceof MatrixView && ((MatrixView) other).isStrided()){
+			((MatrixView) other).copyRowMajor(values);
+			return this;
+		}
+		float[] floats = other.floatValues();
+		if(floats != null){
+			FloatKernels.widen(floats, values);
+			return this;
+		}
 		if(parallelize)
 			Arrays.parallelSetAll(values, other::internalGetValueAt);
 		else
 			Arrays.setAll(values, other::internalGetValueAt);
 		return this;
 	}
-	
-	@Override
-	public Matrix inplaceSum(Matrix b) {
-		if(cols != b.cols || rows != b.rows){
-			throw new MatrixDimensionMismatchException();
-		}
-		if(parallelize)
-			Arrays.parallelSetAll(values, (elem) -> values[elem] + b.internalGetValueAt(elem));
-		else
-			Arrays.setAll(values, (elem) -> values[elem] + b.internalGetValueAt(elem));
-		return this;
-	}
 }
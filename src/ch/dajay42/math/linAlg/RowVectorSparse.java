@@ -1,49 +1,77 @@
 package ch.dajay42.math.linAlg;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Spliterator;
+
+import ch.dajay42.collections.NonNegativeIntMapDouble;
+import ch.dajay42.math.function.IntDoubleConsumer;
 
 public class RowVectorSparse extends Matrix{
 
 	private static final long serialVersionUID = 1L;
 
-	private final Map<Integer, Double> values;
+	private final NonNegativeIntMapDouble values;
 	
 	
 	@SuppressWarnings("WeakerAccess")
 	public RowVectorSparse(int cols) {
 		super(1, cols);
-		values = new HashMap<>();
+		values = new NonNegativeIntMapDouble();
 	}
 
 	@Override
 	protected double internalGetValueAt(int row, int col) {
-		Double d = values.get(col);
-		return (d == null ? 0.0d : d);
+		return values.get(col);
 	}
 
 	@Override
 	protected void internalSetValueAt(int row, int col, double val) {
-		if(val == 0.0d){
-			values.remove(col);
-		}else{
-			values.put(col, val);
-		}
+		values.put(col, val);
 	}
 
 	@Override
 	protected double internalGetValueAt(int elem) {
-		Double d = values.get(elem);
-		return (d == null ? 0.0d : d);
+		return values.get(elem);
 	}
 
 	@Override
 	protected void internalSetValueAt(int elem, double val) {
-		if(val == 0.0d){
-			values.remove(elem);
-		}else{
-			values.put(elem, val);
+		values.put(elem, val);
+	}
+	
+	@Override
+	protected double internalModValueAt(int row, int col, double off){
+		return values.add(col, off);
+	}
+	
+	@Override
+	protected double internalModValueAt(int elem, double off){
+		return values.add(elem, off);
+	}
+	
+	/**Runs in O(1).*/
+	@Override
+	public int nonZeroCount(){
+		return values.size();
+	}
+	
+	/**Runs in O(nonZeroCount()).*/
+	@Override
+	public void forEachNonZero(IntDoubleConsumer f){
+		values.forEachNonZero(f);
+	}
+	
+	@Override
+	public Spliterator.OfInt nonZeroSpliterator(){
+		return values.keySpliterator();
+	}
+	
+	@Override
+	public Matrix fill(double d){
+		if(d == 0.0d){
+			values.clear();
+			return this;
 		}
+		return super.fill(d);
 	}
 	
 	@Override
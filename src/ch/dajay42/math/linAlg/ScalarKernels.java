@@ -0,0 +1,92 @@
+package ch.dajay42.math.linAlg;
+
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleUnaryOp;
+
+/**Plain loops, one per operator, which the JIT may auto-vectorize.
+ * <br/>Fallback for JVMs without jdk.incubator.vector.
+ * @author DaJay42
+ */
+final class ScalarKernels extends DenseKernels{
+
+	@Override
+	void binary(DoubleBinaryOp op, double[] a, double[] b, double[] c, int from, int to){
+		switch(op){
+			case ADD: for(int i = from; i < to; i++) c[i] = a[i] + b[i]; break;
+			case SUB: for(int i = from; i < to; i++) c[i] = a[i] - b[i]; break;
+			case MUL: for(int i = from; i < to; i++) c[i] = a[i] * b[i]; break;
+			case DIV: for(int i = from; i < to; i++) c[i] = a[i] / b[i]; break;
+			case MIN: for(int i = from; i < to; i++) c[i] = Math.min(a[i], b[i]); break;
+			case MAX: for(int i = from; i < to; i++) c[i] = Math.max(a[i], b[i]); break;
+		}
+	}
+
+	@Override
+	void scalar(DoubleBinaryOp op, double[] a, double s, double[] c, int from, int to){
+		switch(op){
+			case ADD: for(int i = from; i < to; i++) c[i] = a[i] + s; break;
+			case SUB: for(int i = from; i < to; i++) c[i] = a[i] - s; break;
+			case MUL: for(int i = from; i < to; i++) c[i] = a[i] * s; break;
+			case DIV: for(int i = from; i < to; i++) c[i] = a[i] / s; break;
+			case MIN: for(int i = from; i < to; i++) c[i] = Math.min(a[i], s); break;
+			case MAX: for(int i = from; i < to; i++) c[i] = Math.max(a[i], s); break;
+		}
+	}
+
+	@Override
+	void unary(DoubleUnaryOp op, double[] a, double[] c, int from, int to){
+		switch(op){
+			case ABS: for(int i = from; i < to; i++) c[i] = Math.abs(a[i]); break;
+			case NEG: for(int i = from; i < to; i++) c[i] = -a[i]; break;
+			case SQUARE: for(int i = from; i < to; i++) c[i] = a[i] * a[i]; break;
+			case SQRT: for(int i = from; i < to; i++) c[i] = Math.sqrt(a[i]); break;
+		}
+	}
+
+	@Override
+	void fma(double[] a, double[] b, double[] c, double[] d, int from, int to){
+		for(int i = from; i < to; i++)
+			d[i] = Math.fma(a[i], b[i], c[i]);
+	}
+
+	@Override
+	double reduce(DoubleBinaryOp op, double[] a, int from, int to){
+		if(op == DoubleBinaryOp.ADD){
+			//four independent accumulators hide the latency of the additions
+			double s0 = 0.0d, s1 = 0.0d, s2 = 0.0d, s3 = 0.0d;
+			int i = from;
+			for(; i + 4 <= to; i += 4){
+				s0 += a[i];
+				s1 += a[i + 1];
+				s2 += a[i + 2];
+				s3 += a[i + 3];
+			}
+			for(; i < to; i++)
+				s0 += a[i];
+			return (s0 + s1) + (s2 + s3);
+		}
+		double r = a[from];
+		switch(op){
+			case MUL: for(int i = from + 1; i < to; i++) r *= a[i]; break;
+			case MIN: for(int i = from + 1; i < to; i++) r = Math.min(r, a[i]); break;
+			case MAX: for(int i = from + 1; i < to; i++) r = Math.max(r, a[i]); break;
+			default: for(int i = from + 1; i < to; i++) r = op.applyAsDouble(r, a[i]);
+		}
+		return r;
+	}
+
+	@Override
+	double dot(double[] a, double[] b, int from, int to){
+		double s0 = 0.0d, s1 = 0.0d, s2 = 0.0d, s3 = 0.0d;
+		int i = from;
+		for(; i + 4 <= to; i += 4){
+			s0 += a[i] * b[i];
+			s1 += a[i + 1] * b[i + 1];
+			s2 += a[i + 2] * b[i + 2];
+			s3 += a[i + 3] * b[i + 3];
+		}
+		for(; i < to; i++)
+			s0 += a[i] * b[i];
+		return (s0 + s1) + (s2 + s3);
+	}
+}
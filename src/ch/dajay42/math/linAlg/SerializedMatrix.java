@@ -3,11 +3,18 @@ package ch.dajay42.math.linAlg;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
 
+/**Serial form of every Matrix: its {@link MatrixBinaryFormat} encoding.
+ * <br/>Streams written by older versions, which hold the text form in data, are still read.
+ */
 public final class SerializedMatrix implements Serializable{
 	public static final long serialVersionUID = 0L;
 	
+	/**Text form, as of Matrix.toString(); only set in old streams.*/
 	String data;
 	
+	/**Binary form, as of MatrixBinaryFormat.toBytes(Matrix).*/
+	byte[] bytes;
+	
 	public SerializedMatrix(){
 	}
 	
@@ -15,7 +22,11 @@ public final class SerializedMatrix implements Serializable{
 		this.data = data;
 	}
 	
+	public SerializedMatrix(byte[] bytes){
+		this.bytes = bytes;
+	}
+	
 	Object readResolve() throws ObjectStreamException{
-		return Matrix.valueOf(data);
+		return bytes != null ? MatrixBinaryFormat.fromBytes(bytes) : Matrix.valueOf(data);
 	}
 }
@@ -0,0 +1,272 @@
+package ch.dajay42.math.linAlg;
+
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.Summation;
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleReducer;
+import ch.dajay42.math.function.DoubleReduction;
+
+/**Layout of a Matrix whose values lie in a double[] at fixed strides:
+ * value(row, col) = data[offset + row*rowStride + col*colStride].
+ * <p/>Describes dense matrices and vectors, as well as strided {@link MatrixView}s of them,
+ * so that kernels can work on transposed or sliced operands in place,
+ * choosing their loop order by the strides rather than by the kind of Matrix.
+ * @author DaJay42
+ */
+final class Strided{
+
+	/**Side length below which the recursive transpose copies directly.*/
+	static final int TRANSPOSE_BLOCK = 32;
+
+	final double[] data;
+	final int offset, rowStride, colStride;
+	final int rows, cols;
+
+	Strided(double[] data, int offset, int rowStride, int colStride, int rows, int cols){
+		this.data = data;
+		this.offset = offset;
+		this.rowStride = rowStride;
+		this.colStride = colStride;
+		this.rows = rows;
+		this.cols = cols;
+	}
+
+	/**Returns the layout of m, or null if m is neither dense nor a strided View.*/
+	static Strided of(Matrix m){
+		if(m instanceof MatrixView){
+			MatrixView view = (MatrixView) m;
+			return view.data == null ? null : new Strided(view.data, view.offset, view.rowStride, view.colStride, m.rows, m.cols);
+		}
+		double[] values = m.denseValues();
+		return values == null ? null : new Strided(values, 0, m.cols, 1, m.rows, m.cols);
+	}
+
+	/**Returns true iff this is laid out row-major without gaps, i.e. is data[offset..offset+rows*cols).*/
+	boolean isContiguous(){
+		return colStride == 1 && (rowStride == cols || rows == 1);
+	}
+
+	/**Returns true iff other addresses the same values in the same order as this, assuming equal dimensions.*/
+	boolean sameLayout(Strided other){
+		return data == other.data && offset == other.offset
+				&& (rows <= 1 || rowStride == other.rowStride) && (cols <= 1 || colStride == other.colStride);
+	}
+
+	/**Returns true iff the ranges of data spanned by this and other intersect.
+	 * <br/>Conservative: interleaved layouts, such as two columns of the same Matrix, are reported as overlapping.
+	 */
+	boolean overlaps(Strided other){
+		if(data != other.data || rows == 0 || cols == 0 || other.rows == 0 || other.cols == 0)
+			return false;
+		final int last = offset + (rows - 1) * rowStride + (cols - 1) * colStride;
+		final int otherLast = other.offset + (other.rows - 1) * other.rowStride + (other.cols - 1) * other.colStride;
+		return offset <= otherLast && other.offset <= last;
+	}
+
+	/**Returns the layout of the transposed, which shares data.*/
+	Strided transposed(){
+		return new Strided(data, offset, colStride, rowStride, cols, rows);
+	}
+
+	/**Returns the values as a row-major array, which is data itself if offset is 0 and this is contiguous.*/
+	double[] rowMajor(){
+		if(offset == 0 && isContiguous() && data.length == rows * cols)
+			return data;
+		double[] values = new double[rows * cols];
+		for(int row = 0; row < rows; row++)
+			MatrixView.copy(data, offset + row * rowStride, colStride, values, row * cols, 1, cols);
+		return values;
+	}
+
+	/**Returns the sum of value(i)*other.value(i) over the elements of two vectors of the same length,
+	 * summed as set by {@link Matrix#SUMMATION}.
+	 * <p/>Runs in O(length).
+	 */
+	double dot(Strided other){
+		final int len = rows * cols;
+		final int as = rows == 1 ? colStride : rowStride, bs = other.rows == 1 ? other.colStride : other.rowStride;
+		if(Matrix.SUMMATION != Summation.NAIVE)
+			return Matrix.SUMMATION.dot(data, offset, as, other.data, other.offset, bs, len);
+		if(as == 1 && bs == 1 && offset == other.offset)
+			return DenseKernels.INSTANCE.dot(data, other.data, offset, offset + len);
+		double s0 = 0.0d, s1 = 0.0d;
+		int i = 0, a = offset, b = other.offset;
+		for(; i + 2 <= len; i += 2, a += 2 * as, b += 2 * bs){
+			s0 += data[a] * other.data[b];
+			s1 += data[a + as] * other.data[b + bs];
+		}
+		if(i < len)
+			s0 += data[a] * other.data[b];
+		return s0 + s1;
+	}
+
+	/**Returns op applied to all values, visited in the order they are laid out in data,
+	 * which is allowed since op.isReduction().
+	 * <br/>ADD is summed as set by {@link Matrix#SUMMATION}.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	double reduce(DoubleBinaryOp op){
+		if(op == DoubleBinaryOp.ADD && Matrix.SUMMATION != Summation.NAIVE)
+			return sum(Matrix.SUMMATION, false);
+		//walk along the smaller stride, so that contiguous lines can use the kernels
+		final boolean byRows = colStride <= rowStride;
+		final int lines = byRows ? rows : cols, len = byRows ? cols : rows;
+		final int lineStride = byRows ? rowStride : colStride, step = byRows ? colStride : rowStride;
+		double r = 0.0d;
+		for(int l = 0; l < lines; l++){
+			final int start = offset + l * lineStride;
+			double v;
+			if(step == 1){
+				v = DenseKernels.INSTANCE.reduce(op, data, start, start + len);
+			}else{
+				v = data[start];
+				for(int i = 1; i < len; i++)
+					v = op.applyAsDouble(v, data[start + i * step]);
+			}
+			r = l == 0 ? v : op.applyAsDouble(r, v);
+		}
+		return r;
+	}
+
+	/**Returns the accumulator acc of r after also taking the len values data[start], data[start+step], ...
+	 * <br/>Contiguous lines of the standard reductions run on {@link DenseKernels};
+	 * the line sums of SUM, MEAN and L2 are taken as set by {@link Matrix#SUMMATION}.
+	 * <p/>Runs in O(len).
+	 */
+	static double accumulate(DoubleReducer r, double acc, double[] data, int start, int step, int len){
+		if(len == 0)
+			return acc;
+		if(Matrix.SUMMATION != Summation.NAIVE){
+			if(r == DoubleReduction.SUM || r == DoubleReduction.MEAN)
+				return acc + Matrix.SUMMATION.sum(data, start, step, len);
+			if(r == DoubleReduction.L2)
+				return acc + Matrix.SUMMATION.dot(data, start, step, data, start, step, len);
+		}
+		if(step == 1 && r instanceof DoubleReduction){
+			final int end = start + len;
+			switch((DoubleReduction) r){
+				case SUM:
+				case MEAN:
+					return acc + DenseKernels.INSTANCE.reduce(DoubleBinaryOp.ADD, data, start, end);
+				case MIN:
+					return Math.min(acc, DenseKernels.INSTANCE.reduce(DoubleBinaryOp.MIN, data, start, end));
+				case MAX:
+					return Math.max(acc, DenseKernels.INSTANCE.reduce(DoubleBinaryOp.MAX, data, start, end));
+				case L2:
+					return acc + DenseKernels.INSTANCE.dot(data, data, start, end);
+			}
+		}
+		for(int i = 0, p = start; i < len; i++, p += step)
+			acc = r.accumulate(acc, data[p]);
+		return acc;
+	}
+
+	/**Returns the sum of the squares of all values, visited in the order they are laid out in data,
+	 * summed as set by {@link Matrix#SUMMATION}.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	double sumOfSquares(){
+		if(Matrix.SUMMATION != Summation.NAIVE)
+			return sum(Matrix.SUMMATION, true);
+		final boolean byRows = colStride <= rowStride;
+		final int lines = byRows ? rows : cols, len = byRows ? cols : rows;
+		final int lineStride = byRows ? rowStride : colStride, step = byRows ? colStride : rowStride;
+		double s = 0.0d;
+		for(int l = 0; l < lines; l++){
+			final int start = offset + l * lineStride;
+			if(step == 1){
+				s += DenseKernels.INSTANCE.dot(data, data, start, start + len);
+			}else{
+				for(int i = 0; i < len; i++){
+					double v = data[start + i * step];
+					s += v * v;
+				}
+			}
+		}
+		return s;
+	}
+
+	/**Returns the sum of all values, or of their squares, by mode.
+	 * <br/>Contiguous layouts are summed as one array, others line by line, in parallel if rows*cols exceeds PARALLEL_LIMIT,
+	 * with the line sums summed by mode in turn.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	double sum(Summation mode, boolean squares){
+		if(isContiguous())
+			return squares ? mode.dot(data, offset, 1, data, offset, 1, rows * cols) : mode.sum(data, offset, 1, rows * cols);
+		final boolean byRows = colStride <= rowStride;
+		final int lines = byRows ? rows : cols, len = byRows ? cols : rows;
+		final int lineStride = byRows ? rowStride : colStride, step = byRows ? colStride : rowStride;
+		IntStream range = (long) lines * len > Matrix.PARALLEL_LIMIT ? IntStream.range(0, lines).parallel() : IntStream.range(0, lines);
+		double[] partial = range.mapToDouble((l) -> {
+			final int start = offset + l * lineStride;
+			return squares ? mode.dot(data, start, step, data, start, step, len) : mode.sum(data, start, step, len);
+		}).toArray();
+		return mode.sum(partial);
+	}
+	
+	/**Writes the transposed of this into dst, row-major, as a cols*rows Matrix.
+	 * <br/>The index space is halved along its longer side until blocks are at most TRANSPOSE_BLOCK on each side,
+	 * so that both the reads and the writes of each block stay within a few cache lines per row
+	 * at every level of the memory hierarchy, without tuning for any of them.
+	 * Halves are transposed in parallel while they hold more than PARALLEL_LIMIT elements.
+	 * <p/>Runs in O(rows*cols).
+	 */
+	void transposeInto(double[] dst){
+		new Transpose(dst, 0, rows, 0, cols).invoke();
+	}
+
+	private final class Transpose extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] dst;
+		private final int r0, r1, c0, c1;
+
+		Transpose(double[] dst, int r0, int r1, int c0, int c1){
+			this.dst = dst;
+			this.r0 = r0;
+			this.r1 = r1;
+			this.c0 = c0;
+			this.c1 = c1;
+		}
+
+		@Override
+		protected void compute(){
+			transpose(r0, r1, c0, c1);
+		}
+
+		private void transpose(int r0, int r1, int c0, int c1){
+			final int h = r1 - r0, w = c1 - c0;
+			if(h <= TRANSPOSE_BLOCK && w <= TRANSPOSE_BLOCK){
+				for(int col = c0; col < c1; col++){
+					int src = offset + r0 * rowStride + col * colStride, out = col * rows + r0;
+					for(int row = r0; row < r1; row++, src += rowStride)
+						dst[out++] = data[src];
+				}
+				return;
+			}
+			boolean fork = (long) h * w > Matrix.PARALLEL_LIMIT;
+			if(h >= w){
+				int mid = r0 + h / 2;
+				if(fork)
+					ForkJoinTask.invokeAll(new Transpose(dst, r0, mid, c0, c1), new Transpose(dst, mid, r1, c0, c1));
+				else{
+					transpose(r0, mid, c0, c1);
+					transpose(mid, r1, c0, c1);
+				}
+			}else{
+				int mid = c0 + w / 2;
+				if(fork)
+					ForkJoinTask.invokeAll(new Transpose(dst, r0, r1, c0, mid), new Transpose(dst, r0, r1, mid, c1));
+				else{
+					transpose(r0, r1, c0, mid);
+					transpose(r0, r1, mid, c1);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package ch.dajay42.math.linAlg;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import ch.dajay42.math.function.DoubleBinaryOp;
+import ch.dajay42.math.function.DoubleUnaryOp;
+
+/**SIMD loops on the preferred vector shape of the platform, with scalar tails.
+ * <p/>There is one loop per operator, since the JIT only compiles lanewise operations to vector instructions
+ * if their operator is a constant.
+ * <br/>Only loaded reflectively by {@link DenseKernels}, if jdk.incubator.vector is present.
+ * @author DaJay42
+ */
+final class VectorKernels extends DenseKernels{
+
+	private static final VectorSpecies<Double> S = DoubleVector.SPECIES_PREFERRED;
+
+	private static final ScalarKernels TAIL = new ScalarKernels();
+
+	@Override
+	void binary(DoubleBinaryOp op, double[] a, double[] b, double[] c, int from, int to){
+		final int bound = from + S.loopBound(to - from);
+		int i = from;
+		switch(op){
+			case ADD:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.ADD, DoubleVector.fromArray(S, b, i)).intoArray(c, i);
+				break;
+			case SUB:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.SUB, DoubleVector.fromArray(S, b, i)).intoArray(c, i);
+				break;
+			case MUL:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.MUL, DoubleVector.fromArray(S, b, i)).intoArray(c, i);
+				break;
+			case DIV:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.DIV, DoubleVector.fromArray(S, b, i)).intoArray(c, i);
+				break;
+			case MIN:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.MIN, DoubleVector.fromArray(S, b, i)).intoArray(c, i);
+				break;
+			case MAX:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.MAX, DoubleVector.fromArray(S, b, i)).intoArray(c, i);
+				break;
+		}
+		TAIL.binary(op, a, b, c, i, to);
+	}
+
+	@Override
+	void scalar(DoubleBinaryOp op, double[] a, double s, double[] c, int from, int to){
+		final int bound = from + S.loopBound(to - from);
+		int i = from;
+		switch(op){
+			case ADD:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.ADD, s).intoArray(c, i);
+				break;
+			case SUB:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.SUB, s).intoArray(c, i);
+				break;
+			case MUL:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.MUL, s).intoArray(c, i);
+				break;
+			case DIV:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.DIV, s).intoArray(c, i);
+				break;
+			case MIN:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.MIN, s).intoArray(c, i);
+				break;
+			case MAX:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.MAX, s).intoArray(c, i);
+				break;
+		}
+		TAIL.scalar(op, a, s, c, i, to);
+	}
+
+	@Override
+	void unary(DoubleUnaryOp op, double[] a, double[] c, int from, int to){
+		final int bound = from + S.loopBound(to - from);
+		int i = from;
+		switch(op){
+			case ABS:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.ABS).intoArray(c, i);
+				break;
+			case NEG:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.NEG).intoArray(c, i);
+				break;
+			case SQRT:
+				for(; i < bound; i += S.length())
+					DoubleVector.fromArray(S, a, i).lanewise(VectorOperators.SQRT).intoArray(c, i);
+				break;
+			case SQUARE:
+				for(; i < bound; i += S.length()){
+					DoubleVector x = DoubleVector.fromArray(S, a, i);
+					x.mul(x).intoArray(c, i);
+				}
+				break;
+		}
+		TAIL.unary(op, a, c, i, to);
+	}
+
+	@Override
+	void fma(double[] a, double[] b, double[] c, double[] d, int from, int to){
+		final int bound = from + S.loopBound(to - from);
+		int i = from;
+		for(; i < bound; i += S.length())
+			DoubleVector.fromArray(S, a, i).fma(DoubleVector.fromArray(S, b, i), DoubleVector.fromArray(S, c, i)).intoArray(d, i);
+		TAIL.fma(a, b, c, d, i, to);
+	}
+
+	@Override
+	double reduce(DoubleBinaryOp op, double[] a, int from, int to){
+		final int bound = from + S.loopBound(to - from);
+		if(bound == from)
+			return TAIL.reduce(op, a, from, to);
+		DoubleVector acc = DoubleVector.fromArray(S, a, from);
+		int i = from + S.length();
+		double r;
+		switch(op){
+			case ADD:
+				for(; i < bound; i += S.length())
+					acc = acc.lanewise(VectorOperators.ADD, DoubleVector.fromArray(S, a, i));
+				r = acc.reduceLanes(VectorOperators.ADD);
+				break;
+			case MUL:
+				for(; i < bound; i += S.length())
+					acc = acc.lanewise(VectorOperators.MUL, DoubleVector.fromArray(S, a, i));
+				r = acc.reduceLanes(VectorOperators.MUL);
+				break;
+			case MIN:
+				for(; i < bound; i += S.length())
+					acc = acc.lanewise(VectorOperators.MIN, DoubleVector.fromArray(S, a, i));
+				r = acc.reduceLanes(VectorOperators.MIN);
+				break;
+			case MAX:
+				for(; i < bound; i += S.length())
+					acc = acc.lanewise(VectorOperators.MAX, DoubleVector.fromArray(S, a, i));
+				r = acc.reduceLanes(VectorOperators.MAX);
+				break;
+			default:
+				throw new IllegalArgumentException(op + " is not a reduction");
+		}
+		return i < to ? op.applyAsDouble(r, TAIL.reduce(op, a, i, to)) : r;
+	}
+
+	@Override
+	double dot(double[] a, double[] b, int from, int to){
+		final int bound = from + S.loopBound(to - from);
+		DoubleVector acc = DoubleVector.zero(S);
+		int i = from;
+		for(; i < bound; i += S.length())
+			acc = DoubleVector.fromArray(S, a, i).fma(DoubleVector.fromArray(S, b, i), acc);
+		return acc.reduceLanes(VectorOperators.ADD) + TAIL.dot(a, b, i, to);
+	}
+}
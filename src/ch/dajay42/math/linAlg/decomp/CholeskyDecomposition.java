@@ -0,0 +1,136 @@
+package ch.dajay42.math.linAlg.decomp;
+
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.linAlg.*;
+
+/**Cholesky Decomposition, A = L*L^T, of a symmetric positive definite Matrix A.
+ * <p/>L is lower triangular. Only the lower triangle of A is read.
+ * The factorization is computed once, on construction, row by row,
+ * so that every inner product runs over two contiguous rows of L;
+ * the rows below the current one are computed in parallel.
+ * <p/>Runs in O(n^3) on construction, O(n^2) per right-hand side.
+ * @author DaJay42
+ */
+public class CholeskyDecomposition{
+
+	private final int n;
+
+	/**L, row-major, upper triangle zero.*/
+	private final double[] l;
+
+	private final boolean spd;
+
+	/**Computes the Cholesky Decomposition of a.
+	 * @param a square Matrix to decompose
+	 */
+	public CholeskyDecomposition(Matrix a){
+		if(a.rows != a.cols)
+			throw new MatrixNotSquareException(a.rows, a.cols);
+		n = a.rows;
+		l = a.getValuesRowMajor();
+
+		boolean positive = true;
+		for(int j = 0; j < n; j++){
+			final int jOff = j * n;
+			double d = l[jOff + j] - dot(jOff, jOff, j);
+			if(!(d > 0.0d)){
+				positive = false;
+				break;
+			}
+			final double ljj = Math.sqrt(d);
+			l[jOff + j] = ljj;
+			final int col = j;
+			IntStream range = (long) (n - j) * j > Matrix.PARALLEL_LIMIT
+					? IntStream.range(j + 1, n).parallel() : IntStream.range(j + 1, n).sequential();
+			range.forEach((i) -> {
+				final int iOff = i * n;
+				l[iOff + col] = (l[iOff + col] - dot(iOff, jOff, col)) / ljj;
+			});
+		}
+		spd = positive;
+		for(int i = 0; i < n; i++)
+			for(int j = i + 1; j < n; j++)
+				l[i * n + j] = 0.0d;
+	}
+
+	/**Returns the inner product of the first len entries of the rows of l starting at offA and offB.*/
+	private double dot(int offA, int offB, int len){
+		double s0 = 0.0d, s1 = 0.0d;
+		int k = 0;
+		for(; k + 2 <= len; k += 2){
+			s0 += l[offA + k] * l[offB + k];
+			s1 += l[offA + k + 1] * l[offB + k + 1];
+		}
+		if(k < len)
+			s0 += l[offA + k] * l[offB + k];
+		return s0 + s1;
+	}
+
+	/**Returns true iff A is symmetric positive definite, i.e. iff the decomposition succeeded.*/
+	public boolean isSPD(){
+		return spd;
+	}
+
+	/**Returns the lower triangular factor L.*/
+	public Matrix getL(){
+		return Matrix.zeroes(n, n).fill(l);
+	}
+
+	/**Returns the determinant of A.
+	 * <p/>Runs in O(n).
+	 */
+	public double det(){
+		if(!spd)
+			throw new IllegalMatrixException("Matrix error: Matrix must be symmetric positive definite.");
+		double d = 1.0d;
+		for(int k = 0; k < n; k++)
+			d *= l[k * n + k];
+		return d * d;
+	}
+
+	/**Solves A*X = B.
+	 * @param b right-hand side(s), with as many rows as A
+	 * @return X, with as many columns as b
+	 */
+	public Matrix solve(Matrix b){
+		if(b.rows != n)
+			throw new MatrixDimensionMismatchException();
+		if(!spd)
+			throw new IllegalMatrixException("Matrix error: Matrix must be symmetric positive definite.");
+		final int m = b.cols;
+		double[] x = b.getValuesRowMajor();
+
+		// L*Y = B
+		for(int k = 0; k < n; k++){
+			final int kOff = k * m;
+			final double d = l[k * n + k];
+			for(int j = 0; j < m; j++)
+				x[kOff + j] /= d;
+			for(int i = k + 1; i < n; i++){
+				final double v = l[i * n + k];
+				if(v == 0.0d)
+					continue;
+				final int off = i * m;
+				for(int j = 0; j < m; j++)
+					x[off + j] -= v * x[kOff + j];
+			}
+		}
+		// L^T*X = Y
+		for(int k = n - 1; k >= 0; k--){
+			final int kOff = k * m;
+			for(int i = k + 1; i < n; i++){
+				final double v = l[i * n + k];
+				if(v == 0.0d)
+					continue;
+				final int off = i * m;
+				for(int j = 0; j < m; j++)
+					x[kOff + j] -= v * x[off + j];
+			}
+			final double d = l[k * n + k];
+			for(int j = 0; j < m; j++)
+				x[kOff + j] /= d;
+		}
+		return Matrix.zeroes(n, m).fill(x);
+	}
+}
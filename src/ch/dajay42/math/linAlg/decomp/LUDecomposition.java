@@ -0,0 +1,255 @@
+package ch.dajay42.math.linAlg.decomp;
+
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.linAlg.*;
+
+/**LU Decomposition with partial pivoting, P*A = L*U, of a square Matrix A.
+ * <p/>L is unit lower triangular, U is upper triangular, P is a row permutation.
+ * The factorization is computed once, on construction, by a blocked right-looking algorithm
+ * whose trailing updates run in parallel; the result may then be reused for any number of right-hand sides.
+ * <p/>Runs in O(n^3) on construction, O(n^2) per right-hand side.
+ * @author DaJay42
+ */
+public class LUDecomposition{
+
+	/**Width of a panel.*/
+	static final int NB = 64;
+
+	/**Columns of the trailing matrix updated per pass.*/
+	static final int JB = 256;
+
+	private final int n;
+
+	/**L (without its unit diagonal) and U, row-major.*/
+	private final double[] lu;
+
+	/**Row permutation: row i of P*A is row piv[i] of A.*/
+	private final int[] piv;
+
+	private final int pivSign;
+
+	private final boolean singular;
+
+	/**Computes the LU Decomposition of a.
+	 * @param a square Matrix to decompose
+	 */
+	public LUDecomposition(Matrix a){
+		if(a.rows != a.cols)
+			throw new MatrixNotSquareException(a.rows, a.cols);
+		n = a.rows;
+		lu = a.getValuesRowMajor();
+		piv = new int[n];
+		for(int i = 0; i < n; i++)
+			piv[i] = i;
+
+		int sign = 1;
+		boolean zeroPivot = false;
+		for(int k0 = 0; k0 < n; k0 += NB){
+			final int k1 = Math.min(k0 + NB, n);
+
+			//factorize panel, swapping entire rows
+			for(int k = k0; k < k1; k++){
+				int p = k;
+				double max = Math.abs(lu[k * n + k]);
+				for(int i = k + 1; i < n; i++){
+					double v = Math.abs(lu[i * n + k]);
+					if(v > max){
+						max = v;
+						p = i;
+					}
+				}
+				if(p != k){
+					swapRows(p, k);
+					int t = piv[p]; piv[p] = piv[k]; piv[k] = t;
+					sign = -sign;
+				}
+				final double pivot = lu[k * n + k];
+				if(pivot == 0.0d){
+					zeroPivot = true;
+					continue;
+				}
+				for(int i = k + 1; i < n; i++){
+					final int off = i * n;
+					final double l = lu[off + k] /= pivot;
+					if(l != 0.0d)
+						for(int j = k + 1; j < k1; j++)
+							lu[off + j] -= l * lu[k * n + j];
+				}
+			}
+			if(k1 == n)
+				break;
+
+			//U12 = L11^-1 * A12
+			for(int k = k0; k < k1; k++){
+				final int kOff = k * n;
+				for(int i = k + 1; i < k1; i++){
+					final int off = i * n;
+					final double l = lu[off + k];
+					if(l != 0.0d)
+						for(int j = k1; j < n; j++)
+							lu[off + j] -= l * lu[kOff + j];
+				}
+			}
+
+			//A22 -= L21 * U12, four rows at a time
+			final int p0 = k0;
+			final int groups = (n - k1 + 3) / 4;
+			IntStream groupRange = (long) (n - k1) * (n - k1) * (k1 - k0) > Matrix.PARALLEL_LIMIT
+					? IntStream.range(0, groups).parallel() : IntStream.range(0, groups).sequential();
+			groupRange.forEach((g) -> trailingUpdate(p0, k1, k1 + 4 * g, Math.min(k1 + 4 * g + 4, n)));
+		}
+		pivSign = sign;
+		singular = zeroPivot;
+	}
+
+	/**Subtracts L21*U12 of the panel [k0,k1) from rows [i0,i1) of the trailing matrix, with i1 - i0 <= 4.*/
+	private void trailingUpdate(int k0, int k1, int i0, int i1){
+		if(i1 - i0 < 4){
+			for(int i = i0; i < i1; i++){
+				final int off = i * n;
+				for(int k = k0; k < k1; k++){
+					final double l = lu[off + k];
+					final int kOff = k * n;
+					if(l != 0.0d)
+						for(int j = k1; j < n; j++)
+							lu[off + j] -= l * lu[kOff + j];
+				}
+			}
+			return;
+		}
+		final int o0 = i0 * n, o1 = o0 + n, o2 = o1 + n, o3 = o2 + n;
+		for(int j0 = k1; j0 < n; j0 += JB){
+			final int j1 = Math.min(j0 + JB, n);
+			for(int k = k0; k < k1; k++){
+				final double l0 = lu[o0 + k], l1 = lu[o1 + k], l2 = lu[o2 + k], l3 = lu[o3 + k];
+				final int kOff = k * n;
+				for(int j = j0; j < j1; j++){
+					final double u = lu[kOff + j];
+					lu[o0 + j] -= l0 * u;
+					lu[o1 + j] -= l1 * u;
+					lu[o2 + j] -= l2 * u;
+					lu[o3 + j] -= l3 * u;
+				}
+			}
+		}
+	}
+
+	private void swapRows(int a, int b){
+		final int offA = a * n, offB = b * n;
+		for(int j = 0; j < n; j++){
+			double t = lu[offA + j];
+			lu[offA + j] = lu[offB + j];
+			lu[offB + j] = t;
+		}
+	}
+
+	/**Returns true iff A is singular, i.e. if U has a zero on its diagonal.*/
+	public boolean isSingular(){
+		return singular;
+	}
+
+	/**Returns the determinant of A.
+	 * <p/>Runs in O(n).
+	 */
+	public double det(){
+		double d = pivSign;
+		for(int k = 0; k < n; k++)
+			d *= lu[k * n + k];
+		return d;
+	}
+
+	/**Returns the unit lower triangular factor L.*/
+	public Matrix getL(){
+		double[] l = new double[n * n];
+		for(int i = 0; i < n; i++){
+			System.arraycopy(lu, i * n, l, i * n, i);
+			l[i * n + i] = 1.0d;
+		}
+		return Matrix.zeroes(n, n).fill(l);
+	}
+
+	/**Returns the upper triangular factor U.*/
+	public Matrix getU(){
+		double[] u = new double[n * n];
+		for(int i = 0; i < n; i++)
+			System.arraycopy(lu, i * n + i, u, i * n + i, n - i);
+		return Matrix.zeroes(n, n).fill(u);
+	}
+
+	/**Returns a copy of the row permutation: row i of P*A is row getPivot()[i] of A.*/
+	public int[] getPivot(){
+		return piv.clone();
+	}
+
+	/**Solves A*X = B.
+	 * @param b right-hand side(s), with as many rows as A
+	 * @return X, with as many columns as b
+	 * @throws MatrixSingularException if A is singular
+	 */
+	public Matrix solve(Matrix b){
+		if(b.rows != n)
+			throw new MatrixDimensionMismatchException();
+		final int m = b.cols;
+		double[] values = b.getValuesRowMajor();
+		double[] x = new double[n * m];
+		for(int i = 0; i < n; i++)
+			System.arraycopy(values, piv[i] * m, x, i * m, m);
+		solveInPlace(x, m);
+		return Matrix.zeroes(n, m).fill(x);
+	}
+
+	/**Returns the inverse of A.
+	 * @throws MatrixSingularException if A is singular
+	 */
+	public Matrix inverse(){
+		double[] x = new double[n * n];
+		for(int i = 0; i < n; i++)
+			x[i * n + piv[i]] = 1.0d;
+		solveInPlace(x, n);
+		return Matrix.zeroes(n, n).fill(x);
+	}
+
+	/**Overwrites the already permuted row-major n*m right-hand side x with the solution of L*U*X = x.
+	 * Parallel over blocks of columns if the work exceeds PARALLEL_LIMIT.
+	 */
+	private void solveInPlace(double[] x, int m){
+		if(singular)
+			throw new MatrixSingularException();
+		if((long) n * n * m > Matrix.PARALLEL_LIMIT && m > 1){
+			int blocks = (m + JB - 1) / JB;
+			IntStream.range(0, blocks).parallel().forEach((blk) -> substitute(x, m, blk * JB, Math.min(blk * JB + JB, m)));
+		}else{
+			substitute(x, m, 0, m);
+		}
+	}
+
+	/**Forward and back substitution, restricted to columns [c0,c1) of x.*/
+	private void substitute(double[] x, int m, int c0, int c1){
+		for(int k = 0; k < n; k++){
+			final int kOff = k * m;
+			for(int i = k + 1; i < n; i++){
+				final double l = lu[i * n + k];
+				if(l == 0.0d)
+					continue;
+				final int off = i * m;
+				for(int j = c0; j < c1; j++)
+					x[off + j] -= l * x[kOff + j];
+			}
+		}
+		for(int k = n - 1; k >= 0; k--){
+			final int kOff = k * m;
+			final double d = lu[k * n + k];
+			for(int j = c0; j < c1; j++)
+				x[kOff + j] /= d;
+			for(int i = 0; i < k; i++){
+				final double u = lu[i * n + k];
+				if(u == 0.0d)
+					continue;
+				final int off = i * m;
+				for(int j = c0; j < c1; j++)
+					x[off + j] -= u * x[kOff + j];
+			}
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package ch.dajay42.math.linAlg.decomp;
+
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.linAlg.*;
+
+/**Householder QR Decomposition, A = Q*R, of an m*n Matrix A with m >= n.
+ * <p/>Q is m*n with orthonormal columns, R is n*n upper triangular.
+ * The factorization works on a column-major copy of A, so that every Householder reflection
+ * operates on contiguous columns; the reflection is applied to the remaining columns in parallel.
+ * If A has full rank, {@link #solve(Matrix)} returns the least squares solution of A*X = B.
+ * <p/>Runs in O(m*n^2) on construction, O(m*n) per right-hand side.
+ * @author DaJay42
+ */
+public class QRDecomposition{
+
+	private final int m, n;
+
+	/**Householder vectors below the diagonal and R above it, column-major.*/
+	private final double[] qr;
+
+	/**Diagonal of R.*/
+	private final double[] rDiag;
+
+	/**Computes the QR Decomposition of a.
+	 * @param a Matrix with at least as many rows as columns
+	 */
+	public QRDecomposition(Matrix a){
+		if(a.rows < a.cols)
+			throw new IllegalMatrixException("Matrix error: Matrix must have at least as many rows as columns, was "+a.rows+"*"+a.cols+".");
+		m = a.rows;
+		n = a.cols;
+		qr = new double[m * n];
+		rDiag = new double[n];
+		double[] values = a.getValuesRowMajor();
+		for(int i = 0; i < m; i++)
+			for(int j = 0; j < n; j++)
+				qr[j * m + i] = values[i * n + j];
+
+		for(int k = 0; k < n; k++){
+			final int kOff = k * m;
+			double nrm = 0.0d;
+			for(int i = k; i < m; i++)
+				nrm = Math.hypot(nrm, qr[kOff + i]);
+
+			if(nrm != 0.0d){
+				if(qr[kOff + k] < 0)
+					nrm = -nrm;
+				for(int i = k; i < m; i++)
+					qr[kOff + i] /= nrm;
+				qr[kOff + k] += 1.0d;
+
+				final int col = k;
+				IntStream range = (long) (n - k) * (m - k) > Matrix.PARALLEL_LIMIT
+						? IntStream.range(k + 1, n).parallel() : IntStream.range(k + 1, n).sequential();
+				range.forEach((j) -> reflect(col, qr, j * m));
+			}
+			rDiag[k] = -nrm;
+		}
+	}
+
+	/**Applies the k-th Householder reflection to the column of length m starting at target[off].*/
+	private void reflect(int k, double[] target, int off){
+		final int kOff = k * m;
+		double s = 0.0d;
+		for(int i = k; i < m; i++)
+			s += qr[kOff + i] * target[off + i];
+		s = -s / qr[kOff + k];
+		for(int i = k; i < m; i++)
+			target[off + i] += s * qr[kOff + i];
+	}
+
+	/**Returns true iff R, and hence A, has full rank.*/
+	public boolean isFullRank(){
+		for(double d : rDiag)
+			if(d == 0.0d)
+				return false;
+		return true;
+	}
+
+	/**Returns the upper triangular factor R.*/
+	public Matrix getR(){
+		double[] r = new double[n * n];
+		for(int i = 0; i < n; i++){
+			r[i * n + i] = rDiag[i];
+			for(int j = i + 1; j < n; j++)
+				r[i * n + j] = qr[j * m + i];
+		}
+		return Matrix.zeroes(n, n).fill(r);
+	}
+
+	/**Returns the orthonormal factor Q.*/
+	public Matrix getQ(){
+		double[] q = new double[n * m];
+		for(int k = n - 1; k >= 0; k--){
+			final int kOff = k * m;
+			q[kOff + k] = 1.0d;
+			for(int j = k; j < n; j++)
+				if(qr[kOff + k] != 0.0d)
+					reflect(k, q, j * m);
+		}
+		double[] t = new double[m * n];
+		for(int j = 0; j < n; j++)
+			for(int i = 0; i < m; i++)
+				t[i * n + j] = q[j * m + i];
+		return Matrix.zeroes(m, n).fill(t);
+	}
+
+	/**Returns the least squares solution X of A*X = B, which minimizes the 2-norm of A*X - B.
+	 * @param b right-hand side(s), with as many rows as A
+	 * @return X, with as many columns as b
+	 * @throws MatrixSingularException if A is rank deficient
+	 */
+	public Matrix solve(Matrix b){
+		if(b.rows != m)
+			throw new MatrixDimensionMismatchException();
+		if(!isFullRank())
+			throw new MatrixSingularException();
+		final int nx = b.cols;
+		double[] values = b.getValuesRowMajor();
+		double[] y = new double[nx * m];
+		for(int i = 0; i < m; i++)
+			for(int j = 0; j < nx; j++)
+				y[j * m + i] = values[i * nx + j];
+
+		IntStream range = (long) nx * m * n > Matrix.PARALLEL_LIMIT ? IntStream.range(0, nx).parallel() : IntStream.range(0, nx).sequential();
+		range.forEach((j) -> {
+			final int off = j * m;
+			for(int k = 0; k < n; k++)
+				reflect(k, y, off);
+			for(int k = n - 1; k >= 0; k--){
+				y[off + k] /= rDiag[k];
+				final double yk = y[off + k];
+				final int kOff = k * m;
+				for(int i = 0; i < k; i++)
+					y[off + i] -= yk * qr[kOff + i];
+			}
+		});
+
+		double[] x = new double[n * nx];
+		for(int i = 0; i < n; i++)
+			for(int j = 0; j < nx; j++)
+				x[i * nx + j] = y[j * m + i];
+		return Matrix.zeroes(n, nx).fill(x);
+	}
+}
@@ -0,0 +1,105 @@
+package ch.dajay42.math.linAlg.decomp;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import ch.dajay42.math.linAlg.*;
+
+/**Randomized truncated Singular Value Decomposition, A ~ U*S*V^T, of the k largest singular values of an m*n Matrix A.
+ * <p/>U is m*k and V is n*k with orthonormal columns, and S is the k*k diagonal of the singular values, in descending order.
+ * <p/>The range of A is sampled by Y = A*G for a Gaussian n*l test Matrix G, l = k + oversampling,
+ * sharpened by power iterations Y <- A*(A^T*Y), re-orthonormalized by {@link QRDecomposition} after each product.
+ * With Q the orthonormal basis of Y, the small l*n Matrix Q^T*A is decomposed exactly by {@link SingularValueDecomposition}.
+ * All products with A go through {@link Matrix#multiply(Matrix)}, so a sparse A is never densified,
+ * and A^T is only ever a view.
+ * <p/>Runs in O((2*powerIterations + 2)*l*cost(A*x) + (m + n)*l^2).
+ * @author DaJay42
+ */
+public class RandomizedSVD{
+
+	/**Default number of extra samples.*/
+	public static final int DEFAULT_OVERSAMPLING = 10;
+
+	/**Default number of power iterations.*/
+	public static final int DEFAULT_POWER_ITERATIONS = 2;
+
+	private final int k;
+	private final Matrix u, v;
+	private final double[] s;
+
+	/**Computes the k largest singular values of a, and their singular vectors,
+	 * with the default oversampling and power iterations.
+	 * @param a Matrix to decompose
+	 * @param k number of singular values, at most min(rows, cols)
+	 */
+	public RandomizedSVD(Matrix a, int k){
+		this(a, k, DEFAULT_OVERSAMPLING, DEFAULT_POWER_ITERATIONS, new Random());
+	}
+
+	/**Computes the k largest singular values of a, and their singular vectors.
+	 * @param a Matrix to decompose
+	 * @param k number of singular values, at most min(rows, cols)
+	 * @param oversampling number of extra samples, which improve accuracy at the cost of time
+	 * @param powerIterations number of power iterations, which improve accuracy for slowly decaying spectra
+	 * @param random source of the test Matrix
+	 */
+	public RandomizedSVD(Matrix a, int k, int oversampling, int powerIterations, Random random){
+		final int m = a.rows, n = a.cols;
+		if(k < 1 || k > Math.min(m, n))
+			throw new IllegalArgumentException("Rank must be in [1, " + Math.min(m, n) + "], was " + k + ".");
+		if(oversampling < 0 || powerIterations < 0)
+			throw new IllegalArgumentException("Oversampling and power iterations must not be negative.");
+		this.k = k;
+		final int l = Math.min(k + oversampling, Math.min(m, n));
+
+		double[] g = new double[n * l];
+		for(int i = 0; i < g.length; i++)
+			g[i] = random.nextGaussian();
+		Matrix q = orthonormal(a.multiply(Matrix.zeroes(n, l).fill(g)));
+		final Matrix at = a.transposedView();
+		for(int i = 0; i < powerIterations; i++)
+			q = orthonormal(a.multiply(orthonormal(at.multiply(q))));
+
+		SingularValueDecomposition svd = new SingularValueDecomposition(q.transposedView().multiply(a));
+		s = Arrays.copyOf(svd.getSingularValues(), k);
+		u = q.multiply(leading(svd.getU(), k));
+		v = leading(svd.getV(), k);
+	}
+
+	/**Returns an orthonormal basis of the columns of y, which has at least as many rows as columns.*/
+	private static Matrix orthonormal(Matrix y){
+		return new QRDecomposition(y instanceof MatrixLazy ? ((MatrixLazy) y).eval() : y).getQ();
+	}
+
+	/**Returns a copy of the first k columns of x.*/
+	private static Matrix leading(Matrix x, int k){
+		double[] values = x.getValuesRowMajor();
+		double[] result = new double[x.rows * k];
+		for(int i = 0; i < x.rows; i++)
+			System.arraycopy(values, i * x.cols, result, i * k, k);
+		return Matrix.zeroes(x.rows, k).fill(result);
+	}
+
+	/**Returns the k largest singular values, in descending order.*/
+	public double[] getSingularValues(){
+		return s.clone();
+	}
+
+	/**Returns the diagonal Matrix S of the singular values.*/
+	public Matrix getS(){
+		double[] values = new double[k * k];
+		for(int i = 0; i < k; i++)
+			values[i * k + i] = s[i];
+		return Matrix.zeroes(k, k).fill(values);
+	}
+
+	/**Returns the m*k Matrix U of the left singular vectors.*/
+	public Matrix getU(){
+		return Matrix.zeroes(u.rows, u.cols).fill(u.getValuesRowMajor());
+	}
+
+	/**Returns the n*k Matrix V of the right singular vectors.*/
+	public Matrix getV(){
+		return Matrix.zeroes(v.rows, v.cols).fill(v.getValuesRowMajor());
+	}
+}
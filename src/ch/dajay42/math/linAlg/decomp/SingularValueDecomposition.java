@@ -0,0 +1,389 @@
+package ch.dajay42.math.linAlg.decomp;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.linAlg.*;
+
+/**Singular Value Decomposition, A = U*S*V^T, of an m*n Matrix A.
+ * <p/>With r = min(m, n), U is m*r and V is n*r with orthonormal columns,
+ * and S is the r*r diagonal of the singular values, in descending order.
+ * <p/>A is reduced to bidiagonal form by Householder reflections from both sides (Golub-Kahan),
+ * which is then diagonalized by implicitly shifted QR steps.
+ * Everything works on column-major copies, so that each reflection and each rotation
+ * operates on contiguous columns; the reflections are applied to the remaining columns in parallel.
+ * If m < n, A^T is decomposed instead, whose column-major copy is the row-major copy of A.
+ * <p/>Runs in O(m*n*r).
+ * @author DaJay42
+ */
+public class SingularValueDecomposition{
+
+	private final int m, n;
+
+	/**True iff A^T was decomposed, i.e. u and v are swapped.*/
+	private final boolean transposed;
+
+	/**Left and right singular vectors of the decomposed matrix, column-major, um*nu and vn*nu.*/
+	private final double[] u, v;
+	private final int um, vn, nu;
+
+	/**Singular values, descending.*/
+	private final double[] s;
+
+	/**Computes the Singular Value Decomposition of a.
+	 * @param a Matrix to decompose
+	 */
+	public SingularValueDecomposition(Matrix a){
+		m = a.rows;
+		n = a.cols;
+		transposed = m < n;
+		final int rows = transposed ? n : m, cols = transposed ? m : n;
+		double[] values = a.getValuesRowMajor();
+		final double[] c;
+		if(transposed){
+			c = values;
+		}else{
+			c = new double[rows * cols];
+			for(int i = 0; i < rows; i++)
+				for(int j = 0; j < cols; j++)
+					c[j * rows + i] = values[i * cols + j];
+		}
+		um = rows;
+		vn = cols;
+		nu = cols;
+		u = new double[rows * cols];
+		v = new double[cols * cols];
+		double[] sv = new double[Math.min(rows + 1, cols)];
+		decompose(c, rows, cols, sv);
+		s = Arrays.copyOf(sv, nu);
+	}
+
+	private static IntStream range(int from, int to, long work){
+		return work > Matrix.PARALLEL_LIMIT ? IntStream.range(from, to).parallel() : IntStream.range(from, to).sequential();
+	}
+
+	/**Decomposes the column-major m*n matrix a, m >= n, into u, s and v.*/
+	private void decompose(double[] a, int m, int n, double[] s){
+		final double[] e = new double[n], work = new double[m];
+		final int nct = Math.min(m - 1, n), nrt = Math.max(0, Math.min(n - 2, m));
+
+		// bidiagonalize: column reflections into a (and u), row reflections into e (and v)
+		for(int k = 0; k < Math.max(nct, nrt); k++){
+			final int kOff = k * m;
+			if(k < nct){
+				s[k] = 0.0d;
+				for(int i = k; i < m; i++)
+					s[k] = Math.hypot(s[k], a[kOff + i]);
+				if(s[k] != 0.0d){
+					if(a[kOff + k] < 0.0d)
+						s[k] = -s[k];
+					for(int i = k; i < m; i++)
+						a[kOff + i] /= s[k];
+					a[kOff + k] += 1.0d;
+				}
+				s[k] = -s[k];
+			}
+			final int col = k;
+			final boolean reflect = k < nct && s[k] != 0.0d;
+			range(k + 1, n, (long) (n - k) * (m - k)).forEach((j) -> {
+				final int jOff = j * m;
+				if(reflect)
+					reflect(a, m, col, a, jOff);
+				e[j] = a[jOff + col];
+			});
+			if(k < nct)
+				System.arraycopy(a, kOff + k, u, kOff + k, m - k);
+			if(k < nrt){
+				e[k] = 0.0d;
+				for(int i = k + 1; i < n; i++)
+					e[k] = Math.hypot(e[k], e[i]);
+				if(e[k] != 0.0d){
+					if(e[k + 1] < 0.0d)
+						e[k] = -e[k];
+					for(int i = k + 1; i < n; i++)
+						e[i] /= e[k];
+					e[k + 1] += 1.0d;
+				}
+				e[k] = -e[k];
+				if(k + 1 < m && e[k] != 0.0d){
+					Arrays.fill(work, k + 1, m, 0.0d);
+					for(int j = k + 1; j < n; j++){
+						final double ej = e[j];
+						final int jOff = j * m;
+						for(int i = k + 1; i < m; i++)
+							work[i] += ej * a[jOff + i];
+					}
+					final double ek1 = e[k + 1];
+					range(k + 1, n, (long) (n - k) * (m - k)).forEach((j) -> {
+						final double t = -e[j] / ek1;
+						final int jOff = j * m;
+						for(int i = col + 1; i < m; i++)
+							a[jOff + i] += t * work[i];
+					});
+				}
+				for(int i = k + 1; i < n; i++)
+					v[k * n + i] = e[i];
+			}
+		}
+
+		// the bidiagonal of order p
+		int p = Math.min(n, m + 1);
+		if(nct < n)
+			s[nct] = a[nct * m + nct];
+		if(m < p)
+			s[p - 1] = 0.0d;
+		if(nrt + 1 < p)
+			e[nrt] = a[(p - 1) * m + nrt];
+		e[p - 1] = 0.0d;
+
+		// generate u
+		for(int j = nct; j < nu; j++){
+			Arrays.fill(u, j * m, (j + 1) * m, 0.0d);
+			u[j * m + j] = 1.0d;
+		}
+		for(int k = nct - 1; k >= 0; k--){
+			final int kOff = k * m;
+			if(s[k] != 0.0d){
+				final int col = k;
+				range(k + 1, nu, (long) (nu - k) * (m - k)).forEach((j) -> reflect(u, m, col, u, j * m));
+				for(int i = k; i < m; i++)
+					u[kOff + i] = -u[kOff + i];
+				u[kOff + k] += 1.0d;
+				for(int i = 0; i < k - 1; i++)
+					u[kOff + i] = 0.0d;
+			}else{
+				Arrays.fill(u, kOff, kOff + m, 0.0d);
+				u[kOff + k] = 1.0d;
+			}
+		}
+
+		// generate v
+		for(int k = n - 1; k >= 0; k--){
+			final int kOff = k * n;
+			if(k < nrt && e[k] != 0.0d){
+				final int col = k;
+				range(k + 1, nu, (long) (nu - k) * (n - k)).forEach((j) -> {
+					final int jOff = j * n;
+					double t = 0.0d;
+					for(int i = col + 1; i < n; i++)
+						t += v[kOff + i] * v[jOff + i];
+					t = -t / v[kOff + col + 1];
+					for(int i = col + 1; i < n; i++)
+						v[jOff + i] += t * v[kOff + i];
+				});
+			}
+			Arrays.fill(v, kOff, kOff + n, 0.0d);
+			v[kOff + k] = 1.0d;
+		}
+
+		// implicitly shifted QR on the bidiagonal
+		final int pp = p - 1;
+		final double eps = Math.ulp(1.0d), tiny = Math.pow(2.0d, -966.0d);
+		while(p > 0){
+			int k, kase;
+			for(k = p - 2; k >= 0; k--){
+				if(Math.abs(e[k]) <= tiny + eps * (Math.abs(s[k]) + Math.abs(s[k + 1]))){
+					e[k] = 0.0d;
+					break;
+				}
+			}
+			if(k == p - 2){
+				kase = 4;
+			}else{
+				int ks;
+				for(ks = p - 1; ks > k; ks--){
+					double t = (ks != p ? Math.abs(e[ks]) : 0.0d) + (ks != k + 1 ? Math.abs(e[ks - 1]) : 0.0d);
+					if(Math.abs(s[ks]) <= tiny + eps * t){
+						s[ks] = 0.0d;
+						break;
+					}
+				}
+				if(ks == k){
+					kase = 3;
+				}else if(ks == p - 1){
+					kase = 1;
+				}else{
+					kase = 2;
+					k = ks;
+				}
+			}
+			k++;
+
+			switch(kase){
+				case 1:{
+					// deflate negligible s[p-1]
+					double f = e[p - 2];
+					e[p - 2] = 0.0d;
+					for(int j = p - 2; j >= k; j--){
+						double t = Math.hypot(s[j], f);
+						final double cs = s[j] / t, sn = f / t;
+						s[j] = t;
+						if(j != k){
+							f = -sn * e[j - 1];
+							e[j - 1] = cs * e[j - 1];
+						}
+						rotate(v, n, j, p - 1, cs, sn);
+					}
+					break;
+				}
+				case 2:{
+					// split at negligible s[k-1]
+					double f = e[k - 1];
+					e[k - 1] = 0.0d;
+					for(int j = k; j < p; j++){
+						double t = Math.hypot(s[j], f);
+						final double cs = s[j] / t, sn = f / t;
+						s[j] = t;
+						f = -sn * e[j];
+						e[j] = cs * e[j];
+						rotate(u, m, j, k - 1, cs, sn);
+					}
+					break;
+				}
+				case 3:{
+					// one QR step
+					final double scale = Math.max(Math.max(Math.max(Math.max(
+							Math.abs(s[p - 1]), Math.abs(s[p - 2])), Math.abs(e[p - 2])), Math.abs(s[k])), Math.abs(e[k]));
+					final double sp = s[p - 1] / scale, spm1 = s[p - 2] / scale, epm1 = e[p - 2] / scale;
+					final double sk = s[k] / scale, ek = e[k] / scale;
+					final double b = ((spm1 + sp) * (spm1 - sp) + epm1 * epm1) / 2.0d;
+					final double c = (sp * epm1) * (sp * epm1);
+					double shift = 0.0d;
+					if(b != 0.0d || c != 0.0d){
+						shift = Math.sqrt(b * b + c);
+						if(b < 0.0d)
+							shift = -shift;
+						shift = c / (b + shift);
+					}
+					double f = (sk + sp) * (sk - sp) + shift;
+					double g = sk * ek;
+					for(int j = k; j < p - 1; j++){
+						double t = Math.hypot(f, g);
+						double cs = f / t, sn = g / t;
+						if(j != k)
+							e[j - 1] = t;
+						f = cs * s[j] + sn * e[j];
+						e[j] = cs * e[j] - sn * s[j];
+						g = sn * s[j + 1];
+						s[j + 1] = cs * s[j + 1];
+						rotate(v, n, j, j + 1, cs, sn);
+						t = Math.hypot(f, g);
+						cs = f / t;
+						sn = g / t;
+						s[j] = t;
+						f = cs * e[j] + sn * s[j + 1];
+						s[j + 1] = -sn * e[j] + cs * s[j + 1];
+						g = sn * e[j + 1];
+						e[j + 1] = cs * e[j + 1];
+						if(j < m - 1)
+							rotate(u, m, j, j + 1, cs, sn);
+					}
+					e[p - 2] = f;
+					break;
+				}
+				default:{
+					// convergence: make s[k] positive, and sort
+					if(s[k] <= 0.0d){
+						s[k] = s[k] < 0.0d ? -s[k] : 0.0d;
+						for(int i = 0; i <= pp; i++)
+							v[k * n + i] = -v[k * n + i];
+					}
+					while(k < pp && s[k] < s[k + 1]){
+						double t = s[k];
+						s[k] = s[k + 1];
+						s[k + 1] = t;
+						if(k < n - 1)
+							swap(v, n, k, k + 1);
+						if(k < m - 1)
+							swap(u, m, k, k + 1);
+						k++;
+					}
+					p--;
+				}
+			}
+		}
+	}
+
+	/**Applies the Householder reflection stored in column k of h, of length len, to the column starting at target[off].*/
+	private static void reflect(double[] h, int len, int k, double[] target, int off){
+		final int kOff = k * len;
+		double t = 0.0d;
+		for(int i = k; i < len; i++)
+			t += h[kOff + i] * target[off + i];
+		t = -t / h[kOff + k];
+		for(int i = k; i < len; i++)
+			target[off + i] += t * h[kOff + i];
+	}
+
+	/**Rotates columns j and l, of length len, of x by (cs, sn): x_j <- cs*x_j + sn*x_l, x_l <- cs*x_l - sn*x_j.*/
+	private static void rotate(double[] x, int len, int j, int l, double cs, double sn){
+		final int jOff = j * len, lOff = l * len;
+		for(int i = 0; i < len; i++){
+			final double t = cs * x[jOff + i] + sn * x[lOff + i];
+			x[lOff + i] = -sn * x[jOff + i] + cs * x[lOff + i];
+			x[jOff + i] = t;
+		}
+	}
+
+	/**Swaps columns j and l, of length len, of x.*/
+	private static void swap(double[] x, int len, int j, int l){
+		final int jOff = j * len, lOff = l * len;
+		for(int i = 0; i < len; i++){
+			final double t = x[jOff + i];
+			x[jOff + i] = x[lOff + i];
+			x[lOff + i] = t;
+		}
+	}
+
+	/**Returns the r*r column-major x, of length len per column, as a row-major len*r Matrix.*/
+	private Matrix toMatrix(double[] x, int len){
+		double[] values = new double[len * nu];
+		for(int j = 0; j < nu; j++)
+			for(int i = 0; i < len; i++)
+				values[i * nu + j] = x[j * len + i];
+		return Matrix.zeroes(len, nu).fill(values);
+	}
+
+	/**Returns the singular values, in descending order.*/
+	public double[] getSingularValues(){
+		return s.clone();
+	}
+
+	/**Returns the diagonal Matrix S of the singular values.*/
+	public Matrix getS(){
+		double[] values = new double[nu * nu];
+		for(int i = 0; i < nu; i++)
+			values[i * nu + i] = s[i];
+		return Matrix.zeroes(nu, nu).fill(values);
+	}
+
+	/**Returns the m*r Matrix U of the left singular vectors.*/
+	public Matrix getU(){
+		return transposed ? toMatrix(v, vn) : toMatrix(u, um);
+	}
+
+	/**Returns the n*r Matrix V of the right singular vectors.*/
+	public Matrix getV(){
+		return transposed ? toMatrix(u, um) : toMatrix(v, vn);
+	}
+
+	/**Returns the 2-norm of A, its largest singular value.*/
+	public double norm2(){
+		return s[0];
+	}
+
+	/**Returns the 2-norm condition number of A, the ratio of its largest to smallest singular value.*/
+	public double cond(){
+		return s[0] / s[nu - 1];
+	}
+
+	/**Returns the numerical rank of A, the number of singular values above max(m, n)*s[0]*ulp(1).*/
+	public int rank(){
+		final double tol = Math.max(m, n) * s[0] * Math.ulp(1.0d);
+		int r = 0;
+		for(double d : s)
+			if(d > tol)
+				r++;
+		return r;
+	}
+}
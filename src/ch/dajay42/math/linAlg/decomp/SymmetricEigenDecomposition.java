@@ -0,0 +1,269 @@
+package ch.dajay42.math.linAlg.decomp;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import ch.dajay42.math.linAlg.*;
+
+/**Eigendecomposition, A = V*D*V^T, of a symmetric Matrix A.
+ * <p/>D is diagonal and holds the eigenvalues in ascending order, V is orthogonal and holds the eigenvectors as columns.
+ * Only the lower triangle of A is read.
+ * <p/>A is first reduced to tridiagonal form by Householder similarity transformations,
+ * whose rank-2 updates run over contiguous rows of a row-major copy of A, in parallel.
+ * The tridiagonal matrix is then diagonalized by the implicit QL method,
+ * whose Givens rotations are accumulated on the rows of V^T, so that each of them touches two contiguous rows.
+ * <p/>Runs in O(n^3).
+ * @author DaJay42
+ */
+public class SymmetricEigenDecomposition{
+
+	/**Columns per block of the parallel accumulation of the Householder transformations.*/
+	static final int NB = 64;
+
+	private final int n;
+
+	/**Eigenvalues, ascending.*/
+	private final double[] d;
+
+	/**Eigenvectors, as rows, in the order of d.*/
+	private final double[] w;
+
+	/**Computes the Eigendecomposition of a.
+	 * @param a symmetric Matrix to decompose
+	 */
+	public SymmetricEigenDecomposition(Matrix a){
+		if(a.rows != a.cols)
+			throw new MatrixNotSquareException(a.rows, a.cols);
+		n = a.rows;
+		d = new double[n];
+		double[] e = new double[n];
+		double[] v = a.getValuesRowMajor();
+		tred2(v, e);
+		w = new double[n * n];
+		for(int i = 0; i < n; i++)
+			for(int j = 0; j < n; j++)
+				w[j * n + i] = v[i * n + j];
+		tql2(e);
+	}
+
+	private static IntStream range(int count, long work){
+		return work > Matrix.PARALLEL_LIMIT ? IntStream.range(0, count).parallel() : IntStream.range(0, count).sequential();
+	}
+
+	/**Householder reduction of v to tridiagonal form, diagonal into d and subdiagonal into e[1..n),
+	 * leaving the accumulated transformations in v.*/
+	private void tred2(double[] v, double[] e){
+		final double[] g = new double[n];
+		System.arraycopy(v, (n - 1) * n, d, 0, n);
+
+		for(int i = n - 1; i > 0; i--){
+			double scale = 0.0d, h = 0.0d;
+			for(int k = 0; k < i; k++)
+				scale += Math.abs(d[k]);
+			if(scale == 0.0d){
+				e[i] = d[i - 1];
+				for(int j = 0; j < i; j++){
+					d[j] = v[(i - 1) * n + j];
+					v[i * n + j] = 0.0d;
+					v[j * n + i] = 0.0d;
+				}
+			}else{
+				for(int k = 0; k < i; k++){
+					d[k] /= scale;
+					h += d[k] * d[k];
+				}
+				double f = d[i - 1];
+				double gi = Math.sqrt(h);
+				if(f > 0)
+					gi = -gi;
+				e[i] = scale * gi;
+				h -= f * gi;
+				d[i - 1] = f - gi;
+
+				// e = A*d over the leading i*i block, of which v holds the lower triangle
+				for(int j = 0; j < i; j++)
+					v[j * n + i] = d[j];
+				final int len = i;
+				range(i, (long) i * i).forEach((j) -> {
+					final int jOff = j * n;
+					double s = 0.0d;
+					for(int k = 0; k <= j; k++)
+						s += v[jOff + k] * d[k];
+					for(int k = j + 1; k < len; k++)
+						s += v[k * n + j] * d[k];
+					e[j] = s;
+				});
+				f = 0.0d;
+				for(int j = 0; j < i; j++){
+					e[j] /= h;
+					f += e[j] * d[j];
+				}
+				final double hh = f / (h + h);
+				for(int j = 0; j < i; j++)
+					e[j] -= hh * d[j];
+
+				// A <- A - d*e^T - e*d^T, on the lower triangle, row by row
+				range(i, (long) i * i / 2).forEach((k) -> {
+					final int kOff = k * n;
+					final double ek = e[k], dk = d[k];
+					for(int j = 0; j <= k; j++)
+						v[kOff + j] -= d[j] * ek + e[j] * dk;
+				});
+				for(int j = 0; j < i; j++){
+					d[j] = v[(i - 1) * n + j];
+					v[i * n + j] = 0.0d;
+				}
+			}
+			d[i] = h;
+		}
+
+		// accumulate the transformations
+		for(int i = 0; i < n - 1; i++){
+			v[(n - 1) * n + i] = v[i * n + i];
+			v[i * n + i] = 1.0d;
+			final double h = d[i + 1];
+			final int len = i + 1;
+			if(h != 0.0d){
+				for(int k = 0; k < len; k++)
+					d[k] = v[k * n + len] / h;
+				// g = V^T * column i+1, over the leading len*len block, by blocks of NB columns
+				range((len + NB - 1) / NB, (long) len * len).forEach((b) -> {
+					final int j0 = b * NB, j1 = Math.min(j0 + NB, len);
+					Arrays.fill(g, j0, j1, 0.0d);
+					for(int k = 0; k < len; k++){
+						final double vk = v[k * n + len];
+						final int kOff = k * n;
+						for(int j = j0; j < j1; j++)
+							g[j] += vk * v[kOff + j];
+					}
+				});
+				range(len, (long) len * len).forEach((k) -> {
+					final int kOff = k * n;
+					final double dk = d[k];
+					for(int j = 0; j < len; j++)
+						v[kOff + j] -= g[j] * dk;
+				});
+			}
+			for(int k = 0; k < len; k++)
+				v[k * n + len] = 0.0d;
+		}
+		for(int j = 0; j < n; j++){
+			d[j] = v[(n - 1) * n + j];
+			v[(n - 1) * n + j] = 0.0d;
+		}
+		v[n * n - 1] = 1.0d;
+		e[0] = 0.0d;
+	}
+
+	/**Implicit QL iteration on the tridiagonal (d, e), accumulating the rotations on the rows of w,
+	 * then sorts the eigenvalues in ascending order.*/
+	private void tql2(double[] e){
+		for(int i = 1; i < n; i++)
+			e[i - 1] = e[i];
+		e[n - 1] = 0.0d;
+
+		double f = 0.0d, tst1 = 0.0d;
+		final double eps = Math.ulp(1.0d);
+		for(int l = 0; l < n; l++){
+			tst1 = Math.max(tst1, Math.abs(d[l]) + Math.abs(e[l]));
+			int m = l;
+			while(m < n - 1 && Math.abs(e[m]) > eps * tst1)
+				m++;
+			if(m > l){
+				do{
+					double g = d[l];
+					double p = (d[l + 1] - g) / (2.0d * e[l]);
+					double r = Math.hypot(p, 1.0d);
+					if(p < 0)
+						r = -r;
+					d[l] = e[l] / (p + r);
+					d[l + 1] = e[l] * (p + r);
+					final double dl1 = d[l + 1];
+					double h = g - d[l];
+					for(int i = l + 2; i < n; i++)
+						d[i] -= h;
+					f += h;
+
+					p = d[m];
+					double c = 1.0d, c2 = c, c3 = c, s = 0.0d, s2 = 0.0d;
+					final double el1 = e[l + 1];
+					for(int i = m - 1; i >= l; i--){
+						c3 = c2;
+						c2 = c;
+						s2 = s;
+						g = c * e[i];
+						h = c * p;
+						r = Math.hypot(p, e[i]);
+						e[i + 1] = s * r;
+						s = e[i] / r;
+						c = p / r;
+						p = c * d[i] - s * g;
+						d[i + 1] = h + s * (c * g + s * d[i]);
+						rotate(i, c, s);
+					}
+					p = -s * s2 * c3 * el1 * e[l] / dl1;
+					e[l] = s * p;
+					d[l] = c * p;
+				}while(Math.abs(e[l]) > eps * tst1);
+			}
+			d[l] += f;
+			e[l] = 0.0d;
+		}
+
+		for(int i = 0; i < n - 1; i++){
+			int k = i;
+			for(int j = i + 1; j < n; j++)
+				if(d[j] < d[k])
+					k = j;
+			if(k != i){
+				double t = d[k];
+				d[k] = d[i];
+				d[i] = t;
+				for(int j = 0; j < n; j++){
+					t = w[i * n + j];
+					w[i * n + j] = w[k * n + j];
+					w[k * n + j] = t;
+				}
+			}
+		}
+	}
+
+	/**Rotates rows i and i+1 of w by (c, s).*/
+	private void rotate(int i, double c, double s){
+		final int a = i * n, b = a + n;
+		for(int k = 0; k < n; k++){
+			final double h = w[b + k];
+			w[b + k] = s * w[a + k] + c * h;
+			w[a + k] = c * w[a + k] - s * h;
+		}
+	}
+
+	/**Returns the eigenvalues, in ascending order.*/
+	public double[] getEigenvalues(){
+		return d.clone();
+	}
+
+	/**Returns the diagonal Matrix D of the eigenvalues.*/
+	public Matrix getD(){
+		double[] values = new double[n * n];
+		for(int i = 0; i < n; i++)
+			values[i * n + i] = d[i];
+		return Matrix.zeroes(n, n).fill(values);
+	}
+
+	/**Returns the orthogonal Matrix V, whose columns are the eigenvectors, in the order of the eigenvalues.*/
+	public Matrix getV(){
+		double[] values = new double[n * n];
+		for(int i = 0; i < n; i++)
+			for(int j = 0; j < n; j++)
+				values[j * n + i] = w[i * n + j];
+		return Matrix.zeroes(n, n).fill(values);
+	}
+
+	/**Returns the eigenvector of the k-th smallest eigenvalue, as a column vector.*/
+	public Matrix getEigenvector(int k){
+		if(k < 0 || k >= n)
+			throw new MatrixIndexOutOfBoundsException();
+		return Matrix.zeroes(n, 1).fill(Arrays.copyOfRange(w, k * n, (k + 1) * n));
+	}
+}
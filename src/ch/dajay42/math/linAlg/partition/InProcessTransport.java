@@ -0,0 +1,55 @@
+package ch.dajay42.math.linAlg.partition;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**Transport to workers in this JVM, each running its tasks on a thread of its own.
+ * <p/>Tasks and results are passed by reference, not serialized; tasks therefore need not be Serializable,
+ * but must not share mutable state with the coordinator or with each other.
+ * @author DaJay42
+ */
+public class InProcessTransport implements Transport{
+
+	private final PartitionWorker[] workers;
+	private final ExecutorService[] threads;
+
+	/**Creates a transport to the given number of new workers, with one thread each.*/
+	public InProcessTransport(int workers){
+		if(workers <= 0)
+			throw new IllegalArgumentException("Number of workers must be positive, was "+workers+".");
+		this.workers = new PartitionWorker[workers];
+		this.threads = new ExecutorService[workers];
+		for(int k = 0; k < workers; k++){
+			final String name = "partition-worker-"+k;
+			this.workers[k] = new PartitionWorker();
+			this.threads[k] = Executors.newSingleThreadExecutor((r) -> {
+				Thread t = new Thread(r, name);
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	@Override
+	public int workers(){
+		return workers.length;
+	}
+
+	/**Returns the worker with the given number.*/
+	public PartitionWorker worker(int k){
+		return workers[k];
+	}
+
+	@Override
+	public <R> CompletableFuture<R> submit(int worker, PartitionTask<R> task){
+		final PartitionWorker w = workers[worker];
+		return CompletableFuture.supplyAsync(() -> task.run(w), threads[worker]);
+	}
+
+	@Override
+	public void close(){
+		for(ExecutorService t : threads)
+			t.shutdown();
+	}
+}
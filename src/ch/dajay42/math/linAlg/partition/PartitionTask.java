@@ -0,0 +1,17 @@
+package ch.dajay42.math.linAlg.partition;
+
+import java.io.Serializable;
+
+/**Unit of work sent through a {@link Transport} and run by a {@link PartitionWorker} on the partitions it holds.
+ * <p/>Tasks are Serializable, so that lambdas implementing this interface are, too;
+ * whatever they capture, and whatever they return, must be Serializable as well
+ * for transports that cross process boundaries, such as {@link SocketTransport}.
+ * @param <R> type of the result
+ * @author DaJay42
+ */
+@FunctionalInterface
+public interface PartitionTask<R> extends Serializable{
+
+	/**Runs this task on worker, and returns its result.*/
+	R run(PartitionWorker worker);
+}
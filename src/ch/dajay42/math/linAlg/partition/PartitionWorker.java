@@ -0,0 +1,228 @@
+package ch.dajay42.math.linAlg.partition;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ch.dajay42.math.linAlg.IllegalMatrixException;
+import ch.dajay42.math.linAlg.Matrix;
+
+/**Holds the partitions of matrices assigned to one worker, by id, and runs {@link PartitionTask}s on them.
+ * <p/>A worker in another process serves a {@link SocketTransport} through {@link #serve(ServerSocket)},
+ * for example by running this class with the port to listen on as its only argument.
+ * <br/>Messages are framed: a request is an int length followed by a serialized task,
+ * a reply a boolean success, an int length and the serialized result or Throwable.
+ * <p/>Tasks are deserialized through an {@link ObjectInputFilter} that admits only the classes of this library,
+ * lambdas, boxed primitives, enums and the further classes a worker is created with,
+ * and that limits the nesting depth, and the length of arrays to that of the message.
+ * <br/>The protocol has no authentication: whoever can connect to a worker can run any task
+ * that those classes allow on it, and read and replace all its partitions.
+ * A worker must therefore never be reachable from an untrusted network; {@link #main(String[])} listens on the
+ * loopback interface unless told otherwise, and workers on other machines belong behind an authenticated,
+ * encrypted tunnel, such as SSH port forwarding or a VPN.
+ * @author DaJay42
+ */
+public class PartitionWorker{
+
+	/**Classes that tasks and results may always contain, as an {@link ObjectInputFilter} pattern:
+	 * those of this library, lambdas, boxed primitives and enums.*/
+	public static final String DEFAULT_CLASSES = "ch.dajay42.math.**;java.lang.invoke.SerializedLambda;"
+			+ "java.lang.Number;java.lang.Double;java.lang.Float;java.lang.Long;java.lang.Integer;java.lang.Boolean;java.lang.Enum;java.lang.Object";
+
+	/**Maximum nesting depth of a deserialized task or result.*/
+	static final int MAX_DEPTH = 64;
+
+	private final ConcurrentHashMap<Long, Matrix> partitions = new ConcurrentHashMap<>();
+
+	private final String allowedClasses;
+
+	/**Creates a worker that accepts tasks made of the {@link #DEFAULT_CLASSES} only.*/
+	public PartitionWorker(){
+		this("");
+	}
+
+	/**Creates a worker that accepts tasks made of the {@link #DEFAULT_CLASSES} and of allowedClasses,
+	 * such as the classes declaring the lambdas passed to a partitioned Matrix.
+	 * @param allowedClasses further classes, as an {@link ObjectInputFilter.Config#createFilter(String)} pattern, e.g. "com.example.**"
+	 * @throws IllegalArgumentException if allowedClasses is not a valid pattern
+	 */
+	public PartitionWorker(String allowedClasses){
+		filter(allowedClasses, false, 0);
+		this.allowedClasses = allowedClasses;
+	}
+
+	/**Returns the partition with the given id.
+	 * @throws IllegalMatrixException if this worker holds no such partition
+	 */
+	public Matrix get(long id){
+		Matrix m = partitions.get(id);
+		if(m == null)
+			throw new IllegalMatrixException("Matrix error: No partition "+id+" on this worker.");
+		return m;
+	}
+
+	/**Stores m as the partition with the given id, replacing any previous one.*/
+	public void put(long id, Matrix m){
+		partitions.put(id, m);
+	}
+
+	/**Returns the partition with the given id, first storing a new zero-filled one if there is none.
+	 * @throws IllegalMatrixException if the existing partition is not of size rows*cols
+	 */
+	public Matrix target(long id, int rows, int cols, boolean sparse){
+		Matrix m = partitions.computeIfAbsent(id, (k) -> Matrix.zeroes(rows, cols, sparse));
+		if(m.rows != rows || m.cols != cols)
+			throw new IllegalMatrixException("Matrix error: Partition "+id+" is "+m.rows+"*"+m.cols+", expected "+rows+"*"+cols+".");
+		return m;
+	}
+
+	/**Discards the partition with the given id, if any.*/
+	public void remove(long id){
+		partitions.remove(id);
+	}
+
+	/**Returns the number of partitions held.*/
+	public int size(){
+		return partitions.size();
+	}
+
+	/**Accepts connections on server until it is closed, serving each on its own daemon thread.
+	 * @throws IOException if accepting fails for another reason than server being closed
+	 */
+	public void serve(ServerSocket server) throws IOException{
+		while(!server.isClosed()){
+			final Socket socket;
+			try{
+				socket = server.accept();
+			}catch(SocketException e){
+				if(server.isClosed())
+					return;
+				throw e;
+			}
+			Thread t = new Thread(() -> {
+				try(socket){
+					serve(socket);
+				}catch(IOException e){
+					//connection lost; the coordinator sees its own side fail
+				}
+			}, "partition-worker-"+socket.getRemoteSocketAddress());
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	/**Runs the tasks received on socket, replying with their results, until the other side closes it.
+	 * @throws IOException if the connection fails
+	 */
+	public void serve(Socket socket) throws IOException{
+		socket.setTcpNoDelay(true);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		while(true){
+			final int length;
+			try{
+				length = in.readInt();
+			}catch(EOFException e){
+				return;
+			}
+			byte[] request = readFrame(in, length);
+			byte[] reply;
+			boolean success;
+			try{
+				PartitionTask<?> task = (PartitionTask<?>) deserialize(request, filter(allowedClasses, false, request.length));
+				reply = serialize(task.run(this));
+				success = true;
+			}catch(Throwable e){
+				reply = failure(e);
+				success = false;
+			}
+			out.writeBoolean(success);
+			out.writeInt(reply.length);
+			out.write(reply);
+			out.flush();
+		}
+	}
+
+	static byte[] serialize(Object o) throws IOException{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream out = new ObjectOutputStream(bytes)){
+			out.writeObject(o);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**Returns e serialized, or, if it is not Serializable, an exception with its description.*/
+	private static byte[] failure(Throwable e) throws IOException{
+		try{
+			return serialize(e);
+		}catch(NotSerializableException x){
+			return serialize(new IllegalMatrixException("Matrix error: Worker failed with "+e));
+		}
+	}
+
+	/**Reads a message of the given length, in steps as it arrives rather than allocating length bytes up front.
+	 * @throws IOException if length is negative, or the connection ends first
+	 */
+	static byte[] readFrame(DataInputStream in, int length) throws IOException{
+		if(length < 0)
+			throw new StreamCorruptedException("Negative message length "+length+".");
+		byte[] b = in.readNBytes(length);
+		if(b.length < length)
+			throw new EOFException("Connection closed within a message.");
+		return b;
+	}
+
+	/**Returns a filter that admits the {@link #DEFAULT_CLASSES}, allowedClasses, arrays and primitives,
+	 * and Throwables if so requested, nested at most MAX_DEPTH deep, in a message of the given number of bytes,
+	 * which bounds the length of any array in it.
+	 * @throws IllegalArgumentException if allowedClasses is not a valid pattern
+	 */
+	static ObjectInputFilter filter(String allowedClasses, boolean throwables, long bytes){
+		final ObjectInputFilter classes = ObjectInputFilter.Config.createFilter(
+				allowedClasses.isEmpty() ? DEFAULT_CLASSES : allowedClasses + ";" + DEFAULT_CLASSES);
+		return (info) -> {
+			if(info.depth() > MAX_DEPTH || info.arrayLength() > bytes || info.streamBytes() > bytes)
+				return ObjectInputFilter.Status.REJECTED;
+			Class<?> c = info.serialClass();
+			if(c == null)
+				return ObjectInputFilter.Status.ALLOWED;
+			while(c.isArray())
+				c = c.getComponentType();
+			//hidden classes cannot be named in a stream; they are lambdas, resolved from a SerializedLambda whose capturing class passed
+			if(c.isPrimitive() || c.isHidden())
+				return ObjectInputFilter.Status.ALLOWED;
+			if(throwables && (Throwable.class.isAssignableFrom(c) || c == StackTraceElement.class
+					|| c == java.util.ArrayList.class || c.getName().equals("java.util.Collections$EmptyList")))
+				return ObjectInputFilter.Status.ALLOWED;
+			return classes.checkInput(info) == ObjectInputFilter.Status.ALLOWED
+					? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+		};
+	}
+
+	static Object deserialize(byte[] b, ObjectInputFilter filter) throws IOException, ClassNotFoundException{
+		try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(b))){
+			in.setObjectInputFilter(filter);
+			return in.readObject();
+		}
+	}
+
+	/**Serves a {@link SocketTransport} on the given port, until killed.
+	 * <br/>Arguments: port, optionally the address to listen on, by default the loopback interface,
+	 * and optionally further allowed classes, see {@link #PartitionWorker(String)}.
+	 * Do not listen on an address reachable from an untrusted network, see above.
+	 */
+	public static void main(String[] args) throws IOException{
+		if(args.length < 1 || args.length > 3){
+			System.err.println("Usage: PartitionWorker <port> [listen-address] [allowed-classes]");
+			System.exit(2);
+		}
+		InetAddress address = args.length > 1 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+		PartitionWorker worker = new PartitionWorker(args.length > 2 ? args[2] : "");
+		try(ServerSocket server = new ServerSocket(Integer.parseInt(args[0]), 50, address)){
+			worker.serve(server);
+		}
+	}
+}
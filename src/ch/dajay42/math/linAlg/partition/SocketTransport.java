@@ -0,0 +1,178 @@
+package ch.dajay42.math.linAlg.partition;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**Transport to workers over TCP, one connection per worker, each served by a {@link PartitionWorker}.
+ * <p/>Tasks and results are serialized, as described in {@link PartitionWorker}; tasks for a worker are sent one at a time,
+ * each waiting for the reply to the one before, by a thread of the coordinator dedicated to that worker.
+ * <br/>{@link #loopback(int)} starts the workers in this JVM, on the loopback interface,
+ * which exercises the whole protocol on one machine.
+ * <p/>Replies are deserialized through the same kind of filter as tasks are by the workers, which also admits Throwables;
+ * tasks that use or return classes outside {@link PartitionWorker#DEFAULT_CLASSES} need them allowed on both sides.
+ * @author DaJay42
+ */
+public class SocketTransport implements Transport{
+
+	private final Socket[] sockets;
+	private final DataInputStream[] in;
+	private final DataOutputStream[] out;
+	private final ExecutorService[] threads;
+	private final List<ServerSocket> servers = new ArrayList<>();
+	private final String allowedClasses;
+
+	private SocketTransport(int workers, String allowedClasses){
+		PartitionWorker.filter(allowedClasses, true, 0);
+		this.allowedClasses = allowedClasses;
+		this.sockets = new Socket[workers];
+		this.in = new DataInputStream[workers];
+		this.out = new DataOutputStream[workers];
+		this.threads = new ExecutorService[workers];
+	}
+
+	/**Connects to workers serving at the given addresses, in order.
+	 * @throws IOException if a connection cannot be established
+	 */
+	public static SocketTransport connect(InetSocketAddress... workers) throws IOException{
+		return connect("", workers);
+	}
+
+	/**Connects to workers serving at the given addresses, in order, accepting replies that contain allowedClasses.
+	 * @param allowedClasses further classes, as by {@link PartitionWorker#PartitionWorker(String)}
+	 * @throws IOException if a connection cannot be established
+	 */
+	public static SocketTransport connect(String allowedClasses, InetSocketAddress... workers) throws IOException{
+		if(workers.length == 0)
+			throw new IllegalArgumentException("Number of workers must be positive, was 0.");
+		SocketTransport t = new SocketTransport(workers.length, allowedClasses);
+		try{
+			for(int k = 0; k < workers.length; k++)
+				t.open(k, workers[k]);
+		}catch(IOException e){
+			t.close();
+			throw e;
+		}
+		return t;
+	}
+
+	/**Starts the given number of workers in this JVM, each listening on its own port of the loopback interface,
+	 * and connects to them.
+	 * @throws IOException if a worker cannot be started or connected to
+	 */
+	public static SocketTransport loopback(int workers) throws IOException{
+		return loopback(workers, "");
+	}
+
+	/**Starts the given number of workers in this JVM, as by {@link #loopback(int)}, that accept tasks containing allowedClasses.
+	 * @param allowedClasses further classes, as by {@link PartitionWorker#PartitionWorker(String)}
+	 * @throws IOException if a worker cannot be started or connected to
+	 */
+	public static SocketTransport loopback(int workers, String allowedClasses) throws IOException{
+		if(workers <= 0)
+			throw new IllegalArgumentException("Number of workers must be positive, was "+workers+".");
+		SocketTransport t = new SocketTransport(workers, allowedClasses);
+		try{
+			for(int k = 0; k < workers; k++){
+				ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+				t.servers.add(server);
+				Thread serving = new Thread(() -> {
+					try{
+						new PartitionWorker(allowedClasses).serve(server);
+					}catch(IOException e){
+						//server failed; connecting to it fails as well
+					}
+				}, "partition-server-"+k);
+				serving.setDaemon(true);
+				serving.start();
+				t.open(k, new InetSocketAddress(server.getInetAddress(), server.getLocalPort()));
+			}
+		}catch(IOException e){
+			t.close();
+			throw e;
+		}
+		return t;
+	}
+
+	private void open(int k, InetSocketAddress address) throws IOException{
+		Socket socket = new Socket(address.getAddress(), address.getPort());
+		socket.setTcpNoDelay(true);
+		sockets[k] = socket;
+		in[k] = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out[k] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		final String name = "partition-connection-"+k;
+		threads[k] = Executors.newSingleThreadExecutor((r) -> {
+			Thread t = new Thread(r, name);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@Override
+	public int workers(){
+		return sockets.length;
+	}
+
+	@Override
+	public <R> CompletableFuture<R> submit(int worker, PartitionTask<R> task){
+		return CompletableFuture.supplyAsync(() -> {
+			try{
+				return exchange(worker, task);
+			}catch(NotSerializableException e){
+				//nothing was sent, the connection is still in sync
+				throw new CompletionException(e);
+			}catch(IOException | ClassNotFoundException e){
+				//a partial message may have been sent or received: stop using the connection
+				closeQuietly(sockets[worker]);
+				throw new CompletionException(e);
+			}
+		}, threads[worker]);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R> R exchange(int worker, PartitionTask<R> task) throws IOException, ClassNotFoundException{
+		byte[] request = PartitionWorker.serialize(task);
+		DataOutputStream o = out[worker];
+		o.writeInt(request.length);
+		o.write(request);
+		o.flush();
+
+		DataInputStream i = in[worker];
+		boolean success = i.readBoolean();
+		byte[] reply = PartitionWorker.readFrame(i, i.readInt());
+		Object result = PartitionWorker.deserialize(reply, PartitionWorker.filter(allowedClasses, true, reply.length));
+		if(!success)
+			throw new CompletionException((Throwable) result);
+		return (R) result;
+	}
+
+	/**Closes all connections, and stops the workers started by {@link #loopback(int)}.*/
+	@Override
+	public void close(){
+		for(ExecutorService t : threads)
+			if(t != null)
+				t.shutdown();
+		for(Socket s : sockets)
+			closeQuietly(s);
+		for(ServerSocket s : servers)
+			closeQuietly(s);
+	}
+
+	private static void closeQuietly(Closeable c){
+		if(c == null)
+			return;
+		try{
+			c.close();
+		}catch(IOException e){
+			//nothing left to do
+		}
+	}
+}
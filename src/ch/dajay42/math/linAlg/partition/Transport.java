@@ -0,0 +1,27 @@
+package ch.dajay42.math.linAlg.partition;
+
+import java.util.concurrent.CompletableFuture;
+
+/**Connection from a coordinator to a fixed set of workers, numbered 0 through workers()-1,
+ * each of which holds some partitions of every {@link ch.dajay42.math.linAlg.PartitionedMatrix} on it.
+ * <p/>Tasks submitted to the same worker run one at a time, in the order they were submitted;
+ * tasks submitted to different workers run concurrently.
+ * @see InProcessTransport
+ * @see SocketTransport
+ * @author DaJay42
+ */
+public interface Transport extends AutoCloseable{
+
+	/**Returns the number of workers.*/
+	int workers();
+
+	/**Submits task to run on worker.
+	 * @return future of the result of task; it completes exceptionally with whatever task throws,
+	 * or with an IOException if the task or its result cannot be transferred
+	 */
+	<R> CompletableFuture<R> submit(int worker, PartitionTask<R> task);
+
+	/**Disconnects from the workers. Tasks submitted afterwards fail.*/
+	@Override
+	void close();
+}
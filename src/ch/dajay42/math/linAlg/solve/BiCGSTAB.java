@@ -0,0 +1,83 @@
+package ch.dajay42.math.linAlg.solve;
+
+import java.util.Arrays;
+
+import ch.dajay42.math.linAlg.Matrix;
+
+/**Right-preconditioned Biconjugate Gradient Stabilized method, for general non-singular A.
+ * <p/>Each iteration costs two products with A, two applications of the preconditioner and O(n) vector operations.
+ * Stops early on breakdown, i.e. if the shadow residual becomes orthogonal to the residual.
+ * Workspace: 8 vectors of length n.
+ * @author DaJay42
+ */
+public class BiCGSTAB extends IterativeSolver{
+
+	private final double[] r, rHat, p, v, pHat, s, sHat, t;
+
+	public BiCGSTAB(LinearOperator a){
+		super(a);
+		r = new double[n];
+		rHat = new double[n];
+		p = new double[n];
+		v = new double[n];
+		pHat = new double[n];
+		s = new double[n];
+		sHat = new double[n];
+		t = new double[n];
+	}
+
+	public BiCGSTAB(Matrix a){
+		this(LinearOperator.of(a));
+	}
+
+	@Override
+	protected SolveResult iterate(double[] b, double[] x, double bNorm){
+		final Preconditioner m = getPreconditioner();
+		Vectors.residual(a, b, x, r);
+		double residual = Vectors.norm(r) / bNorm;
+		if(residual <= getTolerance())
+			return new SolveResult(0, residual, true);
+		System.arraycopy(r, 0, rHat, 0, n);
+		Arrays.fill(p, 0.0d);
+		Arrays.fill(v, 0.0d);
+		double rho = 1.0d, alpha = 1.0d, omega = 1.0d;
+		int k = 0;
+		while(k < getMaxIterations()){
+			final double rhoNext = Vectors.dot(rHat, r);
+			if(rhoNext == 0.0d || omega == 0.0d)
+				break;
+			final double beta = (rhoNext / rho) * (alpha / omega);
+			rho = rhoNext;
+			// p = r + beta*(p - omega*v)
+			for(int i = 0; i < n; i++)
+				p[i] = r[i] + beta * (p[i] - omega * v[i]);
+			m.apply(p, pHat);
+			a.apply(pHat, v);
+			final double rv = Vectors.dot(rHat, v);
+			if(rv == 0.0d)
+				break;
+			alpha = rho / rv;
+			for(int i = 0; i < n; i++)
+				s[i] = r[i] - alpha * v[i];
+			final double sNorm = Vectors.norm(s) / bNorm;
+			if(sNorm <= getTolerance()){
+				Vectors.axpy(alpha, pHat, x);
+				residual = sNorm;
+				proceed(++k, residual);
+				break;
+			}
+			m.apply(s, sHat);
+			a.apply(sHat, t);
+			final double tt = Vectors.dot(t, t);
+			omega = tt == 0.0d ? 0.0d : Vectors.dot(t, s) / tt;
+			for(int i = 0; i < n; i++){
+				x[i] += alpha * pHat[i] + omega * sHat[i];
+				r[i] = s[i] - omega * t[i];
+			}
+			residual = Vectors.norm(r) / bNorm;
+			if(!proceed(++k, residual))
+				break;
+		}
+		return new SolveResult(k, residual, residual <= getTolerance());
+	}
+}
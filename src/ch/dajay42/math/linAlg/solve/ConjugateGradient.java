@@ -0,0 +1,56 @@
+package ch.dajay42.math.linAlg.solve;
+
+import ch.dajay42.math.linAlg.Matrix;
+
+/**Preconditioned Conjugate Gradient method, for symmetric positive definite A,
+ * with a symmetric positive definite {@link Preconditioner}.
+ * <p/>Each iteration costs one product with A, one application of the preconditioner and O(n) vector operations.
+ * Workspace: 4 vectors of length n.
+ * @author DaJay42
+ */
+public class ConjugateGradient extends IterativeSolver{
+
+	private final double[] r, z, p, q;
+
+	public ConjugateGradient(LinearOperator a){
+		super(a);
+		r = new double[n];
+		z = new double[n];
+		p = new double[n];
+		q = new double[n];
+	}
+
+	public ConjugateGradient(Matrix a){
+		this(LinearOperator.of(a));
+	}
+
+	@Override
+	protected SolveResult iterate(double[] b, double[] x, double bNorm){
+		final Preconditioner m = getPreconditioner();
+		Vectors.residual(a, b, x, r);
+		double residual = Vectors.norm(r) / bNorm;
+		if(residual <= getTolerance())
+			return new SolveResult(0, residual, true);
+		m.apply(r, z);
+		System.arraycopy(z, 0, p, 0, n);
+		double rz = Vectors.dot(r, z);
+		int k = 0;
+		while(k < getMaxIterations()){
+			a.apply(p, q);
+			final double pq = Vectors.dot(p, q);
+			if(pq == 0.0d)
+				break;
+			final double alpha = rz / pq;
+			Vectors.axpy(alpha, p, x);
+			Vectors.axpy(-alpha, q, r);
+			residual = Vectors.norm(r) / bNorm;
+			if(!proceed(++k, residual))
+				break;
+			m.apply(r, z);
+			final double rzNext = Vectors.dot(r, z);
+			Vectors.xpby(z, rzNext / rz, p);
+			rz = rzNext;
+		}
+		return new SolveResult(k, residual, residual <= getTolerance());
+	}
+}
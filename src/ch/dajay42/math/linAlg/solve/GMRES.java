@@ -0,0 +1,126 @@
+package ch.dajay42.math.linAlg.solve;
+
+import java.util.Arrays;
+
+import ch.dajay42.math.linAlg.Matrix;
+
+/**Right-preconditioned, restarted Generalized Minimal Residual method GMRES(m), for general non-singular A.
+ * <p/>Builds an orthonormal Krylov basis of up to m vectors by modified Gram-Schmidt,
+ * keeping the Hessenberg least squares problem triangular by Givens rotations,
+ * so that the residual is known after every iteration without forming x.
+ * x is updated, and the basis discarded, every m iterations.
+ * <p/>Iteration j of a cycle costs one product with A, one application of the preconditioner and O(j*n).
+ * Workspace: m+3 vectors of length n, and O(m^2).
+ * @author DaJay42
+ */
+public class GMRES extends IterativeSolver{
+
+	/**Default number of iterations between restarts.*/
+	public static final int DEFAULT_RESTART = 30;
+
+	private final int restart;
+	private final double[][] v, h;
+	private final double[] w, z, cs, sn, g;
+
+	/**Creates a GMRES(restart) solver for a.
+	 * @param a square operator A
+	 * @param restart number of iterations between restarts, at least 1; clamped to n
+	 */
+	public GMRES(LinearOperator a, int restart){
+		super(a);
+		if(restart < 1)
+			throw new IllegalArgumentException("Restart must be at least 1.");
+		this.restart = Math.max(1, Math.min(restart, n));
+		v = new double[this.restart + 1][n];
+		h = new double[this.restart + 1][this.restart];
+		w = new double[n];
+		z = new double[n];
+		cs = new double[this.restart];
+		sn = new double[this.restart];
+		g = new double[this.restart + 1];
+	}
+
+	public GMRES(LinearOperator a){
+		this(a, DEFAULT_RESTART);
+	}
+
+	public GMRES(Matrix a, int restart){
+		this(LinearOperator.of(a), restart);
+	}
+
+	public GMRES(Matrix a){
+		this(LinearOperator.of(a));
+	}
+
+	public int getRestart(){
+		return restart;
+	}
+
+	@Override
+	protected SolveResult iterate(double[] b, double[] x, double bNorm){
+		final Preconditioner m = getPreconditioner();
+		int k = 0;
+		double residual;
+		boolean go = true;
+		do{
+			Vectors.residual(a, b, x, v[0]);
+			final double beta = Vectors.norm(v[0]);
+			residual = beta / bNorm;
+			if(residual <= getTolerance())
+				break;
+			Vectors.scale(1.0d / beta, v[0]);
+			Arrays.fill(g, 0.0d);
+			g[0] = beta;
+			int j = 0;
+			while(j < restart && k < getMaxIterations()){
+				m.apply(v[j], z);
+				a.apply(z, w);
+				for(int i = 0; i <= j; i++){
+					final double hij = Vectors.dot(w, v[i]);
+					h[i][j] = hij;
+					Vectors.axpy(-hij, v[i], w);
+				}
+				final double next = Vectors.norm(w);
+				h[j + 1][j] = next;
+				if(next != 0.0d){
+					System.arraycopy(w, 0, v[j + 1], 0, n);
+					Vectors.scale(1.0d / next, v[j + 1]);
+				}
+				for(int i = 0; i < j; i++){
+					final double t = cs[i] * h[i][j] + sn[i] * h[i + 1][j];
+					h[i + 1][j] = -sn[i] * h[i][j] + cs[i] * h[i + 1][j];
+					h[i][j] = t;
+				}
+				final double d = Math.hypot(h[j][j], h[j + 1][j]);
+				cs[j] = d == 0.0d ? 1.0d : h[j][j] / d;
+				sn[j] = d == 0.0d ? 0.0d : h[j + 1][j] / d;
+				h[j][j] = d;
+				h[j + 1][j] = 0.0d;
+				g[j + 1] = -sn[j] * g[j];
+				g[j] *= cs[j];
+				j++;
+				residual = Math.abs(g[j]) / bNorm;
+				go = proceed(++k, residual);
+				if(!go || next == 0.0d)
+					break;
+			}
+			update(x, j);
+		}while(go && k < getMaxIterations());
+		return new SolveResult(k, residual, residual <= getTolerance());
+	}
+
+	/**x <- x + M^-1 * V*y, where y solves the leading j*j triangle of h for g, overwriting g.*/
+	private void update(double[] x, int j){
+		for(int i = j - 1; i >= 0; i--){
+			double s = g[i];
+			for(int l = i + 1; l < j; l++)
+				s -= h[i][l] * g[l];
+			g[i] = h[i][i] == 0.0d ? 0.0d : s / h[i][i];
+		}
+		Arrays.fill(w, 0.0d);
+		for(int i = 0; i < j; i++)
+			Vectors.axpy(g[i], v[i], w);
+		getPreconditioner().apply(w, z);
+		Vectors.axpy(1.0d, z, x);
+	}
+}
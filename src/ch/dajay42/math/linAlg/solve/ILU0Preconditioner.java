@@ -0,0 +1,79 @@
+package ch.dajay42.math.linAlg.solve;
+
+import java.util.Arrays;
+
+import ch.dajay42.math.linAlg.*;
+
+/**Incomplete LU factorization preconditioner without fill-in, ILU(0): M = L*U,
+ * where L and U have the non-zero pattern of the lower and upper triangle of A.
+ * <p/>The factors are stored in one compressed sparse row structure, L with an implicit unit diagonal.
+ * Every row of A must hold its diagonal, and no pivot may become zero.
+ * <p/>Runs in O(nnz) per application.
+ * @author DaJay42
+ */
+public class ILU0Preconditioner implements Preconditioner{
+
+	private final int n;
+	private final int[] rowPtr, colIdx, diag;
+	private final double[] values;
+
+	/**Computes the ILU(0) factorization of a.
+	 * <p/>Runs in O(sum over rows i of the non-zeros of i times those of the rows of U it depends on), i.e. O(nnz) for banded A.
+	 * @param a square Matrix A, best sparse
+	 */
+	public ILU0Preconditioner(Matrix a){
+		if(a.rows != a.cols)
+			throw new MatrixNotSquareException(a.rows, a.cols);
+		n = a.rows;
+		MatrixCSR csr = MatrixCSR.of(a);
+		rowPtr = csr.getRowPointers();
+		colIdx = csr.getColumnIndices();
+		values = csr.getNonZeroValues();
+		diag = new int[n];
+		//MatrixCSR keeps the columns of each row in ascending order
+		for(int i = 0; i < n; i++)
+			diag[i] = Arrays.binarySearch(colIdx, rowPtr[i], rowPtr[i + 1], i);
+
+		final int[] position = new int[n];
+		Arrays.fill(position, -1);
+		for(int i = 0; i < n; i++){
+			if(diag[i] < 0)
+				throw new MatrixSingularException();
+			final int start = rowPtr[i], end = rowPtr[i + 1];
+			for(int q = start; q < end; q++)
+				position[colIdx[q]] = q;
+			for(int q = start; q < diag[i]; q++){
+				final int k = colIdx[q];
+				final double lik = values[q] / values[diag[k]];
+				values[q] = lik;
+				for(int r = diag[k] + 1, kEnd = rowPtr[k + 1]; r < kEnd; r++){
+					final int at = position[colIdx[r]];
+					if(at >= 0)
+						values[at] -= lik * values[r];
+				}
+			}
+			if(values[diag[i]] == 0.0d)
+				throw new MatrixSingularException();
+			for(int q = start; q < end; q++)
+				position[colIdx[q]] = -1;
+		}
+	}
+
+	@Override
+	public void apply(double[] r, double[] z){
+		// L*y = r
+		for(int i = 0; i < n; i++){
+			double s = r[i];
+			for(int q = rowPtr[i]; q < diag[i]; q++)
+				s -= values[q] * z[colIdx[q]];
+			z[i] = s;
+		}
+		// U*z = y
+		for(int i = n - 1; i >= 0; i--){
+			double s = z[i];
+			for(int q = diag[i] + 1, end = rowPtr[i + 1]; q < end; q++)
+				s -= values[q] * z[colIdx[q]];
+			z[i] = s / values[diag[i]];
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package ch.dajay42.math.linAlg.solve;
+
+/**Callback of an {@link IterativeSolver}, notified after every iteration.
+ * @author DaJay42
+ */
+@FunctionalInterface
+public interface IterationListener{
+
+	/**Called after iteration iteration, 1-based, with the relative residual ||b-A*x||/||b|| the solver estimates.
+	 * @param iteration number of iterations done
+	 * @param residual current relative residual
+	 * @return true to go on, false to stop the solver
+	 */
+	boolean onIteration(int iteration, double residual);
+}
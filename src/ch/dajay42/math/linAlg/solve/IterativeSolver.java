@@ -0,0 +1,129 @@
+package ch.dajay42.math.linAlg.solve;
+
+import java.util.Arrays;
+
+import ch.dajay42.math.linAlg.*;
+
+/**Base of the iterative solvers of A*x = b, for a square {@link LinearOperator} A.
+ * <p/>Each solver allocates its workspace vectors on construction and reuses them for every solve,
+ * so that its iteration loop allocates nothing beyond what A and the {@link Preconditioner} do.
+ * A solver is therefore not thread-safe, but may solve any number of systems with the same A in turn.
+ * <p/>Iteration stops as soon as the relative residual ||b-A*x||/||b|| is at most the tolerance,
+ * after maxIterations iterations, or when the {@link IterationListener} returns false.
+ * @author DaJay42
+ */
+public abstract class IterativeSolver{
+
+	/**Default relative residual to reach.*/
+	public static final double DEFAULT_TOLERANCE = 1e-10;
+
+	protected final LinearOperator a;
+	protected final int n;
+
+	private double tolerance = DEFAULT_TOLERANCE;
+	private int maxIterations;
+	private Preconditioner preconditioner = Preconditioner.IDENTITY;
+	private IterationListener listener = null;
+
+	/**Creates a solver for the square operator a, iterating up to 10*n times by default.*/
+	protected IterativeSolver(LinearOperator a){
+		if(a.rows() != a.cols())
+			throw new MatrixNotSquareException(a.rows(), a.cols());
+		this.a = a;
+		this.n = a.rows();
+		this.maxIterations = Math.max(10 * n, 100);
+	}
+
+	public double getTolerance(){
+		return tolerance;
+	}
+
+	/**Sets the relative residual to reach.
+	 * @return this
+	 */
+	public IterativeSolver setTolerance(double tolerance){
+		if(!(tolerance >= 0.0d))
+			throw new IllegalArgumentException("Tolerance must not be negative.");
+		this.tolerance = tolerance;
+		return this;
+	}
+
+	public int getMaxIterations(){
+		return maxIterations;
+	}
+
+	/**Sets the maximal number of iterations.
+	 * @return this
+	 */
+	public IterativeSolver setMaxIterations(int maxIterations){
+		if(maxIterations < 0)
+			throw new IllegalArgumentException("Maximal number of iterations must not be negative.");
+		this.maxIterations = maxIterations;
+		return this;
+	}
+
+	public Preconditioner getPreconditioner(){
+		return preconditioner;
+	}
+
+	/**Sets the preconditioner, {@link Preconditioner#IDENTITY} if null.
+	 * @return this
+	 */
+	public IterativeSolver setPreconditioner(Preconditioner preconditioner){
+		this.preconditioner = preconditioner == null ? Preconditioner.IDENTITY : preconditioner;
+		return this;
+	}
+
+	public IterationListener getListener(){
+		return listener;
+	}
+
+	/**Sets the listener notified after every iteration, or none if null.
+	 * @return this
+	 */
+	public IterativeSolver setListener(IterationListener listener){
+		this.listener = listener;
+		return this;
+	}
+
+	/**Solves A*x = b, starting from x.
+	 * @param b right-hand side of length n
+	 * @param x initial guess of length n, overwritten with the solution
+	 * @return iterations, residual and whether the tolerance was reached
+	 */
+	public SolveResult solve(double[] b, double[] x){
+		if(b.length != n || x.length != n)
+			throw new MatrixDimensionMismatchException();
+		final double bNorm = Vectors.norm(b);
+		if(bNorm == 0.0d){
+			Arrays.fill(x, 0.0d);
+			return new SolveResult(0, 0.0d, true);
+		}
+		return iterate(b, x, bNorm);
+	}
+
+	/**Solves A*x = b, starting from zero.
+	 * <br/>The solution is returned whether or not it reached the tolerance;
+	 * use {@link #solve(double[], double[])} to find out.
+	 * @param b right-hand side, a vector of length n
+	 * @return solution x, as a column vector
+	 */
+	public Matrix solve(Matrix b){
+		if(b.elems != n || (b.rows != 1 && b.cols != 1))
+			throw new MatrixDimensionMismatchException();
+		double[] x = new double[n];
+		solve(b.getValuesRowMajor(), x);
+		return Matrix.zeroes(n, 1).fill(x);
+	}
+
+	/**Runs the iteration on b, which is not zero, from x.*/
+	protected abstract SolveResult iterate(double[] b, double[] x, double bNorm);
+
+	/**Returns true iff the solver may go on after iteration iteration with the given residual,
+	 * notifying the listener.*/
+	protected final boolean proceed(int iteration, double residual){
+		if(listener != null && !listener.onIteration(iteration, residual))
+			return false;
+		return residual > tolerance && iteration < maxIterations;
+	}
+}
@@ -0,0 +1,34 @@
+package ch.dajay42.math.linAlg.solve;
+
+import ch.dajay42.math.linAlg.*;
+
+/**Jacobi, or diagonal, preconditioner M = diag(A).
+ * <p/>Runs in O(n) per application.
+ * @author DaJay42
+ */
+public class JacobiPreconditioner implements Preconditioner{
+
+	private final double[] inverseDiagonal;
+
+	/**Creates the Jacobi preconditioner of a.
+	 * <p/>Runs in O(n), times the cost of {@link Matrix#getValueAt(int, int)}.
+	 * @param a square Matrix A, with no zero on its diagonal
+	 */
+	public JacobiPreconditioner(Matrix a){
+		if(a.rows != a.cols)
+			throw new MatrixNotSquareException(a.rows, a.cols);
+		inverseDiagonal = new double[a.rows];
+		for(int i = 0; i < a.rows; i++){
+			double d = a.getValueAt(i, i);
+			if(d == 0.0d)
+				throw new MatrixSingularException();
+			inverseDiagonal[i] = 1.0d / d;
+		}
+	}
+
+	@Override
+	public void apply(double[] r, double[] z){
+		for(int i = 0; i < inverseDiagonal.length; i++)
+			z[i] = r[i] * inverseDiagonal[i];
+	}
+}
@@ -0,0 +1,56 @@
+package ch.dajay42.math.linAlg.solve;
+
+import ch.dajay42.math.linAlg.*;
+
+/**A linear map y = A*x on double[] vectors, which is all the iterative solvers need of A.
+ * <p/>Implementations must not retain x or y, and should not allocate in {@link #apply(double[], double[])},
+ * which is called once or twice per iteration.
+ * @author DaJay42
+ */
+public interface LinearOperator{
+
+	/**Returns the length of y.*/
+	int rows();
+
+	/**Returns the length of x.*/
+	int cols();
+
+	/**Computes y = A*x.
+	 * @param x input vector of length cols()
+	 * @param y output vector of length rows(), overwritten
+	 */
+	void apply(double[] x, double[] y);
+
+	/**Returns the operator of the matrix-vector product of a.
+	 * <br/>Sparse matrices are converted to {@link MatrixCSR} once, so that every product runs over its rows,
+	 * and lazy matrices are evaluated once; otherwise a itself is used, through {@link Matrix#multiply(double[], double[])}.
+	 * Later changes to a may therefore not be seen.
+	 * @param a Matrix A
+	 * @return operator of A
+	 */
+	static LinearOperator of(Matrix a){
+		final Matrix m;
+		if(a.isSparse())
+			m = MatrixCSR.of(a);
+		else if(a instanceof MatrixLazy)
+			m = ((MatrixLazy) a).eval();
+		else
+			m = a;
+		return new LinearOperator(){
+			@Override
+			public int rows(){
+				return m.rows;
+			}
+
+			@Override
+			public int cols(){
+				return m.cols;
+			}
+
+			@Override
+			public void apply(double[] x, double[] y){
+				m.multiply(x, y);
+			}
+		};
+	}
+}
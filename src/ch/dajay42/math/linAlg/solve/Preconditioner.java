@@ -0,0 +1,20 @@
+package ch.dajay42.math.linAlg.solve;
+
+/**An approximation M of the system Matrix A, applied as z = M^-1 * r, which is cheap compared to solving A.
+ * <p/>Implementations must not allocate in {@link #apply(double[], double[])}, which is called once or twice per iteration.
+ * @see JacobiPreconditioner
+ * @see ILU0Preconditioner
+ * @author DaJay42
+ */
+@FunctionalInterface
+public interface Preconditioner{
+
+	/**The identity, M = I, i.e. no preconditioning.*/
+	Preconditioner IDENTITY = (r, z) -> System.arraycopy(r, 0, z, 0, r.length);
+
+	/**Computes z = M^-1 * r.
+	 * @param r input vector
+	 * @param z output vector of the same length, overwritten
+	 */
+	void apply(double[] r, double[] z);
+}
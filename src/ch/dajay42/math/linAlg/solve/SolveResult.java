@@ -0,0 +1,25 @@
+package ch.dajay42.math.linAlg.solve;
+
+/**Outcome of {@link IterativeSolver#solve(double[], double[])}.
+ * @author DaJay42
+ */
+public final class SolveResult{
+
+	/**Number of iterations done.*/
+	public final int iterations;
+	/**Relative residual ||b-A*x||/||b|| reached.*/
+	public final double residual;
+	/**Whether residual reached the tolerance.*/
+	public final boolean converged;
+
+	SolveResult(int iterations, double residual, boolean converged){
+		this.iterations = iterations;
+		this.residual = residual;
+		this.converged = converged;
+	}
+
+	@Override
+	public String toString(){
+		return (converged ? "converged" : "not converged") + " after " + iterations + " iterations, residual " + residual;
+	}
+}
@@ -0,0 +1,55 @@
+package ch.dajay42.math.linAlg.solve;
+
+/**Sequential, allocation-free level 1 kernels on the workspace vectors of the solvers.
+ * @author DaJay42
+ */
+final class Vectors{
+
+	private Vectors(){throw new UnsupportedOperationException();} //no instances for you.
+
+	/**Returns the inner product of a and b.*/
+	static double dot(double[] a, double[] b){
+		final int n = a.length;
+		double s0 = 0.0d, s1 = 0.0d, s2 = 0.0d, s3 = 0.0d;
+		int i = 0;
+		for(; i + 4 <= n; i += 4){
+			s0 += a[i] * b[i];
+			s1 += a[i + 1] * b[i + 1];
+			s2 += a[i + 2] * b[i + 2];
+			s3 += a[i + 3] * b[i + 3];
+		}
+		for(; i < n; i++)
+			s0 += a[i] * b[i];
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/**Returns the euclidean norm of a.*/
+	static double norm(double[] a){
+		return Math.sqrt(dot(a, a));
+	}
+
+	/**y <- y + alpha*x*/
+	static void axpy(double alpha, double[] x, double[] y){
+		for(int i = 0; i < y.length; i++)
+			y[i] += alpha * x[i];
+	}
+
+	/**y <- x + beta*y*/
+	static void xpby(double[] x, double beta, double[] y){
+		for(int i = 0; i < y.length; i++)
+			y[i] = x[i] + beta * y[i];
+	}
+
+	/**x <- alpha*x*/
+	static void scale(double alpha, double[] x){
+		for(int i = 0; i < x.length; i++)
+			x[i] *= alpha;
+	}
+
+	/**r <- b - A*x*/
+	static void residual(LinearOperator a, double[] b, double[] x, double[] r){
+		a.apply(x, r);
+		for(int i = 0; i < r.length; i++)
+			r[i] = b[i] - r[i];
+	}
+}